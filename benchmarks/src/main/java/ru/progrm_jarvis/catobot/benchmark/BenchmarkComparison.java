@@ -0,0 +1,76 @@
+package ru.progrm_jarvis.catobot.benchmark;
+
+import com.google.gson.JsonParser;
+import lombok.NonNull;
+import lombok.val;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Comparison of two JSON results of JMH, such as ones of two commits.
+ * <p>
+ * Usage: {@code BenchmarkComparison <baseline.json> <candidate.json>},
+ * prints the score of each benchmark present in both results and its relative change.
+ */
+public final class BenchmarkComparison {
+
+    private BenchmarkComparison() {
+        throw new UnsupportedOperationException("This is a benchmark class and cannot be instantiated");
+    }
+
+    public static void main(@NonNull final String... args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BenchmarkComparison <baseline.json> <candidate.json>");
+            System.exit(1);
+            return;
+        }
+
+        val baseline = readScores(args[0]);
+        val candidate = readScores(args[1]);
+
+        System.out.printf("%-72s %14s %14s %9s%n", "benchmark", "baseline", "candidate", "change");
+        for (val entry : baseline.entrySet()) {
+            val candidateScore = candidate.get(entry.getKey());
+            if (candidateScore == null) continue;
+
+            val baselineScore = entry.getValue();
+            System.out.printf(
+                    "%-72s %14.3f %14.3f %+8.1f%%%n", entry.getKey(), baselineScore, candidateScore,
+                    (candidateScore / baselineScore - 1) * 100
+            );
+        }
+    }
+
+    /**
+     * Reads the scores of benchmarks from the JSON result of JMH.
+     *
+     * @param file path to the result
+     * @return scores of benchmarks by their names followed by their modes, units and parameters
+     * @throws IOException if an exception occurs while reading the result
+     */
+    private static Map<String, Double> readScores(@NonNull final String file) throws IOException {
+        val scores = new LinkedHashMap<String, Double>();
+        try (final Reader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            for (val element : new JsonParser().parse(reader).getAsJsonArray()) {
+                val run = element.getAsJsonObject();
+                val metric = run.getAsJsonObject("primaryMetric");
+
+                val name = new StringBuilder(run.get("benchmark").getAsString())
+                        .append(" [").append(run.get("mode").getAsString()).append(", ")
+                        .append(metric.get("scoreUnit").getAsString()).append(']');
+                if (run.has("params")) for (val param : run.getAsJsonObject("params").entrySet()) name
+                        .append(' ').append(param.getKey()).append('=').append(param.getValue().getAsString());
+
+                scores.put(name.toString(), metric.get("score").getAsDouble());
+            }
+        }
+
+        return scores;
+    }
+}
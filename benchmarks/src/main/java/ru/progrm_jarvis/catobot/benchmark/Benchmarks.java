@@ -0,0 +1,43 @@
+package ru.progrm_jarvis.catobot.benchmark;
+
+import lombok.NonNull;
+import lombok.val;
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Entry point of the benchmarks running JMH with machine-readable results written by default.
+ * <p>
+ * Usage: {@code java -jar benchmarks.jar [JMH options]}, unless overridden by {@code -rf} and {@code -rff}
+ * the results are written as JSON to {@value #DEFAULT_RESULT_FILE} and may be compared with
+ * {@link BenchmarkComparison}.
+ */
+public final class Benchmarks {
+
+    /**
+     * File to which the results are written unless another one is specified
+     */
+    public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    private Benchmarks() {
+        throw new UnsupportedOperationException("This is a benchmark class and cannot be instantiated");
+    }
+
+    public static void main(@NonNull final String... args) throws Exception {
+        val arguments = new ArrayList<String>(args.length + 4);
+        val specified = Arrays.asList(args);
+        if (!specified.contains("-rf")) {
+            arguments.add("-rf");
+            arguments.add("json");
+        }
+        if (!specified.contains("-rff")) {
+            arguments.add("-rff");
+            arguments.add(DEFAULT_RESULT_FILE);
+        }
+        arguments.addAll(specified);
+
+        Main.main(arguments.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,89 @@
+package ru.progrm_jarvis.catobot.image.repository;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.openjdk.jmh.annotations.*;
+import ru.progrm_jarvis.catobot.image.CatImage;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmark of picks from {@link PreLoadingCatImageRepository} by concurrent handlers of updates.
+ * <p>
+ * The factory creates cat images instantly so that the cost of the repository itself
+ * (its cache and its refilling by the loader) is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class CatImageRepositoryBenchmark {
+
+    /**
+     * Amount of cat images kept by the repository
+     */
+    @Param({"16", "256"})
+    public int cacheSize;
+
+    PreLoadingCatImageRepository<CatImage, Void> repository;
+
+    @Setup
+    public void setUp() {
+        final AtomicLong ids = new AtomicLong();
+        repository = new PreLoadingCatImageRepository<>(
+                configuration -> CompletableFuture.completedFuture(
+                        new StubCatImage(Long.toString(ids.incrementAndGet()))
+                ), null, cacheSize, 1
+        );
+    }
+
+    @TearDown
+    public void tearDown() {
+        repository.close();
+    }
+
+    @Benchmark
+    public CompletableFuture<CatImage> pick() {
+        return repository.pickRandomCatImage(null);
+    }
+
+    @Benchmark
+    public CompletableFuture<CatImage> filteredPick() {
+        // accepts about a half of cat images like a filter of seen ones of an active user
+        return repository.pickRandomCatImage(null, image -> (image.hashCode() & 1) == 0);
+    }
+
+    /**
+     * Cat image without any bytes.
+     */
+    @RequiredArgsConstructor
+    @FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+    protected static class StubCatImage implements CatImage {
+
+        @NonNull String id;
+
+        @Override
+        @Nullable public String getId() {
+            return id;
+        }
+
+        @Override
+        @NotNull public byte[] getImage() {
+            return new byte[0];
+        }
+
+        @Override
+        @NotNull public String getType() {
+            return "png";
+        }
+    }
+}
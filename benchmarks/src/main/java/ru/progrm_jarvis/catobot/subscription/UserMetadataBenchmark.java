@@ -0,0 +1,66 @@
+package ru.progrm_jarvis.catobot.subscription;
+
+import com.google.gson.JsonObject;
+import lombok.val;
+import lombok.var;
+import org.openjdk.jmh.annotations.*;
+import ru.progrm_jarvis.catobot.CatOfTheDay;
+import ru.progrm_jarvis.catobot.util.BloomFilter;
+
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of round-trips of users' metadata through the JSON stored by {@link RedisUserManager}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserMetadataBenchmark {
+
+    /**
+     * Metadata of a subscribed user who has seen a full generation of cat images
+     */
+    JsonObject metadata;
+
+    /**
+     * Stored form of {@link #metadata}
+     */
+    String storedMetadata;
+
+    @Setup
+    public void setUp() {
+        val configuration = SeenCatImagesFilter.Configuration.builder().build();
+        val filter = new BloomFilter(configuration.getBitCount(), configuration.getHashFunctions());
+        for (var i = 0; i < configuration.getCapacity(); i++) filter.put("cat-" + i);
+
+        val encoder = Base64.getEncoder();
+        val seenCatImages = new JsonObject();
+        seenCatImages.addProperty("current", encoder.encodeToString(filter.toByteArray()));
+        seenCatImages.addProperty("previous", encoder.encodeToString(filter.toByteArray()));
+        seenCatImages.addProperty("count", configuration.getCapacity());
+
+        metadata = new JsonObject();
+        metadata.add(SeenCatImagesFilter.METADATA_KEY, seenCatImages);
+        metadata.addProperty(CatOfTheDay.METADATA_KEY, true);
+        storedMetadata = RedisUserManager.GSON.toJson(metadata);
+    }
+
+    @Benchmark
+    public String store() {
+        return RedisUserManager.GSON.toJson(metadata);
+    }
+
+    @Benchmark
+    public JsonObject load() {
+        return RedisUserManager.GSON.fromJson(storedMetadata, JsonObject.class);
+    }
+
+    @Benchmark
+    public JsonObject roundTrip() {
+        return RedisUserManager.GSON.fromJson(RedisUserManager.GSON.toJson(metadata), JsonObject.class);
+    }
+}
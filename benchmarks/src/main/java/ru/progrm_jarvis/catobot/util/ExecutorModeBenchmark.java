@@ -0,0 +1,79 @@
+package ru.progrm_jarvis.catobot.util;
+
+import lombok.val;
+import lombok.var;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark comparing {@link ExecutorMode executor modes} under high concurrency of blocking tasks
+ * (such as HTTP-requests to TheCatApi, wit.ai and VK or Redis commands).
+ * <p>
+ * Virtual threads are only measured when run on Java 21 or newer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutorModeBenchmark {
+
+    /**
+     * Executor whose tasks are measured: a cached pool (the current default of the bot),
+     * a fixed pool of the given amount of workers or a virtual thread per task
+     */
+    @Param({"cached", "fixed-64", "fixed-256", "virtual"})
+    String executorType;
+
+    /**
+     * Amount of tasks submitted at once
+     */
+    @Param("5000")
+    int tasks;
+
+    /**
+     * Time in milliseconds for which each task blocks
+     */
+    @Param("20")
+    long blockingTime;
+
+    ExecutorService executor;
+
+    @Setup
+    public void setUp() {
+        if (executorType.equals("virtual")) {
+            if (!ExecutorMode.isVirtualThreadsAvailable()) throw new IllegalStateException(
+                    "Virtual threads are not available in Java " + System.getProperty("java.version")
+            );
+            executor = ExecutorMode.VIRTUAL.createExecutorService(0, Executors.defaultThreadFactory());
+        } else executor = ExecutorMode.PLATFORM.createExecutorService(
+                executorType.equals("cached") ? 0 : Integer.parseInt(executorType.substring("fixed-".length())),
+                Executors.defaultThreadFactory()
+        );
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    @Benchmark
+    public void runBlockingTasks() throws InterruptedException {
+        val completed = new CountDownLatch(tasks);
+        for (var i = 0; i < tasks; i++) executor.execute(() -> {
+            try {
+                Thread.sleep(blockingTime);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            completed.countDown();
+        });
+        completed.await();
+    }
+}
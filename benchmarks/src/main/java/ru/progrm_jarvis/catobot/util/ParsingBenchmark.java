@@ -0,0 +1,65 @@
+package ru.progrm_jarvis.catobot.util;
+
+import lombok.NonNull;
+import lombok.val;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.*;
+import ru.progrm_jarvis.catobot.ai.RecognitionResult;
+import ru.progrm_jarvis.catobot.image.TheCatApiCatImage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of parsing responses of TheCatApi and WitAI recorded from real requests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParsingBenchmark {
+
+    /**
+     * Response of TheCatApi to a search of 10 cat images
+     */
+    byte[] catImages;
+
+    /**
+     * Response of WitAI to a recognition of a message
+     */
+    byte[] recognitionResult;
+
+    @Setup
+    public void setUp() throws IOException {
+        catImages = readResource("thecatapi-search.json");
+        recognitionResult = readResource("witai-message.json");
+    }
+
+    /**
+     * Reads the bytes of the class-path resource.
+     *
+     * @param name name of the resource
+     * @return bytes of the resource
+     * @throws IOException if the resource cannot be read
+     */
+    protected static byte[] readResource(@NonNull final String name) throws IOException {
+        try (val resource = ParsingBenchmark.class.getClassLoader().getResourceAsStream(name)) {
+            if (resource == null) throw new IOException("Missing resource " + name);
+
+            return IOUtils.toByteArray(resource);
+        }
+    }
+
+    @Benchmark
+    public TheCatApiCatImage[] parseCatImages() {
+        return TheCatApiUtil.parseCatImages(new ByteArrayInputStream(catImages));
+    }
+
+    @Benchmark
+    public RecognitionResult parseRecognitionResult() {
+        return WitAiUtil.parseRecognitionResult(new ByteArrayInputStream(recognitionResult));
+    }
+}
@@ -0,0 +1,67 @@
+package ru.progrm_jarvis.catobot.vk;
+
+import com.google.gson.Gson;
+import com.vk.api.sdk.objects.photos.responses.MessageUploadResponse;
+import lombok.val;
+import lombok.var;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of building the VKScript sending uploaded cat images.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VkScriptBenchmark {
+
+    /**
+     * Amount of uploaded cat images
+     */
+    @Param({"1", "5", "10"})
+    public int images;
+
+    List<MessageUploadResponse> uploads;
+
+    /**
+     * Attachments of the saved cat images
+     */
+    String attachments;
+
+    @Setup
+    public void setUp() {
+        val gson = new Gson();
+        uploads = new ArrayList<>(images);
+        for (var i = 0; i < images; i++) uploads.add(gson.fromJson(
+                "{\"server\":" + (838_000 + i) + ",\"photo\":\"[{\\\"photo\\\":\\\"b8e1f0c2d3:w\\\",\\\"sizes\\\":[],"
+                        + "\\\"kid\\\":\\\"4f7a1c9e2b5d8e0f3a6c9b2e5d8f1a4c\\\"}]\","
+                        + "\"hash\":\"1d6e9f2c5b8a1d4e7f0c3b6a9d2e5f8c\"}",
+                MessageUploadResponse.class
+        ));
+
+        val joinedAttachments = new StringBuilder();
+        for (var i = 0; i < images; i++) {
+            if (i != 0) joinedAttachments.append(',');
+            joinedAttachments.append("photo-178385719_").append(457_239_017 + i);
+        }
+        attachments = joinedAttachments.toString();
+    }
+
+    @Benchmark
+    public String savePhotosScript() {
+        return SimpleVkCatsManager.createSavePhotosScript(uploads);
+    }
+
+    @Benchmark
+    public String sendCall() {
+        return SimpleVkCatsManager.createSendCall(
+                123_456_789, 987_654_321, attachments, 4_242, "Here are your \"cats\" >^.^<"
+        );
+    }
+}
@@ -0,0 +1,466 @@
+package ru.progrm_jarvis.catobot;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.progrm_jarvis.catobot.subscription.UserManager;
+import ru.progrm_jarvis.catobot.util.RateMeter;
+import ru.progrm_jarvis.catobot.vk.VkCatsManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Broadcaster of messages to all stored users.
+ * <p>
+ * Users are streamed from the {@link UserManager} in chunks each of which is sent as messages
+ * to up to {@link VkCatsManager#MAX_PEERS_PER_MESSAGE} peers (which get batched and rate-limited by VK-manager).
+ * Progress is checkpointed after each chunk so that an interrupted broadcast gets resumed from the last chunk,
+ * the random IDs of the messages are derived from the one of the broadcast and their receivers
+ * so that VK deduplicates messages sent again after resuming without treating the other chunks as duplicates.
+ * <p>
+ * Keys of users are expected to be IDs of the peers, users whose keys are not numbers are skipped.
+ * Only one broadcast may be performed at a time.
+ */
+@Slf4j
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class Broadcaster implements AutoCloseable {
+
+    protected static final Gson GSON = new Gson();
+
+    @NonNull Configuration configuration;
+
+    /**
+     * User-manager from which the receivers of broadcasts are streamed
+     */
+    @NonNull UserManager userManager;
+
+    @NonNull VkCatsManager vk;
+
+    /**
+     * Executor performing the broadcasts
+     */
+    @NonNull ExecutorService executor;
+
+    /**
+     * File storing the progress of the current broadcast
+     */
+    @NonNull Path checkpointFile;
+
+    /**
+     * Last started broadcast
+     */
+    @NonNull AtomicReference<Broadcast> current;
+
+    public Broadcaster(@NonNull final Configuration configuration,
+                       @NonNull final UserManager userManager,
+                       @NonNull final VkCatsManager vk,
+                       @NonNull final ExecutorService executor) {
+        val peersPerMessage = configuration.getPeersPerMessage();
+        if (peersPerMessage <= 0 || peersPerMessage > VkCatsManager.MAX_PEERS_PER_MESSAGE) {
+            throw new IllegalArgumentException(
+                    "peersPerMessage should be in range [1; " + VkCatsManager.MAX_PEERS_PER_MESSAGE + "]"
+            );
+        }
+        this.configuration = configuration;
+        this.userManager = userManager;
+        this.vk = vk;
+        this.executor = executor;
+
+        checkpointFile = configuration.getCheckpointFile().toPath();
+        current = new AtomicReference<>();
+    }
+
+    /**
+     * Gets the last started broadcast.
+     *
+     * @return last started broadcast or {@code null} if there was none
+     */
+    @Nullable public Broadcast getCurrent() {
+        return current.get();
+    }
+
+    /**
+     * Starts broadcasting the message to all users.
+     *
+     * @param message message to broadcast
+     * @return started broadcast
+     *
+     * @throws IllegalStateException if another broadcast is running
+     */
+    @NotNull public Broadcast start(@NonNull final String message) {
+        return start(new Broadcast(
+                UUID.randomUUID().toString(), message, ThreadLocalRandom.current().nextInt(),
+                System.currentTimeMillis(), UserManager.SCAN_START
+        ));
+    }
+
+    /**
+     * Resumes the interrupted broadcast from its checkpoint if it should be {@link Configuration#isResume() resumed}
+     * once the bot starts.
+     *
+     * @return resumed broadcast or {@code null} if there is no interrupted broadcast or it should not be resumed
+     *
+     * @throws IllegalStateException if another broadcast is running
+     */
+    @Nullable public Broadcast resumeOnStart() {
+        return configuration.isResume() ? resume() : null;
+    }
+
+    /**
+     * Resumes the interrupted broadcast from its checkpoint.
+     *
+     * @return resumed broadcast or {@code null} if there is no interrupted broadcast
+     *
+     * @throws IllegalStateException if another broadcast is running
+     */
+    @Nullable public Broadcast resume() {
+        final Checkpoint checkpoint;
+        try {
+            checkpoint = GSON.fromJson(
+                    new String(Files.readAllBytes(checkpointFile), StandardCharsets.UTF_8), Checkpoint.class
+            );
+        } catch (final NoSuchFileException e) {
+            return null;
+        } catch (final IOException | JsonParseException e) {
+            log.warn("Unable to read checkpoint of broadcast " + checkpointFile, e);
+            return null;
+        }
+        if (checkpoint == null) return null;
+
+        val broadcast = new Broadcast(
+                checkpoint.getId(), checkpoint.getMessage(), checkpoint.getRandomId(),
+                checkpoint.getStartTime(), checkpoint.getCursor()
+        );
+        broadcast.scanned = checkpoint.getScanned();
+        broadcast.sent = checkpoint.getSent();
+        broadcast.failed = checkpoint.getFailed();
+        broadcast.skipped = checkpoint.getSkipped();
+        log.info("Resuming broadcast {} after {} scanned users", broadcast.getId(), broadcast.getScanned());
+
+        return start(broadcast);
+    }
+
+    /**
+     * Starts performing the given broadcast.
+     *
+     * @param broadcast broadcast to perform
+     * @return started broadcast
+     *
+     * @throws IllegalStateException if another broadcast is running
+     */
+    protected Broadcast start(@NonNull final Broadcast broadcast) {
+        while (true) {
+            val previous = current.get();
+            if (previous != null && previous.getState() == State.RUNNING) throw new IllegalStateException(
+                    "Broadcast " + previous.getId() + " is already running"
+            );
+            if (current.compareAndSet(previous, broadcast)) break;
+        }
+
+        executor.execute(() -> run(broadcast));
+
+        return broadcast;
+    }
+
+    /**
+     * Performs the broadcast until it is completed, cancelled or interrupted.
+     *
+     * @param broadcast broadcast to perform
+     */
+    protected void run(@NonNull final Broadcast broadcast) {
+        try {
+            while (broadcast.getState() == State.RUNNING) {
+                val chunk = userManager.scanUserKeys(broadcast.getCursor(), configuration.getChunkSize()).get();
+
+                val keys = chunk.getKeys();
+                val peerIds = new ArrayList<Integer>(keys.size());
+                for (val key : keys) try {
+                    peerIds.add(Integer.parseInt(key));
+                } catch (final NumberFormatException e) {
+                    broadcast.skipped++;
+                }
+
+                val peersPerMessage = configuration.getPeersPerMessage();
+                val sends = new ArrayList<CompletableFuture<Integer>>(peerIds.size() / peersPerMessage + 1);
+                for (var from = 0; from < peerIds.size(); from += peersPerMessage) {
+                    val receivers = peerIds.subList(from, Math.min(from + peersPerMessage, peerIds.size()));
+                    sends.add(vk.sendMessage(
+                            receivers, getRandomMessageId(broadcast, receivers), broadcast.getMessage()
+                    ));
+                }
+
+                for (var i = 0; i < sends.size(); i++) {
+                    val receivers = Math.min(peersPerMessage, peerIds.size() - i * peersPerMessage);
+                    int delivered;
+                    try {
+                        delivered = sends.get(i).get();
+                    } catch (final ExecutionException e) {
+                        log.debug("Unable to send broadcast " + broadcast.getId() + " to a chunk of peers", e);
+                        delivered = 0;
+                    }
+                    broadcast.sent += delivered;
+                    broadcast.failed += receivers - delivered;
+                    broadcast.rate.mark(delivered);
+                }
+
+                broadcast.scanned += keys.size();
+                broadcast.cursor = chunk.getNextCursor();
+
+                if (chunk.isLast()) {
+                    if (broadcast.finish(State.COMPLETED)) log.info("Completed broadcast: {}", broadcast);
+                } else if (broadcast.getState() == State.RUNNING) saveCheckpoint(broadcast);
+            }
+            // the broadcast should not be resumed unless it was interrupted
+            Files.deleteIfExists(checkpointFile);
+        } catch (final InterruptedException e) {
+            // the checkpoint is kept so that the broadcast is resumed later
+            broadcast.finish(State.INTERRUPTED);
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException | IOException | RuntimeException e) {
+            log.error("An exception occurred while performing broadcast " + broadcast.getId(), e);
+            broadcast.finish(State.INTERRUPTED);
+        }
+    }
+
+    /**
+     * Gets the random ID of the broadcast's message sent to the given peers.
+     * It stays the same when the message is sent to the same peers again after resuming the broadcast
+     * while the messages sent to the other peers get different ones so that VK does not drop them as duplicates.
+     *
+     * @param broadcast broadcast whose message is sent
+     * @param peerIds receivers of the message
+     * @return random ID of the message
+     */
+    protected static int getRandomMessageId(@NonNull final Broadcast broadcast, @NonNull final List<Integer> peerIds) {
+        var randomId = broadcast.getRandomId();
+        for (val peerId : peerIds) randomId = 31 * randomId + peerId;
+
+        return randomId;
+    }
+
+    /**
+     * Saves the progress of the broadcast so that it may be resumed.
+     *
+     * @param broadcast broadcast whose progress should be saved
+     *
+     * @throws IOException if an exception occurs while saving the checkpoint
+     */
+    protected void saveCheckpoint(@NonNull final Broadcast broadcast) throws IOException {
+        val checkpoint = GSON.toJson(new Checkpoint(
+                broadcast.getId(), broadcast.getMessage(), broadcast.getRandomId(), broadcast.getStartTime(),
+                broadcast.getCursor(), broadcast.getScanned(), broadcast.getSent(), broadcast.getFailed(),
+                broadcast.getSkipped()
+        ));
+
+        val directory = checkpointFile.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+
+        // write to a temporary file so that a crash does not leave a corrupted checkpoint
+        val temporaryFile = Files.createTempFile(directory, checkpointFile.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporaryFile, checkpoint.getBytes(StandardCharsets.UTF_8));
+            Files.move(
+                    temporaryFile, checkpointFile,
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE
+            );
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    @Override
+    public void close() {
+        // the current broadcast gets interrupted keeping its checkpoint
+        executor.shutdownNow();
+    }
+
+    /**
+     * State of a broadcast.
+     */
+    public enum State {
+
+        /**
+         * The broadcast is being performed
+         */
+        RUNNING,
+
+        /**
+         * The message was sent to all users
+         */
+        COMPLETED,
+
+        /**
+         * The broadcast was cancelled and will not be resumed
+         */
+        CANCELLED,
+
+        /**
+         * The broadcast was interrupted and may be resumed from its checkpoint
+         */
+        INTERRUPTED
+    }
+
+    /**
+     * Broadcast of a message to all users.
+     */
+    @Getter
+    @RequiredArgsConstructor(access = AccessLevel.PROTECTED)
+    @FieldDefaults(level = AccessLevel.PROTECTED)
+    public static final class Broadcast {
+
+        /**
+         * Unique ID of this broadcast
+         */
+        @NonNull final String id;
+
+        /**
+         * Broadcasted message
+         */
+        @NonNull final String message;
+
+        /**
+         * Random ID from which the ones of the sent messages used by VK for deduplicating them are derived
+         */
+        final int randomId;
+
+        /**
+         * Time at which this broadcast was started in milliseconds since the epoch
+         */
+        final long startTime;
+
+        /**
+         * Cursor of the next chunk of users
+         */
+        @NonNull volatile String cursor;
+
+        /**
+         * Meter of the rate at which this broadcast is delivered
+         */
+        @Getter(AccessLevel.NONE) @NonNull final RateMeter rate = new RateMeter(60);
+
+        @NonNull volatile State state = State.RUNNING;
+
+        /**
+         * Amount of users processed by this broadcast
+         */
+        volatile long scanned;
+
+        /**
+         * Amount of peers to whom the message was delivered
+         */
+        volatile long sent;
+
+        /**
+         * Amount of peers to whom the message could not be delivered
+         */
+        volatile long failed;
+
+        /**
+         * Amount of users whose keys are not IDs of peers
+         */
+        volatile long skipped;
+
+        /**
+         * Gets the rate at which this broadcast was delivered during the last minute.
+         *
+         * @return amount of peers to whom the message was delivered per second
+         */
+        public double getRate() {
+            return rate.getRate();
+        }
+
+        /**
+         * Cancels this broadcast so that it is neither continued nor resumed.
+         *
+         * @return {@code true} if this broadcast was cancelled by this call and {@code false} if it is not running
+         */
+        public boolean cancel() {
+            if (!finish(State.CANCELLED)) return false;
+            log.info("Cancelled broadcast {}", id);
+
+            return true;
+        }
+
+        /**
+         * Finishes this broadcast unless it is already finished.
+         *
+         * @param state state in which this broadcast is finished
+         * @return {@code true} if this broadcast was finished by this call and {@code false} if it is not running
+         */
+        protected synchronized boolean finish(@NonNull final State state) {
+            if (this.state != State.RUNNING) return false;
+            this.state = state;
+
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "Broadcast " + id + " (" + state + "): " + scanned + " users processed, " + sent + " sent, "
+                    + failed + " failed, " + skipped + " skipped, " + String.format("%.1f", getRate()) + " per second";
+        }
+    }
+
+    /**
+     * Stored progress of a broadcast.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    protected static class Checkpoint {
+
+        String id, message;
+        int randomId;
+        long startTime;
+        String cursor;
+        long scanned, sent, failed, skipped;
+    }
+
+    /**
+     * Configuration of {@link Broadcaster}.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Configuration {
+
+        /**
+         * File storing the progress of the current broadcast
+         */
+        @Builder.Default @NonNull File checkpointFile = new File("cache/broadcast.json");
+
+        /**
+         * Whether or not an interrupted broadcast should be resumed on start
+         */
+        @Builder.Default boolean resume = true;
+
+        /**
+         * Amount of users processed at once, this is only a hint for the user-manager
+         */
+        @Builder.Default int chunkSize = 2_500;
+
+        /**
+         * Amount of peers to whom a single message is sent
+         */
+        @Builder.Default int peersPerMessage = VkCatsManager.MAX_PEERS_PER_MESSAGE;
+    }
+}
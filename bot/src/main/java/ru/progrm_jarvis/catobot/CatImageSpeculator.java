@@ -0,0 +1,420 @@
+package ru.progrm_jarvis.catobot;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.progrm_jarvis.catobot.image.CatImage;
+import ru.progrm_jarvis.catobot.image.repository.CatImageRepository;
+import ru.progrm_jarvis.catobot.subscription.SeenCatImagesFilter;
+import ru.progrm_jarvis.catobot.vk.VkCatsManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+/**
+ * Helper for speculative fetching of cat images.
+ * Cat images get reserved (and optionally uploaded) as soon as a message arrives
+ * so that this overlaps with the recognition of the message.
+ * Once the recognition completes the speculation should be either {@link Speculation#send(Integer, String) sent}
+ * or {@link Speculation#cancel() cancelled} in which case the reserved cat images are returned to the repository.
+ * <p>
+ * Unless a filter is specified explicitly, only the cat images not yet seen by the peer are picked
+ * and the sent ones are marked as seen by it.
+ *
+ * @param <I> type of cat images
+ * @param <C> type of configuration used for picking cat images
+ */
+@Slf4j
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class CatImageSpeculator<I extends CatImage, C> {
+
+    @NonNull Configuration configuration;
+
+    /**
+     * Repository from which the cat images get reserved
+     */
+    @NonNull CatImageRepository<I, C> repository;
+
+    @NonNull VkCatsManager vk;
+
+    /**
+     * Scheduler used for cancelling abandoned speculations
+     */
+    @NonNull ScheduledExecutorService scheduler;
+
+    /**
+     * Provider of filters of cat images seen by the peers or {@code null} if seen cat images are not filtered
+     */
+    @Nullable IntFunction<CompletableFuture<SeenCatImagesFilter>> seenCatImages;
+
+    @NonNull LongAdder speculations, confirmations, cancellations, wastedImages, wastedUploads;
+
+    public CatImageSpeculator(@NonNull final Configuration configuration,
+                              @NonNull final CatImageRepository<I, C> repository,
+                              @NonNull final VkCatsManager vk,
+                              @NonNull final ScheduledExecutorService scheduler) {
+        this(configuration, repository, vk, scheduler, null);
+    }
+
+    public CatImageSpeculator(@NonNull final Configuration configuration,
+                              @NonNull final CatImageRepository<I, C> repository,
+                              @NonNull final VkCatsManager vk,
+                              @NonNull final ScheduledExecutorService scheduler,
+                              @Nullable final IntFunction<CompletableFuture<SeenCatImagesFilter>> seenCatImages) {
+        this.configuration = configuration;
+        this.repository = repository;
+        this.vk = vk;
+        this.scheduler = scheduler;
+        this.seenCatImages = seenCatImages;
+
+        speculations = new LongAdder();
+        confirmations = new LongAdder();
+        cancellations = new LongAdder();
+        wastedImages = new LongAdder();
+        wastedUploads = new LongAdder();
+    }
+
+    /**
+     * Starts a speculation reserving cat images for the given peer.
+     *
+     * @param peerId peer to whom the cat images may be sent
+     * @param count amount of cat images to reserve
+     * @param imageConfiguration configuration used for picking cat images
+     * @param filter filter which the cat images should match in addition to not being seen by the peer
+     * or {@code null} if any of the ones not yet seen by the peer fit
+     * @param upload whether or not the cat images should also be uploaded to VK speculatively
+     * @return started speculation
+     */
+    public Speculation speculate(final int peerId, final int count, @Nullable final C imageConfiguration,
+                                 @Nullable final Predicate<? super I> filter, final boolean upload) {
+        speculations.increment();
+
+        final List<CompletableFuture<I>> images;
+        final CompletableFuture<SeenCatImagesFilter> seenFilter;
+        if (seenCatImages != null) {
+            // picking waits for the lookup of the user unless its filter is cached,
+            // failing lookups should not prevent sending cat images
+            seenFilter = seenCatImages.apply(peerId).exceptionally(e -> {
+                log.debug("Unable to get cat images seen by peer " + peerId, e);
+                return null;
+            });
+            images = new ArrayList<>(count);
+            for (var i = 0; i < count; i++) images.add(seenFilter.thenCompose(seen -> {
+                if (seen == null) return filter == null
+                        ? repository.pickRandomCatImage(imageConfiguration)
+                        : repository.pickRandomCatImage(imageConfiguration, filter);
+
+                return repository.pickRandomCatImage(
+                        imageConfiguration, filter == null ? seen : image -> filter.test(image) && seen.test(image)
+                );
+            }));
+        } else {
+            images = filter == null
+                    ? repository.pickRandomCatImages(count, imageConfiguration)
+                    : repository.pickRandomCatImages(count, imageConfiguration, filter);
+            seenFilter = null;
+        }
+
+        val speculation = new Speculation(
+                peerId, images, upload ? vk.uploadCatImages(peerId, toCatImages(images)) : null, seenFilter
+        );
+        try {
+            speculation.timeout = scheduler.schedule(() -> {
+                if (speculation.cancel()) log.debug("Speculation for peer {} was abandoned", peerId);
+            }, configuration.getTimeout(), TimeUnit.MILLISECONDS);
+        } catch (final RejectedExecutionException e) {
+            log.debug("Unable to schedule timeout of speculation", e);
+        }
+
+        return speculation;
+    }
+
+    /**
+     * Starts a speculation reserving cat images for the given peer.
+     *
+     * @param peerId peer to whom the cat images may be sent
+     * @param count amount of cat images to reserve
+     * @param imageConfiguration configuration used for picking cat images
+     * @param filter filter which the cat images should match in addition to not being seen by the peer
+     * or {@code null} if any of the ones not yet seen by the peer fit
+     * @return started speculation which uploads the cat images if it is {@link Configuration#isUpload() configured}
+     */
+    public Speculation speculate(final int peerId, final int count, @Nullable final C imageConfiguration,
+                                 @Nullable final Predicate<? super I> filter) {
+        return speculate(peerId, count, imageConfiguration, filter, configuration.isUpload());
+    }
+
+    protected static List<CompletableFuture<CatImage>> toCatImages(
+            @NonNull final List<? extends CompletableFuture<? extends CatImage>> images) {
+        val catImages = new ArrayList<CompletableFuture<CatImage>>(images.size());
+        for (val image : images) catImages.add(image.thenApply(catImage -> catImage));
+
+        return catImages;
+    }
+
+    /**
+     * Gets the amount of started speculations.
+     *
+     * @return amount of speculations
+     */
+    public long getSpeculations() {
+        return speculations.sum();
+    }
+
+    /**
+     * Gets the amount of speculations whose cat images were used.
+     *
+     * @return amount of confirmed speculations
+     */
+    public long getConfirmations() {
+        return confirmations.sum();
+    }
+
+    /**
+     * Gets the amount of speculations whose cat images were not used.
+     *
+     * @return amount of cancelled speculations
+     */
+    public long getCancellations() {
+        return cancellations.sum();
+    }
+
+    /**
+     * Gets the amount of cat images reserved by cancelled speculations.
+     *
+     * @return amount of wasted cat images
+     */
+    public long getWastedImages() {
+        return wastedImages.sum();
+    }
+
+    /**
+     * Gets the amount of speculative uploads whose cat images were not sent.
+     *
+     * @return amount of wasted uploads
+     */
+    public long getWastedUploads() {
+        return wastedUploads.sum();
+    }
+
+    /**
+     * Gets the ratio of cancelled speculations to all resolved ones.
+     *
+     * @return ratio of wasted speculations from {@code 0} to {@code 1}
+     */
+    public double getWastedRatio() {
+        val cancellations = this.cancellations.sum();
+        val resolved = confirmations.sum() + cancellations;
+
+        return resolved == 0 ? 0 : (double) cancellations / resolved;
+    }
+
+    /**
+     * Speculatively reserved cat images.
+     */
+    @RequiredArgsConstructor(access = AccessLevel.PROTECTED)
+    @FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+    public final class Speculation {
+
+        /**
+         * Peer to whom the cat images may be sent
+         */
+        @Getter int peerId;
+
+        /**
+         * Reserved cat images
+         */
+        @NonNull List<CompletableFuture<I>> images;
+
+        /**
+         * Speculative upload of the cat images or {@code null} if they are not uploaded
+         */
+        @Nullable CompletableFuture<VkCatsManager.UploadedCatImages> upload;
+
+        /**
+         * Filter of cat images seen by the peer which should be updated once they are sent
+         * or {@code null} if seen cat images are not filtered
+         */
+        @Nullable CompletableFuture<SeenCatImagesFilter> seenFilter;
+
+        /**
+         * Whether or not this speculation is already confirmed or cancelled
+         */
+        @NonNull AtomicBoolean resolved = new AtomicBoolean();
+
+        /**
+         * Scheduled cancellation of this speculation if it gets abandoned
+         */
+        @NonFinal @Nullable volatile ScheduledFuture<?> timeout;
+
+        /**
+         * Gets the reserved cat images without resolving this speculation.
+         *
+         * @return reserved cat images
+         */
+        @NotNull public List<CompletableFuture<I>> getImages() {
+            return images;
+        }
+
+        /**
+         * Marks this speculation as resolved.
+         *
+         * @return {@code true} if this speculation was resolved by this call
+         * and {@code false} if it was resolved before
+         */
+        protected boolean resolve() {
+            if (!resolved.compareAndSet(false, true)) return false;
+
+            val timeout = this.timeout;
+            if (timeout != null) timeout.cancel(false);
+
+            return true;
+        }
+
+        /**
+         * Confirms that the reserved cat images are going to be used.
+         *
+         * @return reserved cat images
+         *
+         * @throws IllegalStateException if this speculation is already resolved
+         */
+        @NotNull public List<CompletableFuture<I>> confirm() {
+            if (!resolve()) throw new IllegalStateException("This speculation is already resolved");
+            confirmations.increment();
+
+            return images;
+        }
+
+        /**
+         * Sends the reserved cat images to the peer.
+         *
+         * @param repliedMessageId ID of a message which this one replies to
+         * @param message message to send
+         * @return optional throwable in case it was thrown
+         *
+         * @throws IllegalStateException if this speculation is already resolved
+         */
+        public Optional<Throwable> send(@Nullable final Integer repliedMessageId, @Nullable final String message) {
+            val images = confirm();
+            final Optional<Throwable> error;
+            if (upload == null) error = vk.sendCatImages(peerId, repliedMessageId, message, toCatImages(images));
+            else {
+                final VkCatsManager.UploadedCatImages uploadedImages;
+                try {
+                    uploadedImages = upload.get();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return Optional.of(e);
+                } catch (final ExecutionException e) {
+                    return Optional.of(e.getCause());
+                }
+
+                error = vk.sendUploadedCatImages(uploadedImages, repliedMessageId, message);
+            }
+            if (!error.isPresent()) markSeen(images);
+
+            return error;
+        }
+
+        /**
+         * Sends the reserved cat images to the peer once they are uploaded without blocking the caller.
+         *
+         * @param repliedMessageId ID of a message which this one replies to
+         * @param message message to send
+         * @param executor executor on which the cat images get sent
+         * @return future completed with optional throwable in case it was thrown
+         *
+         * @throws IllegalStateException if this speculation is already resolved
+         */
+        public CompletableFuture<Optional<Throwable>> sendAsync(@Nullable final Integer repliedMessageId,
+                                                                @Nullable final String message,
+                                                                @NonNull final Executor executor) {
+            val images = confirm();
+            final CompletableFuture<Optional<Throwable>> result;
+            if (upload == null) result = CompletableFuture.supplyAsync(
+                    () -> vk.sendCatImages(peerId, repliedMessageId, message, toCatImages(images)), executor
+            );
+            else result = upload.handleAsync((uploadedImages, e) -> e == null
+                    ? vk.sendUploadedCatImages(uploadedImages, repliedMessageId, message)
+                    : Optional.of(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e),
+                    executor
+            );
+
+            return result.thenApply(error -> {
+                if (!error.isPresent()) markSeen(images);
+
+                return error;
+            });
+        }
+
+        /**
+         * Marks the sent cat images as seen by the peer if they are not filtered explicitly.
+         *
+         * @param images sent cat images
+         */
+        protected void markSeen(@NonNull final List<CompletableFuture<I>> images) {
+            if (seenFilter != null) seenFilter.thenAccept(seen -> {
+                if (seen == null) return;
+
+                for (val image : images) if (image.isDone() && !image.isCompletedExceptionally()) {
+                    seen.markSeen(image.join());
+                }
+                seen.save();
+            });
+        }
+
+        /**
+         * Cancels this speculation returning the reserved cat images to the repository.
+         *
+         * @return {@code true} if this speculation was cancelled by this call
+         * and {@code false} if it was resolved before
+         */
+        public boolean cancel() {
+            if (!resolve()) return false;
+
+            cancellations.increment();
+            wastedImages.add(images.size());
+            if (upload != null) wastedUploads.increment();
+
+            for (val image : images) image.thenAccept(repository::returnCatImage);
+
+            return true;
+        }
+    }
+
+    /**
+     * Configuration of {@link CatImageSpeculator}.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Configuration {
+
+        /**
+         * Whether or not cat images should be uploaded speculatively unless specified explicitly
+         */
+        @Builder.Default boolean upload = false;
+
+        /**
+         * Time in milliseconds after which an unresolved speculation gets cancelled
+         */
+        @Builder.Default long timeout = 60_000;
+    }
+}
@@ -1,12 +1,20 @@
 package ru.progrm_jarvis.catobot;
 
 import lombok.NoArgsConstructor;
+import lombok.NonNull;
 import ru.progrm_jarvis.catobot.ai.Recognizer;
 import ru.progrm_jarvis.catobot.image.factory.CatImageSharer;
+import ru.progrm_jarvis.catobot.image.factory.TheCatApiCatImageFactory;
 import ru.progrm_jarvis.catobot.image.repository.CatImageRepository;
+import ru.progrm_jarvis.catobot.metrics.MetricRegistry;
+import ru.progrm_jarvis.catobot.subscription.SeenCatImagesFilter;
+import ru.progrm_jarvis.catobot.subscription.User;
 import ru.progrm_jarvis.catobot.subscription.UserManager;
+import ru.progrm_jarvis.catobot.trace.Tracer;
+import ru.progrm_jarvis.catobot.util.BoundedExecutor;
 import ru.progrm_jarvis.catobot.vk.VkCatsManager;
 
+import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
 
 /**
@@ -35,6 +43,15 @@ public interface CatOBot extends Runnable, AutoCloseable {
      */
     UserManager getUserManager();
 
+    /**
+     * Gets the filter of cat images already seen by the given user.
+     * The filter is cached so that it is shared by all the concurrent uses for the same user.
+     *
+     * @param user user whose seen cat images should be filtered
+     * @return filter of cat images seen by the user
+     */
+    SeenCatImagesFilter getSeenCatImages(@NonNull User user);
+
     CatImageSharer getCatImageSharer();
 
     /**
@@ -44,6 +61,13 @@ public interface CatOBot extends Runnable, AutoCloseable {
      */
     CatImageRepository getCatImages();
 
+    /**
+     * Gets {@link CatImageSpeculator} of this bot used for fetching cat images while messages are being recognized.
+     *
+     * @return cat image speculator of this bot
+     */
+    CatImageSpeculator<?, TheCatApiCatImageFactory.Configuration> getSpeculator();
+
     /**
      * Gets {@link VkCatsManager} of this bot.
      *
@@ -51,6 +75,13 @@ public interface CatOBot extends Runnable, AutoCloseable {
      */
     VkCatsManager getVk();
 
+    /**
+     * Gets {@link Broadcaster} of this bot used for sending messages to all users.
+     *
+     * @return broadcaster of this bot
+     */
+    Broadcaster getBroadcaster();
+
     /**
      * Gets {@link Recognizer} of this bot.
      *
@@ -58,6 +89,27 @@ public interface CatOBot extends Runnable, AutoCloseable {
      */
     Recognizer getRecognizer();
 
+    /**
+     * Gets bounded executors of this bot's subsystems by their names.
+     *
+     * @return bounded executors of this bot
+     */
+    Map<String, BoundedExecutor> getExecutors();
+
+    /**
+     * Gets the registry of metrics of this bot's subsystems.
+     *
+     * @return registry of metrics of this bot
+     */
+    MetricRegistry getMetrics();
+
+    /**
+     * Gets the tracer of incoming updates of this bot.
+     *
+     * @return tracer of this bot
+     */
+    Tracer getTracer();
+
     interface EventHandler {
 
         static EventHandler getStub() {
@@ -0,0 +1,188 @@
+package ru.progrm_jarvis.catobot;
+
+import io.sentry.Sentry;
+import jdk.jfr.Recording;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.fusesource.jansi.AnsiConsole;
+import org.jline.reader.LineReaderBuilder;
+import org.jline.reader.UserInterruptException;
+import org.jline.terminal.Terminal;
+import org.jline.terminal.TerminalBuilder;
+import ru.progrm_jarvis.catobot.jfr.JfrEvents;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.util.regex.Pattern;
+
+/**
+ * Bootstrap of a standard Cat'o'Bot instance.
+ */
+@Slf4j
+public class CatOBotBootstrap {
+
+    protected static final Pattern BROADCAST_COMMAND_PATTERN = Pattern.compile("(?:msg|message)\\s+(\\d+)+\\s(.*)");
+
+    protected static final Pattern MASS_BROADCAST_COMMAND_PATTERN = Pattern.compile("broadcast\\s+(.+)");
+
+    /**
+     * Starts a Cat'o'Bot session which will attempt to restart it if exceptions occur while running.
+     *
+     * @param args command-line arguments passed
+     */
+    public static void main(@NonNull final String... args) {
+        Sentry.init();
+
+        AnsiConsole.systemInstall();
+        final Terminal terminal;
+        try {
+            terminal = TerminalBuilder.terminal();
+        } catch (final IOException e) {
+            log.error("Unable to get Terminal", e);
+
+            System.exit(-1);
+            return;
+        }
+
+        val cli = LineReaderBuilder.builder()
+                .terminal(terminal)
+                .appName("CatOBot")
+                .build();
+
+        // flight recording started by the console, it outlives bot sessions
+        Recording recording = null;
+
+        botSession: while (true) {
+            // create new AutoCloseable instance of CatOBot
+            try (val bot = new SimpleCatOBot()) {
+                bot.run(); // run the Bot
+                while (true) {
+                    try {
+                        // read line input
+                        val line = cli.readLine();
+                        // try to handle line input
+
+                        // critical commands
+                        switch (line.toLowerCase()) {
+                            case "restart": continue botSession;
+                            case "reload": {
+                                try {
+                                    val restartSections = bot.reload();
+                                    if (restartSections.isEmpty()) log.info("Reloaded CatOBot");
+                                    else log.info("Reloaded CatOBot, use `restart` to apply {}", restartSections);
+                                } catch (final Throwable e) {
+                                    log.error("Unable to reload CatOBot", e);
+                                }
+                                continue;
+                            }
+                            case "stop": case "end": break botSession;
+                            case "executors": {
+                                for (val executor : bot.getExecutors().entrySet()) log.info(
+                                        "{}: {} pending, queue depth {}, {} rejected, {} run by callers",
+                                        executor.getKey(), executor.getValue().getPendingTasks(),
+                                        executor.getValue().getQueueDepth(), executor.getValue().getRejections(),
+                                        executor.getValue().getCallerRuns()
+                                );
+                                continue;
+                            }
+                            case "traces": {
+                                val traces = bot.getTracer().getSlowTraces();
+                                if (traces.isEmpty()) log.info("There were no slow traces");
+                                else for (val trace : traces) log.info(trace.toString());
+                                continue;
+                            }
+                            case "jfr start": {
+                                if (!JfrEvents.isAvailable()) {
+                                    log.info("Flight recording is not available in this runtime");
+                                    continue;
+                                }
+                                if (recording != null) {
+                                    log.info("Flight recording is already running");
+                                    continue;
+                                }
+                                try {
+                                    recording = JfrEvents.startRecording();
+                                    log.info("Started flight recording");
+                                } catch (final IOException | ParseException e) {
+                                    log.warn("Unable to start flight recording", e);
+                                }
+                                continue;
+                            }
+                            case "jfr stop": {
+                                if (recording == null) {
+                                    log.info("There is no running flight recording");
+                                    continue;
+                                }
+                                val file = Paths.get("catobot-" + System.currentTimeMillis() + ".jfr");
+                                try {
+                                    recording.stop();
+                                    recording.dump(file);
+                                    log.info("Dumped flight recording to {}", file.toAbsolutePath());
+                                } catch (final IOException e) {
+                                    log.warn("Unable to dump flight recording", e);
+                                } finally {
+                                    recording.close();
+                                    recording = null;
+                                }
+                                continue;
+                            }
+                            case "broadcast": case "broadcast status": {
+                                val broadcast = bot.getBroadcaster().getCurrent();
+                                log.info(broadcast == null ? "There were no broadcasts" : broadcast.toString());
+                                continue;
+                            }
+                            case "broadcast cancel": {
+                                val broadcast = bot.getBroadcaster().getCurrent();
+                                if (broadcast == null || !broadcast.cancel()) log.info("There is no running broadcast");
+                                continue;
+                            }
+                            case "broadcast resume": {
+                                try {
+                                    val broadcast = bot.getBroadcaster().resume();
+                                    if (broadcast == null) log.info("There is no interrupted broadcast");
+                                    else log.info("Resumed {}", broadcast);
+                                } catch (final IllegalStateException e) {
+                                    log.info(e.getMessage());
+                                }
+                                continue;
+                            }
+                        }
+
+                        { // broadcast <message>
+                            val matcher = MASS_BROADCAST_COMMAND_PATTERN.matcher(line);
+                            if (matcher.matches()) {
+                                try {
+                                    log.info("Started {}", bot.getBroadcaster().start(matcher.group(1)));
+                                } catch (final IllegalStateException e) {
+                                    log.info(e.getMessage());
+                                }
+                                continue;
+                            }
+                        }
+
+                        { // <message|msg> <id> <message>
+                            val matcher = BROADCAST_COMMAND_PATTERN.matcher(line);
+                            if (matcher.matches()) {
+                                try {
+                                    bot.getVk().sendMessage(Integer.parseInt(matcher.group(1)), matcher.group(2));
+                                } catch (final Throwable e) {
+                                    log.warn("Unable to broadcast message", e);
+                                }
+                            }
+                        }
+                    } catch (final UserInterruptException e) { // handle < [CTRL] + [C] >
+                        log.info("The session has been interrupted, aborting");
+                        break botSession;
+                    }
+                }
+            } catch (final Throwable e) {
+                log.error("An exception occurred while running CatOBot, aborting", e);
+                break;
+            }
+        }
+
+        log.info("Disabling CatOBot, good night");
+    }
+}
@@ -0,0 +1,400 @@
+package ru.progrm_jarvis.catobot;
+
+import com.google.gson.JsonPrimitive;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import ru.progrm_jarvis.catobot.subscription.SeenCatImagesFilter;
+import ru.progrm_jarvis.catobot.subscription.User;
+import ru.progrm_jarvis.catobot.subscription.UserManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Daily delivery of a cat image to subscribed users.
+ * <p>
+ * The delivery window is split into time slots and each user is assigned to one of them by the hash of the user's key
+ * so that the load on VK and TheCatApi is spread evenly over the window.
+ * Cat images of a slot are {@link CatImageSpeculator speculatively} reserved and uploaded shortly before
+ * the slot fires so that sending them does not compete with interactive users.
+ */
+@Slf4j
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class CatOfTheDay implements AutoCloseable {
+
+    /**
+     * Key of the subscription flag in user metadata
+     */
+    public static final String METADATA_KEY = "cat-of-the-day";
+
+    @NonNull Configuration configuration;
+
+    /**
+     * User-manager from which the subscribers are streamed
+     */
+    @NonNull UserManager userManager;
+
+    /**
+     * Speculator used for prefetching and uploading the cat images
+     */
+    @NonNull CatImageSpeculator<?, ?> speculator;
+
+    /**
+     * Function providing the filter of cat images already seen by the user,
+     * it is applied to the looked up users so that the speculator does not look them up again
+     */
+    @NonNull Function<User, SeenCatImagesFilter> seenCatImages;
+
+    /**
+     * Scheduler of the slots
+     */
+    @NonNull ScheduledExecutorService scheduler;
+
+    /**
+     * Executor preparing and sending the cat images
+     */
+    @NonNull ExecutorService executor;
+
+    /**
+     * Tasks scheduled for the current day
+     */
+    @NonNull Set<ScheduledFuture<?>> scheduledTasks;
+
+    @NonNull LongAdder deliveries, failures;
+
+    public CatOfTheDay(@NonNull final Configuration configuration,
+                       @NonNull final UserManager userManager,
+                       @NonNull final CatImageSpeculator<?, ?> speculator,
+                       @NonNull final Function<User, SeenCatImagesFilter> seenCatImages,
+                       @NonNull final ScheduledExecutorService scheduler,
+                       @NonNull final ExecutorService executor) {
+        if (configuration.getSlots() <= 0) throw new IllegalArgumentException("slots should be positive");
+        this.configuration = configuration;
+        this.userManager = userManager;
+        this.speculator = speculator;
+        this.seenCatImages = seenCatImages;
+        this.scheduler = scheduler;
+        this.executor = executor;
+
+        scheduledTasks = ConcurrentHashMap.newKeySet();
+        deliveries = new LongAdder();
+        failures = new LongAdder();
+    }
+
+    /**
+     * Checks whether the user is subscribed to the cat of the day.
+     *
+     * @param user user to check
+     * @return {@code true} if the user is subscribed and {@code false} otherwise
+     */
+    public static boolean isSubscribed(@NonNull final User user) {
+        val subscribed = user.getMetadata().get(METADATA_KEY);
+
+        return subscribed != null && subscribed.isJsonPrimitive() && subscribed.getAsBoolean();
+    }
+
+    /**
+     * Subscribes or unsubscribes the user to the cat of the day saving the user.
+     *
+     * @param user user whose subscription should be changed
+     * @param subscribed {@code true} if the user should be subscribed and {@code false} otherwise
+     */
+    public static void setSubscribed(@NonNull final User user, final boolean subscribed) {
+        if (subscribed) user.getMetadata().add(METADATA_KEY, new JsonPrimitive(true));
+        else user.getMetadata().remove(METADATA_KEY);
+        user.save();
+    }
+
+    /**
+     * Gets the slot of the user.
+     *
+     * @param userKey key of the user
+     * @return index of the user's slot
+     */
+    protected int getSlot(@NonNull final String userKey) {
+        // sequential keys should not get into neighbouring slots
+        return Math.floorMod(userKey.hashCode() * 0x9E3779B9, configuration.getSlots());
+    }
+
+    /**
+     * Starts the daily delivery if it is enabled.
+     */
+    public void start() {
+        if (!configuration.isEnabled()) return;
+
+        val zone = configuration.getTimeZone() == null
+                ? ZoneId.systemDefault() : ZoneId.of(configuration.getTimeZone());
+        val now = ZonedDateTime.now(zone);
+        var windowStart = LocalDate.now(zone).atTime(LocalTime.parse(configuration.getStartTime())).atZone(zone);
+        // the first slot would not be prefetched in time
+        if (windowStart.minus(getPlanningLead()).isBefore(now)) windowStart = windowStart.plusDays(1);
+
+        schedulePlanning(windowStart);
+    }
+
+    /**
+     * Gets the time before the start of the window at which its slots get planned.
+     *
+     * @return lead of the planning
+     */
+    protected Duration getPlanningLead() {
+        return Duration.ofMillis(configuration.getPrefetchLead()).multipliedBy(2);
+    }
+
+    /**
+     * Schedules planning of the slots of the window.
+     *
+     * @param windowStart start of the window
+     */
+    protected void schedulePlanning(@NonNull final ZonedDateTime windowStart) {
+        log.info("Scheduling cat of the day at {}", windowStart);
+        schedule(() -> executor.execute(() -> plan(windowStart)), windowStart.minus(getPlanningLead()));
+    }
+
+    /**
+     * Schedules the task.
+     *
+     * @param task task to schedule
+     * @param time time at which the task should be run
+     */
+    protected void schedule(@NonNull final Runnable task, @NonNull final ZonedDateTime time) {
+        val delay = Math.max(0, Duration.between(ZonedDateTime.now(time.getZone()), time).toMillis());
+        try {
+            scheduledTasks.add(scheduler.schedule(task, delay, TimeUnit.MILLISECONDS));
+        } catch (final RejectedExecutionException e) {
+            log.debug("Unable to schedule a task of cat of the day", e);
+        }
+    }
+
+    /**
+     * Assigns the users to the slots of the window and schedules them.
+     *
+     * @param windowStart start of the window
+     */
+    protected void plan(@NonNull final ZonedDateTime windowStart) {
+        scheduledTasks.removeIf(Future::isDone);
+        // the next day is scheduled first so that failures of this day do not break the delivery
+        schedulePlanning(windowStart.plusDays(1));
+
+        val slotCount = configuration.getSlots();
+        val slots = new ArrayList<List<String>>(slotCount);
+        for (var i = 0; i < slotCount; i++) slots.add(new ArrayList<>());
+        try {
+            var cursor = UserManager.SCAN_START;
+            while (true) {
+                val chunk = userManager.scanUserKeys(cursor, configuration.getScanChunkSize()).get();
+                for (val key : chunk.getKeys()) slots.get(getSlot(key)).add(key);
+
+                if (chunk.isLast()) break;
+                cursor = chunk.getNextCursor();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (final ExecutionException e) {
+            log.error("Unable to plan cat of the day", e);
+            return;
+        }
+
+        val slotDuration = Duration.ofMillis(configuration.getWindow()).dividedBy(slotCount);
+        val prefetchLead = Duration.ofMillis(configuration.getPrefetchLead());
+        for (var i = 0; i < slotCount; i++) {
+            val userKeys = slots.get(i);
+            if (userKeys.isEmpty()) continue;
+
+            val slotStart = windowStart.plus(slotDuration.multipliedBy(i));
+            val slot = new Slot();
+            schedule(() -> executor.execute(() -> prefetch(userKeys, slot)), slotStart.minus(prefetchLead));
+            schedule(() -> executor.execute(() -> send(slot)), slotStart);
+        }
+        log.info("Planned cat of the day for {} slots starting at {}", slotCount, windowStart);
+    }
+
+    /**
+     * Prefetches and uploads the cat images of the subscribed users of the slot.
+     *
+     * @param userKeys keys of the users of the slot
+     * @param slot slot to which the lookups of the users and the prepared deliveries should be added
+     */
+    protected void prefetch(@NonNull final List<String> userKeys, @NonNull final Slot slot) {
+        for (val userKey : userKeys) {
+            final int peerId;
+            try {
+                peerId = Integer.parseInt(userKey);
+            } catch (final NumberFormatException e) {
+                continue;
+            }
+
+            val lookup = userManager.getUser(userKey).thenAccept(user -> {
+                if (!isSubscribed(user)) return;
+
+                // the speculator filters the cat images seen by the user and marks the sent one as seen
+                seenCatImages.apply(user);
+                slot.getDeliveries().add(speculator.speculate(peerId, 1, null, null, true));
+            });
+            lookup.whenComplete((result, e) -> {
+                if (e != null && !(e instanceof CancellationException)) {
+                    log.warn("Unable to prefetch cat of the day for user " + userKey, e);
+                }
+            });
+            slot.getLookups().add(lookup);
+        }
+    }
+
+    /**
+     * Sends the prepared cat images of the slot.
+     * Lookups of the users which are not completed within the {@link Configuration#getLookupTimeout() timeout}
+     * are cancelled and counted as failures.
+     *
+     * @param slot slot whose cat images should be sent
+     */
+    protected void send(@NonNull final Slot slot) {
+        val lookups = slot.getLookups();
+        try {
+            CompletableFuture.allOf(lookups.toArray(new CompletableFuture<?>[0]))
+                    .get(configuration.getLookupTimeout(), TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (final ExecutionException | TimeoutException e) {
+            // failed and missed lookups are counted below
+        }
+        for (val lookup : lookups) if (lookup.cancel(false) || lookup.isCompletedExceptionally()) {
+            failures.increment();
+        }
+
+        CatImageSpeculator<?, ?>.Speculation speculation;
+        while ((speculation = slot.getDeliveries().poll()) != null) {
+            val peerId = speculation.getPeerId();
+            final CompletableFuture<Optional<Throwable>> result;
+            try {
+                result = speculation.sendAsync(null, configuration.getMessage(), executor);
+            } catch (final IllegalStateException | RejectedExecutionException e) {
+                // the speculation has timed out or the delivery is being closed
+                failures.increment();
+                log.debug("Unable to send cat of the day to peer " + peerId, e);
+                continue;
+            }
+
+            result.whenComplete((error, e) -> {
+                if (e != null || error.isPresent()) {
+                    failures.increment();
+                    log.debug("Unable to send cat of the day to peer " + peerId, e == null ? error.get() : e);
+                    return;
+                }
+
+                deliveries.increment();
+            });
+        }
+    }
+
+    /**
+     * Gets the amount of delivered cats of the day.
+     *
+     * @return amount of deliveries
+     */
+    public long getDeliveries() {
+        return deliveries.sum();
+    }
+
+    /**
+     * Gets the amount of cats of the day which could not be delivered.
+     *
+     * @return amount of failed deliveries
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public void close() {
+        for (val task : scheduledTasks) task.cancel(false);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Time slot of the delivery window.
+     */
+    @Value
+    protected static class Slot {
+
+        /**
+         * Lookups of the users of this slot
+         */
+        @NonNull Queue<CompletableFuture<Void>> lookups = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Speculations reserving the cats of the day of the subscribed users of this slot
+         */
+        @NonNull Queue<CatImageSpeculator<?, ?>.Speculation> deliveries = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Configuration of {@link CatOfTheDay}.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Configuration {
+
+        /**
+         * Whether or not the cat of the day should be delivered
+         */
+        @Builder.Default boolean enabled = false;
+
+        /**
+         * Message sent with the cat of the day
+         */
+        @Builder.Default @Nullable String message = "Cat of the day";
+
+        /**
+         * Local time at which the delivery window starts
+         */
+        @Builder.Default @NonNull String startTime = "12:00";
+
+        /**
+         * ID of the time zone of the start time or {@code null} if the system one should be used
+         */
+        @Builder.Default @Nullable String timeZone = null;
+
+        /**
+         * Duration of the delivery window in milliseconds
+         */
+        @Builder.Default long window = 2 * 60 * 60 * 1_000;
+
+        /**
+         * Amount of slots into which the window is split
+         */
+        @Builder.Default int slots = 120;
+
+        /**
+         * Time in milliseconds before a slot at which its cat images get prefetched,
+         * this should be less than the timeout of speculations
+         */
+        @Builder.Default long prefetchLead = 30_000;
+
+        /**
+         * Time in milliseconds for which the lookups of the users of a slot are awaited once it fires
+         */
+        @Builder.Default long lookupTimeout = 10_000;
+
+        /**
+         * Amount of users scanned at once while planning the slots, this is only a hint for the user-manager
+         */
+        @Builder.Default int scanChunkSize = 1_000;
+    }
+}
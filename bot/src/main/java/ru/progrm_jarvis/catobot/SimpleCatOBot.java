@@ -0,0 +1,1093 @@
+package ru.progrm_jarvis.catobot;
+
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.annotations.SerializedName;
+import com.vk.api.sdk.callback.CallbackApi;
+import lombok.*;
+import lombok.Builder.Default;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.impl.client.HttpClients;
+import org.jetbrains.annotations.Nullable;
+import ru.progrm_jarvis.catobot.ai.Recognizer;
+import ru.progrm_jarvis.catobot.ai.WitAiRecognizer;
+import ru.progrm_jarvis.catobot.image.CatImage;
+import ru.progrm_jarvis.catobot.image.factory.BatchCatImageSharer;
+import ru.progrm_jarvis.catobot.image.factory.CatImageFactory;
+import ru.progrm_jarvis.catobot.image.factory.CatImageSharer;
+import ru.progrm_jarvis.catobot.image.factory.FileSystemCatImageFactory;
+import ru.progrm_jarvis.catobot.image.factory.HedgedCatImageFactory;
+import ru.progrm_jarvis.catobot.image.factory.ImageDownloader;
+import ru.progrm_jarvis.catobot.image.factory.TheCatApiCatImageFactory;
+import ru.progrm_jarvis.catobot.image.processor.CatImageCombiner;
+import ru.progrm_jarvis.catobot.image.processor.CatImageProcessor;
+import ru.progrm_jarvis.catobot.image.processor.CollageCatImageCombiner;
+import ru.progrm_jarvis.catobot.image.processor.NormalizingCatImageProcessor;
+import ru.progrm_jarvis.catobot.image.repository.CatImageRepository;
+import ru.progrm_jarvis.catobot.image.repository.CatImageSnapshot;
+import ru.progrm_jarvis.catobot.image.repository.IndexedPreLoadingCatImageRepository;
+import ru.progrm_jarvis.catobot.image.repository.PreLoadingCatImageRepository;
+import ru.progrm_jarvis.catobot.image.repository.TheCatApiCatImageIndexer;
+import ru.progrm_jarvis.catobot.image.store.CatImageByteStore;
+import ru.progrm_jarvis.catobot.metrics.JmxExporter;
+import ru.progrm_jarvis.catobot.metrics.MetricRegistry;
+import ru.progrm_jarvis.catobot.metrics.PrometheusExporter;
+import ru.progrm_jarvis.catobot.script.ScriptLoader;
+import ru.progrm_jarvis.catobot.subscription.RedisUserManager;
+import ru.progrm_jarvis.catobot.subscription.SeenCatImagesCache;
+import ru.progrm_jarvis.catobot.subscription.SeenCatImagesFilter;
+import ru.progrm_jarvis.catobot.subscription.User;
+import ru.progrm_jarvis.catobot.subscription.UserManager;
+import ru.progrm_jarvis.catobot.trace.Tracer;
+import ru.progrm_jarvis.catobot.util.BoundedExecutor;
+import ru.progrm_jarvis.catobot.util.ExecutorMode;
+import ru.progrm_jarvis.catobot.util.Startup;
+import ru.progrm_jarvis.catobot.util.TheCatApiUtil;
+import ru.progrm_jarvis.catobot.util.WitAiUtil;
+import ru.progrm_jarvis.catobot.vk.SimpleVkCatsManager;
+import ru.progrm_jarvis.catobot.vk.VkCatsManager;
+
+import javax.management.JMException;
+import javax.script.ScriptException;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+@Slf4j
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class SimpleCatOBot implements CatOBot {
+
+    protected static final Gson CONFIG_GSON = new GsonBuilder()
+            .setPrettyPrinting()
+            .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_DASHES)
+            .create();
+
+    /**
+     * Sections of the config whose changes are applied by {@link #reload() reloads}
+     */
+    protected static final Set<String> RELOADABLE_CONFIG_SECTIONS = new HashSet<>(Arrays.asList(
+            "event-handler", "vk-handler", "scripts", "seen-cat-images", "cat-of-the-day", "jmx-metrics", "prometheus"
+    ));
+
+    @NonNull @Getter ScheduledExecutorService scheduler;
+    @NonNull @Getter UserManager userManager;
+    @NonNull @Getter CatImageSharer catImageSharer;
+    @NonNull @Getter CatImageRepository<? extends CatImage, TheCatApiCatImageFactory.Configuration> catImages;
+    @NonNull @Getter VkCatsManager vk;
+    @NonNull @Getter CatImageSpeculator<?, TheCatApiCatImageFactory.Configuration> speculator;
+    @NonNull @Getter Broadcaster broadcaster;
+    @NonNull @Getter @NonFinal volatile CatOfTheDay catOfTheDay;
+    @NonNull @Getter Recognizer recognizer;
+
+    /**
+     * Bounded executors of the subsystems by their names
+     */
+    @NonNull @Getter Map<String, BoundedExecutor> executors;
+
+    @NonNull @Getter MetricRegistry metrics;
+
+    @NonNull @Getter Tracer tracer;
+
+    /**
+     * Exporter of metrics via JMX or {@code null} if it is disabled
+     */
+    @Nullable @NonFinal volatile JmxExporter jmxExporter;
+
+    /**
+     * Exporter of metrics in Prometheus format or {@code null} if it is disabled
+     */
+    @Nullable @NonFinal volatile PrometheusExporter prometheusExporter;
+
+    @NonNull @Getter @NonFinal volatile EventHandler eventHandler;
+
+    /**
+     * Filters of cat images seen by the users shared by all the uses for the same user
+     */
+    @NonNull SeenCatImagesCache seenCatImages;
+
+    /**
+     * File of the bot's config which is read again on {@link #reload() reloads}
+     */
+    @NonNull File configFile;
+
+    /**
+     * Sections of the config which are currently applied by their names
+     */
+    @NonNull @NonFinal JsonObject appliedConfig;
+
+    /**
+     * Loader of the scripts of the handlers
+     */
+    @NonNull @NonFinal ScriptLoader scriptLoader;
+
+    @NonNull AtomicBoolean shutdown;
+
+    /**
+     * Whether or not the events are already handled
+     */
+    @NonNull AtomicBoolean handlingEvents;
+
+    @Getter protected final Thread shutdownHook;
+
+    public SimpleCatOBot() throws BotInitializationException {
+        this(new File("config.json"));
+    }
+
+    /**
+     * Creates a new bot using the given config which gets created with the defaults if it does not exist.
+     *
+     * @param configFile file of the bot's config
+     *
+     * @throws BotInitializationException if the bot cannot be initialized
+     */
+    public SimpleCatOBot(@NonNull final File configFile) throws BotInitializationException {
+        log.info("Loading config");
+        final Config config;
+        try {
+            config = loadConfig(configFile);
+        } catch (final IOException e) {
+            throw new BotInitializationException("Unable to load bot config", e);
+        }
+        log.info("Config loaded:\n{}", CONFIG_GSON.toJson(config));
+        this.configFile = configFile;
+        appliedConfig = CONFIG_GSON.toJsonTree(config).getAsJsonObject();
+        // executors are registered by concurrently initialized components
+        executors = new ConcurrentSkipListMap<>();
+        metrics = new MetricRegistry();
+        tracer = new Tracer(config.getTracingConfig());
+
+        log.info("Loading scheduler");
+        scheduler = createScheduledExecutorService(config.getSchedulerWorkers(), false);
+        log.info("Loaded scheduler: {}", scheduler);
+
+        scriptLoader = new ScriptLoader(config.getScriptsConfig());
+        shutdown = new AtomicBoolean();
+        handlingEvents = new AtomicBoolean();
+        // the hook is only registered once the bot is initialized
+        shutdownHook = new Thread(this::close);
+
+        // components which do not need the bot itself are initialized concurrently,
+        // the bot's fields are only assigned by this thread so that the scripts can safely use the bot
+        val startup = new Startup("catobot-startup");
+        try {
+            val eventHandlerFactory = startup.start(
+                    "event-handler script", () -> loadEventHandlerFactory(scriptLoader, config)
+            );
+            val vkHandlerFactory = startup.start(
+                    "vk-handler script", () -> SimpleCatOBot.<Function<CatOBot, CallbackApi>>loadScript(
+                            scriptLoader, config.getVkHandlerFile()
+                    )
+            );
+            val userManager = startup.start("user-manager", () -> new RedisUserManager(
+                    createExecutorService(
+                            "user-manager", config.getUserManagerExecutorMode(), config.getUserManagerWorkers(),
+                            config.getUserManagerExecutorConfig(), false
+                    ),
+                    config.getRedisUserManagerConfig()
+            ));
+            val theCatApiCatImageFactory = startup.start("the-cat-api", () -> new TheCatApiCatImageFactory(
+                    config.getTheCatApiConfig(), HttpClients.createDefault(),
+                    createExecutorService(
+                            "image-factory", config.getImageFactoryExecutorMode(), config.getImageFactoryWorkers(),
+                            config.getImageFactoryExecutorConfig(), true
+                    ),
+                    new CatImageByteStore(config.getImageByteStoreSize()),
+                    new ImageDownloader(config.getImageDownloaderConfig()),
+                    config.getTheCatApiEndpoint()
+            ));
+            val catImageSharer = startup.start("sharing", () -> new BatchCatImageSharer<>(
+                    config.getSharingConfig(), theCatApiCatImageFactory.join(), scheduler,
+                    createExecutorService(
+                            "sharing", config.getSharingExecutorMode(), 0, config.getSharingExecutorConfig(), true
+                    )
+            ), theCatApiCatImageFactory);
+            val localCatImageFactory = startup.<FileSystemCatImageFactory>start("local-images", () -> {
+                val localImagesConfig = config.getLocalImagesConfig();
+                if (!localImagesConfig.isEnabled()) return null;
+
+                try {
+                    return new FileSystemCatImageFactory(localImagesConfig);
+                } catch (final IOException e) {
+                    throw new BotInitializationException("Unable to index local cat images", e);
+                }
+            });
+            val hedgedCatImageFactory = startup.<HedgedCatImageFactory<TheCatApiCatImageFactory.Configuration>>start(
+                    "hedging", () -> {
+                        val localImages = localCatImageFactory.join();
+                        if (localImages == null) return null;
+
+                        return new HedgedCatImageFactory<>(
+                                config.getHedgingConfig(),
+                                Arrays.<HedgedCatImageFactory.Source<TheCatApiCatImageFactory.Configuration>>asList(
+                                        HedgedCatImageFactory.Source.of("the-cat-api", theCatApiCatImageFactory.join()),
+                                        // local cat images cannot be filtered
+                                        HedgedCatImageFactory.Source.unconfigured(
+                                                "local-images", localImages,
+                                                configuration -> TheCatApiCatImageIndexer.INSTANCE
+                                                        .getFilterKey(configuration) == null
+                                        )
+                                ),
+                                scheduler
+                        );
+                    }, theCatApiCatImageFactory, localCatImageFactory
+            );
+            val catImages = startup.start("cat-images", () -> createCatImageRepository(
+                    theCatApiCatImageFactory.join(), hedgedCatImageFactory.join(), config
+            ), theCatApiCatImageFactory, hedgedCatImageFactory);
+            val recognizer = startup.start("recognizer", () -> new WitAiRecognizer(
+                    HttpClients.createDefault(),
+                    createExecutorService(
+                            "recognizer", config.getRecognizerExecutorMode(), config.getRecognizerWorkers(),
+                            config.getRecognizerExecutorConfig(), true
+                    ),
+                    config.getWitAiConfig(),
+                    config.getWitAiEndpoint()
+            ));
+            val imageProcessor = startup.start("image-processor", () -> {
+                val imageProcessorConfig = config.getImageProcessorConfig();
+                if (!imageProcessorConfig.isEnabled()) return CatImageProcessor.getStub();
+
+                val workers = imageProcessorConfig.getWorkers();
+                return new NormalizingCatImageProcessor(imageProcessorConfig, createExecutorService(
+                        workers == 0 ? Runtime.getRuntime().availableProcessors() : workers, true
+                ));
+            });
+            val imageCombiner = startup.start("image-combiner", () -> {
+                val collageConfig = config.getCollageConfig();
+                if (!collageConfig.isEnabled()) return CatImageCombiner.getStub();
+
+                val workers = collageConfig.getWorkers();
+                return new CollageCatImageCombiner(collageConfig, createExecutorService(
+                        workers == 0 ? Runtime.getRuntime().availableProcessors() : workers, true
+                ));
+            });
+
+            // critical components needed for handling incoming events
+            this.userManager = Startup.await(userManager);
+            seenCatImages = new SeenCatImagesCache(this.userManager, config.getSeenCatImagesConfig());
+            this.catImageSharer = Startup.await(catImageSharer);
+            this.catImages = Startup.await(catImages);
+            this.recognizer = Startup.await(recognizer);
+
+            log.info("Initializing VK-manager...");
+            {
+                // the handler is only created once the components which it may use are assigned
+                val vk = new SimpleVkCatsManager(
+                        config.getVkApiConfig(), new CallbackApi() {},
+                        Startup.await(imageProcessor), Startup.await(imageCombiner), tracer
+                );
+                executors.put("vk-uploader", vk.getPictureUploaderExecutor());
+                this.vk = startup.register(vk);
+            }
+            log.info("Initialized VK-manager: {}", vk);
+
+            speculator = new CatImageSpeculator<>(
+                    config.getSpeculationConfig(), this.catImages, vk, scheduler,
+                    peerId -> seenCatImages.get(Integer.toString(peerId))
+            );
+
+            // components which are not needed for handling incoming events
+            val broadcaster = startup.start("broadcaster", () -> new Broadcaster(
+                    config.getBroadcastConfig(), this.userManager, vk, createExecutorService(1, true)
+            ));
+            val catOfTheDay = startup.start("cat-of-the-day", () -> createCatOfTheDay(config));
+            val jmxExporter = startup.start("jmx-exporter", () -> createJmxExporter(config));
+            val prometheusExporter = startup.start("prometheus-exporter", () -> createPrometheusExporter(config));
+
+            this.broadcaster = Startup.await(broadcaster);
+            this.catOfTheDay = Startup.await(catOfTheDay);
+
+            // the handlers get the bot once all of the components which they may use are assigned
+            eventHandler = Startup.await(eventHandlerFactory).apply(this);
+            log.info("Loaded event handler: {}", eventHandler);
+            vk.setLongPollEventHandler(Startup.await(vkHandlerFactory).apply(this));
+            log.info("Loaded callback-api handler: {}", vk.getLongPollEventHandler());
+
+            if (config.isEarlyLongPolling()) {
+                log.info("Starting long-polling after {} ms", startup.getElapsedTime());
+                startHandlingEvents();
+            }
+
+            registerMetrics(Startup.await(theCatApiCatImageFactory), Startup.await(hedgedCatImageFactory));
+            this.jmxExporter = Startup.await(jmxExporter);
+            this.prometheusExporter = Startup.await(prometheusExporter);
+
+            log.info("Initialized CatOBot in {} ms: {}", startup.getElapsedTime(), startup.getTimings());
+        } catch (final RuntimeException | Error e) {
+            if (handlingEvents.get()) try {
+                eventHandler.onDisable();
+            } catch (final Throwable suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            // the components which are already initialized are closed in the reverse order
+            startup.abort();
+            scheduler.shutdownNow();
+
+            throw e;
+        } finally {
+            startup.close();
+        }
+
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Registers the metrics of the bot's subsystems.
+     *
+     * @param theCatApiCatImageFactory factory of cat images from TheCatApi
+     * @param hedgedCatImageFactory factory hedging requests of cat images or {@code null} if it is not used
+     */
+    protected void registerMetrics(
+            @NonNull final TheCatApiCatImageFactory theCatApiCatImageFactory,
+            @Nullable final HedgedCatImageFactory<TheCatApiCatImageFactory.Configuration> hedgedCatImageFactory) {
+        for (val executor : executors.entrySet()) {
+            val name = executor.getKey();
+            val value = executor.getValue();
+            metrics.gauge("catobot_executor_pending_tasks", "Tasks running or queued by the executor",
+                    value::getPendingTasks, "executor", name);
+            metrics.gauge("catobot_executor_queue_depth", "Tasks waiting for a free worker of the executor",
+                    value::getQueueDepth, "executor", name);
+            metrics.counter("catobot_executor_rejections_total", "Tasks rejected by the overloaded executor",
+                    value::getRejections, "executor", name);
+            metrics.counter("catobot_executor_caller_runs_total", "Tasks run by callers of the overloaded executor",
+                    value::getCallerRuns, "executor", name);
+        }
+
+        metrics.summary("catobot_the_cat_api_request_seconds", "Latency of requests of cat images to TheCatApi",
+                theCatApiCatImageFactory.getRequestLatencies());
+        {
+            val downloader = theCatApiCatImageFactory.getImageDownloader();
+            metrics.summary("catobot_image_download_seconds", "Latency of downloads of cat images",
+                    downloader.getLatencies());
+            metrics.counter("catobot_image_downloads_total", "Downloaded cat images", downloader::getDownloads);
+            metrics.counter("catobot_image_downloaded_bytes_total", "Downloaded bytes of cat images",
+                    downloader::getDownloadedBytes);
+            metrics.counter("catobot_image_download_rejections_total", "Cat images exceeding the maximal size",
+                    downloader::getRejections);
+            val bufferPool = downloader.getBufferPool();
+            metrics.counter("catobot_buffer_pool_acquisitions_total", "Buffers acquired from the pool",
+                    bufferPool::getAcquisitions);
+            metrics.counter("catobot_buffer_pool_reuses_total", "Acquisitions of buffers served by reusing them",
+                    bufferPool::getReuses);
+        }
+        {
+            val byteStore = theCatApiCatImageFactory.getByteStore();
+            metrics.gauge("catobot_byte_store_size_bytes", "Size of stored bytes of cat images", byteStore::getSize);
+            metrics.counter("catobot_byte_store_hits_total", "Bytes of cat images found in the store",
+                    byteStore::getHits);
+            metrics.counter("catobot_byte_store_misses_total", "Bytes of cat images not found in the store",
+                    byteStore::getMisses);
+            metrics.counter("catobot_byte_store_deduplications_total", "Concurrent loads of the same bytes avoided",
+                    byteStore::getDeduplications);
+        }
+        if (hedgedCatImageFactory != null) for (val source : hedgedCatImageFactory.getSources()) {
+            val latencies = source.getLatencies();
+            for (val quantile : new double[]{0.5, 0.99}) metrics.gauge(
+                    "catobot_hedged_source_latency_seconds", "Recent latency of the source of hedged requests",
+                    () -> latencies.getPercentile(quantile) / 1_000_000_000d,
+                    "source", source.getName(), "quantile", Double.toString(quantile)
+            );
+        }
+
+        if (catImages instanceof PreLoadingCatImageRepository) {
+            val repository = (PreLoadingCatImageRepository<?, ?>) catImages;
+            registerRepositoryMetrics(repository::getHits, repository::getMisses, repository::getCacheSize);
+        } else if (catImages instanceof IndexedPreLoadingCatImageRepository) {
+            val repository = (IndexedPreLoadingCatImageRepository<?, ?, ?>) catImages;
+            registerRepositoryMetrics(repository::getHits, repository::getMisses, repository::getCacheSize);
+        }
+
+        metrics.counter("catobot_speculations_total", "Speculative preparations of cat images",
+                speculator::getSpeculations);
+        metrics.counter("catobot_speculation_confirmations_total", "Speculations which were sent",
+                speculator::getConfirmations);
+        metrics.counter("catobot_speculation_cancellations_total", "Speculations which were abandoned",
+                speculator::getCancellations);
+        metrics.counter("catobot_speculation_wasted_images_total", "Cat images prepared by abandoned speculations",
+                speculator::getWastedImages);
+        metrics.counter("catobot_speculation_wasted_uploads_total", "Uploads made by abandoned speculations",
+                speculator::getWastedUploads);
+
+        if (recognizer instanceof WitAiRecognizer) {
+            val witAi = (WitAiRecognizer) recognizer;
+            metrics.summary("catobot_wit_ai_request_seconds", "Latency of recognitions by wit.ai",
+                    witAi.getMessageLatencies(), "kind", "message");
+            metrics.summary("catobot_wit_ai_request_seconds", "Latency of recognitions by wit.ai",
+                    witAi.getSpeechLatencies(), "kind", "speech");
+        }
+
+        if (userManager instanceof RedisUserManager) metrics.summary(
+                "catobot_redis_command_seconds", "Latency of round-trips to Redis",
+                ((RedisUserManager) userManager).getCommandLatencies()
+        );
+
+        if (vk instanceof SimpleVkCatsManager) {
+            val vk = (SimpleVkCatsManager) this.vk;
+            metrics.summary("catobot_vk_long_poll_lag_seconds",
+                    "Delay between creation of incoming messages and their handling", vk.getLongPollLags());
+            metrics.summary("catobot_vk_event_handling_seconds", "Latency of handling of long-poll events",
+                    vk.getEventLatencies());
+            metrics.summary("catobot_vk_upload_seconds", "Latency of uploads of cat images to VK",
+                    vk.getUploadLatencies());
+
+            val outbox = vk.getOutbox();
+            metrics.summary("catobot_vk_outbox_batch_seconds", "Latency of sending batches of messages",
+                    outbox.getBatchLatencies());
+            metrics.gauge("catobot_vk_outbox_backlog", "Messages waiting for delivery", outbox::getBacklog);
+            metrics.gauge("catobot_vk_outbox_drain_rate", "Messages delivered per second during the last minute",
+                    outbox::getDrainRate);
+            metrics.counter("catobot_vk_outbox_enqueued_total", "Messages enqueued for delivery",
+                    outbox::getEnqueued);
+            metrics.counter("catobot_vk_outbox_delivered_total", "Delivered messages", outbox::getDelivered);
+            metrics.counter("catobot_vk_outbox_failed_total", "Messages which could not be delivered",
+                    outbox::getFailed);
+            metrics.counter("catobot_vk_outbox_retries_total", "Retried messages", outbox::getRetries);
+            metrics.counter("catobot_vk_outbox_batches_total", "Sent batches of messages", outbox::getBatches);
+        }
+
+        metrics.gauge("catobot_broadcast_sent", "Peers to whom the current broadcast was delivered", () -> {
+            val broadcast = broadcaster.getCurrent();
+            return broadcast == null ? 0 : broadcast.getSent();
+        });
+        metrics.gauge("catobot_broadcast_rate", "Peers per second to whom the current broadcast is delivered", () -> {
+            val broadcast = broadcaster.getCurrent();
+            return broadcast == null ? 0 : broadcast.getRate();
+        });
+
+        metrics.counter("catobot_traces_total", "Traced incoming updates", tracer::getTraces);
+        metrics.counter("catobot_slow_traces_total", "Traced incoming updates which took longer than the threshold",
+                tracer::getSlowTraceCount);
+
+        // cat of the day may be recreated on reloads
+        metrics.counter("catobot_cat_of_the_day_deliveries_total", "Delivered cats of the day",
+                () -> catOfTheDay.getDeliveries());
+        metrics.counter("catobot_cat_of_the_day_failures_total", "Cats of the day which could not be delivered",
+                () -> catOfTheDay.getFailures());
+    }
+
+    /**
+     * Registers the metrics of the repository of cat images.
+     *
+     * @param hits supplier of the amount of picks served by pre-loaded cat images
+     * @param misses supplier of the amount of picks for which new cat images had to be created
+     * @param size supplier of the amount of pre-loaded cat images
+     */
+    protected void registerRepositoryMetrics(@NonNull final LongSupplier hits, @NonNull final LongSupplier misses,
+                                             @NonNull final IntSupplier size) {
+        metrics.counter("catobot_repository_hits_total", "Picks served by pre-loaded cat images", hits);
+        metrics.counter("catobot_repository_misses_total", "Picks for which new cat images had to be created",
+                misses);
+        metrics.gauge("catobot_repository_size", "Pre-loaded cat images", size::getAsInt);
+        metrics.gauge("catobot_repository_hit_ratio", "Ratio of picks served by pre-loaded cat images", () -> {
+            val hitCount = hits.getAsLong();
+            val total = hitCount + misses.getAsLong();
+
+            return total == 0 ? 0 : hitCount / (double) total;
+        });
+    }
+
+    /**
+     * Creates a repository of cat images based on the given factory.
+     *
+     * @param factory factory of cat images
+     * @param snapshot snapshot used for warm starts of the repository or {@code null} if it should not be used
+     * @param config configuration of the bot
+     * @param <I> type of cat images
+     * @return created repository of cat images
+     */
+    protected static <I extends CatImage> CatImageRepository<I, TheCatApiCatImageFactory.Configuration>
+    createCatImageRepository(@NonNull final CatImageFactory<I, TheCatApiCatImageFactory.Configuration> factory,
+                             @Nullable final CatImageSnapshot<? extends I> snapshot,
+                             @NonNull final Config config) {
+        if (config.getFilteredImagesCacheSize() == 0) return new PreLoadingCatImageRepository<>(
+                factory, null, config.getPreloadedImagesCacheSize(), config.getPreloadInterval(), snapshot
+        );
+
+        return new IndexedPreLoadingCatImageRepository<>(
+                factory, TheCatApiCatImageIndexer.INSTANCE, null,
+                config.getPreloadedImagesCacheSize(), config.getFilteredImagesCacheSize(),
+                config.getPopularFiltersCount(), config.getPreloadInterval(), snapshot
+        );
+    }
+
+    /**
+     * Creates the repository of cat images restoring its snapshot if it is configured.
+     *
+     * @param theCatApiCatImageFactory factory of cat images from TheCatApi
+     * @param hedgedCatImageFactory factory hedging requests of cat images or {@code null} if it is not used
+     * @param config configuration of the bot
+     * @return created repository of cat images
+     */
+    protected static CatImageRepository<? extends CatImage, TheCatApiCatImageFactory.Configuration>
+    createCatImageRepository(
+            @NonNull final TheCatApiCatImageFactory theCatApiCatImageFactory,
+            @Nullable final HedgedCatImageFactory<TheCatApiCatImageFactory.Configuration> hedgedCatImageFactory,
+            @NonNull final Config config) {
+        val snapshotFile = config.getPreloadSnapshotFile();
+        val snapshot = snapshotFile == null
+                ? null : new CatImageSnapshot<>(snapshotFile.toPath(), theCatApiCatImageFactory);
+
+        if (hedgedCatImageFactory == null) return createCatImageRepository(theCatApiCatImageFactory, snapshot, config);
+
+        val repository = createCatImageRepository(hedgedCatImageFactory, snapshot, config);
+        // cat images of requests which lost the race are not wasted
+        hedgedCatImageFactory.setSurplusImageHandler(repository::returnCatImage);
+
+        return repository;
+    }
+
+    /**
+     * Loads the handler of the bot's events.
+     *
+     * @param scriptLoader loader of the handler's script
+     * @param config configuration of the bot
+     * @return loaded handler or a stub if there is no handler's script
+     *
+     * @throws BotInitializationException if the handler's script cannot be loaded
+     */
+    protected EventHandler loadEventHandler(@NonNull final ScriptLoader scriptLoader, @NonNull final Config config) {
+        return loadEventHandlerFactory(scriptLoader, config).apply(this);
+    }
+
+    /**
+     * Loads the factory of the handler of the bot's events without creating the handler
+     * so that the script can be loaded before the bot is initialized.
+     *
+     * @param scriptLoader loader of the handler's script
+     * @param config configuration of the bot
+     * @return loaded factory of the handler or a factory of a stub if there is no handler's script
+     *
+     * @throws BotInitializationException if the handler's script cannot be loaded
+     */
+    protected static Function<CatOBot, EventHandler> loadEventHandlerFactory(@NonNull final ScriptLoader scriptLoader,
+                                                                            @NonNull final Config config) {
+        val scriptFile = config.getEventHandlerFile();
+        if (scriptFile == null || !scriptFile.isFile()) return bot -> EventHandler.getStub();
+
+        return loadScript(scriptLoader, scriptFile);
+    }
+
+    /**
+     * Creates the sender of cats of the day.
+     *
+     * @param config configuration of the bot
+     * @return created sender of cats of the day which is not yet started
+     */
+    protected CatOfTheDay createCatOfTheDay(@NonNull final Config config) {
+        return new CatOfTheDay(
+                config.getCatOfTheDayConfig(), userManager, speculator, this::getSeenCatImages,
+                scheduler, createExecutorService(1, true)
+        );
+    }
+
+    /**
+     * Creates the exporter of metrics via JMX.
+     *
+     * @param config configuration of the bot
+     * @return created exporter or {@code null} if it is disabled
+     *
+     * @throws BotInitializationException if the metrics cannot be exported
+     */
+    @Nullable protected JmxExporter createJmxExporter(@NonNull final Config config) {
+        if (!config.isJmxMetrics()) return null;
+
+        try {
+            return new JmxExporter(metrics);
+        } catch (final JMException e) {
+            throw new BotInitializationException("Unable to export metrics via JMX", e);
+        }
+    }
+
+    /**
+     * Creates the exporter of metrics in Prometheus format.
+     *
+     * @param config configuration of the bot
+     * @return created exporter or {@code null} if it is disabled
+     *
+     * @throws BotInitializationException if the endpoint cannot be started
+     */
+    @Nullable protected PrometheusExporter createPrometheusExporter(@NonNull final Config config) {
+        val prometheusConfig = config.getPrometheusConfig();
+        if (!prometheusConfig.isEnabled()) return null;
+
+        try {
+            return new PrometheusExporter(prometheusConfig, metrics);
+        } catch (final IOException e) {
+            throw new BotInitializationException("Unable to start Prometheus endpoint", e);
+        }
+    }
+
+    /**
+     * Loads the script providing an object of the bot's API.
+     *
+     * @param scriptLoader loader of the script
+     * @param scriptFile file of the script
+     * @param <T> type of the object provided by the script
+     * @return object provided by the script
+     *
+     * @throws BotInitializationException if the script cannot be loaded
+     */
+    protected static <T> T loadScript(@NonNull final ScriptLoader scriptLoader, @NonNull final File scriptFile) {
+        try {
+            return scriptLoader.load(scriptFile);
+        } catch (final IOException e) {
+            throw new BotInitializationException("Unable to load script", e);
+        } catch (final ScriptException e) {
+            throw new BotInitializationException("Unable to compile script", e);
+        } catch (final ClassCastException e) {
+            throw new BotInitializationException(
+                    "Object provided by script should be of other type", e
+            );
+        }
+    }
+
+    @Override
+    public SeenCatImagesFilter getSeenCatImages(@NonNull final User user) {
+        return seenCatImages.get(user);
+    }
+
+    public void run() {
+        if (shutdown.get()) throw new AlreadyShutDownException("This CatOBot is already shut down");
+        startHandlingEvents();
+        catOfTheDay.start();
+        broadcaster.resumeOnStart();
+    }
+
+    /**
+     * Enables the event handler and starts long-polling unless it is already done.
+     */
+    protected void startHandlingEvents() {
+        if (!handlingEvents.compareAndSet(false, true)) return;
+
+        eventHandler.onEnable();
+        vk.startLongPolling();
+    }
+
+    /**
+     * Reloads the config and the scripts of the handlers applying them while the bot keeps running.
+     * <p>
+     * The handlers of events are swapped atomically so that events keep being handled during the reload.
+     * Other components are only recreated if their sections of the config have changed
+     * and only if they are not used by other components (such as {@link CatOfTheDay} or exporters of metrics),
+     * changes of the remaining sections are reported and require a restart.
+     * All new components are created before any of the current ones gets replaced
+     * so that if the config, any of the scripts or any of the components cannot be loaded, nothing gets changed.
+     *
+     * @return names of the changed sections of the config which require a restart to be applied
+     *
+     * @throws BotInitializationException if the config, the scripts or the components cannot be loaded
+     */
+    public synchronized Set<String> reload() throws BotInitializationException {
+        if (shutdown.get()) throw new AlreadyShutDownException("This CatOBot is already shut down");
+
+        final Config config;
+        try {
+            config = loadConfig(configFile);
+        } catch (final IOException e) {
+            throw new BotInitializationException("Unable to load bot config", e);
+        }
+        val newConfig = CONFIG_GSON.toJsonTree(config).getAsJsonObject();
+        val changedSections = getChangedSections(appliedConfig, newConfig);
+        log.info("Reloading, changed config sections: {}", changedSections);
+
+        // both handlers are loaded before swapping any of them so that a broken script does not change anything
+        val newScriptLoader = changedSections.contains("scripts")
+                ? new ScriptLoader(config.getScriptsConfig()) : scriptLoader;
+        val newEventHandler = loadEventHandler(newScriptLoader, config);
+        final CallbackApi newVkHandler = SimpleCatOBot.<Function<CatOBot, CallbackApi>>loadScript(
+                newScriptLoader, config.getVkHandlerFile()
+        ).apply(this);
+
+        // so are the components, the old ones are closed once all of the new ones are created
+        val catOfTheDayChanged = changedSections.contains("cat-of-the-day");
+        val jmxExporterChanged = changedSections.contains("jmx-metrics");
+        val prometheusExporterChanged = changedSections.contains("prometheus");
+        val oldPrometheusExporter = prometheusExporter;
+        // the endpoint listening on the same address only gets moved as another one could not listen on it
+        val prometheusExporterMoved = prometheusExporterChanged && oldPrometheusExporter != null
+                && config.getPrometheusConfig().isEnabled()
+                && oldPrometheusExporter.isListeningOn(config.getPrometheusConfig());
+        CatOfTheDay newCatOfTheDay = null;
+        JmxExporter newJmxExporter = null;
+        PrometheusExporter newPrometheusExporter = null;
+        try {
+            if (catOfTheDayChanged) newCatOfTheDay = createCatOfTheDay(config);
+            // the flag has changed thus there is no exporter registered concurrently with the new one
+            if (jmxExporterChanged) newJmxExporter = createJmxExporter(config);
+            if (prometheusExporterChanged && !prometheusExporterMoved) {
+                newPrometheusExporter = createPrometheusExporter(config);
+            }
+        } catch (final RuntimeException e) {
+            if (newCatOfTheDay != null) newCatOfTheDay.close();
+            if (newJmxExporter != null) newJmxExporter.close();
+            throw e;
+        }
+
+        scriptLoader = newScriptLoader;
+        vk.setLongPollEventHandler(newVkHandler);
+        log.info("Swapped callback-api handler: {}", newVkHandler);
+        {
+            val oldEventHandler = eventHandler;
+            eventHandler = newEventHandler;
+            oldEventHandler.onDisable();
+            newEventHandler.onEnable();
+        }
+        log.info("Swapped event handler: {}", newEventHandler);
+
+        if (changedSections.contains("seen-cat-images")) {
+            seenCatImages.setConfiguration(config.getSeenCatImagesConfig());
+        }
+        if (catOfTheDayChanged) {
+            assert newCatOfTheDay != null;
+
+            val oldCatOfTheDay = catOfTheDay;
+            catOfTheDay = newCatOfTheDay;
+            oldCatOfTheDay.close();
+            newCatOfTheDay.start();
+            log.info("Recreated cat of the day");
+        }
+        if (jmxExporterChanged) {
+            val oldJmxExporter = jmxExporter;
+            jmxExporter = newJmxExporter;
+            if (oldJmxExporter != null) oldJmxExporter.close();
+        }
+        if (prometheusExporterMoved) oldPrometheusExporter.setPath(config.getPrometheusConfig().getPath());
+        else if (prometheusExporterChanged) {
+            prometheusExporter = newPrometheusExporter;
+            if (oldPrometheusExporter != null) oldPrometheusExporter.close();
+        }
+
+        val restartSections = new LinkedHashSet<String>();
+        for (val section : changedSections) if (RELOADABLE_CONFIG_SECTIONS.contains(section)) {
+            val value = newConfig.get(section);
+            if (value == null) appliedConfig.remove(section);
+            else appliedConfig.add(section, value);
+        } else restartSections.add(section);
+        if (!restartSections.isEmpty()) log.warn(
+                "Config sections {} have changed but require a restart to be applied", restartSections
+        );
+
+        return restartSections;
+    }
+
+    /**
+     * Gets the sections of the config which differ between its applied and new versions.
+     *
+     * @param appliedConfig currently applied config
+     * @param newConfig new config
+     * @return names of the changed sections of the config including the added and removed ones
+     */
+    protected static Set<String> getChangedSections(@NonNull final JsonObject appliedConfig,
+                                                    @NonNull final JsonObject newConfig) {
+        val changedSections = new LinkedHashSet<String>();
+        for (val section : newConfig.entrySet()) if (!section.getValue().equals(appliedConfig.get(section.getKey()))) {
+            changedSections.add(section.getKey());
+        }
+        // sections whose values became null are not serialized
+        for (val section : appliedConfig.keySet()) if (!newConfig.has(section)) changedSections.add(section);
+
+        return changedSections;
+    }
+
+    @Override
+    public void close() {
+        if (shutdown.compareAndSet(false, true)) {
+            eventHandler.onDisable();
+
+            if (prometheusExporter != null) prometheusExporter.close();
+            if (jmxExporter != null) jmxExporter.close();
+
+            try {
+                catOfTheDay.close();
+            } catch (final Throwable e) {
+                log.error("An exception occurred while shutting down cat of the day", e);
+            }
+            try {
+                broadcaster.close();
+            } catch (final Throwable e) {
+                log.error("An exception occurred while shutting down broadcaster", e);
+            }
+            try {
+                vk.close();
+            } catch (final Throwable e) {
+                log.error("An exception occurred while shutting down VK-manager", e);
+            }
+            try {
+                catImages.close();
+            } catch (final Throwable e) {
+                log.error("An exception occurred while shutting down repository of cat images", e);
+            }
+            try {
+                catImageSharer.close();
+            } catch (final Throwable e) {
+                log.error("An exception occurred while shutting down cat image sharer", e);
+            }
+            try {
+                recognizer.close();
+            } catch (final Throwable e) {
+                log.error("An exception occurred while shutting down recognizer", e);
+            }
+
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        }
+    }
+
+    protected Config loadConfig(@NonNull final File file) throws IOException {
+        if (file.isFile()) try (val reader = Files.newBufferedReader(file.toPath())) {
+            return CONFIG_GSON.fromJson(reader, Config.class);
+        } else {
+            {
+                val parent = file.getParentFile();
+                if (parent != null) Files.createDirectories(parent.toPath());
+            }
+            val config = new Config();
+            try (val writer = Files.newBufferedWriter(file.toPath())) {
+                CONFIG_GSON.toJson(config, writer);
+            }
+
+            return config;
+        }
+    }
+
+    /**
+     * Creates an executor based on the given amount of workers.
+     *
+     * The following strategy is used for various inputs
+     * <dt>0 workers</dt>
+     * <dd>{@link Executors#newCachedThreadPool()}</dd>
+     * <dt>1 worker</dt>
+     * <dd>{@link Executors#newSingleThreadExecutor()}</dd>
+     * <dt>2 or more workers</dt>
+     * <dd>{@link Executors#newFixedThreadPool(int)}</dd>
+     *
+     * @param workers amount of workers to use or {@link 0} for unlimited pool
+     * @param daemon {@link true} if the created thread should be daemons and {@link false} otherwise
+     * @return new executor based on the given amount of workers of it
+     *
+     * @throws IllegalArgumentException if the amount of workers is negative
+     */
+    protected static ExecutorService createExecutorService(final int workers,
+                                                           boolean daemon) {
+        return createExecutorService(ExecutorMode.PLATFORM, workers, daemon);
+    }
+
+    /**
+     * Creates an executor running tasks in the given mode.
+     *
+     * @param mode mode in which the tasks should be run
+     * @param workers amount of platform workers to use or {@link 0} for unlimited pool,
+     * ignored by {@link ExecutorMode#VIRTUAL virtual} mode
+     * @param daemon {@link true} if the created platform threads should be daemons and {@link false} otherwise,
+     * virtual threads are always daemons
+     * @return new executor running tasks in the given mode
+     *
+     * @throws IllegalArgumentException if the amount of workers is negative
+     * @see ExecutorMode#createExecutorService(int, ThreadFactory) strategy used for platform threads
+     */
+    protected static ExecutorService createExecutorService(@NonNull final ExecutorMode mode,
+                                                           final int workers,
+                                                           boolean daemon) {
+        if (workers < 0) throw new IllegalArgumentException("Number of workers cannot be negative");
+
+        return mode.createExecutorService(workers, createThreadFactory(daemon));
+    }
+
+    /**
+     * Creates a bounded executor running tasks in the given mode and registers it by the given name.
+     *
+     * @param name name of the subsystem using the executor
+     * @param mode mode in which the tasks should be run
+     * @param workers amount of workers to use or {@link 0} for the maximal amount allowed by the configuration
+     * @param configuration configuration of the bounds of the executor
+     * @param daemon {@link true} if the created platform threads should be daemons and {@link false} otherwise,
+     * virtual threads are always daemons
+     * @return new bounded executor running tasks in the given mode
+     *
+     * @throws IllegalArgumentException if the amount of workers is negative
+     */
+    protected BoundedExecutor createExecutorService(@NonNull final String name,
+                                                    @NonNull final ExecutorMode mode,
+                                                    final int workers,
+                                                    @NonNull final BoundedExecutor.Configuration configuration,
+                                                    boolean daemon) {
+        val executor = BoundedExecutor.create(mode, workers, configuration, createThreadFactory(daemon));
+        executors.put(name, executor);
+
+        return executor;
+    }
+
+    /**
+     * Creates a thread factory based on the {@link Executors#defaultThreadFactory() default one}.
+     *
+     * @param daemon {@link true} if the created thread should be daemons and {@link false} otherwise
+     * @return new thread factory
+     */
+    protected static ThreadFactory createThreadFactory(boolean daemon) {
+        val defaultThreadFactory = Executors.defaultThreadFactory();
+
+        return task -> {
+            val thread = defaultThreadFactory.newThread(task);
+            if (thread.isDaemon() != daemon) thread.setDaemon(daemon);
+
+            return thread;
+        };
+    }
+
+    /**
+     * Creates a scheduled executor based on the given amount of workers.
+     *
+     * The following strategy is used for various inputs
+     * <dt>0 workers</dt>
+     * <dd>{@link Executors#newCachedThreadPool()}</dd>
+     * <dt>1 worker</dt>
+     * <dd>{@link Executors#newSingleThreadExecutor()}</dd>
+     * <dt>2 or more workers</dt>
+     * <dd>{@link Executors#newFixedThreadPool(int)}</dd>
+     *
+     * @param workers amount of workers to use or {@link 0} for unlimited pool
+     * @param daemon {@link true} if the created thread should be daemons and {@link false} otherwise
+     * @return new scheduled executor based on the given amount of workers of it
+     *
+     * @throws IllegalArgumentException if the amount of workers is negative
+     */
+    protected static ScheduledExecutorService createScheduledExecutorService(final int workers, boolean daemon) {
+        if (workers < 0) throw new IllegalArgumentException("Number of workers cannot be negative");
+
+        val threadFactory = createThreadFactory(daemon);
+
+        if (workers == 1) return Executors.newSingleThreadScheduledExecutor(threadFactory);
+        return Executors.newScheduledThreadPool(workers, threadFactory);
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @FieldDefaults(level = AccessLevel.PROTECTED)
+    protected static class Config {
+
+        boolean useSsl;
+        @Default int schedulerWorkers = 0,
+                userManagerWorkers = 0, imageFactoryWorkers = 0, recognizerWorkers = 0,
+                preloadedImagesCacheSize = 100, preloadInterval = 1_000_000,
+                filteredImagesCacheSize = 10, popularFiltersCount = 16;
+        @Default long imageByteStoreSize = 64L << 20;
+        @Default @NonNull ExecutorMode userManagerExecutorMode = ExecutorMode.PLATFORM,
+                imageFactoryExecutorMode = ExecutorMode.PLATFORM, sharingExecutorMode = ExecutorMode.PLATFORM,
+                recognizerExecutorMode = ExecutorMode.PLATFORM;
+
+        @SerializedName("user-manager-executor") @Default @NonNull BoundedExecutor.Configuration
+                userManagerExecutorConfig = BoundedExecutor.Configuration.builder().build();
+
+        @SerializedName("image-factory-executor") @Default @NonNull BoundedExecutor.Configuration
+                imageFactoryExecutorConfig = BoundedExecutor.Configuration.builder()
+                .overloadPolicy(BoundedExecutor.OverloadPolicy.CALLER_RUNS)
+                .build();
+
+        @SerializedName("sharing-executor") @Default @NonNull BoundedExecutor.Configuration
+                sharingExecutorConfig = BoundedExecutor.Configuration.builder()
+                .overloadPolicy(BoundedExecutor.OverloadPolicy.CALLER_RUNS)
+                .build();
+
+        @SerializedName("recognizer-executor") @Default @NonNull BoundedExecutor.Configuration
+                recognizerExecutorConfig = BoundedExecutor.Configuration.builder()
+                .overloadPolicy(BoundedExecutor.OverloadPolicy.SHED)
+                .build();
+
+        @Default boolean jmxMetrics = true;
+
+        /**
+         * Whether long-polling should start as soon as the components reachable from the handlers are initialized
+         * instead of once the bot is run so that it overlaps with the initialization of the exporters of metrics
+         */
+        @Default boolean earlyLongPolling = false;
+
+        @SerializedName("prometheus") @Default @NonNull PrometheusExporter.Configuration prometheusConfig
+                = PrometheusExporter.Configuration.builder().build();
+
+        @SerializedName("tracing") @Default @NonNull Tracer.Configuration tracingConfig
+                = Tracer.Configuration.builder().build();
+
+        @SerializedName("redis-user-manager") @Default @NonNull RedisUserManager.Configuration redisUserManagerConfig
+                = RedisUserManager.Configuration.builder().build();
+
+        @SerializedName("seen-cat-images") @Default @NonNull SeenCatImagesFilter.Configuration seenCatImagesConfig
+                = SeenCatImagesFilter.Configuration.builder().build();
+
+        @SerializedName("the-cat-api") @Default @NonNull TheCatApiCatImageFactory.Configuration theCatApiConfig
+                = TheCatApiCatImageFactory.Configuration.builder().build();
+
+        @SerializedName("the-cat-api-endpoint") @Default @NonNull URI theCatApiEndpoint
+                = URI.create(TheCatApiUtil.ROOT_API_ENDPOINT);
+
+        @SerializedName("image-downloader") @Default @NonNull ImageDownloader.Configuration imageDownloaderConfig
+                = ImageDownloader.Configuration.builder().build();
+
+        @SerializedName("sharing") @Default @NonNull BatchCatImageSharer.Configuration sharingConfig
+                = BatchCatImageSharer.Configuration.builder().build();
+
+        @SerializedName("image-processor") @Default @NonNull NormalizingCatImageProcessor.Configuration imageProcessorConfig
+                = NormalizingCatImageProcessor.Configuration.builder().build();
+
+        @SerializedName("collage") @Default @NonNull CollageCatImageCombiner.Configuration collageConfig
+                = CollageCatImageCombiner.Configuration.builder().build();
+
+        @SerializedName("local-images") @Default @NonNull FileSystemCatImageFactory.Configuration localImagesConfig
+                = FileSystemCatImageFactory.Configuration.builder().build();
+
+        @SerializedName("hedging") @Default @NonNull HedgedCatImageFactory.Configuration hedgingConfig
+                = HedgedCatImageFactory.Configuration.builder().build();
+
+        @SerializedName("speculation") @Default @NonNull CatImageSpeculator.Configuration speculationConfig
+                = CatImageSpeculator.Configuration.builder().build();
+
+        @SerializedName("cat-of-the-day") @Default @NonNull CatOfTheDay.Configuration catOfTheDayConfig
+                = CatOfTheDay.Configuration.builder().build();
+
+        @SerializedName("broadcast") @Default @NonNull Broadcaster.Configuration broadcastConfig
+                = Broadcaster.Configuration.builder().build();
+
+        @SerializedName("vk-api") @Default @NonNull SimpleVkCatsManager.Configuration vkApiConfig
+                = SimpleVkCatsManager.Configuration.builder()
+                .groupToken("1234567890abcdef1234567890abcdef")
+                .build();
+
+        @SerializedName("wit-ai") @Default @NonNull WitAiRecognizer.Configuration witAiConfig
+                = WitAiRecognizer.Configuration.builder()
+                .userToken("1234567890abcdef1234567890abcdef")
+                .build();
+
+        @SerializedName("wit-ai-endpoint") @Default @NonNull URI witAiEndpoint
+                = URI.create(WitAiUtil.ROOT_API_ENDPOINT);
+
+        @SerializedName("preload-snapshot") @Default @Nullable File preloadSnapshotFile
+                = new File("cache/preloaded-cats.bin");
+
+        @SerializedName("scripts") @Default @NonNull ScriptLoader.Configuration scriptsConfig
+                = ScriptLoader.Configuration.builder().build();
+
+        @SerializedName("event-handler") @NonNull @Default File eventHandlerFile
+                = new File("scripts/event-handler.groovy");
+        @SerializedName("vk-handler") @NonNull @Default File vkHandlerFile
+                = new File("scripts/vk-handler.groovy");
+    }
+}
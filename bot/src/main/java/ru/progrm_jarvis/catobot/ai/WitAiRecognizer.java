@@ -8,10 +8,15 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.entity.InputStreamEntity;
+import ru.progrm_jarvis.catobot.jfr.JfrEvents;
+import ru.progrm_jarvis.catobot.jfr.RecognizerCallEvent;
+import ru.progrm_jarvis.catobot.trace.Trace;
+import ru.progrm_jarvis.catobot.util.LatencyHistogram;
 import ru.progrm_jarvis.catobot.util.WitAiUtil;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
@@ -40,6 +45,18 @@ public class WitAiRecognizer implements Recognizer<WitAiRecognizer.Configuration
      * Default configuration to use whenever none is provided when needed
      */
     @NonNull final Configuration defaultConfiguration;
+    /**
+     * Root endpoint of WitAI API such as {@link WitAiUtil#ROOT_API_ENDPOINT}
+     */
+    @NonNull final URI apiEndpoint;
+    /**
+     * Latencies of recognitions of text messages
+     */
+    @NonNull @Getter final LatencyHistogram messageLatencies = new LatencyHistogram();
+    /**
+     * Latencies of recognitions of speech
+     */
+    @NonNull @Getter final LatencyHistogram speechLatencies = new LatencyHistogram();
 
     @Override
     public CompletableFuture<Optional<RecognitionResult>> recognizeMessage(@NonNull final String message,
@@ -49,7 +66,7 @@ public class WitAiRecognizer implements Recognizer<WitAiRecognizer.Configuration
             final HttpGet request;
             try {
                 request = new HttpGet(
-                        new URIBuilder(WitAiUtil.GET_MESSAGE_MEANING_ENDPOINT)
+                        new URIBuilder(apiEndpoint.resolve(WitAiUtil.GET_MESSAGE_MEANING_PATH))
                                 .setParameter("v", WitAiUtil.getCurrentApiVersion())
                                 .setParameter("q", message)
                                 .build()
@@ -59,12 +76,23 @@ public class WitAiRecognizer implements Recognizer<WitAiRecognizer.Configuration
             }
             request.setHeader("Authorization", config.getFullUserToken());
 
-            try (val response = httpClient.execute(request).getEntity().getContent()) {
-                return ofNullable(WitAiUtil.parseRecognitionResult(response));
+            val event = JfrEvents.isAvailable() ? new RecognizerCallEvent() : null;
+            if (event != null) event.begin();
+            var recognized = false;
+            val startNanos = System.nanoTime();
+            try (val span = Trace.span("wit-ai message");
+                 val response = httpClient.execute(request).getEntity().getContent()) {
+                final Optional<RecognitionResult> result = ofNullable(WitAiUtil.parseRecognitionResult(response));
+                recognized = result.isPresent();
+
+                return result;
             } catch (final IOException e) {
                 log.debug("An exception occurred while trying to recognize a message", e);
 
                 return empty();
+            } finally {
+                messageLatencies.recordSince(startNanos);
+                if (event != null) commitCallEvent(event, "message", recognized);
             }
 
         }, executor);
@@ -78,7 +106,7 @@ public class WitAiRecognizer implements Recognizer<WitAiRecognizer.Configuration
             final HttpPost request;
             try {
                 request = new HttpPost(
-                        new URIBuilder(WitAiUtil.GET_SPEECH_MEANING_ENDPOINT)
+                        new URIBuilder(apiEndpoint.resolve(WitAiUtil.GET_SPEECH_MEANING_PATH))
                                 .setParameter("v", WitAiUtil.getCurrentApiVersion())
                                 .build()
                 );
@@ -89,17 +117,45 @@ public class WitAiRecognizer implements Recognizer<WitAiRecognizer.Configuration
             request.setHeader("Content-Type", "audio/mpeg3");
             request.setEntity(new InputStreamEntity(mp3Stream));
 
-            try (val response = httpClient.execute(request).getEntity().getContent()) {
-                return ofNullable(WitAiUtil.parseRecognitionResult(response));
+            val event = JfrEvents.isAvailable() ? new RecognizerCallEvent() : null;
+            if (event != null) event.begin();
+            var recognized = false;
+            val startNanos = System.nanoTime();
+            try (val span = Trace.span("wit-ai speech");
+                 val response = httpClient.execute(request).getEntity().getContent()) {
+                final Optional<RecognitionResult> result = ofNullable(WitAiUtil.parseRecognitionResult(response));
+                recognized = result.isPresent();
+
+                return result;
             } catch (final IOException e) {
                 log.debug("An exception occurred while trying to recognize a message", e);
 
                 return empty();
+            } finally {
+                speechLatencies.recordSince(startNanos);
+                if (event != null) commitCallEvent(event, "speech", recognized);
             }
 
         }, executor);
     }
 
+    /**
+     * Commits the event of a call to WitAI if it is enabled.
+     *
+     * @param event started event of the call
+     * @param kind kind of the recognized message
+     * @param recognized whether the message was recognized
+     */
+    protected static void commitCallEvent(@NonNull final RecognizerCallEvent event,
+                                          @NonNull final String kind, final boolean recognized) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.setKind(kind);
+            event.setRecognized(recognized);
+            event.commit();
+        }
+    }
+
     @Override
     public void close() {
         executor.shutdownNow();
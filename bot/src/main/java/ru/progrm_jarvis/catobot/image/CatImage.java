@@ -0,0 +1,45 @@
+package ru.progrm_jarvis.catobot.image;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Image of a cat.
+ */
+public interface CatImage {
+
+    /**
+     * Gets the unique identifier of this cat image.
+     *
+     * @return ID of this cat image or {@code null} if it has none
+     */
+    @Nullable default String getId() {
+        return null;
+    }
+
+    /**
+     * Gets the {@link byte} array representing this cat image.
+     *
+     * @return image object of a cat
+     */
+    @NotNull byte[] getImage();
+
+    /**
+     * Gets the read-only buffer of this cat image's bytes.
+     * Unlike {@link #getImage()} this may avoid copying the bytes onto the heap.
+     *
+     * @return read-only buffer of this cat image's bytes positioned at its start
+     */
+    @NotNull default ByteBuffer getImageBuffer() {
+        return ByteBuffer.wrap(getImage()).asReadOnlyBuffer();
+    }
+
+    /**
+     * Gets the type of this image such as {@code "png"}.
+     *
+     * @return type of this image
+     */
+    @NotNull String getType();
+}
@@ -0,0 +1,235 @@
+package ru.progrm_jarvis.catobot.image;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import org.apache.commons.io.FilenameUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Compact representation of {@link TheCatApiCatImage} used for caching big amounts of cat images.
+ * Breeds and categories are referenced by their identifiers in {@link TheCatApiMetadataRegistry},
+ * common strings are interned and the loader of the bytes is shared by all cat images.
+ */
+@ToString
+@RequiredArgsConstructor(access = AccessLevel.PROTECTED)
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class CompactTheCatApiCatImage implements CatImage {
+
+    /**
+     * Shared empty array of identifiers
+     */
+    private static final int[] NO_IDS = new int[0];
+
+    /**
+     * Registry of metadata referenced by this cat image
+     */
+    @NonNull @ToString.Exclude TheCatApiMetadataRegistry registry;
+
+    /**
+     * Loader of this cat image's bytes
+     */
+    @NonNull @ToString.Exclude Loader loader;
+
+    @Getter @NonNull String id;
+
+    /**
+     * Interned part of the URL preceding the file name
+     */
+    @NonNull String urlBase;
+
+    /**
+     * File name of this cat image in its URL
+     */
+    @NonNull String fileName;
+
+    /**
+     * Type of this image or {@code null} if it is unknown in which case it is computed from the {@link #fileName}
+     */
+    @Nullable ImageType imageType;
+
+    @Getter int width, height;
+
+    /**
+     * Ordinals of breeds of this cat image
+     */
+    @NonNull int[] breedOrdinals;
+
+    /**
+     * IDs of categories of this cat image
+     */
+    @NonNull int[] categoryIds;
+
+    /**
+     * Image bytes of a cat initialized lazily using {@link #loader}
+     */
+    @Nullable @ToString.Exclude @NonFinal volatile byte[] image;
+
+    /**
+     * Creates a compact cat image from the given one registering its metadata.
+     *
+     * @param image cat image whose metadata should be used
+     * @param registry registry of metadata
+     * @param loader loader of the cat image's bytes
+     * @return created compact cat image
+     */
+    public static CompactTheCatApiCatImage of(@NonNull final TheCatApiCatImage image,
+                                              @NonNull final TheCatApiMetadataRegistry registry,
+                                              @NonNull final Loader loader) {
+        val url = image.getUrl();
+        val fileNameStart = url.lastIndexOf('/') + 1;
+        val fileName = url.substring(fileNameStart);
+
+        val breeds = image.getBreeds();
+        final int[] breedOrdinals;
+        if (breeds.isEmpty()) breedOrdinals = NO_IDS;
+        else {
+            breedOrdinals = new int[breeds.size()];
+            var i = 0;
+            for (val breed : breeds) breedOrdinals[i++] = registry.registerBreed(breed);
+        }
+
+        val categories = image.getCategories();
+        final int[] categoryIds;
+        if (categories.isEmpty()) categoryIds = NO_IDS;
+        else {
+            categoryIds = new int[categories.size()];
+            var i = 0;
+            for (val category : categories) categoryIds[i++] = registry.registerCategory(category);
+        }
+
+        return new CompactTheCatApiCatImage(
+                registry, loader, image.getId(), registry.intern(url.substring(0, fileNameStart)), fileName,
+                ImageType.fromExtension(FilenameUtils.getExtension(fileName)),
+                image.getWidth(), image.getHeight(), breedOrdinals, categoryIds
+        );
+    }
+
+    /**
+     * Gets the URL of this cat image.
+     *
+     * @return URL of this cat image
+     */
+    @NotNull public String getUrl() {
+        return urlBase + fileName;
+    }
+
+    @Override
+    @NotNull public String getType() {
+        return imageType == null ? FilenameUtils.getExtension(fileName) : imageType.getExtension();
+    }
+
+    /**
+     * Gets the breeds of this cat image.
+     *
+     * @return breeds of this cat image
+     */
+    @NotNull public List<TheCatApiCatImage.Breed> getBreeds() {
+        val breeds = new ArrayList<TheCatApiCatImage.Breed>(breedOrdinals.length);
+        for (val ordinal : breedOrdinals) breeds.add(registry.getBreed(ordinal));
+
+        return breeds;
+    }
+
+    /**
+     * Gets the categories of this cat image.
+     *
+     * @return categories of this cat image
+     */
+    @NotNull public List<TheCatApiCatImage.Category> getCategories() {
+        val categories = new ArrayList<TheCatApiCatImage.Category>(categoryIds.length);
+        for (val id : categoryIds) categories.add(registry.getCategory(id));
+
+        return categories;
+    }
+
+    /**
+     * Creates a full representation of this cat image.
+     *
+     * @return full representation of this cat image sharing its bytes
+     */
+    @NotNull public TheCatApiCatImage toFullImage() {
+        return TheCatApiCatImage.builder()
+                .imageFactory(this::getImage)
+                .id(id)
+                .url(getUrl())
+                .width(width)
+                .height(height)
+                .breeds(getBreeds())
+                .categories(getCategories())
+                .build();
+    }
+
+    @Override
+    @NotNull public byte[] getImage() {
+        var image = this.image;
+        if (image == null) synchronized (this) {
+            if ((image = this.image) == null) this.image = image = loader.load(this);
+        }
+
+        return image;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Bytes available to the loader without loading them (such as memory-mapped ones) are used directly.
+     */
+    @Override
+    @NotNull public ByteBuffer getImageBuffer() {
+        val content = getLoadedContent();
+
+        return content == null ? ByteBuffer.wrap(getImage()).asReadOnlyBuffer() : content;
+    }
+
+    /**
+     * Gets the bytes of this cat image if they are available without loading them.
+     *
+     * @return read-only buffer of this cat image's bytes or {@code null} if they are not loaded
+     */
+    @Nullable public ByteBuffer getLoadedContent() {
+        val image = this.image;
+
+        return image == null ? loader.getContent(this) : ByteBuffer.wrap(image).asReadOnlyBuffer();
+    }
+
+    /**
+     * Checks whether the bytes of this cat image are already loaded.
+     *
+     * @return {@code true} if the bytes of this cat image are loaded and {@code false} otherwise
+     */
+    public boolean isImageLoaded() {
+        return image != null;
+    }
+
+    /**
+     * Loader of cat images' bytes which may be shared by multiple cat images.
+     */
+    @FunctionalInterface
+    public interface Loader {
+
+        /**
+         * Loads the bytes of the given cat image.
+         *
+         * @param image cat image whose bytes should be loaded
+         * @return loaded bytes of the cat image
+         */
+        @NotNull byte[] load(@NonNull CompactTheCatApiCatImage image);
+
+        /**
+         * Gets the bytes of the given cat image if they are available without loading them.
+         *
+         * @param image cat image whose bytes should be got
+         * @return read-only buffer of the cat image's bytes or {@code null} if they have to be loaded
+         */
+        @Nullable default ByteBuffer getContent(@NonNull final CompactTheCatApiCatImage image) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ru.progrm_jarvis.catobot.image;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.apache.commons.io.FilenameUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link CatImage} stored in a file whose content is memory-mapped
+ * so that it does not get copied onto the heap unless {@link #getImage()} is called.
+ */
+@ToString
+@EqualsAndHashCode
+@RequiredArgsConstructor(access = AccessLevel.PROTECTED)
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class FileSystemCatImage implements CatImage {
+
+    /**
+     * ID of this image which is the name of its file
+     */
+    @Getter @NonNull String id;
+
+    @Getter @NonNull String type;
+
+    @NonNull @ToString.Exclude @EqualsAndHashCode.Exclude MappedByteBuffer buffer;
+
+    /**
+     * Creates a cat image mapping the content of the given file.
+     *
+     * @param file file of the cat image
+     * @return created cat image
+     *
+     * @throws IOException if an exception occurs while mapping the file
+     */
+    public static FileSystemCatImage map(@NonNull final Path file) throws IOException {
+        final MappedByteBuffer buffer;
+        try (val channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        val fileName = file.getFileName().toString();
+
+        return new FileSystemCatImage(fileName, FilenameUtils.getExtension(fileName).toLowerCase(), buffer);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @apiNote each call copies the mapped bytes onto the heap thus {@link #getImageBuffer()} should be preferred
+     */
+    @Override
+    @NotNull public byte[] getImage() {
+        val buffer = getImageBuffer();
+        val bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+
+        return bytes;
+    }
+
+    @Override
+    @NotNull public ByteBuffer getImageBuffer() {
+        return buffer.asReadOnlyBuffer();
+    }
+}
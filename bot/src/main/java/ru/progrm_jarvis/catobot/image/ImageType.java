@@ -0,0 +1,44 @@
+package ru.progrm_jarvis.catobot.image;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Known type of an image shared by all images of this type.
+ */
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public enum ImageType {
+    JPG("jpg"),
+    JPEG("jpeg"),
+    PNG("png"),
+    GIF("gif"),
+    BMP("bmp");
+
+    /**
+     * All image types cached so that they are not copied on each lookup
+     */
+    private static final ImageType[] VALUES = values();
+
+    /**
+     * Extension of files of this type which is also the value of {@link CatImage#getType()}
+     */
+    @Getter @NonNull String extension;
+
+    /**
+     * Gets the image type by the given extension.
+     *
+     * @param extension extension of the image's file
+     * @return image type of the extension or {@code null} if it is unknown
+     */
+    @Nullable public static ImageType fromExtension(@NonNull final String extension) {
+        for (val type : VALUES) if (type.extension.equalsIgnoreCase(extension)) return type;
+
+        return null;
+    }
+}
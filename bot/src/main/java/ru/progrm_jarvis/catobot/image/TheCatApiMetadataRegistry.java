@@ -0,0 +1,110 @@
+package ru.progrm_jarvis.catobot.image;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registry of interned TheCatApi metadata shared by all cat images referencing it.
+ * Breeds are identified by their dense ordinals and categories by their IDs
+ * so that cat images only have to store primitive identifiers of them.
+ */
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class TheCatApiMetadataRegistry {
+
+    /**
+     * Registered breeds by their ordinals
+     */
+    @NonNull List<TheCatApiCatImage.Breed> breeds = new CopyOnWriteArrayList<>();
+
+    /**
+     * Ordinals of registered breeds by their IDs
+     */
+    @NonNull ConcurrentMap<String, Integer> breedOrdinals = new ConcurrentHashMap<>();
+
+    /**
+     * Registered categories by their IDs
+     */
+    @NonNull ConcurrentMap<Integer, TheCatApiCatImage.Category> categories = new ConcurrentHashMap<>();
+
+    /**
+     * Interned strings
+     */
+    @NonNull ConcurrentMap<String, String> strings = new ConcurrentHashMap<>();
+
+    /**
+     * Registers the given breed unless the one with the same ID is already registered.
+     *
+     * @param breed breed to register
+     * @return ordinal of the registered breed
+     */
+    public int registerBreed(@NonNull final TheCatApiCatImage.Breed breed) {
+        val ordinal = breedOrdinals.get(breed.getId());
+        if (ordinal != null) return ordinal;
+
+        synchronized (breeds) {
+            return breedOrdinals.computeIfAbsent(breed.getId(), id -> {
+                breeds.add(breed);
+                return breeds.size() - 1;
+            });
+        }
+    }
+
+    /**
+     * Gets the registered breed by its ordinal.
+     *
+     * @param ordinal ordinal of the breed
+     * @return registered breed
+     *
+     * @throws IndexOutOfBoundsException if there is no breed by the given ordinal
+     */
+    @NotNull public TheCatApiCatImage.Breed getBreed(final int ordinal) {
+        return breeds.get(ordinal);
+    }
+
+    /**
+     * Registers the given category unless the one with the same ID is already registered.
+     *
+     * @param category category to register
+     * @return ID of the registered category
+     */
+    public int registerCategory(@NonNull final TheCatApiCatImage.Category category) {
+        categories.putIfAbsent(category.getId(), category);
+
+        return category.getId();
+    }
+
+    /**
+     * Gets the registered category by its ID.
+     *
+     * @param id ID of the category
+     * @return registered category
+     *
+     * @throws IllegalArgumentException if there is no category by the given ID
+     */
+    @NotNull public TheCatApiCatImage.Category getCategory(final int id) {
+        val category = categories.get(id);
+        if (category == null) throw new IllegalArgumentException("There is no category by ID " + id);
+
+        return category;
+    }
+
+    /**
+     * Interns the given string so that equal strings share a single instance.
+     *
+     * @param string string to intern
+     * @return interned string equal to the given one
+     */
+    @NotNull public String intern(@NonNull final String string) {
+        val interned = strings.putIfAbsent(string, string);
+
+        return interned == null ? string : interned;
+    }
+}
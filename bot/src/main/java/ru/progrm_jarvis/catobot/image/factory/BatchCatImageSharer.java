@@ -0,0 +1,262 @@
+package ru.progrm_jarvis.catobot.image.factory;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.progrm_jarvis.catobot.util.ThrottledInputStream;
+import ru.progrm_jarvis.catobot.util.TokenBucket;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cat image sharer uploading cat images via another one concurrently up to the configured limit.
+ * <p>
+ * Each cat image is buffered before being uploaded so that failed uploads can be retried with exponential backoff.
+ * The total bandwidth of uploads is throttled so that they do not starve other traffic.
+ *
+ * @param <C> configuration type of the sharer
+ */
+@Slf4j
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class BatchCatImageSharer<C> implements CatImageSharer<C> {
+
+    @NonNull Configuration configuration;
+
+    /**
+     * Sharer used for uploading the cat images
+     */
+    @NonNull CatImageSharer<C> sharer;
+
+    /**
+     * Scheduler used for delaying retries
+     */
+    @NonNull ScheduledExecutorService scheduler;
+
+    /**
+     * Executor used for buffering the cat images
+     */
+    @NonNull ExecutorService executor;
+
+    /**
+     * Bucket of bytes which may be uploaded or {@code null} if the bandwidth is not throttled
+     */
+    @Nullable TokenBucket bandwidth;
+
+    /**
+     * Uploads waiting for a free slot
+     */
+    @NonNull Queue<Upload> pendingUploads;
+
+    /**
+     * Amount of uploads being currently performed
+     */
+    @NonNull AtomicInteger activeUploads;
+
+    public BatchCatImageSharer(@NonNull final Configuration configuration,
+                               @NonNull final CatImageSharer<C> sharer,
+                               @NonNull final ScheduledExecutorService scheduler,
+                               @NonNull final ExecutorService executor) {
+        if (configuration.getMaxConcurrentUploads() <= 0) throw new IllegalArgumentException(
+                "maxConcurrentUploads should be positive"
+        );
+        this.configuration = configuration;
+        this.sharer = sharer;
+        this.scheduler = scheduler;
+        this.executor = executor;
+
+        val maxBandwidth = configuration.getMaxBandwidth();
+        // allow bursts of up to a second of bandwidth
+        bandwidth = maxBandwidth > 0 ? new TokenBucket(maxBandwidth, maxBandwidth) : null;
+
+        pendingUploads = new ConcurrentLinkedQueue<>();
+        activeUploads = new AtomicInteger();
+    }
+
+    @Override
+    @NotNull public CompletableFuture<Void> shareCatImage(@NonNull final C configuration,
+                                                          @NonNull final InputStream imageInputStream) {
+        return shareCatImages(configuration, Collections.singletonList(imageInputStream)).get(0);
+    }
+
+    @Override
+    @NotNull public List<CompletableFuture<Void>> shareCatImages(
+            @NonNull final C configuration, @NonNull final Collection<? extends InputStream> imageInputStreams) {
+        val results = new ArrayList<CompletableFuture<Void>>(imageInputStreams.size());
+        for (val imageInputStream : imageInputStreams) {
+            val upload = new Upload(configuration);
+            results.add(upload.result);
+
+            CompletableFuture.supplyAsync(() -> {
+                try (val inputStream = imageInputStream) {
+                    return IOUtils.toByteArray(inputStream);
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executor).whenComplete((image, e) -> {
+                if (e == null) {
+                    upload.image = image;
+                    enqueue(upload);
+                } else upload.result.completeExceptionally(e);
+            });
+        }
+
+        return results;
+    }
+
+    /**
+     * Adds the upload to the queue starting it once there is a free slot.
+     *
+     * @param upload upload to add to the queue
+     */
+    protected void enqueue(@NonNull final Upload upload) {
+        pendingUploads.add(upload);
+        startPendingUploads();
+    }
+
+    /**
+     * Starts pending uploads while there are free slots.
+     */
+    protected void startPendingUploads() {
+        while (true) {
+            val active = activeUploads.get();
+            if (active >= configuration.getMaxConcurrentUploads()) return;
+            if (!activeUploads.compareAndSet(active, active + 1)) continue;
+
+            val upload = pendingUploads.poll();
+            if (upload == null) {
+                activeUploads.decrementAndGet();
+                // an upload may have been added after polling but before the slot was freed
+                if (pendingUploads.isEmpty()) return;
+            } else start(upload);
+        }
+    }
+
+    /**
+     * Starts the given upload in an already acquired slot.
+     *
+     * @param upload upload to start
+     */
+    protected void start(@NonNull final Upload upload) {
+        val attempt = upload.attempts.incrementAndGet();
+
+        CompletableFuture<Void> result;
+        try {
+            InputStream inputStream = new ByteArrayInputStream(upload.image);
+            if (bandwidth != null) inputStream = new ThrottledInputStream(inputStream, bandwidth);
+
+            result = sharer.shareCatImage(upload.configuration, inputStream);
+        } catch (final Throwable e) {
+            result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+        }
+
+        result.whenComplete((nothing, e) -> {
+            activeUploads.decrementAndGet();
+            startPendingUploads();
+
+            if (e == null) upload.result.complete(null);
+            else if (attempt >= configuration.getMaxAttempts()) upload.result.completeExceptionally(e);
+            else {
+                val delay = getBackoff(attempt);
+                log.debug("Attempt #" + attempt + " to share a cat image failed, retrying in " + delay + " ms", e);
+                try {
+                    scheduler.schedule(() -> enqueue(upload), delay, TimeUnit.MILLISECONDS);
+                } catch (final RejectedExecutionException rejected) {
+                    upload.result.completeExceptionally(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets the delay before the next attempt of an upload.
+     *
+     * @param attempt number of the failed attempt starting from {@code 1}
+     * @return delay in milliseconds
+     */
+    protected long getBackoff(final int attempt) {
+        val backoff = Math.min(
+                configuration.getMaxBackoff(),
+                configuration.getInitialBackoff() << Math.min(attempt - 1, 20)
+        );
+
+        // random jitter so that failed uploads do not get retried all at once
+        return backoff <= 0 ? 0 : ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        sharer.close();
+    }
+
+    /**
+     * Upload of a single cat image.
+     */
+    @RequiredArgsConstructor
+    @FieldDefaults(level = AccessLevel.PROTECTED)
+    protected final class Upload {
+
+        final C configuration;
+
+        /**
+         * Buffered bytes of the cat image
+         */
+        volatile byte[] image;
+
+        @NonNull final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        /**
+         * Amount of attempts to perform this upload
+         */
+        @NonNull final AtomicInteger attempts = new AtomicInteger();
+    }
+
+    /**
+     * Configuration of {@link BatchCatImageSharer}.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Configuration {
+
+        /**
+         * Maximal amount of cat images uploaded at the same time
+         */
+        @Builder.Default int maxConcurrentUploads = 4;
+
+        /**
+         * Maximal amount of attempts to upload a cat image
+         */
+        @Builder.Default int maxAttempts = 3;
+
+        /**
+         * Delay in milliseconds before the first retry of a failed upload which doubles with each next retry
+         */
+        @Builder.Default long initialBackoff = 500;
+
+        /**
+         * Maximal delay in milliseconds before a retry of a failed upload
+         */
+        @Builder.Default long maxBackoff = 10_000;
+
+        /**
+         * Maximal total bandwidth of uploads in bytes per second, non-positive value disables throttling
+         */
+        @Builder.Default long maxBandwidth = 1 << 20;
+    }
+}
@@ -0,0 +1,41 @@
+package ru.progrm_jarvis.catobot.image.factory;
+
+import lombok.NonNull;
+import lombok.val;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Utility for sharing cat images.
+ *
+ * @param <C> configuration type of this cat image factory, should be {@link Void} if none is needed
+ */
+@FunctionalInterface
+public interface CatImageSharer<C> extends AutoCloseable {
+
+    @NotNull CompletableFuture<Void> shareCatImage(@NonNull final C configuration,
+                                                   @NonNull final InputStream imageInputStream);
+
+    /**
+     * Shares the given cat images.
+     *
+     * @param configuration configuration used for sharing the cat images
+     * @param imageInputStreams streams of the cat images to share
+     * @return results of sharing of each of the cat images in the order of the given streams
+     */
+    @NotNull default List<CompletableFuture<Void>> shareCatImages(
+            @NonNull final C configuration, @NonNull final Collection<? extends InputStream> imageInputStreams) {
+        val results = new ArrayList<CompletableFuture<Void>>(imageInputStreams.size());
+        for (val imageInputStream : imageInputStreams) results.add(shareCatImage(configuration, imageInputStream));
+
+        return results;
+    }
+
+    @Override
+    default void close() {}
+}
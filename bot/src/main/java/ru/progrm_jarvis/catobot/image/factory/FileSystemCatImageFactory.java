@@ -0,0 +1,307 @@
+package ru.progrm_jarvis.catobot.image.factory;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FilenameUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.progrm_jarvis.catobot.image.FileSystemCatImage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cat image factory based on a local directory of cat images.
+ * The directory gets indexed once created and may optionally be watched for changes.
+ * Created cat images are memory-mapped.
+ */
+@Slf4j
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class FileSystemCatImageFactory implements CatImageFactory<FileSystemCatImage, Void> {
+
+    /**
+     * Extensions of files considered to be images
+     */
+    protected static final Set<String> IMAGE_EXTENSIONS = new HashSet<>(Arrays.asList(
+            "jpg", "jpeg", "png", "gif", "bmp"
+    ));
+
+    /**
+     * Directory containing cat images
+     */
+    @NonNull Path directory;
+
+    /**
+     * Indexed files of cat images
+     */
+    @NonNull List<Path> files;
+
+    /**
+     * Positions of indexed files in {@link #files}
+     */
+    @NonNull Map<Path, Integer> filePositions;
+
+    /**
+     * Service watching the directory for changes or {@code null} if it is not watched
+     */
+    @Nullable WatchService watchService;
+
+    /**
+     * Worker handling changes of the directory or {@code null} if it is not watched
+     */
+    @Nullable ExecutorService watchWorker;
+
+    /**
+     * Time in nanoseconds for which a created or modified file should stay unchanged before it gets indexed
+     */
+    long settleTime;
+
+    /**
+     * Created or modified files which are not yet indexed as they may still be being written,
+     * this is only accessed by the {@link #watchWorker}
+     */
+    @NonNull Map<Path, PendingFile> pendingFiles;
+
+    /**
+     * Creates a new cat image factory indexing the given directory.
+     *
+     * @param configuration configuration of the factory
+     *
+     * @throws IOException if an exception occurs while indexing the directory
+     */
+    public FileSystemCatImageFactory(@NonNull final Configuration configuration) throws IOException {
+        directory = configuration.getDirectory().toPath().toAbsolutePath();
+        files = new ArrayList<>();
+        filePositions = new HashMap<>();
+        settleTime = TimeUnit.MILLISECONDS.toNanos(configuration.getSettleTime());
+        pendingFiles = new HashMap<>();
+
+        if (configuration.isWatch()) {
+            // start watching before indexing so that no changes get lost
+            watchService = directory.getFileSystem().newWatchService();
+            directory.register(
+                    watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE
+            );
+        } else watchService = null;
+
+        try (val directoryStream = Files.newDirectoryStream(directory)) {
+            for (val file : directoryStream) if (isImage(file)) addFile(file);
+        }
+        log.info("Indexed {} cat images in {}", files.size(), directory);
+
+        if (watchService == null) watchWorker = null;
+        else {
+            watchWorker = Executors.newSingleThreadExecutor(task -> {
+                val thread = new Thread(task, "FileSystemCatImageFactory watcher");
+                thread.setDaemon(true);
+
+                return thread;
+            });
+            watchWorker.execute(this::watch);
+        }
+    }
+
+    /**
+     * Handles changes of the watched directory until interrupted.
+     * Created and modified files are only indexed once their size stops changing for {@link #settleTime}
+     * so that files which are still being written do not get mapped.
+     */
+    @SuppressWarnings("unchecked")
+    protected void watch() {
+        val watchService = this.watchService;
+        assert watchService != null;
+
+        while (true) {
+            final WatchKey key;
+            try {
+                key = pendingFiles.isEmpty()
+                        ? watchService.take() : watchService.poll(settleTime, TimeUnit.NANOSECONDS);
+            } catch (final InterruptedException | ClosedWatchServiceException e) {
+                log.debug("Stopped watching " + directory, e);
+                return;
+            }
+
+            if (key != null) {
+                for (val event : key.pollEvents()) {
+                    val kind = event.kind();
+                    if (kind == StandardWatchEventKinds.OVERFLOW) {
+                        log.warn("Some changes of {} were lost", directory);
+                        continue;
+                    }
+
+                    val file = directory.resolve(((WatchEvent<Path>) event).context());
+                    // the content of a modified file may change under its mapping
+                    removeFile(file);
+                    if (kind == StandardWatchEventKinds.ENTRY_DELETE) pendingFiles.remove(file);
+                    else if (isImageName(file)) pendingFiles.put(file, new PendingFile(System.nanoTime(), -1));
+                }
+
+                if (!key.reset()) {
+                    log.warn("{} is no longer accessible", directory);
+                    return;
+                }
+            }
+
+            addSettledFiles();
+        }
+    }
+
+    /**
+     * Indexes the pending files whose size has not changed for {@link #settleTime}.
+     */
+    protected void addSettledFiles() {
+        val now = System.nanoTime();
+        val iterator = pendingFiles.entrySet().iterator();
+        while (iterator.hasNext()) {
+            val pendingFile = iterator.next();
+            val state = pendingFile.getValue();
+            if (now - state.getChangeTime() < settleTime) continue;
+
+            val file = pendingFile.getKey();
+            final long size;
+            try {
+                size = Files.size(file);
+            } catch (final IOException e) {
+                log.debug("Unable to get size of " + file, e);
+                iterator.remove();
+                continue;
+            }
+
+            if (size == state.getSize()) {
+                iterator.remove();
+                if (isImage(file)) addFile(file);
+            } else pendingFile.setValue(new PendingFile(now, size));
+        }
+    }
+
+    /**
+     * Checks whether the given file is named as an image.
+     *
+     * @param file file to check
+     * @return {@code true} if the file has an image extension and {@code false} otherwise
+     */
+    protected static boolean isImageName(@NonNull final Path file) {
+        return IMAGE_EXTENSIONS.contains(FilenameUtils.getExtension(file.getFileName().toString()).toLowerCase());
+    }
+
+    /**
+     * Checks whether the given file is an image.
+     *
+     * @param file file to check
+     * @return {@code true} if the file is an image and {@code false} otherwise
+     */
+    protected static boolean isImage(@NonNull final Path file) {
+        return isImageName(file) && Files.isRegularFile(file);
+    }
+
+    protected synchronized void addFile(@NonNull final Path file) {
+        if (filePositions.putIfAbsent(file, files.size()) == null) files.add(file);
+    }
+
+    protected synchronized void removeFile(@NonNull final Path file) {
+        val position = filePositions.remove(file);
+        if (position == null) return;
+
+        // move the last file onto the position of the removed one so that removal takes constant time
+        val last = files.remove(files.size() - 1);
+        if (position != files.size()) {
+            files.set(position, last);
+            filePositions.put(last, position);
+        }
+    }
+
+    /**
+     * Picks a random file of a cat image.
+     *
+     * @return random file of a cat image or {@code null} if there are none
+     */
+    @Nullable protected synchronized Path pickRandomFile() {
+        val size = files.size();
+
+        return size == 0 ? null : files.get(ThreadLocalRandom.current().nextInt(size));
+    }
+
+    @Override
+    @NotNull public CompletableFuture<FileSystemCatImage> createCatImage(@Nullable final Void configuration) {
+        val future = new CompletableFuture<FileSystemCatImage>();
+
+        val file = pickRandomFile();
+        if (file == null) future.completeExceptionally(
+                new IllegalStateException("There are no cat images in " + directory)
+        );
+        else try {
+            future.complete(FileSystemCatImage.map(file));
+        } catch (final IOException e) {
+            removeFile(file);
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    @Override
+    public void close() {
+        if (watchWorker != null) watchWorker.shutdownNow();
+        if (watchService != null) try {
+            watchService.close();
+        } catch (final IOException e) {
+            log.warn("An exception occurred while closing watch service", e);
+        }
+    }
+
+    /**
+     * Configuration of {@link FileSystemCatImageFactory}.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Configuration {
+
+        /**
+         * Whether or not local cat images should be used by the bot
+         */
+        @Builder.Default boolean enabled = false;
+
+        /**
+         * Directory containing cat images
+         */
+        @Builder.Default @NonNull File directory = new File("cats");
+
+        /**
+         * Whether or not the directory should be watched for new and removed cat images
+         */
+        @Builder.Default boolean watch = true;
+
+        /**
+         * Time in milliseconds for which the size of a new or modified file should not change before it gets indexed
+         */
+        @Builder.Default long settleTime = 1_000;
+    }
+
+    /**
+     * State of a file which is not yet indexed as it may still be being written.
+     */
+    @Value
+    protected static class PendingFile {
+
+        /**
+         * Moment of the last known change of the file as returned by {@link System#nanoTime()}
+         */
+        long changeTime;
+
+        /**
+         * Size of the file at the moment of its last known change or {@code -1} if it is unknown
+         */
+        long size;
+    }
+}
@@ -0,0 +1,454 @@
+package ru.progrm_jarvis.catobot.image.factory;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.progrm_jarvis.catobot.image.CatImage;
+import ru.progrm_jarvis.catobot.util.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Cat image factory combining multiple weighted sources of cat images.
+ * A request is sent to a primary source, if it does not answer within the configured percentile of its latency
+ * (or fails) a hedged request is sent to another source and the first successful answer is used.
+ * <p>
+ * Sources are picked randomly proportionally to their effective weights
+ * which are their configured weights adjusted by their observed success rate and median latency.
+ * The latency may boost the weight of a source at most {@link Configuration#getMaxLatencyBoost()} times
+ * relative to the slowest source so that very fast sources do not starve the others.
+ * <p>
+ * Cat images loaded by requests which lost the race are passed to the {@link #setSurplusImageHandler(Consumer)
+ * surplus image handler} so that they are not wasted.
+ *
+ * @param <C> type of configuration of this factory
+ */
+@Slf4j
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class HedgedCatImageFactory<C> implements CatImageFactory<CatImage, C> {
+
+    @NonNull Configuration configuration;
+
+    @NonNull List<Source<C>> sources;
+
+    /**
+     * Scheduler used for delaying hedged requests
+     */
+    @NonNull ScheduledExecutorService scheduler;
+
+    /**
+     * Amount of requests since the last decay of sources' statistics
+     */
+    @NonNull AtomicInteger requestsSinceDecay;
+
+    /**
+     * Handler of cat images loaded by requests which lost the race or {@code null} if they are discarded
+     */
+    @Nullable @NonFinal volatile Consumer<? super CatImage> surplusImageHandler;
+
+    public HedgedCatImageFactory(@NonNull final Configuration configuration,
+                                 @NonNull final List<Source<C>> sources,
+                                 @NonNull final ScheduledExecutorService scheduler) {
+        if (sources.isEmpty()) throw new IllegalArgumentException("There should be at least one source");
+
+        this.configuration = configuration;
+        this.sources = new ArrayList<>(sources);
+        this.scheduler = scheduler;
+
+        requestsSinceDecay = new AtomicInteger();
+    }
+
+    /**
+     * Gets the sources of this factory.
+     *
+     * @return unmodifiable list of sources of this factory
+     */
+    public List<Source<C>> getSources() {
+        return Collections.unmodifiableList(sources);
+    }
+
+    /**
+     * Sets the handler of cat images loaded by requests which lost the race,
+     * usually this returns them to the repository using this factory.
+     *
+     * @param surplusImageHandler handler of the cat images or {@code null} if they should be discarded
+     */
+    public void setSurplusImageHandler(@Nullable final Consumer<? super CatImage> surplusImageHandler) {
+        this.surplusImageHandler = surplusImageHandler;
+    }
+
+    @Override
+    @NotNull public CompletableFuture<CatImage> createCatImage(@Nullable final C configuration) {
+        if (requestsSinceDecay.incrementAndGet() >= this.configuration.getDecayInterval()) {
+            requestsSinceDecay.set(0);
+            for (val source : sources) source.decay();
+        }
+
+        val primary = pickSource(configuration, null);
+        if (primary == null) {
+            val future = new CompletableFuture<CatImage>();
+            future.completeExceptionally(new IllegalStateException(
+                    "There are no sources accepting configuration " + configuration
+            ));
+
+            return future;
+        }
+
+        val request = new HedgedRequest(configuration);
+        request.send(primary);
+
+        // schedule the hedged request unless the primary one completes before it
+        if (sources.size() > 1) {
+            val hedge = scheduler.schedule(
+                    () -> request.hedge(primary), getHedgeDelay(primary), TimeUnit.NANOSECONDS
+            );
+            request.result.whenComplete((image, e) -> hedge.cancel(false));
+        }
+
+        return request.result;
+    }
+
+    /**
+     * Gets the delay after which a hedged request should be sent if the given source has not answered.
+     *
+     * @param source source to which the primary request was sent
+     * @return delay in nanoseconds
+     */
+    protected long getHedgeDelay(@NonNull final Source<C> source) {
+        val latencies = source.latencies;
+        if (latencies.getCount() < configuration.getMinSamples()) {
+            return TimeUnit.MILLISECONDS.toNanos(configuration.getDefaultHedgeDelay());
+        }
+
+        return Math.max(
+                TimeUnit.MILLISECONDS.toNanos(configuration.getMinHedgeDelay()),
+                Math.min(
+                        TimeUnit.MILLISECONDS.toNanos(configuration.getMaxHedgeDelay()),
+                        latencies.getPercentile(configuration.getHedgePercentile())
+                )
+        );
+    }
+
+    /**
+     * Picks a random source proportionally to its effective weight.
+     *
+     * @param configuration configuration which the source should accept
+     * @param excluded source which should not be picked
+     * @return picked source or {@code null} if there are no suitable ones
+     */
+    @Nullable protected Source<C> pickSource(@Nullable final C configuration, @Nullable final Source<C> excluded) {
+        val slowestMedian = getSlowestMedianLatency();
+        val weights = new double[sources.size()];
+        var totalWeight = 0d;
+        for (var i = 0; i < weights.length; i++) {
+            val source = sources.get(i);
+            if (source != excluded && source.accepts(configuration)) {
+                totalWeight += (weights[i] = getWeight(source, slowestMedian));
+            }
+        }
+        if (totalWeight <= 0) return null;
+
+        var point = ThreadLocalRandom.current().nextDouble(totalWeight);
+        for (var i = 0; i < weights.length; i++) if (weights[i] > 0 && (point -= weights[i]) < 0) return sources.get(i);
+
+        // floating point inaccuracy
+        for (var i = weights.length - 1; i >= 0; i--) if (weights[i] > 0) return sources.get(i);
+
+        return null;
+    }
+
+    /**
+     * Gets the median latency of the slowest source having enough statistics.
+     *
+     * @return median latency in nanoseconds of the slowest source or {@code 0} if there are no statistics
+     */
+    protected long getSlowestMedianLatency() {
+        var slowestMedian = 0L;
+        for (val source : sources) {
+            val latencies = source.latencies;
+            if (latencies.getCount() >= configuration.getMinSamples()) {
+                slowestMedian = Math.max(slowestMedian, latencies.getPercentile(0.5));
+            }
+        }
+
+        return slowestMedian;
+    }
+
+    /**
+     * Gets the effective weight of the given source.
+     *
+     * @param source source whose weight should be computed
+     * @param slowestMedian median latency in nanoseconds of the slowest source as returned by
+     * {@link #getSlowestMedianLatency()}
+     * @return effective weight of the source
+     */
+    protected double getWeight(@NonNull final Source<C> source, final long slowestMedian) {
+        val weight = configuration.getWeights().getOrDefault(source.getName(), 1d);
+        if (weight <= 0) return 0;
+
+        val successes = source.successes.sum();
+        val failures = source.failures.sum();
+        val successRate = (successes + 1d) / (successes + failures + 1d);
+
+        val latencies = source.latencies;
+        // latencies of sources without enough statistics are not considered
+        final double latencyBoost;
+        if (slowestMedian == 0 || latencies.getCount() < configuration.getMinSamples()) latencyBoost = 1;
+        else latencyBoost = Math.min(
+                configuration.getMaxLatencyBoost(),
+                (double) slowestMedian / Math.max(1, latencies.getPercentile(0.5))
+        );
+
+        // at least some chance is left for any source so that its statistics stay actual
+        return Math.max(weight * 0.01, weight * successRate * latencyBoost);
+    }
+
+    @Override
+    public void close() {
+        for (val source : sources) try {
+            source.close();
+        } catch (final Throwable e) {
+            log.error("An exception occurred while closing cat images source " + source.getName(), e);
+        }
+    }
+
+    /**
+     * Request which may be sent to multiple sources.
+     */
+    @RequiredArgsConstructor
+    @FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+    protected final class HedgedRequest {
+
+        @Nullable C configuration;
+
+        @NonNull CompletableFuture<CatImage> result = new CompletableFuture<>();
+
+        /**
+         * Amount of sent requests which have not completed yet
+         */
+        @NonNull AtomicInteger pending = new AtomicInteger();
+
+        /**
+         * Whether or not the hedged request has already been sent (or there was no source for it)
+         */
+        @NonNull AtomicBoolean hedged = new AtomicBoolean();
+
+        /**
+         * Sends this request to the given source.
+         *
+         * @param source source to which the request should be sent
+         */
+        protected void send(@NonNull final Source<C> source) {
+            pending.incrementAndGet();
+            val startNanos = System.nanoTime();
+
+            final CompletableFuture<? extends CatImage> image;
+            try {
+                image = source.create(configuration);
+            } catch (final Throwable e) {
+                handleFailure(source, e);
+                return;
+            }
+
+            image.whenComplete((catImage, e) -> {
+                if (e == null) {
+                    source.latencies.recordSince(startNanos);
+                    source.successes.increment();
+                    pending.decrementAndGet();
+                    if (!result.complete(catImage)) handleSurplusImage(catImage);
+                } else handleFailure(source, e);
+            });
+        }
+
+        /**
+         * Handles the cat image loaded after the result of this request was already completed.
+         *
+         * @param image cat image which lost the race
+         */
+        protected void handleSurplusImage(@NonNull final CatImage image) {
+            val surplusImageHandler = HedgedCatImageFactory.this.surplusImageHandler;
+            if (surplusImageHandler != null) try {
+                surplusImageHandler.accept(image);
+            } catch (final Throwable e) {
+                log.debug("Unable to handle surplus cat image " + image, e);
+            }
+        }
+
+        protected void handleFailure(@NonNull final Source<C> source, @NonNull final Throwable e) {
+            source.failures.increment();
+            log.debug("Cat images source " + source.getName() + " failed", e);
+
+            // hedge immediately as there is no reason to wait
+            hedge(source);
+            if (pending.decrementAndGet() == 0 && hedged.get()) result.completeExceptionally(e);
+        }
+
+        /**
+         * Sends the hedged request if it has not been sent yet.
+         *
+         * @param primary source to which the primary request was sent
+         */
+        protected void hedge(@NonNull final Source<C> primary) {
+            if (result.isDone() || !hedged.compareAndSet(false, true)) return;
+
+            val secondary = pickSource(configuration, primary);
+            if (secondary != null) send(secondary);
+        }
+    }
+
+    /**
+     * Source of cat images.
+     *
+     * @param <C> type of configuration used for requesting cat images
+     */
+    @FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+    public static class Source<C> implements AutoCloseable {
+
+        /**
+         * Name of this source used for its identification
+         */
+        @Getter @NonNull String name;
+
+        @NonNull CatImageFactory<? extends CatImage, ? super C> factory;
+
+        /**
+         * Predicate checking whether this source can satisfy a request of the given configuration
+         */
+        @NonNull Predicate<? super C> acceptedConfigurations;
+
+        @NonNull @Getter LatencyHistogram latencies;
+
+        @NonNull LongAdder successes, failures;
+
+        public Source(@NonNull final String name,
+                      @NonNull final CatImageFactory<? extends CatImage, ? super C> factory,
+                      @NonNull final Predicate<? super C> acceptedConfigurations) {
+            this.name = name;
+            this.factory = factory;
+            this.acceptedConfigurations = acceptedConfigurations;
+
+            latencies = new LatencyHistogram();
+            successes = new LongAdder();
+            failures = new LongAdder();
+        }
+
+        /**
+         * Creates a source accepting any configurations.
+         *
+         * @param name name of the source
+         * @param factory factory of cat images
+         * @param <C> type of configuration used for requesting cat images
+         * @return created source
+         */
+        public static <C> Source<C> of(@NonNull final String name,
+                                       @NonNull final CatImageFactory<? extends CatImage, ? super C> factory) {
+            return new Source<>(name, factory, configuration -> true);
+        }
+
+        /**
+         * Creates a source based on a factory which does not need configurations.
+         *
+         * @param name name of the source
+         * @param factory factory of cat images
+         * @param acceptedConfigurations predicate checking whether this source can satisfy a request
+         * of the given configuration
+         * @param <C> type of configuration used for requesting cat images
+         * @return created source
+         */
+        public static <C> Source<C> unconfigured(@NonNull final String name,
+                                                 @NonNull final CatImageFactory<? extends CatImage, Void> factory,
+                                                 @NonNull final Predicate<? super C> acceptedConfigurations) {
+            return new Source<>(name, new CatImageFactory<CatImage, C>() {
+                @Override
+                @NotNull public CompletableFuture<CatImage> createCatImage(@Nullable final C configuration) {
+                    return factory.createCatImage(null).thenApply(image -> image);
+                }
+
+                @Override
+                public void close() {
+                    factory.close();
+                }
+            }, acceptedConfigurations);
+        }
+
+        protected boolean accepts(@Nullable final C configuration) {
+            return acceptedConfigurations.test(configuration);
+        }
+
+        protected CompletableFuture<? extends CatImage> create(@Nullable final C configuration) {
+            return factory.createCatImage(configuration);
+        }
+
+        protected void decay() {
+            latencies.decay();
+        }
+
+        @Override
+        public void close() {
+            factory.close();
+        }
+    }
+
+    /**
+     * Configuration of {@link HedgedCatImageFactory}.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Configuration {
+
+        /**
+         * Weights of sources by their names, sources which are not specified have weight of {@code 1}
+         */
+        @Builder.Default @NonNull Map<String, Double> weights = new HashMap<>();
+
+        /**
+         * Percentile of primary source's latency after which a hedged request is sent
+         */
+        @Builder.Default double hedgePercentile = 0.95;
+
+        /**
+         * Delay in milliseconds after which a hedged request is sent while there are not enough statistics
+         */
+        @Builder.Default long defaultHedgeDelay = 1_000;
+
+        /**
+         * Minimal delay in milliseconds after which a hedged request is sent
+         */
+        @Builder.Default long minHedgeDelay = 50;
+
+        /**
+         * Maximal delay in milliseconds after which a hedged request is sent
+         */
+        @Builder.Default long maxHedgeDelay = 5_000;
+
+        /**
+         * Maximal factor by which the weight of a source is increased for it being faster than the slowest source
+         */
+        @Builder.Default double maxLatencyBoost = 2;
+
+        /**
+         * Minimal amount of latency samples of a source after which they get used
+         */
+        @Builder.Default int minSamples = 20;
+
+        /**
+         * Amount of requests after which sources' statistics get decayed
+         */
+        @Builder.Default int decayInterval = 1_000;
+    }
+}
@@ -0,0 +1,251 @@
+package ru.progrm_jarvis.catobot.image.factory;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.jetbrains.annotations.NotNull;
+import ru.progrm_jarvis.catobot.jfr.ImageDownloadEvent;
+import ru.progrm_jarvis.catobot.jfr.JfrEvents;
+import ru.progrm_jarvis.catobot.trace.Trace;
+import ru.progrm_jarvis.catobot.util.BufferPool;
+import ru.progrm_jarvis.catobot.util.LatencyHistogram;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Downloader of images streaming their content into buffers of known size.
+ * <p>
+ * If the size of the image is known from its {@code Content-Length} the image is read directly into
+ * an array of this size, otherwise it is read into chunks borrowed from a pool which are then copied
+ * into a single array of the exact size. In both cases images exceeding the maximal size are rejected
+ * without reading them any further.
+ */
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class ImageDownloader {
+
+    /**
+     * Maximal size of a downloaded image in bytes
+     */
+    int maxImageSize;
+
+    /**
+     * Pool of chunks used for reading images of unknown size
+     */
+    @Getter @NonNull BufferPool bufferPool;
+
+    @NonNull LongAdder downloads, downloadedBytes, rejections;
+
+    /**
+     * Latencies of successful downloads
+     */
+    @Getter @NonNull LatencyHistogram latencies;
+
+    public ImageDownloader(@NonNull final Configuration configuration) {
+        maxImageSize = configuration.getMaxImageSize();
+        bufferPool = new BufferPool(configuration.getBufferSize(), configuration.getMaxPooledBuffers());
+
+        downloads = new LongAdder();
+        downloadedBytes = new LongAdder();
+        rejections = new LongAdder();
+        latencies = new LatencyHistogram();
+    }
+
+    /**
+     * Downloads the image by performing the given request.
+     *
+     * @param httpClient HTTP-client used for performing the request
+     * @param request request whose response's content is the image
+     * @return downloaded bytes of the image
+     *
+     * @throws IOException if an exception occurs while downloading the image or it exceeds the maximal size
+     */
+    @NotNull public byte[] download(@NonNull final HttpClient httpClient,
+                                    @NonNull final HttpUriRequest request) throws IOException {
+        val event = JfrEvents.isAvailable() ? new ImageDownloadEvent() : null;
+        if (event != null) event.begin();
+        var size = -1L;
+        try (val span = Trace.span("download")) {
+            val startNanos = System.nanoTime();
+            val response = httpClient.execute(request);
+            val entity = response.getEntity();
+            if (entity == null) throw new IOException("There is no image in the response to " + request);
+
+            try (val inputStream = entity.getContent()) {
+                final byte[] image;
+                try {
+                    val statusCode = response.getStatusLine().getStatusCode();
+                    if (statusCode < 200 || statusCode >= 300) throw new IOException(
+                            "Unable to download image " + request.getURI() + ", response status is " + statusCode
+                    );
+
+                    val contentLength = entity.getContentLength();
+                    if (contentLength > maxImageSize) throw reject(request, contentLength);
+
+                    image = contentLength < 0 ? readUnknownLength(request, inputStream)
+                            : readKnownLength(inputStream, (int) contentLength);
+                } catch (final IOException e) {
+                    // the rest of the content is of no use thus it should not be read for reusing the connection
+                    request.abort();
+                    throw e;
+                }
+
+                downloads.increment();
+                downloadedBytes.add(image.length);
+                latencies.recordSince(startNanos);
+                size = image.length;
+
+                return image;
+            }
+        } finally {
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    val uri = request.getURI();
+                    event.setSource(uri.getHost());
+                    event.setUrl(uri.toString());
+                    event.setSize(size);
+                    event.commit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the image whose size is known.
+     *
+     * @param inputStream stream of the image's content
+     * @param length length of the image's content
+     * @return read bytes of the image
+     *
+     * @throws IOException if an exception occurs while reading the image
+     */
+    protected static byte[] readKnownLength(@NonNull final InputStream inputStream,
+                                            final int length) throws IOException {
+        val image = new byte[length];
+        var offset = 0;
+        while (offset < length) {
+            val read = inputStream.read(image, offset, length - offset);
+            if (read < 0) throw new EOFException("Image ended after " + offset + " of " + length + " bytes");
+            offset += read;
+        }
+
+        return image;
+    }
+
+    /**
+     * Reads the image whose size is unknown using pooled chunks.
+     *
+     * @param request request whose response's content is the image
+     * @param inputStream stream of the image's content
+     * @return read bytes of the image
+     *
+     * @throws IOException if an exception occurs while reading the image or it exceeds the maximal size
+     */
+    protected byte[] readUnknownLength(@NonNull final HttpUriRequest request,
+                                       @NonNull final InputStream inputStream) throws IOException {
+        val chunkSize = bufferPool.getBufferSize();
+        val chunks = new ArrayList<byte[]>();
+        try {
+            var length = 0L;
+            var offset = chunkSize; // so that the first chunk gets acquired
+            var chunk = (byte[]) null;
+            while (true) {
+                if (offset == chunkSize) {
+                    chunks.add(chunk = bufferPool.acquire());
+                    offset = 0;
+                }
+
+                val read = inputStream.read(chunk, offset, chunkSize - offset);
+                if (read < 0) break;
+
+                offset += read;
+                if ((length += read) > maxImageSize) throw reject(request, length);
+            }
+
+            val image = new byte[(int) length];
+            var position = 0;
+            for (val readChunk : chunks) {
+                val copied = (int) Math.min(chunkSize, length - position);
+                System.arraycopy(readChunk, 0, image, position, copied);
+                position += copied;
+            }
+
+            return image;
+        } finally {
+            for (val chunk : chunks) bufferPool.release(chunk);
+        }
+    }
+
+    /**
+     * Creates an exception rejecting the image of the given size.
+     *
+     * @param request request whose response's content is the image
+     * @param size known size of the image
+     * @return exception to throw
+     */
+    protected IOException reject(@NonNull final HttpUriRequest request, final long size) {
+        rejections.increment();
+
+        return new IOException(
+                "Image " + request.getURI() + " of at least " + size + " bytes exceeds the limit of "
+                        + maxImageSize + " bytes"
+        );
+    }
+
+    /**
+     * Gets the amount of successfully downloaded images.
+     *
+     * @return amount of downloads
+     */
+    public long getDownloads() {
+        return downloads.sum();
+    }
+
+    /**
+     * Gets the total size of successfully downloaded images.
+     *
+     * @return amount of downloaded bytes
+     */
+    public long getDownloadedBytes() {
+        return downloadedBytes.sum();
+    }
+
+    /**
+     * Gets the amount of images rejected because of exceeding the maximal size.
+     *
+     * @return amount of rejected images
+     */
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    /**
+     * Configuration of {@link ImageDownloader}.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Configuration {
+
+        /**
+         * Maximal size of a downloaded image in bytes
+         */
+        @Builder.Default int maxImageSize = 16 << 20;
+
+        /**
+         * Size of chunks used for reading images of unknown size
+         */
+        @Builder.Default int bufferSize = 64 << 10;
+
+        /**
+         * Maximal amount of idle chunks kept for reuse
+         */
+        @Builder.Default int maxPooledBuffers = 32;
+    }
+}
@@ -0,0 +1,367 @@
+package ru.progrm_jarvis.catobot.image.factory;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.entity.InputStreamEntity;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.progrm_jarvis.catobot.image.CatImage;
+import ru.progrm_jarvis.catobot.image.CompactTheCatApiCatImage;
+import ru.progrm_jarvis.catobot.image.TheCatApiCatImage;
+import ru.progrm_jarvis.catobot.image.TheCatApiMetadataRegistry;
+import ru.progrm_jarvis.catobot.image.repository.CatImageSnapshotCodec;
+import ru.progrm_jarvis.catobot.image.store.CatImageByteStore;
+import ru.progrm_jarvis.catobot.trace.Trace;
+import ru.progrm_jarvis.catobot.util.Images;
+import ru.progrm_jarvis.catobot.util.LatencyHistogram;
+import ru.progrm_jarvis.catobot.util.TheCatApiUtil;
+
+import java.io.*;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Cat image factory based on TheCatApi.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class TheCatApiCatImageFactory
+        implements CatImageFactory<CompactTheCatApiCatImage, TheCatApiCatImageFactory.Configuration>,
+        CatImageSharer<TheCatApiCatImageFactory.Configuration>, CatImageSnapshotCodec<CompactTheCatApiCatImage> {
+
+    /**
+     * Default configuration to use whenever none is explicitly specified in methods
+     */
+    @NonNull Configuration defaultConfiguration;
+
+    /**
+     * HTTP-client to use for performing HTTP-requests to TheCatApi
+     */
+    @NonNull HttpClient httpClient;
+
+    /**
+     * Executor to use for performing async operations such as managing {@link CompletableFuture}s
+     */
+    @NonNull ExecutorService executor;
+
+    /**
+     * Store of images' bytes used for avoiding repeated downloads of the same images
+     */
+    @NonNull @Getter CatImageByteStore byteStore;
+
+    /**
+     * Downloader used for downloading images' bytes
+     */
+    @NonNull @Getter ImageDownloader imageDownloader;
+
+    /**
+     * Root endpoint of TheCatApi such as {@link TheCatApiUtil#ROOT_API_ENDPOINT}
+     */
+    @NonNull URI apiEndpoint;
+
+    /**
+     * Cache of loaded but not yet used cat images by the URIs of requests used to load them,
+     * requests whose cat images are all used are removed from it
+     */
+    @NonNull ConcurrentMap<URI, Queue<CompactTheCatApiCatImage>> loadedImages = new ConcurrentHashMap<>();
+
+    /**
+     * Registry of metadata shared by the created cat images
+     */
+    @NonNull TheCatApiMetadataRegistry registry = new TheCatApiMetadataRegistry();
+
+    /**
+     * Latencies of requests of random cat images to TheCatApi
+     */
+    @NonNull @Getter LatencyHistogram requestLatencies = new LatencyHistogram();
+
+    @Override
+    @NotNull public CompletableFuture<CompactTheCatApiCatImage> createCatImage(@Nullable final Configuration configuration) {
+        val config = configuration == null ? defaultConfiguration : configuration;
+        return CompletableFuture.supplyAsync(() -> {
+            final URI requestUri;
+            try {
+                val uriBuilder = new URIBuilder(apiEndpoint.resolve(TheCatApiUtil.RANDOM_CAT_IMAGE_REQUEST_PATH))
+                        .addParameter("limit", Integer.toString(max(
+                                TheCatApiUtil.MIN_CATS_PER_REQUEST,
+                                min(TheCatApiUtil.MAX_CATS_PER_REQUEST, config.getImagesPerRequest())
+                        )));
+                {
+                    val breedId = config.getBreedId();
+                    if (breedId != null) uriBuilder.addParameter("breed_ids", breedId);
+                }
+                {
+                    val categoryId = config.getCategoryId();
+                    if (categoryId != null) uriBuilder.addParameter("category_ids", categoryId.toString());
+                }
+                requestUri = uriBuilder.build();
+            } catch (final URISyntaxException e) {
+                throw new RuntimeException("An exception occurred while creating a URI for loading cat images", e);
+            }
+
+            val nextImage = pollLoadedImage(requestUri);
+            if (nextImage == null) {
+                // prepare request
+                val getRequest = new HttpGet(requestUri);
+                val apiKey = config.getApiKey();
+                if (apiKey != null) getRequest.setHeader("x-api-key", apiKey);
+                getRequest.setHeader("User-Agent", "Cat'o'Bot");
+
+                // perform the request
+                TheCatApiCatImage[] parsedImages;
+                val startNanos = System.nanoTime();
+                try (val span = Trace.span("the-cat-api");
+                     val inputStream = httpClient.execute(getRequest).getEntity().getContent()) {
+                    parsedImages = TheCatApiUtil.parseCatImages(inputStream);
+                } catch (final IOException e) {
+                    throw new RuntimeException("An exception occurred while loading cat images", e);
+                } finally {
+                    requestLatencies.recordSince(startNanos);
+                }
+
+                val length = parsedImages.length;
+                log.debug("Loaded {} cat images: {}", length, parsedImages);
+                if (length == 0) throw new RuntimeException(
+                        "Unable to load cat image, an empty array was returned by TheCatApi"
+                );
+
+                // compact the images sharing a single loader between them
+                val loader = createLoader(image -> download(image.getUrl(), apiKey));
+                val images = new CompactTheCatApiCatImage[length];
+                for (var i = 0; i < length; i++) images[i] = CompactTheCatApiCatImage.of(
+                        parsedImages[i], registry, loader
+                );
+
+                if (length > 1) addLoadedImages(requestUri, Arrays.asList(images).subList(1, length));
+
+                return images[0];
+            }
+
+            return nextImage;
+        }, executor);
+    }
+
+    /**
+     * Takes a cat image previously loaded by the request with the given URI.
+     *
+     * @param requestUri URI of the request of cat images
+     * @return cat image loaded by the request or {@code null} if there is none left
+     */
+    @Nullable protected CompactTheCatApiCatImage pollLoadedImage(@NonNull final URI requestUri) {
+        val images = loadedImages.get(requestUri);
+        if (images == null) return null;
+
+        val image = images.poll();
+        // forget about the request once its images are used up so that rare filters are not kept forever
+        loadedImages.computeIfPresent(requestUri, (uri, queue) -> queue.isEmpty() ? null : queue);
+
+        return image;
+    }
+
+    /**
+     * Stores the cat images loaded by the request with the given URI but not yet used.
+     * At most {@link TheCatApiUtil#MAX_CATS_PER_REQUEST} cat images are kept for each request.
+     *
+     * @param requestUri URI of the request of cat images
+     * @param images loaded cat images which are not yet used
+     */
+    protected void addLoadedImages(@NonNull final URI requestUri,
+                                   @NonNull final Collection<CompactTheCatApiCatImage> images) {
+        loadedImages.compute(requestUri, (uri, queue) -> {
+            if (queue == null) queue = new ConcurrentLinkedDeque<>();
+
+            var free = TheCatApiUtil.MAX_CATS_PER_REQUEST - queue.size();
+            for (val image : images) {
+                if (free-- <= 0) break;
+                queue.add(image);
+            }
+
+            return queue;
+        });
+    }
+
+    /**
+     * Downloads the bytes of the cat image.
+     *
+     * @param url URL of the cat image
+     * @param apiKey API key for TheCatApi service
+     * @return downloaded bytes of the cat image
+     *
+     * @throws UncheckedIOException if an exception occurs while downloading the cat image
+     */
+    protected byte[] download(@NonNull final String url, @Nullable final String apiKey) {
+        val imageRequest = new HttpGet(url);
+        if (apiKey != null) imageRequest.setHeader("x-api-key", apiKey);
+        imageRequest.setHeader("User-Agent", "Cat'o'Bot");
+
+        try {
+            return imageDownloader.download(httpClient, imageRequest);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates a loader of cat images' bytes sharing them via {@link #byteStore}.
+     *
+     * @param source source of the cat images' bytes throwing {@link UncheckedIOException} on failure
+     * @return loader of cat images' bytes falling back to {@link Images#getStubBytes() stub bytes}
+     */
+    protected CompactTheCatApiCatImage.Loader createLoader(@NonNull final CompactTheCatApiCatImage.Loader source) {
+        return new CompactTheCatApiCatImage.Loader() {
+            @Override
+            @NotNull public byte[] load(@NonNull final CompactTheCatApiCatImage image) {
+                try {
+                    return byteStore.get(image.getId(), image, () -> source.load(image));
+                } catch (final UncheckedIOException e) {
+                    log.warn("Unable to load bytes of cat image " + image.getId(), e);
+                    return Images.getStubBytes();
+                }
+            }
+
+            @Override
+            @Nullable public ByteBuffer getContent(@NonNull final CompactTheCatApiCatImage image) {
+                return source.getContent(image);
+            }
+        };
+    }
+
+    @Override
+    @Nullable public byte[] encodeMetadata(@NonNull final CatImage image) throws IOException {
+        if (!(image instanceof CompactTheCatApiCatImage)) return null;
+
+        val output = new ByteArrayOutputStream();
+        try (val dataOutput = new DataOutputStream(output)) {
+            TheCatApiUtil.writeCatImage((CompactTheCatApiCatImage) image, dataOutput);
+        }
+
+        return output.toByteArray();
+    }
+
+    @Override
+    @Nullable public ByteBuffer getLoadedContent(@NonNull final CatImage image) {
+        return image instanceof CompactTheCatApiCatImage
+                ? ((CompactTheCatApiCatImage) image).getLoadedContent() : null;
+    }
+
+    @Override
+    @NotNull public CompactTheCatApiCatImage decode(@NonNull final ByteBuffer metadata,
+                                                    @Nullable final ByteBuffer content) throws IOException {
+        val metadataBytes = new byte[metadata.remaining()];
+        metadata.get(metadataBytes);
+
+        final TheCatApiCatImage image;
+        try (val input = new DataInputStream(new ByteArrayInputStream(metadataBytes))) {
+            image = TheCatApiUtil.readCatImage(input);
+        }
+
+        return CompactTheCatApiCatImage.of(image, registry, createLoader(content == null
+                ? catImage -> download(catImage.getUrl(), defaultConfiguration.getApiKey())
+                : new CompactTheCatApiCatImage.Loader() {
+                    @Override
+                    @NotNull public byte[] load(@NonNull final CompactTheCatApiCatImage catImage) {
+                        // mapped bytes get copied onto the heap only once they are needed as an array
+                        val bytes = new byte[content.remaining()];
+                        content.duplicate().get(bytes);
+
+                        return bytes;
+                    }
+
+                    @Override
+                    @NotNull public ByteBuffer getContent(@NonNull final CompactTheCatApiCatImage catImage) {
+                        // mapped bytes stay available so that they are written to the next snapshot as well
+                        return content.duplicate();
+                    }
+                }
+        ));
+    }
+
+    @Override
+    @NotNull public CompletableFuture<Void> shareCatImage(@NonNull final Configuration configuration,
+                                                          @NonNull final InputStream imageInputStream) {
+        val config = configuration == null ? defaultConfiguration : configuration;
+        return CompletableFuture.supplyAsync(() -> {
+            // prepare request
+            final HttpPost postRequest;
+            postRequest = new HttpPost(apiEndpoint.resolve(TheCatApiUtil.UPLOAD_CAT_IMAGE_PATH));
+            postRequest.setEntity(new InputStreamEntity(imageInputStream));
+            val apiKey = config.getApiKey();
+            if (apiKey != null) postRequest.setHeader("x-api-key", apiKey);
+            postRequest.setHeader("User-Agent", "Cat'o'Bot");
+
+            try {
+                val response = httpClient.execute(postRequest);
+                final String responseContent;
+                try (val content = response.getEntity().getContent()) {
+                    responseContent = String.join("\n", IOUtils.readLines(content, StandardCharsets.UTF_8));
+                }
+
+                val statusCode = response.getStatusLine().getStatusCode();
+                if (statusCode < 200 || statusCode >= 300) throw new IOException(
+                        "Unable to upload a cat image, response status is " + statusCode + ":\n" + responseContent
+                );
+                log.debug("Uploaded image, response:\n{}", responseContent);
+            } catch (final IOException e) {
+                throw new RuntimeException("An exception occurred while trying to upload a cat image", e);
+            }
+
+            return null; // because Void
+        }, executor);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Configuration for this cat image factory.
+     */
+    @Data
+    @Builder
+    @FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+    public static class Configuration {
+
+        /**
+         * API key for TheCatApi service
+         */
+        @Nullable String apiKey;
+
+        /**
+         * Amount of images which should be fetch per request to TheCatApi
+         *
+         * @apiNote when used with {@link #createCatImage(Configuration)}
+         */
+        int imagesPerRequest;
+
+        /**
+         * ID of the breed to which the created cat images should belong or {@code null} for any breed
+         */
+        @Nullable String breedId;
+
+        /**
+         * ID of the category to which the created cat images should belong or {@code null} for any category
+         */
+        @Nullable Integer categoryId;
+    }
+}
@@ -0,0 +1,50 @@
+package ru.progrm_jarvis.catobot.image.processor;
+
+import lombok.NonNull;
+import org.jetbrains.annotations.NotNull;
+import ru.progrm_jarvis.catobot.image.CatImage;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Strategy of combining multiple cat images which are sent together.
+ */
+@FunctionalInterface
+public interface CatImageCombiner extends AutoCloseable {
+
+    /**
+     * Gets a combiner which keeps all cat images separate.
+     *
+     * @return combiner returning cat images as they are
+     */
+    static CatImageCombiner getStub() {
+        return StubHolder.STUB;
+    }
+
+    /**
+     * Combines the given cat images.
+     *
+     * @param images cat images to combine
+     * @return cat images to send instead of the given ones
+     */
+    @NotNull List<CompletableFuture<CatImage>> combine(@NonNull List<CompletableFuture<CatImage>> images);
+
+    @Override
+    default void close() {}
+
+    enum StubHolder implements CatImageCombiner {
+        STUB {
+            @Override
+            @NotNull public List<CompletableFuture<CatImage>> combine(
+                    @NonNull final List<CompletableFuture<CatImage>> images) {
+                return images;
+            }
+
+            @Override
+            public String toString() {
+                return "CatImageCombiner Stub";
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ru.progrm_jarvis.catobot.image.processor;
+
+import lombok.NonNull;
+import org.jetbrains.annotations.NotNull;
+import ru.progrm_jarvis.catobot.image.CatImage;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Processor transforming cat images before they get sent.
+ */
+@FunctionalInterface
+public interface CatImageProcessor extends AutoCloseable {
+
+    /**
+     * Gets a processor which does not transform cat images.
+     *
+     * @return processor returning cat images as they are
+     */
+    static CatImageProcessor getStub() {
+        return StubHolder.STUB;
+    }
+
+    /**
+     * Processes the given cat image.
+     *
+     * @param image cat image to process
+     * @return future returning the processed cat image
+     */
+    @NotNull CompletableFuture<CatImage> process(@NonNull CatImage image);
+
+    @Override
+    default void close() {}
+
+    enum StubHolder implements CatImageProcessor {
+        STUB {
+            @Override
+            @NotNull public CompletableFuture<CatImage> process(@NonNull final CatImage image) {
+                return CompletableFuture.completedFuture(image);
+            }
+
+            @Override
+            public String toString() {
+                return "CatImageProcessor Stub";
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package ru.progrm_jarvis.catobot.image.processor;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.progrm_jarvis.catobot.image.CatImage;
+import ru.progrm_jarvis.catobot.util.ByteBufferInputStream;
+import ru.progrm_jarvis.catobot.util.Images;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+/**
+ * Cat image combiner which tiles cat images into a single collage so that they get sent with one upload.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class CollageCatImageCombiner implements CatImageCombiner {
+
+    /**
+     * Type of the produced collages
+     */
+    protected static final String OUTPUT_TYPE = "jpg";
+
+    @NonNull Configuration configuration;
+
+    /**
+     * Executor used for decoding cat images and rendering collages, should be bounded
+     */
+    @NonNull ExecutorService executor;
+
+    @Override
+    @NotNull public List<CompletableFuture<CatImage>> combine(@NonNull final List<CompletableFuture<CatImage>> images) {
+        if (images.size() < Math.max(2, configuration.getMinImages())) return images;
+
+        // decode all images in parallel
+        val decodedImages = new ArrayList<CompletableFuture<BufferedImage>>(images.size());
+        for (val image : images) decodedImages.add(image.thenApplyAsync(this::decode, executor)
+                .exceptionally(e -> {
+                    log.warn("An exception occurred while loading one of cat images", e);
+
+                    return null;
+                })
+        );
+
+        return Collections.singletonList(CompletableFuture
+                .allOf(decodedImages.toArray(new CompletableFuture[0]))
+                .thenApplyAsync(ignored -> {
+                    val tiles = decodedImages.stream()
+                            .map(CompletableFuture::join)
+                            .filter(Objects::nonNull)
+                            .collect(Collectors.toList());
+                    if (tiles.isEmpty()) throw new IllegalStateException("None of cat images could be loaded");
+
+                    val collage = render(tiles);
+                    try {
+                        return new ProcessedCatImage(null, Images.toJpegBytes(
+                                collage, configuration.getJpegQuality(), collage.getWidth() * collage.getHeight() / 8
+                        ), OUTPUT_TYPE);
+                    } catch (final IOException e) {
+                        throw new IllegalStateException("Unable to encode collage of cat images", e);
+                    }
+                }, executor)
+        );
+    }
+
+    /**
+     * Decodes the given cat image.
+     *
+     * @param image cat image to decode
+     * @return decoded image or {@code null} if it could not be decoded
+     */
+    @Nullable protected BufferedImage decode(@NonNull final CatImage image) {
+        try {
+            return ImageIO.read(new ByteBufferInputStream(image.getImageBuffer()));
+        } catch (final IOException e) {
+            log.warn("Unable to decode cat image " + image, e);
+
+            return null;
+        }
+    }
+
+    /**
+     * Renders the given images as a grid of square cells, each image is center-cropped to fill its cell.
+     *
+     * @param tiles images to render
+     * @return rendered collage
+     */
+    protected BufferedImage render(@NonNull final List<BufferedImage> tiles) {
+        val count = tiles.size();
+        val columns = configuration.getColumns() > 0
+                ? Math.min(configuration.getColumns(), count) : (int) Math.ceil(Math.sqrt(count));
+        val rows = (count + columns - 1) / columns;
+
+        val padding = configuration.getPadding();
+        val cellSize = Math.max(1, (configuration.getWidth() - padding * (columns + 1)) / columns);
+        val width = cellSize * columns + padding * (columns + 1);
+        val height = cellSize * rows + padding * (rows + 1);
+
+        val collage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        val graphics = collage.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+
+            for (var i = 0; i < count; i++) {
+                val tile = tiles.get(i);
+                val x = padding + (i % columns) * (cellSize + padding);
+                val y = padding + (i / columns) * (cellSize + padding);
+
+                // crop the central square of the tile
+                val tileWidth = tile.getWidth();
+                val tileHeight = tile.getHeight();
+                val cropSize = Math.min(tileWidth, tileHeight);
+                val cropX = (tileWidth - cropSize) / 2;
+                val cropY = (tileHeight - cropSize) / 2;
+
+                graphics.drawImage(
+                        tile,
+                        x, y, x + cellSize, y + cellSize,
+                        cropX, cropY, cropX + cropSize, cropY + cropSize,
+                        null
+                );
+            }
+        } finally {
+            graphics.dispose();
+        }
+
+        return collage;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Configuration of {@link CollageCatImageCombiner}.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Configuration {
+
+        /**
+         * Whether or not cat images should be combined into collages
+         */
+        @Builder.Default boolean enabled = false;
+
+        /**
+         * Minimal amount of cat images starting from which they get combined into a collage
+         */
+        @Builder.Default int minImages = 2;
+
+        /**
+         * Amount of columns of the collage grid or {@code 0} to pick it automatically making the grid square-like
+         */
+        @Builder.Default int columns = 0;
+
+        /**
+         * Width of the produced collage
+         */
+        @Builder.Default int width = 1280;
+
+        /**
+         * Space between cells of the collage
+         */
+        @Builder.Default int padding = 4;
+
+        /**
+         * Quality of produced JPEG images from {@code 0} to {@code 1}
+         */
+        @Builder.Default float jpegQuality = 0.85f;
+
+        /**
+         * Amount of workers decoding images and rendering collages
+         * or {@code 0} to use the amount of available processors
+         */
+        @Builder.Default int workers = 0;
+    }
+}
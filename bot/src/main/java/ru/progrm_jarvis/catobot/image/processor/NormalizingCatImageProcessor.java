@@ -0,0 +1,218 @@
+package ru.progrm_jarvis.catobot.image.processor;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.progrm_jarvis.catobot.image.CatImage;
+import ru.progrm_jarvis.catobot.util.ByteBufferInputStream;
+import ru.progrm_jarvis.catobot.util.Images;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Cat image processor which downscales cat images to the configured maximal dimension
+ * and re-encodes them as JPEG of the configured quality.
+ * Processed cat images are cached by their IDs.
+ */
+@Slf4j
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class NormalizingCatImageProcessor implements CatImageProcessor {
+
+    /**
+     * Type of the produced cat images
+     */
+    protected static final String OUTPUT_TYPE = "jpg";
+
+    @NonNull Configuration configuration;
+
+    /**
+     * Executor used for CPU-bound image transformations, should be bounded
+     */
+    @NonNull ExecutorService executor;
+
+    /**
+     * Cache of processed cat images by their IDs
+     */
+    @NonNull Map<String, CatImage> cache;
+
+    public NormalizingCatImageProcessor(@NonNull final Configuration configuration,
+                                        @NonNull final ExecutorService executor) {
+        this.configuration = configuration;
+        this.executor = executor;
+
+        val cacheSize = configuration.getCacheSize();
+        cache = Collections.synchronizedMap(new LinkedHashMap<String, CatImage>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, CatImage> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    @Override
+    @NotNull public CompletableFuture<CatImage> process(@NonNull final CatImage image) {
+        val id = image.getId();
+        if (id != null) {
+            val cached = cache.get(id);
+            if (cached != null) return CompletableFuture.completedFuture(cached);
+        }
+
+        // bytes are obtained by the caller as this may require I/O,
+        // the buffer is decoded as is so that memory-mapped content does not get copied onto the heap
+        val content = image.getImageBuffer();
+
+        return CompletableFuture.supplyAsync(() -> {
+            final CatImage processed;
+            try {
+                processed = normalize(id, image.getType(), content);
+            } catch (final IOException e) {
+                log.debug("Unable to process cat image " + image, e);
+
+                return image;
+            }
+            if (processed == null) return image;
+
+            if (id != null) cache.put(id, processed);
+
+            return processed;
+        }, executor);
+    }
+
+    /**
+     * Normalizes the given image.
+     *
+     * @param id ID of the image
+     * @param type type of the image
+     * @param content read-only buffer of the image's bytes
+     * @return normalized image or {@code null} if the image should be used as is
+     *
+     * @throws IOException if an exception occurs while decoding or encoding the image
+     */
+    @Nullable protected CatImage normalize(@Nullable final String id, @NonNull final String type,
+                                           @NonNull final ByteBuffer content) throws IOException {
+        // animations would be lost
+        if ("gif".equalsIgnoreCase(type)) return null;
+
+        val size = content.remaining();
+        val source = ImageIO.read(new ByteBufferInputStream(content));
+        if (source == null) return null; // unsupported format
+
+        val output = Images.toJpegBytes(downscale(source), configuration.getJpegQuality(), size);
+
+        // keep the original if it is already small and compact enough
+        if (output.length >= size && isJpeg(type) && fits(source)) return null;
+
+        return new ProcessedCatImage(id, output, OUTPUT_TYPE);
+    }
+
+    /**
+     * Checks whether the given image does not exceed the maximal dimension.
+     *
+     * @param image image to check
+     * @return {@code true} if the image does not have to be downscaled and {@code false} otherwise
+     */
+    protected boolean fits(@NonNull final BufferedImage image) {
+        return Math.max(image.getWidth(), image.getHeight()) <= configuration.getMaxDimension();
+    }
+
+    /**
+     * Downscales the given image so that it fits the maximal dimension
+     * flattening it onto an opaque RGB image (as required by JPEG).
+     * Big reductions are performed step-by-step halving the image to avoid aliasing.
+     *
+     * @param image image to downscale
+     * @return downscaled opaque image
+     */
+    protected BufferedImage downscale(@NonNull BufferedImage image) {
+        val maxDimension = configuration.getMaxDimension();
+        var width = image.getWidth();
+        var height = image.getHeight();
+        val scale = Math.min(1d, (double) maxDimension / Math.max(width, height));
+        val targetWidth = Math.max(1, (int) Math.round(width * scale));
+        val targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+
+            val scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            val graphics = scaled.createGraphics();
+            try {
+                graphics.setRenderingHint(
+                        RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR
+                );
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, width, height);
+                graphics.drawImage(image, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            image = scaled;
+        } while (width != targetWidth || height != targetHeight);
+
+        return image;
+    }
+
+    /**
+     * Checks whether the given image type is JPEG.
+     *
+     * @param type type of the image
+     * @return {@code true} if the type is JPEG and {@code false} otherwise
+     */
+    protected static boolean isJpeg(@NonNull final String type) {
+        return "jpg".equalsIgnoreCase(type) || "jpeg".equalsIgnoreCase(type);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Configuration of {@link NormalizingCatImageProcessor}.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Configuration {
+
+        /**
+         * Whether or not cat images should be normalized
+         */
+        @Builder.Default boolean enabled = true;
+
+        /**
+         * Maximal width and height of produced images
+         */
+        @Builder.Default int maxDimension = 1280;
+
+        /**
+         * Quality of produced JPEG images from {@code 0} to {@code 1}
+         */
+        @Builder.Default float jpegQuality = 0.85f;
+
+        /**
+         * Amount of workers processing images or {@code 0} to use the amount of available processors
+         */
+        @Builder.Default int workers = 0;
+
+        /**
+         * Maximal amount of processed cat images cached
+         */
+        @Builder.Default int cacheSize = 64;
+    }
+}
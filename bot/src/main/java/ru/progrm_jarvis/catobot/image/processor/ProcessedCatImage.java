@@ -0,0 +1,23 @@
+package ru.progrm_jarvis.catobot.image.processor;
+
+import lombok.NonNull;
+import lombok.ToString;
+import lombok.Value;
+import org.jetbrains.annotations.Nullable;
+import ru.progrm_jarvis.catobot.image.CatImage;
+
+/**
+ * Cat image produced by a {@link CatImageProcessor}.
+ */
+@Value
+public class ProcessedCatImage implements CatImage {
+
+    /**
+     * ID of the original cat image
+     */
+    @Nullable String id;
+
+    @NonNull @ToString.Exclude byte[] image;
+
+    @NonNull String type;
+}
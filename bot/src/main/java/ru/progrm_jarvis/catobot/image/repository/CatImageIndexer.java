@@ -0,0 +1,34 @@
+package ru.progrm_jarvis.catobot.image.repository;
+
+import lombok.NonNull;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.progrm_jarvis.catobot.image.CatImage;
+
+import java.util.Collection;
+
+/**
+ * Indexer describing how cat images and configurations used to request them are mapped onto index keys.
+ *
+ * @param <I> type of indexed cat images
+ * @param <C> type of configuration used for requesting cat images
+ * @param <K> type of index keys
+ */
+public interface CatImageIndexer<I extends CatImage, C, K> {
+
+    /**
+     * Gets the key of the filter described by the given configuration.
+     *
+     * @param configuration configuration used for requesting a cat image
+     * @return key of the filter described by the configuration or {@code null} if it does not filter cat images
+     */
+    @Nullable K getFilterKey(@Nullable C configuration);
+
+    /**
+     * Gets all keys of filters which the given cat image matches.
+     *
+     * @param image cat image to index
+     * @return keys of all filters matched by the given cat image
+     */
+    @NotNull Collection<K> getIndexKeys(@NonNull I image);
+}
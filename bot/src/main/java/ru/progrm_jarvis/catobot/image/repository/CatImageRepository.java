@@ -0,0 +1,95 @@
+package ru.progrm_jarvis.catobot.image.repository;
+
+import lombok.NonNull;
+import lombok.val;
+import lombok.var;
+import ru.progrm_jarvis.catobot.image.CatImage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+/**
+ * Repository of cat images responsible for their storage and effective collecting.
+ *
+ * @param <I> type of cat images stored
+ * @param <C> type of configuration required to work with cat images or {@link Void} if none is expected
+ */
+public interface CatImageRepository<I extends CatImage, C> extends AutoCloseable {
+
+    /**
+     * Packs a random cat image from this repository.
+     *
+     * @param configuration configurations used to get a cat image
+     * @return future returning {@link Optional} which should contain a cat image or be empty if something goes wrong
+     */
+    CompletableFuture<I> pickRandomCatImage(C configuration);
+
+    /**
+     * Packs random cat images from this repository.
+     *
+     * @param count amount of cat images to get
+     * @param configuration configurations used to get a cat image
+     * @return list of futures containing optional {@link CatImage}s
+     *
+     * @throws IllegalArgumentException if count is negative
+     */
+    default List<CompletableFuture<I>> pickRandomCatImages(final int count, final C configuration) {
+        if (count < 0) throw new IllegalArgumentException("count should be non-negative");
+
+        val catImages = new ArrayList<CompletableFuture<I>>(count);
+        for (var i = 0; i < count; i++) catImages.add(pickRandomCatImage(configuration));
+
+        return catImages;
+    }
+
+    /**
+     * Packs a random cat image matching the given filter from this repository.
+     *
+     * @param configuration configurations used to get a cat image
+     * @param filter filter which the cat image should match
+     * @return future returning a cat image
+     *
+     * @apiNote the filter is only applied to already available cat images
+     * so that it never causes extra loading, thus the picked image may not match the filter
+     */
+    default CompletableFuture<I> pickRandomCatImage(final C configuration, @NonNull final Predicate<? super I> filter) {
+        return pickRandomCatImage(configuration);
+    }
+
+    /**
+     * Packs random cat images matching the given filter from this repository.
+     *
+     * @param count amount of cat images to get
+     * @param configuration configurations used to get a cat image
+     * @param filter filter which the cat images should match
+     * @return list of futures containing {@link CatImage}s
+     *
+     * @throws IllegalArgumentException if count is negative
+     * @apiNote the filter is only applied to already available cat images
+     * so that it never causes extra loading, thus the picked images may not match the filter
+     */
+    default List<CompletableFuture<I>> pickRandomCatImages(final int count, final C configuration,
+                                                          @NonNull final Predicate<? super I> filter) {
+        if (count < 0) throw new IllegalArgumentException("count should be non-negative");
+
+        val catImages = new ArrayList<CompletableFuture<I>>(count);
+        for (var i = 0; i < count; i++) catImages.add(pickRandomCatImage(configuration, filter));
+
+        return catImages;
+    }
+
+    /**
+     * Returns the picked cat image which has not been used back to this repository so that it can be picked again.
+     *
+     * @param image previously picked cat image
+     *
+     * @apiNote repositories which do not cache cat images simply ignore returned ones
+     */
+    default void returnCatImage(@NonNull final I image) {}
+
+    @Override
+    default void close() {}
+}
@@ -0,0 +1,265 @@
+package ru.progrm_jarvis.catobot.image.repository;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import lombok.Value;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import lombok.var;
+import ru.progrm_jarvis.catobot.image.CatImage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * On-disk snapshot of pre-loaded cat images used for warm starts of cat image repositories.
+ * <p>
+ * The snapshot is a single file consisting of a header followed by entries each of which is
+ * a flag telling whether the cat image was pre-loaded for a filter,
+ * the length-prefixed metadata of the cat image and its length-prefixed bytes
+ * (length {@code -1} means that the bytes were not loaded).
+ * Snapshots of the first version, which had no flags, are still loaded.
+ * The file gets memory-mapped when loaded so that the bytes of the cat images are not copied onto the heap.
+ *
+ * @param <I> type of cat images stored in the snapshot
+ */
+@Slf4j
+@ToString
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class CatImageSnapshot<I extends CatImage> {
+
+    /**
+     * Magic number with which snapshot files start
+     */
+    protected static final int MAGIC = 0x43415453; // CATS
+
+    /**
+     * Version of the snapshot format
+     */
+    protected static final int VERSION = 2;
+
+    /**
+     * Version of the snapshot format in which entries had no flags
+     */
+    protected static final int UNFLAGGED_VERSION = 1;
+
+    /**
+     * File of the snapshot
+     */
+    @NonNull Path file;
+
+    /**
+     * Codec of the stored cat images
+     */
+    @NonNull @ToString.Exclude CatImageSnapshotCodec<? extends I> codec;
+
+    /**
+     * Loads the cat images stored in this snapshot.
+     * The file of the snapshot gets deleted after this so that the same cat images are not restored twice.
+     *
+     * @return loaded cat images, empty if there is no snapshot or it is corrupted
+     */
+    public List<I> load() {
+        return loadEntries().stream().map(Entry::getImage).collect(Collectors.toList());
+    }
+
+    /**
+     * Loads the entries stored in this snapshot.
+     * The file of the snapshot gets deleted after this so that the same cat images are not restored twice.
+     *
+     * @return loaded entries, empty if there is no snapshot or it is corrupted
+     */
+    public List<Entry<I>> loadEntries() {
+        val images = new ArrayList<Entry<I>>();
+
+        final ByteBuffer buffer;
+        try (val channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (final NoSuchFileException e) {
+            return images;
+        } catch (final IOException e) {
+            log.warn("Unable to open snapshot of cat images " + file, e);
+            return images;
+        }
+
+        try {
+            val version = buffer.getInt() == MAGIC ? buffer.getInt() : -1;
+            if (version != VERSION && version != UNFLAGGED_VERSION) {
+                log.warn("{} is not a snapshot of cat images of a supported version", file);
+                return images;
+            }
+
+            var count = buffer.getInt();
+            while (count-- > 0) {
+                val filtered = version != UNFLAGGED_VERSION && buffer.get() != 0;
+                val metadata = slice(buffer, buffer.getInt());
+                val contentLength = buffer.getInt();
+                val content = contentLength < 0 ? null : slice(buffer, contentLength);
+
+                try {
+                    images.add(new Entry<>(codec.decode(metadata, content), filtered));
+                } catch (final IOException | RuntimeException e) {
+                    log.debug("Unable to decode a cat image stored in snapshot " + file, e);
+                }
+            }
+        } catch (final BufferUnderflowException | IllegalArgumentException e) {
+            log.warn("Snapshot of cat images " + file + " is truncated", e);
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (final IOException e) {
+                log.debug("Unable to delete loaded snapshot of cat images " + file, e);
+            }
+        }
+        log.info("Loaded {} cat images from snapshot {}", images.size(), file);
+
+        return images;
+    }
+
+    /**
+     * Slices the given amount of bytes of the buffer moving its position after them.
+     *
+     * @param buffer buffer to slice
+     * @param length amount of bytes to slice
+     * @return read-only buffer of the sliced bytes
+     */
+    protected static ByteBuffer slice(@NonNull final ByteBuffer buffer, final int length) {
+        if (length < 0 || length > buffer.remaining()) throw new BufferUnderflowException();
+
+        val slice = buffer.slice();
+        slice.limit(length);
+        buffer.position(buffer.position() + length);
+
+        return slice.asReadOnlyBuffer();
+    }
+
+    /**
+     * Saves the given cat images to this snapshot replacing its previous content.
+     * Cat images not supported by the codec are skipped.
+     *
+     * @param images cat images to store in the snapshot
+     */
+    public void save(@NonNull final Collection<? extends CatImage> images) {
+        save(images, Collections.emptyList());
+    }
+
+    /**
+     * Saves the given cat images to this snapshot replacing its previous content.
+     * Cat images not supported by the codec are skipped.
+     *
+     * @param images unfiltered cat images to store in the snapshot
+     * @param filteredImages cat images pre-loaded for filters to store in the snapshot
+     */
+    public void save(@NonNull final Collection<? extends CatImage> images,
+                     @NonNull final Collection<? extends CatImage> filteredImages) {
+        try {
+            val directory = file.toAbsolutePath().getParent();
+            if (directory != null) Files.createDirectories(directory);
+
+            // write to a temporary file so that a crash does not leave a corrupted snapshot
+            // and the previous snapshot may still be mapped by someone
+            val temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try {
+                var count = 0;
+                try (val channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                    val output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+                    output.writeInt(MAGIC);
+                    output.writeInt(VERSION);
+                    output.writeInt(0); // count is written once known
+
+                    for (val image : images) if (write(image, false, output, channel)) count++;
+                    for (val image : filteredImages) if (write(image, true, output, channel)) count++;
+                    output.flush();
+
+                    channel.write((ByteBuffer) ByteBuffer.allocate(Integer.BYTES).putInt(count).flip(), 8);
+                }
+
+                Files.move(
+                        temporaryFile, file,
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE
+                );
+                log.info("Saved {} cat images to snapshot {}", count, file);
+            } finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+        } catch (final IOException e) {
+            log.warn("Unable to save snapshot of cat images " + file, e);
+        }
+    }
+
+    /**
+     * Writes the entry of the given cat image.
+     *
+     * @param image cat image to write
+     * @param filtered whether the cat image was pre-loaded for a filter
+     * @param output buffered output to the channel
+     * @param channel channel to which the bytes of the cat image are written directly
+     * @return {@code true} if the entry was written and {@code false} if the cat image is not supported
+     *
+     * @throws IOException if an exception occurs while writing the entry
+     */
+    protected boolean write(@NonNull final CatImage image, final boolean filtered,
+                            @NonNull final DataOutputStream output,
+                            @NonNull final FileChannel channel) throws IOException {
+        final byte[] metadata;
+        try {
+            metadata = codec.encodeMetadata(image);
+        } catch (final IOException e) {
+            log.debug("Unable to encode cat image " + image, e);
+            return false;
+        }
+        if (metadata == null) return false;
+
+        output.writeBoolean(filtered);
+        output.writeInt(metadata.length);
+        output.write(metadata);
+
+        val content = codec.getLoadedContent(image);
+        if (content == null) output.writeInt(-1);
+        else {
+            output.writeInt(content.remaining());
+            output.flush();
+            while (content.hasRemaining()) channel.write(content);
+        }
+
+        return true;
+    }
+
+    /**
+     * Cat image stored in a snapshot.
+     *
+     * @param <I> type of the cat image
+     */
+    @Value
+    public static class Entry<I> {
+
+        /**
+         * Stored cat image
+         */
+        @NonNull I image;
+
+        /**
+         * Whether the cat image was pre-loaded for a filter
+         */
+        boolean filtered;
+    }
+}
@@ -0,0 +1,46 @@
+package ru.progrm_jarvis.catobot.image.repository;
+
+import lombok.NonNull;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.progrm_jarvis.catobot.image.CatImage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Codec of cat images stored in {@link CatImageSnapshot}s.
+ *
+ * @param <I> type of decoded cat images
+ */
+public interface CatImageSnapshotCodec<I extends CatImage> {
+
+    /**
+     * Encodes the metadata of the given cat image.
+     *
+     * @param image cat image whose metadata should be encoded
+     * @return encoded metadata of the cat image or {@code null} if this codec does not support it
+     *
+     * @throws IOException if an exception occurs while encoding the metadata
+     */
+    @Nullable byte[] encodeMetadata(@NonNull CatImage image) throws IOException;
+
+    /**
+     * Gets the bytes of the given cat image if they are available without loading them.
+     *
+     * @param image cat image whose bytes should be got
+     * @return read-only buffer of the cat image's bytes or {@code null} if they are not loaded
+     */
+    @Nullable ByteBuffer getLoadedContent(@NonNull CatImage image);
+
+    /**
+     * Decodes the cat image.
+     *
+     * @param metadata buffer of the cat image's metadata
+     * @param content buffer of the cat image's bytes or {@code null} if they were not loaded
+     * @return decoded cat image
+     *
+     * @throws IOException if an exception occurs while decoding the cat image
+     */
+    @NotNull I decode(@NonNull ByteBuffer metadata, @Nullable ByteBuffer content) throws IOException;
+}
@@ -0,0 +1,557 @@
+package ru.progrm_jarvis.catobot.image.repository;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import lombok.var;
+import org.jetbrains.annotations.Nullable;
+import ru.progrm_jarvis.catobot.image.CatImage;
+import ru.progrm_jarvis.catobot.image.factory.CatImageFactory;
+import ru.progrm_jarvis.catobot.jfr.ImagePickEvent;
+import ru.progrm_jarvis.catobot.jfr.JfrEvents;
+import ru.progrm_jarvis.catobot.trace.Trace;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Cat image repository which pre-loads cat images and keeps them indexed by the filters which they match
+ * so that random picks of both filtered and unfiltered cat images are served from cache.
+ *
+ * @param <I> type of used cat image
+ * @param <C> type of configuration used by the factory
+ * @param <K> type of filter keys by which cat images get indexed
+ */
+@Slf4j
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class IndexedPreLoadingCatImageRepository<I extends CatImage, C, K> implements CatImageRepository<I, C> {
+
+    /**
+     * Maximal amount of indexed cat images checked by a filtered pick
+     */
+    protected static final int MAX_FILTERED_PICK_ATTEMPTS = 16;
+
+    /**
+     * Factory used for creating cat images
+     */
+    @NonNull CatImageFactory<I, C> factory;
+
+    /**
+     * Indexer used for mapping cat images and configurations onto filter keys
+     */
+    @NonNull CatImageIndexer<? super I, ? super C, K> indexer;
+
+    /**
+     * Configuration used for pre-loading unfiltered cat images
+     */
+    C defaultConfiguration;
+
+    /**
+     * Amount of unfiltered cat images to keep pre-loaded
+     */
+    int cacheSize;
+
+    /**
+     * Amount of cat images to keep pre-loaded for each of the popular filters
+     */
+    int filterCacheSize;
+
+    /**
+     * Maximal amount of the most popular filters for which cat images get pre-loaded
+     */
+    int popularFiltersCount;
+
+    /**
+     * Interval between pre-loading rounds in milliseconds
+     */
+    long interval;
+
+    /**
+     * Index of all pre-loaded cat images
+     */
+    @NonNull Bucket<I> unfilteredImages;
+
+    /**
+     * Indexes of pre-loaded cat images by the keys of the filters which they match
+     */
+    @NonNull ConcurrentMap<K, Bucket<I>> filteredImages;
+
+    /**
+     * Cat images pre-loaded for filters restored from the snapshot
+     * which are handed over to the buckets of the filters they match once those get requested
+     */
+    @NonNull Bucket<I> restoredImages;
+
+    /**
+     * Statistics of requested filters used for choosing the ones to pre-load cat images for
+     */
+    @NonNull ConcurrentMap<K, FilterStatistics<C>> filterStatistics;
+
+    /**
+     * Snapshot to which pre-loaded cat images are saved on close and from which they are loaded on creation
+     */
+    @Nullable CatImageSnapshot<? extends I> snapshot;
+
+    @NonNull ExecutorService worker;
+
+    /**
+     * Counters of picks served from the index and of those delegated to the factory
+     */
+    @NonNull LongAdder hits, misses;
+
+    public IndexedPreLoadingCatImageRepository(@NonNull final CatImageFactory<I, C> factory,
+                                               @NonNull final CatImageIndexer<? super I, ? super C, K> indexer,
+                                               final C defaultConfiguration,
+                                               final int cacheSize, final int filterCacheSize,
+                                               final int popularFiltersCount, final long interval) {
+        this(
+                factory, indexer, defaultConfiguration,
+                cacheSize, filterCacheSize, popularFiltersCount, interval, null
+        );
+    }
+
+    public IndexedPreLoadingCatImageRepository(@NonNull final CatImageFactory<I, C> factory,
+                                               @NonNull final CatImageIndexer<? super I, ? super C, K> indexer,
+                                               final C defaultConfiguration,
+                                               final int cacheSize, final int filterCacheSize,
+                                               final int popularFiltersCount, final long interval,
+                                               @Nullable final CatImageSnapshot<? extends I> snapshot) {
+        this.factory = factory;
+        this.indexer = indexer;
+        this.defaultConfiguration = defaultConfiguration;
+        this.cacheSize = cacheSize;
+        this.filterCacheSize = filterCacheSize;
+        this.popularFiltersCount = popularFiltersCount;
+        this.interval = interval;
+
+        hits = new LongAdder();
+        misses = new LongAdder();
+        unfilteredImages = new Bucket<>();
+        filteredImages = new ConcurrentHashMap<>();
+        restoredImages = new Bucket<>();
+        filterStatistics = new ConcurrentHashMap<>();
+
+        this.snapshot = snapshot;
+        if (snapshot != null) {
+            val maxRestoredImages = getMaxFilteredImages();
+            for (val entry : snapshot.loadEntries()) {
+                if (!entry.isFiltered()) index(entry.getImage(), unfilteredImages);
+                else if (restoredImages.ownSize.get() < maxRestoredImages) index(entry.getImage(), restoredImages);
+            }
+        }
+
+        worker = Executors.newSingleThreadExecutor();
+        worker.execute(this::startLoadingCats);
+    }
+
+    protected void startLoadingCats() {
+        while (true) {
+            preLoad(unfilteredImages, null, cacheSize, defaultConfiguration);
+
+            for (val filter : getPopularFilters()) {
+                val key = filter.getKey();
+                preLoad(getFilteredBucket(key), key, filterCacheSize, filter.getValue().configuration);
+            }
+
+            // forget about the filters which are no longer requested
+            filterStatistics.entrySet().removeIf(filter -> {
+                if (filter.getValue().requests.updateAndGet(requests -> requests >> 1) != 0) return false;
+
+                val bucket = filteredImages.get(filter.getKey());
+                if (bucket != null) {
+                    if (bucket.liveSize.get() != 0 || bucket.pending.get() != 0) return false;
+                    filteredImages.remove(filter.getKey(), bucket);
+                }
+
+                return true;
+            });
+
+            try {
+                Thread.sleep(interval);
+            } catch (final InterruptedException e) {
+                log.debug("Aborted cats loading", e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets the most requested filters limited to {@link #popularFiltersCount}.
+     *
+     * @return the most popular filters
+     */
+    protected List<Map.Entry<K, FilterStatistics<C>>> getPopularFilters() {
+        return filterStatistics.entrySet().stream()
+                .sorted(Comparator.comparingLong(
+                        (Map.Entry<K, FilterStatistics<C>> filter) -> filter.getValue().requests.get()
+                ).reversed())
+                .limit(popularFiltersCount)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Starts loading of cat images needed to fill the bucket up to its quota.
+     *
+     * @param bucket bucket to fill
+     * @param key key of the bucket's filter or {@code null} if it is the bucket of unfiltered cat images
+     * @param quota amount of cat images which should be available in the bucket
+     * @param configuration configuration used for creating cat images for the bucket
+     */
+    protected void preLoad(@NonNull final Bucket<I> bucket, @Nullable final K key,
+                           final int quota, final C configuration) {
+        // only the cat images pre-loaded for the bucket count toward its quota
+        val sizeDelta = quota - bucket.ownSize.get() - bucket.pending.get();
+        for (var i = 0; i < sizeDelta; i++) {
+            bucket.pending.incrementAndGet();
+            factory.createCatImage(configuration).whenComplete((image, e) -> {
+                bucket.pending.decrementAndGet();
+                if (e != null) log.debug("Unable to pre-load a cat image for filter " + key, e);
+                else index(image, bucket);
+            });
+        }
+    }
+
+    /**
+     * Adds the given cat image to the bucket for which it was requested and to the indexes of all filters it matches.
+     * Cat images requested for a filter do not get into the bucket of unfiltered cat images
+     * so that unfiltered picks do not drift towards the popular filters.
+     *
+     * @param image cat image to index
+     * @param requestedBucket bucket for which the cat image was requested and whose quota it counts toward,
+     * the image gets into it even if the indexer does not consider it matching the bucket's filter
+     */
+    protected void index(@NonNull final I image, @NonNull final Bucket<I> requestedBucket) {
+        val buckets = new ArrayList<Bucket<I>>();
+        buckets.add(requestedBucket);
+        for (val key : indexer.getIndexKeys(image)) {
+            // only filters which have ever been requested are indexed
+            val bucket = filteredImages.get(key);
+            if (bucket != null && bucket != requestedBucket) buckets.add(bucket);
+        }
+
+        val entry = new Entry<>(image, requestedBucket, buckets);
+        requestedBucket.ownSize.incrementAndGet();
+        for (val bucket : buckets) bucket.liveSize.incrementAndGet();
+        for (val bucket : buckets) bucket.add(entry);
+    }
+
+    @Override
+    public CompletableFuture<I> pickRandomCatImage(final C configuration) {
+        val event = JfrEvents.isAvailable() ? new ImagePickEvent() : null;
+        if (event != null) event.begin();
+
+        return pick(configuration, getBucket(configuration).pollRandom(null), event, false);
+    }
+
+    @Override
+    public CompletableFuture<I> pickRandomCatImage(final C configuration, @NonNull final Predicate<? super I> filter) {
+        val event = JfrEvents.isAvailable() ? new ImagePickEvent() : null;
+        if (event != null) event.begin();
+
+        return pick(configuration, getBucket(configuration).pollRandom(filter), event, true);
+    }
+
+    /**
+     * Completes the pick of a cat image creating a new one if none was found in the index.
+     *
+     * @param configuration configuration used for requesting a cat image
+     * @param image cat image found in the index or {@code null} if there was none
+     * @param event started event of the pick or {@code null} if JFR is not available
+     * @param filtered whether the pick was filtered
+     * @return future of the picked cat image
+     */
+    protected CompletableFuture<I> pick(final C configuration, @Nullable final I image,
+                                        @Nullable final ImagePickEvent event, final boolean filtered) {
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.setRepository(getClass().getSimpleName());
+                event.setHit(image != null);
+                event.setFiltered(filtered);
+                event.commit();
+            }
+        }
+
+        if (image == null) {
+            misses.increment();
+            val span = Trace.span("create cat image");
+            val createdImage = factory.createCatImage(configuration);
+            span.closeOnCompletion(createdImage);
+
+            return createdImage;
+        }
+
+        hits.increment();
+        return CompletableFuture.completedFuture(image);
+    }
+
+    /**
+     * Gets the amount of picks served from the index.
+     *
+     * @return amount of index hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the amount of picks for which a new cat image had to be created.
+     *
+     * @return amount of index misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the amount of pre-loaded cat images.
+     *
+     * @return amount of pre-loaded cat images
+     */
+    public int getCacheSize() {
+        var size = unfilteredImages.ownSize.get() + restoredImages.ownSize.get();
+        for (val bucket : filteredImages.values()) size += bucket.ownSize.get();
+
+        return size;
+    }
+
+    /**
+     * Gets the bucket of cat images matching the given configuration updating the statistics of its filter.
+     *
+     * @param configuration configuration used for requesting a cat image
+     * @return bucket of cat images matching the configuration
+     */
+    protected Bucket<I> getBucket(final C configuration) {
+        val key = indexer.getFilterKey(configuration);
+        if (key == null) return unfilteredImages;
+
+        filterStatistics.computeIfAbsent(key, k -> new FilterStatistics<>(configuration)).requests.incrementAndGet();
+
+        return getFilteredBucket(key);
+    }
+
+    /**
+     * Gets the bucket of cat images matching the filter creating it if needed.
+     * A created bucket takes over the restored cat images matching its filter.
+     *
+     * @param key key of the filter
+     * @return bucket of cat images matching the filter
+     */
+    protected Bucket<I> getFilteredBucket(@NonNull final K key) {
+        var bucket = filteredImages.get(key);
+        if (bucket == null) {
+            val createdBucket = new Bucket<I>();
+            if ((bucket = filteredImages.putIfAbsent(key, createdBucket)) == null) {
+                bucket = createdBucket;
+                for (val image : restoredImages.pollAll(image -> indexer.getIndexKeys(image).contains(key))) {
+                    index(image, bucket);
+                }
+            }
+        }
+
+        return bucket;
+    }
+
+    /**
+     * Gets the maximal amount of cat images pre-loaded for filters.
+     *
+     * @return maximal amount of cat images pre-loaded for filters
+     */
+    protected int getMaxFilteredImages() {
+        return filterCacheSize * popularFiltersCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The cat image is dropped if there already are enough pre-loaded unfiltered cat images.
+     */
+    @Override
+    public void returnCatImage(@NonNull final I image) {
+        if (unfilteredImages.ownSize.get() < cacheSize) index(image, unfilteredImages);
+    }
+
+    @Override
+    public void close() {
+        worker.shutdownNow();
+        if (snapshot != null) {
+            val maxFilteredImages = getMaxFilteredImages();
+            val filteredImages = new ArrayList<I>();
+            for (val bucket : this.filteredImages.values()) filteredImages.addAll(bucket.getOwnImages());
+            filteredImages.addAll(restoredImages.getOwnImages());
+
+            snapshot.save(
+                    unfilteredImages.getOwnImages(),
+                    filteredImages.size() > maxFilteredImages
+                            ? filteredImages.subList(0, maxFilteredImages) : filteredImages
+            );
+        }
+        factory.close();
+    }
+
+    /**
+     * Pre-loaded cat image which may be indexed by multiple buckets but picked only once.
+     *
+     * @param <I> type of cat image
+     */
+    @RequiredArgsConstructor
+    @FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+    protected static final class Entry<I> {
+
+        @NonNull I image;
+        /**
+         * Bucket for which the cat image was requested and whose quota it counts toward
+         */
+        @NonNull Bucket<I> home;
+        @NonNull List<Bucket<I>> buckets;
+        @NonNull AtomicBoolean claimed = new AtomicBoolean();
+
+        /**
+         * Attempts to claim this entry so that it is no longer available in any of its buckets.
+         *
+         * @return {@code true} if this entry was claimed by this call and {@code false} if it was claimed before
+         */
+        protected boolean claim() {
+            if (claimed.compareAndSet(false, true)) {
+                home.ownSize.decrementAndGet();
+                for (val bucket : buckets) bucket.liveSize.decrementAndGet();
+
+                return true;
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * Index of cat images allowing random picks in constant amortized time.
+     * Entries claimed via other buckets are removed lazily.
+     *
+     * @param <I> type of cat images
+     */
+    @FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+    protected static final class Bucket<I> {
+
+        /**
+         * Minimal amount of entries starting from which the bucket gets compacted
+         */
+        private static final int MIN_COMPACTED_SIZE = 16;
+
+        @NonNull List<Entry<I>> entries = new ArrayList<>();
+        /**
+         * Amount of entries of this bucket which are not yet claimed
+         */
+        @NonNull AtomicInteger liveSize = new AtomicInteger();
+        /**
+         * Amount of entries requested for this bucket which are not yet claimed
+         */
+        @NonNull AtomicInteger ownSize = new AtomicInteger();
+        /**
+         * Amount of cat images being loaded for this bucket
+         */
+        @NonNull AtomicInteger pending = new AtomicInteger();
+
+        protected synchronized void add(@NonNull final Entry<I> entry) {
+            val size = entries.size();
+            if (size >= MIN_COMPACTED_SIZE && size > liveSize.get() << 1) entries.removeIf(e -> e.claimed.get());
+
+            entries.add(entry);
+        }
+
+        /**
+         * Gets the cat images requested for this bucket which are not yet claimed.
+         *
+         * @return cat images requested for this bucket and available in it
+         */
+        protected synchronized List<I> getOwnImages() {
+            val images = new ArrayList<I>(ownSize.get());
+            for (val entry : entries) if (entry.home == this && !entry.claimed.get()) images.add(entry.image);
+
+            return images;
+        }
+
+        /**
+         * Claims all cat images of this bucket matching the filter.
+         *
+         * @param filter filter which the cat images should match
+         * @return claimed cat images
+         */
+        protected synchronized List<I> pollAll(@NonNull final Predicate<? super I> filter) {
+            val images = new ArrayList<I>();
+            entries.removeIf(entry -> {
+                if (entry.claimed.get()) return true;
+                if (!filter.test(entry.image) || !entry.claim()) return false;
+
+                images.add(entry.image);
+                return true;
+            });
+
+            return images;
+        }
+
+        /**
+         * Claims a random cat image of this bucket.
+         *
+         * @param filter filter which the cat image should match or {@code null} if any one fits
+         * @return claimed cat image or {@code null} if there is no available one matching the filter
+         */
+        @Nullable protected synchronized I pollRandom(@Nullable final Predicate<? super I> filter) {
+            val random = ThreadLocalRandom.current();
+            var rejections = 0;
+            int size;
+            while ((size = entries.size()) != 0 && rejections < MAX_FILTERED_PICK_ATTEMPTS) {
+                val index = random.nextInt(size);
+                val entry = entries.get(index);
+                if (filter != null && !entry.claimed.get() && !filter.test(entry.image)) {
+                    rejections++;
+                    continue;
+                }
+
+                // swap with the last one so that removal takes constant time
+                val last = entries.remove(size - 1);
+                if (index != size - 1) entries.set(index, last);
+
+                if (entry.claim()) return entry.image;
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * Statistics of a requested filter.
+     *
+     * @param <C> type of configuration describing the filter
+     */
+    @RequiredArgsConstructor
+    @FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+    protected static final class FilterStatistics<C> {
+
+        /**
+         * Configuration used for pre-loading cat images matching the filter
+         */
+        C configuration;
+
+        /**
+         * Decaying amount of requests of the filter
+         */
+        @NonNull AtomicLong requests = new AtomicLong();
+    }
+}
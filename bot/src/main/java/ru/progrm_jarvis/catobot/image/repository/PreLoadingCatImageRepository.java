@@ -0,0 +1,227 @@
+package ru.progrm_jarvis.catobot.image.repository;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import lombok.var;
+import org.jetbrains.annotations.Nullable;
+import ru.progrm_jarvis.catobot.image.CatImage;
+import ru.progrm_jarvis.catobot.image.factory.CatImageFactory;
+import ru.progrm_jarvis.catobot.jfr.ImagePickEvent;
+import ru.progrm_jarvis.catobot.jfr.JfrEvents;
+import ru.progrm_jarvis.catobot.trace.Trace;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+@Slf4j
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class PreLoadingCatImageRepository<I extends CatImage, C> implements CatImageRepository<I, C> {
+
+    /**
+     * Maximal amount of cached cat images checked by a filtered pick
+     */
+    protected static final int MAX_FILTERED_PICK_ATTEMPTS = 16;
+
+    @NonNull CatImageFactory<I, C> factory;
+
+    int cacheSize;
+
+    long interval;
+
+    @NonNull Deque<SoftReference<CompletableFuture<I>>> cache;
+
+    @NonNull ExecutorService worker;
+
+    C defaultConfiguration;
+
+    /**
+     * Snapshot to which cached cat images are saved on close and from which they are loaded on creation
+     */
+    @Nullable CatImageSnapshot<? extends I> snapshot;
+
+    /**
+     * Counters of picks served from the cache and of those delegated to the factory
+     */
+    @NonNull LongAdder hits, misses;
+
+    public PreLoadingCatImageRepository(@NonNull final CatImageFactory<I, C> factory, final C defaultConfiguration,
+                                        final int cacheSize, final long interval) {
+        this(factory, defaultConfiguration, cacheSize, interval, null);
+    }
+
+    public PreLoadingCatImageRepository(@NonNull final CatImageFactory<I, C> factory, final C defaultConfiguration,
+                                        final int cacheSize, final long interval,
+                                        @Nullable final CatImageSnapshot<? extends I> snapshot) {
+        this.factory = factory;
+        this.defaultConfiguration = defaultConfiguration;
+        this.cacheSize = cacheSize;
+        this.interval = interval;
+        this.snapshot = snapshot;
+
+        hits = new LongAdder();
+        misses = new LongAdder();
+        cache = new ConcurrentLinkedDeque<>();
+        if (snapshot != null) for (val image : snapshot.load()) cache.add(
+                new SoftReference<>(CompletableFuture.completedFuture(image))
+        );
+
+        worker = Executors.newSingleThreadExecutor();
+        worker.execute(this::startLoadingCats);
+    }
+
+    protected void startLoadingCats() {
+        while (true) {
+            val sizeDelta = cacheSize - cache.size();
+            for (var i = 0; i < sizeDelta; i++) cache
+                    .add(new SoftReference<>(factory.createCatImage(defaultConfiguration)));
+
+            try {
+                Thread.sleep(interval);
+            } catch (final InterruptedException e) {
+                log.debug("Aborted cats loading", e);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<I> pickRandomCatImage(final C configuration) {
+        val event = JfrEvents.isAvailable() ? new ImagePickEvent() : null;
+        if (event != null) event.begin();
+
+        val imageReference = cache.poll();
+        if (imageReference != null) {
+            val image = imageReference.get();
+            if (image != null) {
+                hits.increment();
+                if (event != null) commitPick(event, true, false);
+
+                return image;
+            }
+        }
+
+        misses.increment();
+        if (event != null) commitPick(event, false, false);
+        return createCatImage(configuration);
+    }
+
+    @Override
+    public CompletableFuture<I> pickRandomCatImage(final C configuration, @NonNull final Predicate<? super I> filter) {
+        val event = JfrEvents.isAvailable() ? new ImagePickEvent() : null;
+        if (event != null) event.begin();
+
+        for (var attempt = 0; attempt < MAX_FILTERED_PICK_ATTEMPTS; attempt++) {
+            val imageReference = cache.poll();
+            if (imageReference == null) break;
+
+            val image = imageReference.get();
+            if (image == null || image.isCompletedExceptionally()) continue;
+
+            // images which are not yet loaded cannot be checked without waiting for them
+            if (!image.isDone() || !filter.test(image.join())) {
+                cache.addLast(imageReference);
+                continue;
+            }
+
+            hits.increment();
+            if (event != null) commitPick(event, true, true);
+            return image;
+        }
+
+        misses.increment();
+        if (event != null) commitPick(event, false, true);
+        return createCatImage(configuration);
+    }
+
+    /**
+     * Commits the event of a pick of a cat image if it is enabled.
+     *
+     * @param event started event of the pick
+     * @param hit whether the cat image was found in the cache
+     * @param filtered whether the pick was filtered
+     */
+    protected void commitPick(@NonNull final ImagePickEvent event, final boolean hit, final boolean filtered) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.setRepository(getClass().getSimpleName());
+            event.setHit(hit);
+            event.setFiltered(filtered);
+            event.commit();
+        }
+    }
+
+    /**
+     * Creates a new cat image because none was found in the cache.
+     *
+     * @param configuration configuration used for requesting a cat image
+     * @return future of the created cat image
+     */
+    protected CompletableFuture<I> createCatImage(final C configuration) {
+        val span = Trace.span("create cat image");
+        val image = factory.createCatImage(configuration);
+        span.closeOnCompletion(image);
+
+        return image;
+    }
+
+    /**
+     * Gets the amount of picks served from the cache.
+     *
+     * @return amount of cache hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the amount of picks for which a new cat image had to be created.
+     *
+     * @return amount of cache misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the amount of cached cat images.
+     *
+     * @return size of the cache
+     */
+    public int getCacheSize() {
+        return cache.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The cat image is dropped if the cache is already full.
+     */
+    @Override
+    public void returnCatImage(@NonNull final I image) {
+        if (cache.size() < cacheSize) cache.addFirst(new SoftReference<>(CompletableFuture.completedFuture(image)));
+    }
+
+    @Override
+    public void close() {
+        worker.shutdownNow();
+        if (snapshot != null) {
+            val images = new ArrayList<I>();
+            for (val imageReference : cache) {
+                val image = imageReference.get();
+                if (image != null && image.isDone() && !image.isCompletedExceptionally()) images.add(image.join());
+            }
+            snapshot.save(images);
+        }
+        factory.close();
+    }
+}
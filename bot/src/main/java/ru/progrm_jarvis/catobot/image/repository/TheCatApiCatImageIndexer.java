@@ -0,0 +1,69 @@
+package ru.progrm_jarvis.catobot.image.repository;
+
+import lombok.NonNull;
+import lombok.Value;
+import lombok.val;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.progrm_jarvis.catobot.image.CatImage;
+import ru.progrm_jarvis.catobot.image.CompactTheCatApiCatImage;
+import ru.progrm_jarvis.catobot.image.factory.TheCatApiCatImageFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Indexer of {@link CompactTheCatApiCatImage}s by their breeds and categories.
+ * Other cat images are only indexed as unfiltered ones.
+ */
+public enum TheCatApiCatImageIndexer
+        implements CatImageIndexer<CatImage, TheCatApiCatImageFactory.Configuration, TheCatApiCatImageIndexer.Key> {
+
+    INSTANCE;
+
+    @Override
+    @Nullable public Key getFilterKey(@Nullable final TheCatApiCatImageFactory.Configuration configuration) {
+        if (configuration == null) return null;
+
+        val breedId = configuration.getBreedId();
+        val categoryId = configuration.getCategoryId();
+
+        return breedId == null && categoryId == null ? null : new Key(breedId, categoryId);
+    }
+
+    @Override
+    @NotNull public Collection<Key> getIndexKeys(@NonNull final CatImage image) {
+        if (!(image instanceof CompactTheCatApiCatImage)) return Collections.emptyList();
+
+        val breeds = ((CompactTheCatApiCatImage) image).getBreeds();
+        val categories = ((CompactTheCatApiCatImage) image).getCategories();
+
+        val keys = new ArrayList<Key>((breeds.size() + 1) * (categories.size() + 1) - 1);
+        for (val breed : breeds) keys.add(new Key(breed.getId(), null));
+        for (val category : categories) {
+            val categoryId = category.getId();
+            keys.add(new Key(null, categoryId));
+            for (val breed : breeds) keys.add(new Key(breed.getId(), categoryId));
+        }
+
+        return keys;
+    }
+
+    /**
+     * Key of a filter by breed and category.
+     */
+    @Value
+    public static class Key {
+
+        /**
+         * ID of the breed or {@code null} if any breed matches
+         */
+        @Nullable String breedId;
+
+        /**
+         * ID of the category or {@code null} if any category matches
+         */
+        @Nullable Integer categoryId;
+    }
+}
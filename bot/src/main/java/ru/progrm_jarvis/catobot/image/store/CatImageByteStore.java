@@ -0,0 +1,302 @@
+package ru.progrm_jarvis.catobot.image.store;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.val;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Content-addressed store of cat images' bytes.
+ * Bytes are stored by the IDs of the images and by the hashes of their content
+ * so that each distinct image is stored in a single buffer shared by all its holders.
+ * <p>
+ * The total size of stored bytes is bounded, whenever it gets exceeded the least recently used buffers
+ * which are not held by anyone get evicted first.
+ *
+ * @apiNote buffers returned by this store are shared thus should never be modified
+ */
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class CatImageByteStore {
+
+    /**
+     * Maximal total size of stored bytes
+     */
+    long maxSize;
+
+    /**
+     * Entries by their content hashes in the order of their access
+     */
+    @NonNull LinkedHashMap<ByteBuffer, Entry> entries;
+
+    /**
+     * Entries by the IDs of images
+     */
+    @NonNull Map<String, Entry> entriesById;
+
+    /**
+     * Queue of references to holders which are no longer used
+     */
+    @NonNull ReferenceQueue<Object> releasedHolders;
+
+    /**
+     * Loads of images' bytes being currently performed by the IDs of the images
+     */
+    @NonNull ConcurrentMap<String, CompletableFuture<byte[]>> loads;
+
+    /**
+     * Total size of stored bytes
+     */
+    @NonFinal long size;
+
+    @NonNull LongAdder hits, misses, deduplications;
+
+    public CatImageByteStore(final long maxSize) {
+        if (maxSize < 0) throw new IllegalArgumentException("maxSize should be non-negative");
+        this.maxSize = maxSize;
+
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+        entriesById = new HashMap<>();
+        releasedHolders = new ReferenceQueue<>();
+        loads = new ConcurrentHashMap<>();
+
+        hits = new LongAdder();
+        misses = new LongAdder();
+        deduplications = new LongAdder();
+    }
+
+    /**
+     * Gets the bytes of the image by the given ID loading them if they are not stored.
+     *
+     * @param id ID of the image
+     * @param holder object which will hold the bytes
+     * @param loader loader of the image's bytes used if they are not stored,
+     * it may throw unchecked exceptions which will be rethrown by this method
+     * @return bytes of the image which should not be modified
+     */
+    public byte[] get(@NonNull final String id, @NonNull final Object holder, @NonNull final Supplier<byte[]> loader) {
+        synchronized (this) {
+            releaseUnusedHolders();
+
+            val entry = entriesById.get(id);
+            if (entry != null) {
+                hits.increment();
+                entries.get(entry.hash); // update access order
+                hold(entry, holder);
+
+                return entry.bytes;
+            }
+        }
+
+        final CompletableFuture<byte[]> load;
+        {
+            val newLoad = new CompletableFuture<byte[]>();
+            val currentLoad = loads.putIfAbsent(id, newLoad);
+            if (currentLoad != null) {
+                // someone else is already loading the same image
+                final byte[] bytes;
+                try {
+                    bytes = currentLoad.join();
+                } catch (final CompletionException e) {
+                    val cause = e.getCause();
+                    if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                    throw e;
+                }
+                hits.increment();
+                synchronized (this) {
+                    val entry = entriesById.get(id);
+                    if (entry != null) hold(entry, holder);
+                }
+
+                return bytes;
+            }
+            load = newLoad;
+        }
+
+        misses.increment();
+        try {
+            final byte[] bytes;
+            try {
+                bytes = loader.get();
+            } catch (final RuntimeException | Error e) {
+                load.completeExceptionally(e);
+                throw e;
+            }
+
+            val hash = ByteBuffer.wrap(hash(bytes));
+            final Entry entry;
+            synchronized (this) {
+                releaseUnusedHolders();
+
+                val storedEntry = entries.get(hash);
+                if (storedEntry == null) {
+                    entry = new Entry(bytes, hash);
+                    entries.put(hash, entry);
+                    size += bytes.length;
+                } else {
+                    deduplications.increment();
+                    entry = storedEntry;
+                }
+                entry.ids.add(id);
+                entriesById.put(id, entry);
+                hold(entry, holder);
+
+                evict();
+            }
+            load.complete(entry.bytes);
+
+            return entry.bytes;
+        } finally {
+            loads.remove(id, load);
+        }
+    }
+
+    /**
+     * Gets the total size of stored bytes.
+     *
+     * @return total size of stored bytes
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the amount of requests served without loading the image's bytes.
+     *
+     * @return amount of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the amount of requests which required loading the image's bytes.
+     *
+     * @return amount of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the amount of loaded images whose content was already stored under another ID.
+     *
+     * @return amount of deduplicated images
+     */
+    public long getDeduplications() {
+        return deduplications.sum();
+    }
+
+    /**
+     * Registers the given holder of the entry's bytes unless it is already registered.
+     *
+     * @param entry entry whose bytes are held
+     * @param holder holder of the bytes
+     */
+    protected void hold(@NonNull final Entry entry, @NonNull final Object holder) {
+        for (val reference : entry.holders) if (reference.get() == holder) return;
+
+        entry.holders.add(new HolderReference(holder, releasedHolders, entry));
+    }
+
+    /**
+     * Unregisters all holders which are no longer used.
+     */
+    protected void releaseUnusedHolders() {
+        HolderReference reference;
+        while ((reference = (HolderReference) releasedHolders.poll()) != null) {
+            reference.entry.holders.remove(reference);
+        }
+    }
+
+    /**
+     * Evicts entries until the total size of stored bytes fits the maximal one.
+     * Entries which are not held by anyone are evicted first as evicting others does not free any memory.
+     */
+    protected void evict() {
+        if (size <= maxSize) return;
+
+        releaseUnusedHolders();
+        evict(false);
+        if (size > maxSize) evict(true);
+    }
+
+    /**
+     * Evicts the least recently used entries until the total size of stored bytes fits the maximal one.
+     *
+     * @param held {@code true} if held entries may also be evicted and {@code false} otherwise
+     */
+    protected void evict(final boolean held) {
+        val iterator = entries.values().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            val entry = iterator.next();
+            if (held || entry.holders.isEmpty()) {
+                iterator.remove();
+                for (val id : entry.ids) entriesById.remove(id, entry);
+                size -= entry.bytes.length;
+            }
+        }
+    }
+
+    /**
+     * Computes the hash of the given content.
+     *
+     * @param bytes content to hash
+     * @return hash of the content
+     */
+    protected static byte[] hash(@NonNull final byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    /**
+     * Stored buffer of an image.
+     */
+    @RequiredArgsConstructor
+    @FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+    protected static final class Entry {
+
+        @NonNull byte[] bytes;
+        @NonNull ByteBuffer hash;
+        /**
+         * IDs of images whose content is stored by this entry
+         */
+        @NonNull Set<String> ids = new HashSet<>(1);
+        /**
+         * Weak references to the holders of this entry's bytes, each holder is referenced once
+         */
+        @NonNull List<HolderReference> holders = new ArrayList<>(1);
+    }
+
+    /**
+     * Weak reference to a holder of an entry's bytes.
+     */
+    @FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+    protected static final class HolderReference extends WeakReference<Object> {
+
+        @NonNull Entry entry;
+
+        protected HolderReference(@NonNull final Object holder, @NonNull final ReferenceQueue<Object> queue,
+                                  @NonNull final Entry entry) {
+            super(holder, queue);
+            this.entry = entry;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ru.progrm_jarvis.catobot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.AccessLevel;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Download of the bytes of a cat image.
+ */
+@Name(ImageDownloadEvent.NAME)
+@Label("Image Download")
+@Category({JfrEvents.CATEGORY, "Images"})
+@Description("Download of the bytes of a cat image")
+@StackTrace(false)
+@Enabled(false)
+@Setter
+@FieldDefaults(level = AccessLevel.PROTECTED)
+public class ImageDownloadEvent extends Event {
+
+    public static final String NAME = JfrEvents.PREFIX + "ImageDownload";
+
+    @Label("Source") @Description("Host from which the cat image was downloaded")
+    String source;
+
+    @Label("URL") @Description("URL of the cat image")
+    String url;
+
+    @Label("Size") @Description("Size of the downloaded cat image or -1 if it could not be downloaded")
+    @DataAmount long size;
+}
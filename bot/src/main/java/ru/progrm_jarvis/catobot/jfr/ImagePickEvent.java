@@ -0,0 +1,37 @@
+package ru.progrm_jarvis.catobot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.AccessLevel;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Pick of a cat image from the repository.
+ */
+@Name(ImagePickEvent.NAME)
+@Label("Image Pick")
+@Category({JfrEvents.CATEGORY, "Images"})
+@Description("Pick of a cat image from the repository")
+@StackTrace(false)
+@Enabled(false)
+@Setter
+@FieldDefaults(level = AccessLevel.PROTECTED)
+public class ImagePickEvent extends Event {
+
+    public static final String NAME = JfrEvents.PREFIX + "ImagePick";
+
+    @Label("Repository") @Description("Type of the repository")
+    String repository;
+
+    @Label("Hit") @Description("Whether the cat image was pre-loaded")
+    boolean hit;
+
+    @Label("Filtered") @Description("Whether only cat images matching a filter were accepted")
+    boolean filtered;
+}
@@ -0,0 +1,114 @@
+package ru.progrm_jarvis.catobot.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import lombok.experimental.UtilityClass;
+import lombok.val;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Utilities of the bot's JFR events.
+ * <p>
+ * All events are disabled by default so leaving them in hot paths costs only a check of the event's state.
+ * They are enabled by the bundled {@value #SETTINGS} profile, either on startup with
+ * {@code -XX:StartFlightRecording=settings=catobot.jfc} (the profile should be extracted from the jar)
+ * or at runtime by {@link #startRecording()}.
+ * <p>
+ * JFR is missing on Java 8 runtimes older than 8u262 so the events should only be created
+ * if {@link #isAvailable() it is available}, their classes are never loaded otherwise:
+ * <pre>{@code
+ * val event = JfrEvents.isAvailable() ? new SomeEvent() : null;
+ * if (event != null) event.begin();
+ * }</pre>
+ */
+@UtilityClass
+public class JfrEvents {
+
+    /**
+     * Common category of the bot's events
+     */
+    public final String CATEGORY = "Cat'o'Bot";
+
+    /**
+     * Common prefix of the names of the bot's events
+     */
+    public final String PREFIX = "ru.progrm_jarvis.catobot.";
+
+    /**
+     * Class-path resource of the settings profile enabling the bot's events
+     */
+    public final String SETTINGS = "catobot.jfc";
+
+    /**
+     * Whether JFR is available in the current runtime
+     */
+    private final boolean AVAILABLE = isJfrPresent();
+
+    /**
+     * Checks whether JFR is present in the current runtime.
+     *
+     * @return {@code true} if JFR is present and {@code false} otherwise
+     */
+    private boolean isJfrPresent() {
+        try {
+            Class.forName("jdk.jfr.Event", false, JfrEvents.class.getClassLoader());
+
+            return true;
+        } catch (final ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether JFR is available so that the bot's events may be created and recordings started.
+     *
+     * @return {@code true} if JFR is available and {@code false} otherwise
+     */
+    public boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * Loads the bundled settings profile.
+     *
+     * @return bundled settings profile
+     * @throws IOException if the profile cannot be read
+     * @throws ParseException if the profile is malformed
+     */
+    public Configuration loadSettings() throws IOException, ParseException {
+        val resource = JfrEvents.class.getClassLoader().getResourceAsStream(SETTINGS);
+        if (resource == null) throw new IOException("Missing resource " + SETTINGS);
+
+        try (val reader = new InputStreamReader(resource, StandardCharsets.UTF_8)) {
+            return Configuration.create(reader);
+        }
+    }
+
+    /**
+     * Starts a recording with the JDK's default settings and the bot's events enabled.
+     *
+     * @return started recording which should be stopped and dumped by the caller
+     * @throws IOException if the profile cannot be read
+     * @throws ParseException if the profile is malformed
+     * @throws IllegalStateException if JFR is not {@link #isAvailable() available}
+     */
+    public Recording startRecording() throws IOException, ParseException {
+        if (!AVAILABLE) throw new IllegalStateException("JFR is not available in this runtime");
+
+        final Map<String, String> settings = new HashMap<>(Configuration.getConfiguration("default").getSettings());
+        settings.putAll(loadSettings().getSettings());
+
+        val recording = new Recording(settings);
+        recording.setName("catobot");
+        recording.setToDisk(true);
+        recording.start();
+
+        return recording;
+    }
+}
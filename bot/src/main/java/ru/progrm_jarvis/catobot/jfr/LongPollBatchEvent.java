@@ -0,0 +1,34 @@
+package ru.progrm_jarvis.catobot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.AccessLevel;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Batch of updates received by a long-poll request.
+ */
+@Name(LongPollBatchEvent.NAME)
+@Label("Long-Poll Batch")
+@Category({JfrEvents.CATEGORY, "VK"})
+@Description("Batch of updates received by a long-poll request")
+@StackTrace(false)
+@Enabled(false)
+@Setter
+@FieldDefaults(level = AccessLevel.PROTECTED)
+public class LongPollBatchEvent extends Event {
+
+    public static final String NAME = JfrEvents.PREFIX + "LongPollBatch";
+
+    @Label("Updates") @Description("Amount of received updates")
+    int updates;
+
+    @Label("Timestamp") @Description("Long-poll timestamp of the next batch")
+    int ts;
+}
@@ -0,0 +1,34 @@
+package ru.progrm_jarvis.catobot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.AccessLevel;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Recognition of a message by the recognizer.
+ */
+@Name(RecognizerCallEvent.NAME)
+@Label("Recognizer Call")
+@Category({JfrEvents.CATEGORY, "AI"})
+@Description("Recognition of a message by the recognizer")
+@StackTrace(false)
+@Enabled(false)
+@Setter
+@FieldDefaults(level = AccessLevel.PROTECTED)
+public class RecognizerCallEvent extends Event {
+
+    public static final String NAME = JfrEvents.PREFIX + "RecognizerCall";
+
+    @Label("Kind") @Description("Kind of the recognized message")
+    String kind;
+
+    @Label("Recognized") @Description("Whether the message was recognized")
+    boolean recognized;
+}
@@ -0,0 +1,34 @@
+package ru.progrm_jarvis.catobot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.AccessLevel;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Round-trip to Redis.
+ */
+@Name(RedisOperationEvent.NAME)
+@Label("Redis Operation")
+@Category({JfrEvents.CATEGORY, "Redis"})
+@Description("Round-trip to Redis")
+@StackTrace(false)
+@Enabled(false)
+@Setter
+@FieldDefaults(level = AccessLevel.PROTECTED)
+public class RedisOperationEvent extends Event {
+
+    public static final String NAME = JfrEvents.PREFIX + "RedisOperation";
+
+    @Label("Command") @Description("Redis command")
+    String command;
+
+    @Label("Key") @Description("Key on which the command operates")
+    String key;
+}
@@ -0,0 +1,34 @@
+package ru.progrm_jarvis.catobot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.AccessLevel;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Handling of an incoming update by the callback-API handler.
+ */
+@Name(UpdateDispatchEvent.NAME)
+@Label("Update Dispatch")
+@Category({JfrEvents.CATEGORY, "VK"})
+@Description("Handling of an incoming update by the callback-API handler")
+@StackTrace(false)
+@Enabled(false)
+@Setter
+@FieldDefaults(level = AccessLevel.PROTECTED)
+public class UpdateDispatchEvent extends Event {
+
+    public static final String NAME = JfrEvents.PREFIX + "UpdateDispatch";
+
+    @Label("Type") @Description("Type of the update")
+    String type;
+
+    @Label("Trace ID") @Description("ID of the update's trace or 0 if it is not traced")
+    long traceId;
+}
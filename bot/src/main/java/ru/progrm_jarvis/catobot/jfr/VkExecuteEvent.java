@@ -0,0 +1,37 @@
+package ru.progrm_jarvis.catobot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.AccessLevel;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Execution of a VKScript sending a batch of messages.
+ */
+@Name(VkExecuteEvent.NAME)
+@Label("VKScript Execute")
+@Category({JfrEvents.CATEGORY, "VK"})
+@Description("Execution of a VKScript sending a batch of messages")
+@StackTrace(false)
+@Enabled(false)
+@Setter
+@FieldDefaults(level = AccessLevel.PROTECTED)
+public class VkExecuteEvent extends Event {
+
+    public static final String NAME = JfrEvents.PREFIX + "VkExecute";
+
+    @Label("Messages") @Description("Amount of messages in the batch")
+    int messages;
+
+    @Label("API Calls") @Description("Amount of API calls made by the script")
+    int apiCalls;
+
+    @Label("Success") @Description("Whether the script was executed")
+    boolean success;
+}
@@ -0,0 +1,35 @@
+package ru.progrm_jarvis.catobot.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.AccessLevel;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Upload of a cat image to VK.
+ */
+@Name(VkUploadEvent.NAME)
+@Label("VK Upload")
+@Category({JfrEvents.CATEGORY, "VK"})
+@Description("Upload of a cat image to VK")
+@StackTrace(false)
+@Enabled(false)
+@Setter
+@FieldDefaults(level = AccessLevel.PROTECTED)
+public class VkUploadEvent extends Event {
+
+    public static final String NAME = JfrEvents.PREFIX + "VkUpload";
+
+    @Label("Size") @Description("Size of the uploaded cat image")
+    @DataAmount long size;
+
+    @Label("Success") @Description("Whether the cat image was uploaded")
+    boolean success;
+}
@@ -0,0 +1,139 @@
+package ru.progrm_jarvis.catobot.metrics;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import lombok.var;
+import ru.progrm_jarvis.catobot.util.LatencyHistogram;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Exporter of metrics as attributes of a dynamic MBean.
+ * <p>
+ * Counters and gauges are exported by their names followed by the values of their labels,
+ * summaries are exported as their count and percentiles in milliseconds.
+ */
+@Slf4j
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class JmxExporter implements DynamicMBean, AutoCloseable {
+
+    /**
+     * Name of the MBean of the bot's metrics
+     */
+    public static final String OBJECT_NAME = "ru.progrm_jarvis.catobot:type=Metrics";
+
+    @NonNull MetricRegistry registry;
+
+    @NonNull ObjectName objectName;
+
+    public JmxExporter(@NonNull final MetricRegistry registry) throws JMException {
+        this.registry = registry;
+
+        objectName = new ObjectName(OBJECT_NAME);
+        val server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(objectName)) server.unregisterMBean(objectName); // left by the previous session
+        server.registerMBean(this, objectName);
+    }
+
+    /**
+     * Gets the suppliers of attributes by their names.
+     *
+     * @return suppliers of attributes by their names
+     */
+    protected Map<String, DoubleSupplier> getAttributes() {
+        val attributes = new LinkedHashMap<String, DoubleSupplier>();
+        for (val family : registry.getFamilies()) for (val metric : family.getMetrics()) {
+            val name = new StringBuilder(family.getName());
+            for (val label : metric.getLabels().values()) name.append('.').append(label);
+
+            if (family.getType() == MetricRegistry.Type.SUMMARY) {
+                final LatencyHistogram histogram = metric.getHistogram();
+                assert histogram != null;
+
+                attributes.put(name + ".count", histogram::getCount);
+                attributes.put(name + ".p50", () -> toMillis(histogram.getPercentile(0.5)));
+                attributes.put(name + ".p99", () -> toMillis(histogram.getPercentile(0.99)));
+                attributes.put(name + ".p999", () -> toMillis(histogram.getPercentile(0.999)));
+            } else attributes.put(name.toString(), metric.getValue());
+        }
+
+        return attributes;
+    }
+
+    /**
+     * Converts nanoseconds to fractional milliseconds.
+     *
+     * @param nanos value in nanoseconds
+     * @return value in milliseconds
+     */
+    protected static double toMillis(final long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public Object getAttribute(final String attribute) throws AttributeNotFoundException {
+        val value = getAttributes().get(attribute);
+        if (value == null) throw new AttributeNotFoundException(attribute);
+
+        return value.getAsDouble();
+    }
+
+    @Override
+    public void setAttribute(final Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only");
+    }
+
+    @Override
+    public AttributeList getAttributes(final String[] attributes) {
+        val values = getAttributes();
+        val list = new AttributeList(attributes.length);
+        for (val attribute : attributes) {
+            val value = values.get(attribute);
+            if (value != null) list.add(new Attribute(attribute, value.getAsDouble()));
+        }
+
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(final AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(final String actionName, final Object[] params, final String[] signature)
+            throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName), "Metrics have no operations");
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        val names = getAttributes().keySet();
+        val attributes = new MBeanAttributeInfo[names.size()];
+        var i = 0;
+        for (val name : names) attributes[i++] = new MBeanAttributeInfo(
+                name, double.class.getName(), name, true, false, false
+        );
+
+        return new MBeanInfo(
+                getClass().getName(), "Metrics of Cat'o'Bot", attributes, null, null, null
+        );
+    }
+
+    @Override
+    public void close() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (final JMException e) {
+            log.debug("Unable to unregister MBean of metrics", e);
+        }
+    }
+}
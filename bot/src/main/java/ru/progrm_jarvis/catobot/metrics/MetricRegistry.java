@@ -0,0 +1,196 @@
+package ru.progrm_jarvis.catobot.metrics;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.jetbrains.annotations.Nullable;
+import ru.progrm_jarvis.catobot.util.LatencyHistogram;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Registry of metrics of the bot's subsystems.
+ * <p>
+ * The registry does not own the measured values: components keep their counters
+ * (usually {@link java.util.concurrent.atomic.LongAdder}s) and {@link LatencyHistogram}s
+ * so that recording stays allocation-free, the registry only references them for export.
+ */
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class MetricRegistry {
+
+    /**
+     * Pattern of valid names of metrics and labels
+     */
+    protected static final Pattern NAME_PATTERN = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+
+    /**
+     * Families of metrics by their names
+     */
+    @NonNull Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    /**
+     * Registers a counter whose value only increases.
+     *
+     * @param name name of the metric
+     * @param help description of the metric
+     * @param value supplier of the current value of the counter
+     * @param labels names and values of the labels of the metric alternately
+     */
+    public void counter(@NonNull final String name, @NonNull final String help,
+                        @NonNull final LongSupplier value, @NonNull final String... labels) {
+        register(name, help, Type.COUNTER, new Metric(toLabels(labels), value::getAsLong, null));
+    }
+
+    /**
+     * Registers a gauge whose value may both increase and decrease.
+     *
+     * @param name name of the metric
+     * @param help description of the metric
+     * @param value supplier of the current value of the gauge
+     * @param labels names and values of the labels of the metric alternately
+     */
+    public void gauge(@NonNull final String name, @NonNull final String help,
+                      @NonNull final DoubleSupplier value, @NonNull final String... labels) {
+        register(name, help, Type.GAUGE, new Metric(toLabels(labels), value, null));
+    }
+
+    /**
+     * Registers a summary of latencies.
+     *
+     * @param name name of the metric, its values are exported in seconds
+     * @param help description of the metric
+     * @param histogram histogram of latencies
+     * @param labels names and values of the labels of the metric alternately
+     */
+    public void summary(@NonNull final String name, @NonNull final String help,
+                        @NonNull final LatencyHistogram histogram, @NonNull final String... labels) {
+        register(name, help, Type.SUMMARY, new Metric(toLabels(labels), null, histogram));
+    }
+
+    /**
+     * Gets all registered families of metrics ordered by their names.
+     *
+     * @return registered families of metrics
+     */
+    public Collection<Family> getFamilies() {
+        return Collections.unmodifiableCollection(families.values());
+    }
+
+    /**
+     * Registers the metric in the family by the given name.
+     *
+     * @param name name of the family
+     * @param help description of the family
+     * @param type type of the family
+     * @param metric metric to register
+     *
+     * @throws IllegalArgumentException if the name is invalid or the family has another type
+     */
+    protected void register(@NonNull final String name, @NonNull final String help,
+                            @NonNull final Type type, @NonNull final Metric metric) {
+        if (!NAME_PATTERN.matcher(name).matches()) throw new IllegalArgumentException(
+                "Invalid metric name: " + name
+        );
+
+        val family = families.computeIfAbsent(name, familyName -> new Family(familyName, help, type));
+        if (family.getType() != type) throw new IllegalArgumentException(
+                "Metric " + name + " is already registered as " + family.getType()
+        );
+        family.metrics.add(metric);
+    }
+
+    /**
+     * Converts the alternate names and values of labels to a map.
+     *
+     * @param labels names and values of the labels alternately
+     * @return map of the labels' values by their names
+     *
+     * @throws IllegalArgumentException if there is a name without a value or a name is invalid
+     */
+    protected static Map<String, String> toLabels(@NonNull final String... labels) {
+        if (labels.length == 0) return Collections.emptyMap();
+        if ((labels.length & 1) != 0) throw new IllegalArgumentException("Each label should have a value");
+
+        val map = new LinkedHashMap<String, String>();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (!NAME_PATTERN.matcher(labels[i]).matches()) throw new IllegalArgumentException(
+                    "Invalid label name: " + labels[i]
+            );
+            map.put(labels[i], labels[i + 1]);
+        }
+
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Type of metrics.
+     */
+    public enum Type {
+
+        /**
+         * Value which only increases
+         */
+        COUNTER,
+
+        /**
+         * Value which may both increase and decrease
+         */
+        GAUGE,
+
+        /**
+         * Distribution of latencies
+         */
+        SUMMARY
+    }
+
+    /**
+     * Metrics of the same name differing by their labels.
+     */
+    @Value
+    public static class Family {
+
+        @NonNull String name;
+        @NonNull String help;
+        @NonNull Type type;
+
+        /**
+         * Metrics of this family
+         */
+        @NonNull @Getter(AccessLevel.NONE) List<Metric> metrics = new CopyOnWriteArrayList<>();
+
+        /**
+         * Gets the metrics of this family.
+         *
+         * @return metrics of this family
+         */
+        public List<Metric> getMetrics() {
+            return Collections.unmodifiableList(metrics);
+        }
+    }
+
+    /**
+     * Single metric identified by its labels.
+     */
+    @Value
+    public static class Metric {
+
+        /**
+         * Values of labels by their names
+         */
+        @NonNull Map<String, String> labels;
+
+        /**
+         * Supplier of the value of a counter or gauge
+         */
+        @Nullable DoubleSupplier value;
+
+        /**
+         * Histogram of a summary
+         */
+        @Nullable LatencyHistogram histogram;
+    }
+}
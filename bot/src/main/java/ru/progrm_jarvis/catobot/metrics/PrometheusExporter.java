@@ -0,0 +1,270 @@
+package ru.progrm_jarvis.catobot.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Embedded HTTP-endpoint exporting metrics in Prometheus text format.
+ */
+@Slf4j
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class PrometheusExporter implements AutoCloseable {
+
+    /**
+     * Content type of Prometheus text format
+     */
+    protected static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * Quantiles exported for summaries
+     */
+    protected static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    /**
+     * Amount of nanoseconds in a second
+     */
+    protected static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    @NonNull MetricRegistry registry;
+
+    @NonNull HttpServer server;
+
+    /**
+     * Address on which the endpoint listens
+     */
+    @NonNull InetSocketAddress address;
+
+    /**
+     * Path of the endpoint
+     */
+    @NonFinal @NonNull String path;
+
+    /**
+     * Executor handling scrapes
+     */
+    @NonNull ExecutorService executor;
+
+    public PrometheusExporter(@NonNull final Configuration configuration,
+                              @NonNull final MetricRegistry registry) throws IOException {
+        this.registry = registry;
+
+        address = new InetSocketAddress(configuration.getHost(), configuration.getPort());
+        path = configuration.getPath();
+        server = HttpServer.create(address, 0);
+        server.createContext(path, this::handle);
+        executor = Executors.newSingleThreadExecutor(task -> {
+            val thread = new Thread(task, "prometheus-exporter");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+        log.info("Exporting metrics at http://{}:{}{}",
+                configuration.getHost(), configuration.getPort(), configuration.getPath());
+    }
+
+    /**
+     * Checks whether this exporter listens on the address of the given configuration.
+     *
+     * @param configuration configuration whose address should be checked
+     * @return {@code true} if this exporter listens on the address of the configuration and {@code false} otherwise
+     */
+    public boolean isListeningOn(@NonNull final Configuration configuration) {
+        return address.equals(new InetSocketAddress(configuration.getHost(), configuration.getPort()));
+    }
+
+    /**
+     * Moves the endpoint to the given path.
+     *
+     * @param path new path of the endpoint
+     */
+    public synchronized void setPath(@NonNull final String path) {
+        if (path.equals(this.path)) return;
+
+        server.createContext(path, this::handle);
+        server.removeContext(this.path);
+        log.info("Moved metrics endpoint from {} to {}", this.path, path);
+        this.path = path;
+    }
+
+    /**
+     * Handles a scrape of metrics.
+     *
+     * @param exchange HTTP-exchange of the scrape
+     * @throws IOException if an exception occurs while responding
+     */
+    protected void handle(@NonNull final HttpExchange exchange) throws IOException {
+        try {
+            val output = new ByteArrayOutputStream();
+            try (val writer = new OutputStreamWriter(output, StandardCharsets.UTF_8)) {
+                write(registry, writer);
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, output.size());
+            try (val body = exchange.getResponseBody()) {
+                output.writeTo(body);
+            }
+        } catch (final RuntimeException e) {
+            log.warn("Unable to export metrics", e);
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Writes all metrics of the registry in Prometheus text format.
+     *
+     * @param registry registry whose metrics should be written
+     * @param writer writer to which the metrics should be written
+     * @throws IOException if an exception occurs while writing
+     */
+    public static void write(@NonNull final MetricRegistry registry, @NonNull final Writer writer) throws IOException {
+        for (val family : registry.getFamilies()) {
+            val name = family.getName();
+            writer.append("# HELP ").append(name).append(' ').append(escapeHelp(family.getHelp())).append('\n');
+            writer.append("# TYPE ").append(name).append(' ')
+                    .append(family.getType().name().toLowerCase()).append('\n');
+
+            for (val metric : family.getMetrics()) {
+                val labels = metric.getLabels();
+                if (family.getType() == MetricRegistry.Type.SUMMARY) {
+                    val histogram = metric.getHistogram();
+                    assert histogram != null;
+
+                    for (val quantile : QUANTILES) {
+                        writer.append(name);
+                        writeLabels(writer, labels, Double.toString(quantile));
+                        writer.append(' ')
+                                .append(Double.toString(histogram.getPercentile(quantile) / NANOS_PER_SECOND))
+                                .append('\n');
+                    }
+                    writer.append(name).append("_sum");
+                    writeLabels(writer, labels, null);
+                    writer.append(' ').append(Double.toString(histogram.getSum() / NANOS_PER_SECOND)).append('\n');
+                    writer.append(name).append("_count");
+                    writeLabels(writer, labels, null);
+                    writer.append(' ').append(Long.toString(histogram.getCount())).append('\n');
+                } else {
+                    val value = metric.getValue();
+                    assert value != null;
+
+                    writer.append(name);
+                    writeLabels(writer, labels, null);
+                    writer.append(' ').append(formatValue(value.getAsDouble())).append('\n');
+                }
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes the labels of a metric.
+     *
+     * @param writer writer to which the labels should be written
+     * @param labels values of the labels by their names
+     * @param quantile quantile label of a summary or {@code null} if there is none
+     * @throws IOException if an exception occurs while writing
+     */
+    protected static void writeLabels(@NonNull final Writer writer, @NonNull final Map<String, String> labels,
+                                      @Nullable final String quantile) throws IOException {
+        if (labels.isEmpty() && quantile == null) return;
+
+        writer.append('{');
+        var first = true;
+        for (val label : labels.entrySet()) {
+            if (first) first = false;
+            else writer.append(',');
+            writer.append(label.getKey()).append("=\"").append(escapeLabelValue(label.getValue())).append('"');
+        }
+        if (quantile != null) {
+            if (!first) writer.append(',');
+            writer.append("quantile=\"").append(quantile).append('"');
+        }
+        writer.append('}');
+    }
+
+    /**
+     * Formats the value of a metric.
+     *
+     * @param value value of the metric
+     * @return formatted value
+     */
+    protected static String formatValue(final double value) {
+        if (Double.isNaN(value)) return "NaN";
+        if (Double.isInfinite(value)) return value > 0 ? "+Inf" : "-Inf";
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) return Long.toString((long) value);
+
+        return Double.toString(value);
+    }
+
+    /**
+     * Escapes the description of a metric.
+     *
+     * @param help description of a metric
+     * @return escaped description
+     */
+    protected static String escapeHelp(@NonNull final String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    /**
+     * Escapes the value of a label.
+     *
+     * @param value value of a label
+     * @return escaped value
+     */
+    protected static String escapeLabelValue(@NonNull final String value) {
+        return escapeHelp(value).replace("\"", "\\\"");
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Configuration of {@link PrometheusExporter}.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Configuration {
+
+        /**
+         * Whether or not metrics should be exported
+         */
+        @Builder.Default boolean enabled = false;
+
+        /**
+         * Host on which the endpoint listens
+         */
+        @Builder.Default @NonNull String host = "localhost";
+
+        /**
+         * Port on which the endpoint listens
+         */
+        @Builder.Default int port = 9404;
+
+        /**
+         * Path of the endpoint
+         */
+        @Builder.Default @NonNull String path = "/metrics";
+    }
+}
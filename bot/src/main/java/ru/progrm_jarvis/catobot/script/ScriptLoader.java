@@ -0,0 +1,443 @@
+package ru.progrm_jarvis.catobot.script;
+
+import groovy.lang.Binding;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovySystem;
+import groovy.lang.Script;
+import groovy.transform.CompileStatic;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FilenameUtils;
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.control.customizers.ASTTransformationCustomizer;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.codehaus.groovy.tools.GroovyClass;
+import org.jetbrains.annotations.Nullable;
+
+import javax.script.*;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loader of scripts (such as handlers of events) which compiles them once per their content.
+ * <p>
+ * The latest compiled script of each file is kept in memory along with the hash of its source
+ * so that reloads of the bot do not compile unchanged scripts again. Groovy scripts are also compiled to classes
+ * which are cached on disk so that restarts of the bot do not compile unchanged scripts either.
+ */
+@Slf4j
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class ScriptLoader {
+
+    /**
+     * Extension of Groovy scripts
+     */
+    public static final String GROOVY_EXTENSION = "groovy";
+
+    /**
+     * Prefix of names of classes of compiled Groovy scripts
+     */
+    protected static final String SCRIPT_CLASS_PREFIX = "CatOBotScript_";
+
+    /**
+     * The latest compiled scripts by the canonical paths of their files,
+     * shared by all loaders so that they outlive reloads of the bot
+     */
+    protected static final ConcurrentMap<String, LoadedScript> COMPILED_SCRIPTS = new ConcurrentHashMap<>();
+
+    /**
+     * Identifier of the bot's build against whose classes the scripts get compiled
+     */
+    protected static final String BOT_BUILD = identifyBotBuild();
+
+    @NonNull Configuration configuration;
+
+    @NonNull ScriptEngineManager scriptEngineManager;
+
+    public ScriptLoader(@NonNull final Configuration configuration) {
+        this.configuration = configuration;
+        scriptEngineManager = new ScriptEngineManager();
+    }
+
+    /**
+     * Loads the script evaluating it.
+     *
+     * @param scriptFile file of the script
+     * @param <T> type of the object provided by the script
+     * @return object provided by the script
+     *
+     * @throws IOException if an exception occurs while reading the script or its cached classes
+     * @throws ScriptException if the script cannot be compiled or evaluated
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T load(@NonNull final File scriptFile) throws IOException, ScriptException {
+        val extension = FilenameUtils.getExtension(scriptFile.getName());
+        val engine = scriptEngineManager.getEngineByExtension(extension);
+        if (engine == null) throw new ScriptException("Unknown script extension: `" + scriptFile.getName() + '`');
+
+        val source = Files.readAllBytes(scriptFile.toPath());
+        val hash = hash(extension, source);
+        val path = scriptFile.getCanonicalPath();
+
+        val loadedScript = COMPILED_SCRIPTS.get(path);
+        final CompiledScript script;
+        if (loadedScript != null && loadedScript.getHash().equals(hash)) {
+            log.debug("Using compiled script {}", scriptFile);
+            script = loadedScript.getScript();
+        } else {
+            val startNanos = System.nanoTime();
+            script = GROOVY_EXTENSION.equals(extension)
+                    ? compileGroovy(engine, hash, new String(source, StandardCharsets.UTF_8), scriptFile.getName())
+                    : compile(engine, new String(source, StandardCharsets.UTF_8));
+            log.info(
+                    "Loaded script {} in {} ms", scriptFile,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)
+            );
+
+            // the stale script of the file (if any) gets dropped
+            COMPILED_SCRIPTS.put(path, new LoadedScript(hash, script));
+        }
+
+        return (T) script.eval(engine.createBindings());
+    }
+
+    /**
+     * Compiles the script by the engine if it supports compilation.
+     *
+     * @param engine engine of the script
+     * @param source source of the script
+     * @return compiled script or a script evaluating the source on each evaluation
+     * if the engine does not support compilation
+     *
+     * @throws ScriptException if the script cannot be compiled
+     */
+    protected static CompiledScript compile(@NonNull final ScriptEngine engine,
+                                            @NonNull final String source) throws ScriptException {
+        if (engine instanceof Compilable) return ((Compilable) engine).compile(source);
+
+        return new CompiledScript() {
+            @Override
+            public Object eval(@NonNull final ScriptContext context) throws ScriptException {
+                return engine.eval(source, context);
+            }
+
+            @Override
+            public ScriptEngine getEngine() {
+                return engine;
+            }
+        };
+    }
+
+    /**
+     * Compiles the Groovy script to classes or loads its classes from the disk if they were compiled before.
+     *
+     * @param engine engine of Groovy scripts
+     * @param hash hash of the script
+     * @param source source of the script
+     * @param fileName name of the file of the script used in messages
+     * @return compiled script
+     *
+     * @throws IOException if an exception occurs while reading or writing the cached classes
+     * @throws ScriptException if the script cannot be compiled
+     */
+    protected CompiledScript compileGroovy(@NonNull final ScriptEngine engine, @NonNull final String hash,
+                                           @NonNull final String source, @NonNull final String fileName)
+            throws IOException, ScriptException {
+        val className = SCRIPT_CLASS_PREFIX + hash;
+        val cacheDirectory = configuration.getCacheDirectory();
+        val classesDirectory = cacheDirectory == null ? null : cacheDirectory.toPath().resolve(hash);
+
+        Map<String, byte[]> classes = null;
+        if (classesDirectory != null && Files.isDirectory(classesDirectory)) {
+            classes = readClasses(classesDirectory);
+            if (classes.containsKey(className)) log.debug("Loaded classes of script {} from cache", fileName);
+            else classes = null; // the cache is broken
+        }
+        if (classes == null) {
+            classes = compileGroovyClasses(className, source, fileName);
+            if (classesDirectory != null) writeClasses(classesDirectory, classes);
+        }
+
+        final Class<?> scriptClass;
+        try {
+            scriptClass = new CompiledClassLoader(ScriptLoader.class.getClassLoader(), classes).loadClass(className);
+        } catch (final ClassNotFoundException e) {
+            throw new ScriptException(e);
+        }
+
+        return new GroovyClassScript(engine, scriptClass.asSubclass(Script.class));
+    }
+
+    /**
+     * Compiles the Groovy script to classes.
+     *
+     * @param className name of the class of the script
+     * @param source source of the script
+     * @param fileName name of the file of the script used in messages
+     * @return bytecode of the compiled classes by their names
+     *
+     * @throws ScriptException if the script cannot be compiled
+     */
+    protected Map<String, byte[]> compileGroovyClasses(@NonNull final String className, @NonNull final String source,
+                                                       @NonNull final String fileName) throws ScriptException {
+        val compilerConfiguration = new CompilerConfiguration();
+        if (configuration.isCompileStatic()) compilerConfiguration.addCompilationCustomizers(
+                new ASTTransformationCustomizer(CompileStatic.class)
+        );
+
+        val compilationUnit = new CompilationUnit(
+                compilerConfiguration, null, new GroovyClassLoader(ScriptLoader.class.getClassLoader())
+        );
+        compilationUnit.addSource(className + ".groovy", source);
+        try {
+            compilationUnit.compile(Phases.CLASS_GENERATION);
+        } catch (final CompilationFailedException e) {
+            throw new ScriptException("Unable to compile " + fileName + ": " + e.getMessage());
+        }
+
+        val classes = new HashMap<String, byte[]>();
+        @SuppressWarnings("unchecked") final List<GroovyClass> groovyClasses = compilationUnit.getClasses();
+        for (val groovyClass : groovyClasses) classes.put(groovyClass.getName(), groovyClass.getBytes());
+
+        return classes;
+    }
+
+    /**
+     * Reads the cached classes of a script.
+     *
+     * @param directory directory of the classes
+     * @return bytecode of the classes by their names
+     *
+     * @throws IOException if an exception occurs while reading the classes
+     */
+    protected static Map<String, byte[]> readClasses(@NonNull final Path directory) throws IOException {
+        val classes = new HashMap<String, byte[]>();
+        try (val files = Files.newDirectoryStream(directory, "*.class")) {
+            for (val file : files) {
+                val fileName = file.getFileName().toString();
+                classes.put(fileName.substring(0, fileName.length() - ".class".length()), Files.readAllBytes(file));
+            }
+        }
+
+        return classes;
+    }
+
+    /**
+     * Writes the classes of a script to the cache.
+     * The classes are written to a temporary directory which is then moved so that the cache is never incomplete.
+     *
+     * @param directory directory of the classes
+     * @param classes bytecode of the classes by their names
+     *
+     * @throws IOException if an exception occurs while writing the classes
+     */
+    protected static void writeClasses(@NonNull final Path directory,
+                                       @NonNull final Map<String, byte[]> classes) throws IOException {
+        val parent = directory.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+
+        val temporaryDirectory = Files.createTempDirectory(parent, directory.getFileName() + ".");
+        try {
+            for (val entry : classes.entrySet()) Files.write(
+                    temporaryDirectory.resolve(entry.getKey() + ".class"), entry.getValue()
+            );
+            Files.move(temporaryDirectory, directory, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException e) {
+            try (val files = Files.newDirectoryStream(temporaryDirectory)) {
+                for (val file : files) Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(temporaryDirectory);
+
+            // another loader may have cached the same script concurrently
+            if (!Files.isDirectory(directory)) throw e;
+        }
+    }
+
+    /**
+     * Computes the hash of the script identifying its compiled form.
+     *
+     * @param extension extension of the script
+     * @param source source of the script
+     * @return hexadecimal hash of the script
+     */
+    protected String hash(@NonNull final String extension, @NonNull final byte[] source) {
+        val digest = createDigest();
+
+        // the compiled form also depends on the compiler and its settings
+        // and statically compiled scripts are linked against the classes of the bot's build
+        digest.update((extension + '\0' + GroovySystem.getVersion() + '\0' + configuration.isCompileStatic() + '\0'
+                + getBotBuild() + '\0').getBytes(StandardCharsets.UTF_8));
+        digest.update(source);
+
+        return toHexString(digest.digest());
+    }
+
+    /**
+     * Gets the identifier of the bot's build against whose classes the scripts get compiled.
+     *
+     * @return identifier of the bot's build
+     */
+    protected String getBotBuild() {
+        return BOT_BUILD;
+    }
+
+    /**
+     * Identifies the bot's build by the hash of its jar-file or by its implementation version
+     * if it cannot be hashed, such as when the bot is not run from a jar-file.
+     *
+     * @return identifier of the bot's build, empty if it cannot be identified
+     */
+    protected static String identifyBotBuild() {
+        val codeSource = ScriptLoader.class.getProtectionDomain().getCodeSource();
+        if (codeSource != null) try {
+            val location = Paths.get(codeSource.getLocation().toURI());
+            if (Files.isRegularFile(location)) {
+                val digest = createDigest();
+                try (val input = new DigestInputStream(Files.newInputStream(location), digest)) {
+                    val buffer = new byte[8192];
+                    while (input.read(buffer) != -1) {} // only the digest is needed
+                }
+
+                return toHexString(digest.digest());
+            }
+        } catch (final URISyntaxException | IOException | RuntimeException e) {
+            log.warn("Unable to hash the bot's jar-file, its implementation version is used instead", e);
+        }
+
+        val version = ScriptLoader.class.getPackage().getImplementationVersion();
+        return version == null ? "" : version;
+    }
+
+    /**
+     * Creates the digest used for hashing scripts.
+     *
+     * @return new SHA-256 digest
+     */
+    protected static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    /**
+     * Converts the bytes to a hexadecimal string.
+     *
+     * @param bytes bytes to convert
+     * @return hexadecimal string of the bytes
+     */
+    protected static String toHexString(@NonNull final byte[] bytes) {
+        val hex = new StringBuilder(bytes.length << 1);
+        for (val value : bytes) hex.append(Character.forDigit((value >> 4) & 0xF, 16))
+                .append(Character.forDigit(value & 0xF, 16));
+
+        return hex.toString();
+    }
+
+    /**
+     * Compiled script of a file.
+     */
+    @Value
+    protected static class LoadedScript {
+
+        /**
+         * Hash of the source of the script
+         */
+        @NonNull String hash;
+
+        @NonNull CompiledScript script;
+    }
+
+    /**
+     * Class loader of classes of a compiled script.
+     */
+    protected static class CompiledClassLoader extends ClassLoader {
+
+        @NonNull protected final Map<String, byte[]> classes;
+
+        public CompiledClassLoader(@NonNull final ClassLoader parent, @NonNull final Map<String, byte[]> classes) {
+            super(parent);
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(@NonNull final String name) throws ClassNotFoundException {
+            val bytes = classes.get(name);
+            if (bytes == null) throw new ClassNotFoundException(name);
+
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Compiled Groovy script evaluated by running a new instance of its class.
+     */
+    @RequiredArgsConstructor
+    @FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+    protected static class GroovyClassScript extends CompiledScript {
+
+        @NonNull ScriptEngine engine;
+
+        @NonNull Class<? extends Script> scriptClass;
+
+        @Override
+        public Object eval(@NonNull final ScriptContext context) throws ScriptException {
+            val variables = new HashMap<String, Object>();
+            for (val scope : context.getScopes()) {
+                val bindings = context.getBindings(scope);
+                if (bindings != null) for (val binding : bindings.entrySet()) variables.putIfAbsent(
+                        binding.getKey(), binding.getValue()
+                );
+            }
+
+            try {
+                return InvokerHelper.createScript(scriptClass, new Binding(variables)).run();
+            } catch (final RuntimeException e) {
+                throw new ScriptException(e);
+            }
+        }
+
+        @Override
+        public ScriptEngine getEngine() {
+            return engine;
+        }
+    }
+
+    /**
+     * Configuration of {@link ScriptLoader}.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Configuration {
+
+        /**
+         * Directory in which compiled classes of Groovy scripts are cached or {@code null} to only cache them in memory
+         */
+        @Builder.Default @Nullable File cacheDirectory = new File("cache/scripts");
+
+        /**
+         * Whether or not Groovy scripts should be compiled with {@link CompileStatic @CompileStatic}
+         * so that their hot paths avoid dynamic dispatch (this requires the scripts to be statically typed)
+         */
+        @Builder.Default boolean compileStatic = false;
+    }
+}
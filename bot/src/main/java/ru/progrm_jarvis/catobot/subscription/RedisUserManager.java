@@ -0,0 +1,195 @@
+package ru.progrm_jarvis.catobot.subscription;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.jetbrains.annotations.Nullable;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import ru.progrm_jarvis.catobot.jfr.JfrEvents;
+import ru.progrm_jarvis.catobot.jfr.RedisOperationEvent;
+import ru.progrm_jarvis.catobot.util.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class RedisUserManager implements UserManager {
+
+    @NonNull protected static final Gson GSON = new Gson();
+
+    @NonNull ExecutorService executor;
+    @NonNull Jedis jedis;
+    @NonNull String userPrefix;
+
+    /**
+     * Latencies of round-trips to Redis
+     */
+    @NonNull @Getter LatencyHistogram commandLatencies = new LatencyHistogram();
+
+    public RedisUserManager(@NonNull final ExecutorService executor, @NonNull final Configuration configuration) {
+        this(
+                executor,
+                new Jedis(configuration.getHosts().iterator().next()),
+                configuration.getPrefix()
+        );
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isPresent(final String userKey) {
+        return CompletableFuture.supplyAsync(() -> {
+            val event = JfrEvents.isAvailable() ? new RedisOperationEvent() : null;
+            if (event != null) event.begin();
+            val startNanos = System.nanoTime();
+            try {
+                return jedis.exists(userPrefix + userKey);
+            } finally {
+                recordCommand(startNanos, event, "EXISTS", userKey);
+            }
+        }, executor);
+    }
+
+    @Override
+    public void store(@NonNull final User user) {
+        val metadata = GSON.toJson(user.getMetadata());
+        val event = JfrEvents.isAvailable() ? new RedisOperationEvent() : null;
+        if (event != null) event.begin();
+        val startNanos = System.nanoTime();
+        try {
+            jedis.set(userPrefix + user.getKey(), metadata);
+        } finally {
+            recordCommand(startNanos, event, "SET", user.getKey());
+        }
+    }
+
+    @Override
+    public CompletableFuture<User> getUser(@NonNull final String userKey) {
+        return CompletableFuture.supplyAsync(() -> {
+            val stored = loadUser(userKey);
+            if (stored != null) return stored;
+
+            val user = new SimpleUser(this, userKey, new JsonObject());
+            store(user);
+
+            return user;
+        }, executor);
+    }
+
+    @Override
+    public CompletableFuture<Void> updateUser(@NonNull final String userKey, @NonNull final Consumer<User> update) {
+        return CompletableFuture.runAsync(() -> {
+            var user = loadUser(userKey);
+            if (user == null) user = new SimpleUser(this, userKey, new JsonObject());
+
+            update.accept(user);
+            store(user);
+        }, executor);
+    }
+
+    /**
+     * Loads the stored user.
+     *
+     * @param userKey key of the user
+     * @return loaded user or {@code null} if it is not stored
+     */
+    @Nullable protected User loadUser(@NonNull final String userKey) {
+        final String stored;
+        val event = JfrEvents.isAvailable() ? new RedisOperationEvent() : null;
+        if (event != null) event.begin();
+        val startNanos = System.nanoTime();
+        try {
+            stored = jedis.get(userPrefix + userKey);
+        } finally {
+            recordCommand(startNanos, event, "GET", userKey);
+        }
+
+        return stored == null ? null : new SimpleUser(this, userKey, GSON.fromJson(stored, JsonObject.class));
+    }
+
+    @Override
+    public void unstore(@NonNull final String userKey) {
+        executor.submit(() -> {
+            val event = JfrEvents.isAvailable() ? new RedisOperationEvent() : null;
+            if (event != null) event.begin();
+            val startNanos = System.nanoTime();
+            try {
+                jedis.del(userPrefix + userKey);
+            } finally {
+                recordCommand(startNanos, event, "DEL", userKey);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<UserKeysChunk> scanUserKeys(@NonNull final String cursor, final int count) {
+        return CompletableFuture.supplyAsync(() -> {
+            final ScanResult<String> result;
+            val event = JfrEvents.isAvailable() ? new RedisOperationEvent() : null;
+            if (event != null) event.begin();
+            val startNanos = System.nanoTime();
+            try {
+                result = jedis.scan(cursor, new ScanParams().match(userPrefix + '*').count(count));
+            } finally {
+                recordCommand(startNanos, event, "SCAN", "*");
+            }
+
+            val prefixLength = userPrefix.length();
+            val keys = new ArrayList<String>(result.getResult().size());
+            for (val key : result.getResult()) keys.add(key.substring(prefixLength));
+
+            return new UserKeysChunk(keys, result.getCursor(), result.isCompleteIteration());
+        }, executor);
+    }
+
+    /**
+     * Records the completion of a Redis command.
+     *
+     * @param startNanos moment at which the command was started as returned by {@link System#nanoTime()}
+     * @param event started event of the command or {@code null} if JFR is not available
+     * @param command name of the command
+     * @param userKey key of the user (or a pattern of keys) on which the command operates
+     */
+    protected void recordCommand(final long startNanos, @Nullable final RedisOperationEvent event,
+                                 @NonNull final String command, @NonNull final String userKey) {
+        commandLatencies.recordSince(startNanos);
+        if (event == null) return;
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.setCommand(command);
+            event.setKey(userPrefix + userKey);
+            event.commit();
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown(); // should shutdown safely
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Configuration {
+
+        @Builder.Default Set<HostAndPort> hosts = new HashSet<>(
+                Collections.singleton(new HostAndPort("localhost", 6379))
+        );
+
+        @Builder.Default String prefix = "User.";
+
+        @Builder.Default GenericObjectPoolConfig poolConfig = new JedisPoolConfig();
+    }
+}
@@ -0,0 +1,95 @@
+package ru.progrm_jarvis.catobot.subscription;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Bounded cache of {@link SeenCatImagesFilter}s by the keys of their users.
+ * Concurrent uses for the same user share the filter so that none of the marks gets lost
+ * and cat images get filtered without looking the user up once its filter is cached.
+ */
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class SeenCatImagesCache {
+
+    @NonNull UserManager userManager;
+
+    /**
+     * Configuration of the created filters
+     */
+    @NonNull @NonFinal volatile SeenCatImagesFilter.Configuration configuration;
+
+    /**
+     * Cached filters by the keys of their users in the order of access, guarded by itself
+     */
+    @NonNull LinkedHashMap<String, SeenCatImagesFilter> filters;
+
+    public SeenCatImagesCache(@NonNull final UserManager userManager,
+                              @NonNull final SeenCatImagesFilter.Configuration configuration) {
+        this.userManager = userManager;
+        this.configuration = configuration;
+
+        filters = new LinkedHashMap<String, SeenCatImagesFilter>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, SeenCatImagesFilter> eldest) {
+                return size() > SeenCatImagesCache.this.configuration.getCachedUsers();
+            }
+        };
+    }
+
+    /**
+     * Gets the filter of cat images seen by the given user creating it from user's metadata if it is not cached.
+     *
+     * @param user user whose seen cat images should be filtered
+     * @return filter of cat images seen by the user
+     */
+    public SeenCatImagesFilter get(@NonNull final User user) {
+        synchronized (filters) {
+            return filters.computeIfAbsent(user.getKey(), key -> new SeenCatImagesFilter(user, configuration));
+        }
+    }
+
+    /**
+     * Gets the filter of cat images seen by the user looking the user up only if its filter is not cached.
+     *
+     * @param userKey key of the user whose seen cat images should be filtered
+     * @return future of the filter of cat images seen by the user
+     */
+    public CompletableFuture<SeenCatImagesFilter> get(@NonNull final String userKey) {
+        final SeenCatImagesFilter filter;
+        synchronized (filters) {
+            filter = filters.get(userKey);
+        }
+        if (filter != null) return CompletableFuture.completedFuture(filter);
+
+        return userManager.getUser(userKey).thenApply(this::get);
+    }
+
+    /**
+     * Gets the amount of cached filters.
+     *
+     * @return amount of cached filters
+     */
+    public int size() {
+        synchronized (filters) {
+            return filters.size();
+        }
+    }
+
+    /**
+     * Sets the configuration of the filters dropping the cached ones so that the new configuration takes effect.
+     *
+     * @param configuration new configuration of the filters
+     */
+    public void setConfiguration(@NonNull final SeenCatImagesFilter.Configuration configuration) {
+        synchronized (filters) {
+            this.configuration = configuration;
+            filters.clear();
+        }
+    }
+}
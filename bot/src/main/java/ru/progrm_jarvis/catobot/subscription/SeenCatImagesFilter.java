@@ -0,0 +1,231 @@
+package ru.progrm_jarvis.catobot.subscription;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import ru.progrm_jarvis.catobot.image.CatImage;
+import ru.progrm_jarvis.catobot.util.BloomFilter;
+
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+/**
+ * Per-user filter of cat images which the user has already seen.
+ * It is backed by two generations of {@link BloomFilter}s stored in user's metadata
+ * so that its size is bounded: once the current generation is full, it becomes the previous one
+ * and the older one gets dropped.
+ *
+ * @apiNote {@link #test(CatImage)} returns {@code true} for the cat images which were not seen by the user,
+ * a single instance should be shared by all concurrent uses for the same user (see {@link SeenCatImagesCache})
+ * so that none of the marks gets lost
+ */
+@Slf4j
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class SeenCatImagesFilter implements Predicate<CatImage> {
+
+    /**
+     * Key of this filter's data in user metadata
+     */
+    public static final String METADATA_KEY = "seen-cat-images";
+
+    @NonNull User user;
+    @NonNull Configuration configuration;
+
+    @NonNull @NonFinal BloomFilter current, previous;
+    /**
+     * Amount of cat images put into the current generation
+     */
+    @NonFinal int currentCount;
+
+    /**
+     * Save which is requested but has not yet written this filter's data or {@code null} if there is none
+     */
+    @NonFinal @Nullable CompletableFuture<Void> pendingSave;
+
+    /**
+     * Creates a filter of cat images seen by the given user loading its data from user's metadata.
+     * The filter starts empty if there is no data or it is malformed.
+     *
+     * @param user user whose seen cat images should be filtered
+     * @param configuration configuration of the filter
+     */
+    public SeenCatImagesFilter(@NonNull final User user, @NonNull final Configuration configuration) {
+        this.user = user;
+        this.configuration = configuration;
+
+        val bitCount = configuration.getBitCount();
+        val hashFunctions = configuration.getHashFunctions();
+
+        val data = user.getMetadata().get(METADATA_KEY);
+        if (data != null && data.isJsonObject()) {
+            val object = data.getAsJsonObject();
+            val currentBits = decodeBits(object.get("current"));
+            val previousBits = decodeBits(object.get("previous"));
+            val count = object.get("count");
+            if (currentBits != null && previousBits != null && count != null && count.isJsonPrimitive()
+                    && count.getAsJsonPrimitive().isNumber()) {
+                current = BloomFilter.fromByteArray(currentBits, bitCount, hashFunctions);
+                previous = BloomFilter.fromByteArray(previousBits, bitCount, hashFunctions);
+                currentCount = count.getAsInt();
+
+                return;
+            }
+
+            log.debug("Ignoring malformed seen cat images of user {}: {}", user.getKey(), data);
+        }
+
+        current = new BloomFilter(bitCount, hashFunctions);
+        previous = new BloomFilter(bitCount, hashFunctions);
+    }
+
+    /**
+     * Decodes the bits of a generation of the filter stored in user's metadata.
+     *
+     * @param element element storing the bits encoded in Base64
+     * @return decoded bits or {@code null} if the element is missing or malformed
+     */
+    @Nullable protected static byte[] decodeBits(@Nullable final JsonElement element) {
+        if (element == null || !element.isJsonPrimitive() || !element.getAsJsonPrimitive().isString()) return null;
+
+        try {
+            return Base64.getDecoder().decode(element.getAsString());
+        } catch (final IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized boolean test(@NonNull final CatImage image) {
+        val id = image.getId();
+
+        return id == null || !current.mightContain(id) && !previous.mightContain(id);
+    }
+
+    /**
+     * Marks the given cat image as seen by the user.
+     *
+     * @param image cat image seen by the user
+     */
+    public synchronized void markSeen(@NonNull final CatImage image) {
+        val id = image.getId();
+        if (id == null) return;
+
+        if (currentCount >= configuration.getCapacity()) {
+            val oldest = previous;
+            previous = current;
+            oldest.clear();
+            current = oldest;
+            currentCount = 0;
+        }
+
+        current.put(id);
+        currentCount++;
+    }
+
+    /**
+     * Saves this filter's data to the metadata of the user on the executor of user's manager.
+     * The data is written to the current state of the user so that its other metadata is not overwritten.
+     * Saves requested while another one is pending are coalesced with it.
+     *
+     * @return future completed once the data is saved
+     */
+    public CompletableFuture<Void> save() {
+        val save = new CompletableFuture<Void>();
+        synchronized (this) {
+            if (pendingSave != null) return pendingSave;
+            pendingSave = save;
+        }
+
+        try {
+            user.getManager().updateUser(user.getKey(), this::writeTo)
+                    .whenComplete((ignored, e) -> completeSave(save, e));
+        } catch (final RuntimeException e) {
+            completeSave(save, e);
+        }
+
+        return save;
+    }
+
+    /**
+     * Completes the save of this filter's data.
+     *
+     * @param save completed save
+     * @param error error due to which the save has failed or {@code null} if it was successful
+     */
+    protected void completeSave(@NonNull final CompletableFuture<Void> save, @Nullable final Throwable error) {
+        synchronized (this) {
+            if (pendingSave == save) pendingSave = null;
+        }
+
+        if (error == null) save.complete(null);
+        else {
+            log.debug("Unable to save seen cat images of user " + user.getKey(), error);
+            save.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * Writes this filter's data to the given state of user's metadata.
+     *
+     * @param user current state of the user
+     */
+    protected synchronized void writeTo(@NonNull final User user) {
+        // the marks made from now on are not written by the pending save
+        pendingSave = null;
+
+        val encoder = Base64.getEncoder();
+        val data = new JsonObject();
+        data.addProperty("current", encoder.encodeToString(current.toByteArray()));
+        data.addProperty("previous", encoder.encodeToString(previous.toByteArray()));
+        data.addProperty("count", currentCount);
+        user.getMetadata().add(METADATA_KEY, data);
+    }
+
+    /**
+     * Configuration of {@link SeenCatImagesFilter}.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Configuration {
+
+        /**
+         * Amount of cat images stored per generation of the filter
+         */
+        @Builder.Default int capacity = 256;
+
+        /**
+         * Acceptable probability of a not yet seen cat image being considered seen
+         */
+        @Builder.Default double falsePositiveProbability = 0.01;
+
+        /**
+         * Maximal amount of users whose filters are kept in memory
+         */
+        @Builder.Default int cachedUsers = 1024;
+
+        /**
+         * Gets the amount of bits used by each generation of the filter.
+         *
+         * @return amount of bits per generation of the filter
+         */
+        public int getBitCount() {
+            return BloomFilter.optimalBitCount(capacity, falsePositiveProbability);
+        }
+
+        /**
+         * Gets the amount of hash functions used by the filter.
+         *
+         * @return amount of hash functions used by the filter
+         */
+        public int getHashFunctions() {
+            return BloomFilter.optimalHashFunctions(capacity, getBitCount());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ru.progrm_jarvis.catobot.subscription;
+
+import lombok.NonNull;
+import lombok.Value;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Manager responsible for storing users.
+ */
+public interface UserManager extends AutoCloseable {
+
+    CompletableFuture<Boolean> isPresent(String userKey);
+
+    void store(@NonNull User user);
+
+    CompletableFuture<User> getUser(String userKey);
+
+    /**
+     * Updates the stored user (an empty one if it is not stored) and stores it.
+     * The update is performed on the current state of the user so that the changes made since it was got
+     * by others are not overwritten.
+     *
+     * @param userKey key of the user
+     * @param update update of the user
+     * @return future completed once the updated user is stored
+     */
+    default CompletableFuture<Void> updateUser(@NonNull final String userKey, @NonNull final Consumer<User> update) {
+        return getUser(userKey).thenAccept(user -> {
+            update.accept(user);
+            store(user);
+        });
+    }
+
+    void unstore(@NonNull String userKey);
+
+    /**
+     * Cursor from which a scan of users starts.
+     */
+    String SCAN_START = "0";
+
+    /**
+     * Scans the keys of stored users in chunks.
+     * The scan is stateless thus it may be continued from the cursor of any chunk even after restart.
+     * Users stored or removed during the scan may or may not be returned and some keys may be returned twice.
+     *
+     * @param cursor cursor of the chunk, {@link #SCAN_START} for the first one
+     * @param count amount of keys which should be returned in the chunk, this is only a hint
+     * @return chunk of the users' keys
+     */
+    CompletableFuture<UserKeysChunk> scanUserKeys(@NonNull String cursor, int count);
+
+    /**
+     * Chunk of keys of stored users.
+     */
+    @Value
+    class UserKeysChunk {
+
+        /**
+         * Keys of the users
+         */
+        @NonNull List<String> keys;
+
+        /**
+         * Cursor of the next chunk
+         */
+        @NonNull String nextCursor;
+
+        /**
+         * Whether or not this is the last chunk
+         */
+        boolean last;
+    }
+}
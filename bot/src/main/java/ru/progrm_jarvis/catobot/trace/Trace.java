@@ -0,0 +1,329 @@
+package ru.progrm_jarvis.catobot.trace;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import org.jetbrains.annotations.Nullable;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Trace of handling of a single incoming update consisting of timed spans of its stages.
+ * <p>
+ * The trace of the current thread is kept in a thread-local and is carried to other threads
+ * by {@link #wrap(Runnable) wrapping} tasks submitted to executors.
+ * The trace is finished once its handler and all of its spans and carried tasks are done.
+ */
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class Trace {
+
+    /**
+     * Trace of the current thread
+     */
+    protected static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Tracer by which this trace was started
+     */
+    @NonNull Tracer tracer;
+
+    /**
+     * Unique ID of this trace
+     */
+    @Getter long id;
+
+    /**
+     * Name of this trace
+     */
+    @Getter @NonNull String name;
+
+    /**
+     * Time at which this trace was started in milliseconds since the epoch
+     */
+    @Getter long startTime;
+
+    /**
+     * Moment at which this trace was started as returned by {@link System#nanoTime()}
+     */
+    long startNanos;
+
+    /**
+     * Spans of this trace in the order of their start
+     */
+    @NonNull List<Span> spans;
+
+    /**
+     * Amount of unfinished holders of this trace
+     */
+    @NonNull AtomicInteger pending;
+
+    /**
+     * Duration of this trace in nanoseconds or {@code -1} if it is not yet finished
+     */
+    @NonFinal volatile long duration = -1;
+
+    protected Trace(@NonNull final Tracer tracer, final long id, @NonNull final String name) {
+        this.tracer = tracer;
+        this.id = id;
+        this.name = name;
+
+        startTime = System.currentTimeMillis();
+        startNanos = System.nanoTime();
+        spans = new ArrayList<>();
+        // held by the starter until it calls finish()
+        pending = new AtomicInteger(1);
+    }
+
+    /**
+     * Gets the trace of the current thread.
+     *
+     * @return trace of the current thread or {@code null} if there is none
+     */
+    @Nullable public static Trace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Starts a span of the current thread's trace.
+     *
+     * @param name name of the span
+     * @return started span which should be closed once the stage is done,
+     * or a no-op span if there is no trace
+     */
+    public static Span span(@NonNull final String name) {
+        val trace = CURRENT.get();
+
+        return trace == null ? Span.NOOP : trace.startSpan(name);
+    }
+
+    /**
+     * Wraps the task so that it is run with the current thread's trace.
+     * If the wrapped task does not get run (e.g. it is rejected by the executor)
+     * it should be {@link #discard(Runnable) discarded} so that the trace can finish.
+     *
+     * @param task task to wrap
+     * @return wrapped task or the same task if there is no trace
+     */
+    public static Runnable wrap(@NonNull final Runnable task) {
+        val trace = CURRENT.get();
+        if (trace == null) return task;
+
+        val queueing = trace.startSpan("queue");
+        trace.pending.incrementAndGet(); // held by the task until it is run or discarded
+        return new TracedTask(trace, queueing, task);
+    }
+
+    /**
+     * Discards the {@link #wrap(Runnable) wrapped} task which is not going to be run
+     * releasing its hold of the trace.
+     *
+     * @param task wrapped task, tasks not wrapped with a trace are ignored
+     */
+    public static void discard(@NonNull final Runnable task) {
+        if (task instanceof TracedTask) ((TracedTask) task).discard();
+    }
+
+    /**
+     * Makes this trace the current one of this thread.
+     */
+    public void attach() {
+        CURRENT.set(this);
+    }
+
+    /**
+     * Finishes the part of this trace done by its starter and detaches it from the current thread.
+     */
+    public void finish() {
+        if (CURRENT.get() == this) CURRENT.remove();
+        release();
+    }
+
+    /**
+     * Starts a span of this trace.
+     *
+     * @param name name of the span
+     * @return started span which should be closed once the stage is done
+     */
+    public Span startSpan(@NonNull final String name) {
+        val span = new Span(this, name, Thread.currentThread().getName(), System.nanoTime());
+        pending.incrementAndGet();
+        synchronized (spans) {
+            spans.add(span);
+        }
+
+        return span;
+    }
+
+    /**
+     * Releases a holder of this trace finishing it if it was the last one.
+     */
+    protected void release() {
+        if (pending.decrementAndGet() == 0) {
+            duration = System.nanoTime() - startNanos;
+            tracer.onFinish(this);
+        }
+    }
+
+    /**
+     * Gets the duration of this trace.
+     *
+     * @param unit unit in which the duration should be returned
+     * @return duration of this trace or {@code -1} if it is not yet finished
+     */
+    public long getDuration(@NonNull final TimeUnit unit) {
+        val duration = this.duration;
+
+        return duration < 0 ? -1 : unit.convert(duration, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        val result = new StringBuilder("Trace #").append(Long.toHexString(id)).append(' ').append(name)
+                .append(" started at ").append(new SimpleDateFormat("HH:mm:ss.SSS").format(new Date(startTime)))
+                .append(" took ").append(getDuration(TimeUnit.MILLISECONDS)).append(" ms");
+        synchronized (spans) {
+            for (val span : spans) result.append("\n  +")
+                    .append(TimeUnit.NANOSECONDS.toMillis(span.startNanos - startNanos)).append(" ms ")
+                    .append(span.name).append(": ").append(span.getDuration(TimeUnit.MILLISECONDS))
+                    .append(" ms [").append(span.thread).append(']');
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Task carrying a trace to the thread running it.
+     */
+    @RequiredArgsConstructor(access = AccessLevel.PROTECTED)
+    @FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+    protected static final class TracedTask implements Runnable {
+
+        @NonNull Trace trace;
+
+        /**
+         * Span of waiting for the task to be run
+         */
+        @NonNull Span queueing;
+
+        @NonNull Runnable task;
+
+        /**
+         * Whether or not the hold of the trace by this task is already released or is going to be
+         */
+        @NonNull AtomicBoolean released = new AtomicBoolean();
+
+        @Override
+        public void run() {
+            val holding = released.compareAndSet(false, true);
+            queueing.close();
+            val previous = CURRENT.get();
+            CURRENT.set(trace);
+            try {
+                task.run();
+            } finally {
+                if (previous == null) CURRENT.remove();
+                else CURRENT.set(previous);
+                if (holding) trace.release();
+            }
+        }
+
+        /**
+         * Releases the hold of the trace by this task which is not going to be run.
+         */
+        protected void discard() {
+            if (!released.compareAndSet(false, true)) return;
+
+            queueing.close();
+            trace.release();
+        }
+    }
+
+    /**
+     * Timed stage of a trace.
+     */
+    @FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+    public static class Span implements AutoCloseable {
+
+        /**
+         * Span which records nothing used when there is no trace
+         */
+        public static final Span NOOP = new Span(null, "noop", "", 0) {
+            @Override
+            public void close() {}
+        };
+
+        /**
+         * Trace to which this span belongs or {@code null} if this is a no-op span
+         */
+        @Nullable Trace trace;
+
+        /**
+         * Name of this span
+         */
+        @Getter @NonNull String name;
+
+        /**
+         * Name of the thread which started this span
+         */
+        @NonNull String thread;
+
+        /**
+         * Moment at which this span was started as returned by {@link System#nanoTime()}
+         */
+        long startNanos;
+
+        /**
+         * Duration of this span in nanoseconds or {@code -1} if it is not yet finished
+         */
+        @NonFinal volatile long duration = -1;
+
+        protected Span(@Nullable final Trace trace, @NonNull final String name,
+                       @NonNull final String thread, final long startNanos) {
+            this.trace = trace;
+            this.name = name;
+            this.thread = thread;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * Gets the duration of this span.
+         *
+         * @param unit unit in which the duration should be returned
+         * @return duration of this span or {@code -1} if it is not yet finished
+         */
+        public long getDuration(@NonNull final TimeUnit unit) {
+            val duration = this.duration;
+
+            return duration < 0 ? -1 : unit.convert(duration, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Finishes this span once the given stage completes.
+         *
+         * @param stage stage whose completion finishes this span
+         */
+        public void closeOnCompletion(@NonNull final CompletionStage<?> stage) {
+            if (trace != null) stage.whenComplete((result, e) -> close());
+        }
+
+        /**
+         * Finishes this span, subsequent calls have no effect.
+         */
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (duration >= 0) return;
+                duration = System.nanoTime() - startNanos;
+            }
+            assert trace != null;
+            trace.release();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package ru.progrm_jarvis.catobot.trace;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracer starting {@link Trace traces} of incoming updates and keeping the slow ones in a ring buffer.
+ */
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class Tracer {
+
+    @NonNull Configuration configuration;
+
+    /**
+     * Source of IDs of traces
+     */
+    @NonNull AtomicLong ids;
+
+    /**
+     * Ring buffer of the most recent slow traces
+     */
+    @NonNull Trace[] slowTraces;
+
+    /**
+     * Index at which the next slow trace is stored
+     */
+    @NonFinal int nextSlowTrace;
+
+    @NonNull LongAdder traces, slow;
+
+    public Tracer(@NonNull final Configuration configuration) {
+        if (configuration.getBufferSize() <= 0) throw new IllegalArgumentException("buffer-size should be positive");
+        this.configuration = configuration;
+
+        ids = new AtomicLong();
+        slowTraces = new Trace[configuration.getBufferSize()];
+        traces = new LongAdder();
+        slow = new LongAdder();
+    }
+
+    /**
+     * Starts a new trace and attaches it to the current thread.
+     * The trace should be {@link Trace#finish() finished} once its starter is done with it.
+     *
+     * @param name name of the trace
+     * @return started trace or {@code null} if tracing is disabled
+     */
+    @Nullable public Trace start(@NonNull final String name) {
+        if (!configuration.isEnabled()) return null;
+
+        val trace = new Trace(this, ids.incrementAndGet(), name);
+        trace.attach();
+        traces.increment();
+
+        return trace;
+    }
+
+    /**
+     * Handles the finish of the trace storing it if it is slow.
+     *
+     * @param trace finished trace
+     */
+    protected void onFinish(@NonNull final Trace trace) {
+        if (trace.getDuration(TimeUnit.MILLISECONDS) < configuration.getSlowThreshold()) return;
+
+        slow.increment();
+        synchronized (slowTraces) {
+            slowTraces[nextSlowTrace] = trace;
+            nextSlowTrace = (nextSlowTrace + 1) % slowTraces.length;
+        }
+    }
+
+    /**
+     * Gets the most recent slow traces.
+     *
+     * @return slow traces from the oldest to the newest
+     */
+    public List<Trace> getSlowTraces() {
+        val traces = new ArrayList<Trace>(slowTraces.length);
+        synchronized (slowTraces) {
+            for (var i = 0; i < slowTraces.length; i++) {
+                val trace = slowTraces[(nextSlowTrace + i) % slowTraces.length];
+                if (trace != null) traces.add(trace);
+            }
+        }
+
+        return traces;
+    }
+
+    /**
+     * Gets the amount of started traces.
+     *
+     * @return amount of started traces
+     */
+    public long getTraces() {
+        return traces.sum();
+    }
+
+    /**
+     * Gets the amount of traces which took longer than the threshold.
+     *
+     * @return amount of slow traces
+     */
+    public long getSlowTraceCount() {
+        return slow.sum();
+    }
+
+    /**
+     * Configuration of {@link Tracer}.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Configuration {
+
+        /**
+         * Whether or not updates should be traced
+         */
+        @Builder.Default boolean enabled = true;
+
+        /**
+         * Duration in milliseconds after which a trace is considered slow
+         */
+        @Builder.Default long slowThreshold = 2_000;
+
+        /**
+         * Amount of the most recent slow traces which are kept
+         */
+        @Builder.Default int bufferSize = 64;
+    }
+}
@@ -0,0 +1,168 @@
+package ru.progrm_jarvis.catobot.util;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import lombok.var;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Simple fixed-size Bloom filter of strings.
+ * Its content is a plain bit-array so that it can be compactly stored and restored.
+ */
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class BloomFilter {
+
+    /**
+     * Bits of this filter
+     */
+    @NonNull byte[] bits;
+
+    /**
+     * Amount of bits of this filter
+     */
+    @Getter int bitCount;
+
+    /**
+     * Amount of hash functions used by this filter
+     */
+    @Getter int hashFunctions;
+
+    /**
+     * Creates a new empty Bloom filter.
+     *
+     * @param bitCount amount of bits of the filter
+     * @param hashFunctions amount of hash functions used by the filter
+     *
+     * @throws IllegalArgumentException if any of the parameters is not positive
+     */
+    public BloomFilter(final int bitCount, final int hashFunctions) {
+        this(new byte[(bitCount + Byte.SIZE - 1) / Byte.SIZE], bitCount, hashFunctions);
+    }
+
+    protected BloomFilter(@NonNull final byte[] bits, final int bitCount, final int hashFunctions) {
+        if (bitCount <= 0) throw new IllegalArgumentException("bitCount should be positive");
+        if (hashFunctions <= 0) throw new IllegalArgumentException("hashFunctions should be positive");
+
+        this.bits = bits;
+        this.bitCount = bitCount;
+        this.hashFunctions = hashFunctions;
+    }
+
+    /**
+     * Creates a Bloom filter from the given bits.
+     *
+     * @param bits bits of the filter as returned by {@link #toByteArray()}
+     * @param bitCount amount of bits of the filter
+     * @param hashFunctions amount of hash functions used by the filter
+     * @return Bloom filter based on the given bits or an empty one if their amount does not match
+     */
+    public static BloomFilter fromByteArray(@NonNull final byte[] bits, final int bitCount, final int hashFunctions) {
+        if (bits.length != (bitCount + Byte.SIZE - 1) / Byte.SIZE) return new BloomFilter(bitCount, hashFunctions);
+
+        return new BloomFilter(bits.clone(), bitCount, hashFunctions);
+    }
+
+    /**
+     * Computes the amount of bits needed for storing the given amount of elements
+     * with the given probability of false-positives.
+     *
+     * @param capacity expected amount of elements
+     * @param falsePositiveProbability acceptable probability of false-positives
+     * @return optimal amount of bits
+     */
+    public static int optimalBitCount(final int capacity, final double falsePositiveProbability) {
+        return Math.max(Byte.SIZE, (int) Math.ceil(
+                -capacity * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2))
+        ));
+    }
+
+    /**
+     * Computes the amount of hash functions which is optimal for the given amount of bits and elements.
+     *
+     * @param capacity expected amount of elements
+     * @param bitCount amount of bits
+     * @return optimal amount of hash functions
+     */
+    public static int optimalHashFunctions(final int capacity, final int bitCount) {
+        return Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+    }
+
+    /**
+     * Checks whether the given value might have been put into this filter.
+     *
+     * @param value value to check
+     * @return {@code false} if the value definitely has not been put into this filter
+     * and {@code true} if it probably has
+     */
+    public synchronized boolean mightContain(@NonNull final String value) {
+        val hash = hash(value);
+        val hash1 = (int) hash;
+        val hash2 = (int) (hash >>> 32);
+
+        for (var i = 1; i <= hashFunctions; i++) {
+            val bit = ((hash1 + i * hash2) & Integer.MAX_VALUE) % bitCount;
+            if ((bits[bit >>> 3] & (1 << (bit & 7))) == 0) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Puts the given value into this filter.
+     *
+     * @param value value to put
+     */
+    public synchronized void put(@NonNull final String value) {
+        val hash = hash(value);
+        val hash1 = (int) hash;
+        val hash2 = (int) (hash >>> 32);
+
+        for (var i = 1; i <= hashFunctions; i++) {
+            val bit = ((hash1 + i * hash2) & Integer.MAX_VALUE) % bitCount;
+            bits[bit >>> 3] |= 1 << (bit & 7);
+        }
+    }
+
+    /**
+     * Removes all values from this filter.
+     */
+    public synchronized void clear() {
+        Arrays.fill(bits, (byte) 0);
+    }
+
+    /**
+     * Gets the bits of this filter.
+     *
+     * @return copy of this filter's bits
+     */
+    public synchronized byte[] toByteArray() {
+        return bits.clone();
+    }
+
+    /**
+     * Computes a 64-bit hash of the given string using FNV-1a followed by MurmurHash3 finalization.
+     *
+     * @param value string to hash
+     * @return 64-bit hash of the string
+     */
+    protected static long hash(@NonNull final String value) {
+        var hash = 0xcbf29ce484222325L;
+        for (val b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+}
@@ -0,0 +1,288 @@
+package ru.progrm_jarvis.catobot.util;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.jetbrains.annotations.NotNull;
+import ru.progrm_jarvis.catobot.trace.Trace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executor with admission control limiting the amount of tasks which are either running or queued.
+ * <p>
+ * Once the limit is reached new tasks are handled according to the {@link OverloadPolicy}
+ * so that a spike of traffic can neither spawn unlimited threads nor queue unlimited tasks.
+ * The {@link Trace trace} of the submitting thread is carried to the task.
+ */
+@ToString
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class BoundedExecutor extends AbstractExecutorService {
+
+    /**
+     * Executor actually running the tasks
+     */
+    @NonNull @ToString.Exclude ExecutorService executor;
+
+    /**
+     * Maximal amount of tasks which are either running or queued
+     */
+    int capacity;
+
+    /**
+     * Permits of admitting tasks
+     */
+    @NonNull @ToString.Exclude Semaphore permits;
+
+    @NonNull OverloadPolicy overloadPolicy;
+
+    /**
+     * Time in milliseconds for which a task waits for admission in {@link OverloadPolicy#BLOCK} policy
+     */
+    long blockTimeout;
+
+    @NonNull @ToString.Exclude LongAdder rejections, callerRuns;
+
+    public BoundedExecutor(@NonNull final ExecutorService executor,
+                           final int capacity,
+                           @NonNull final OverloadPolicy overloadPolicy,
+                           final long blockTimeout) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity should be positive");
+
+        this.executor = executor;
+        this.capacity = capacity;
+        this.overloadPolicy = overloadPolicy;
+        this.blockTimeout = blockTimeout;
+
+        permits = new Semaphore(capacity);
+        rejections = new LongAdder();
+        callerRuns = new LongAdder();
+    }
+
+    /**
+     * Creates a bounded executor running tasks in the given mode.
+     *
+     * @param mode mode in which the tasks should be run
+     * @param workers amount of workers to use or {@code 0} for the {@link Configuration#getMaxThreads() maximal} one
+     * @param configuration configuration of the bounds
+     * @param threadFactory factory of platform threads
+     * @return created bounded executor
+     */
+    public static BoundedExecutor create(@NonNull final ExecutorMode mode, final int workers,
+                                         @NonNull final Configuration configuration,
+                                         @NonNull final ThreadFactory threadFactory) {
+        if (workers < 0) throw new IllegalArgumentException("Number of workers cannot be negative");
+
+        val threads = workers == 0 ? configuration.getMaxThreads() : workers;
+        // single-thread executor of the platform mode does not expose its queue
+        val executor = mode == ExecutorMode.PLATFORM && threads == 1
+                ? Executors.newFixedThreadPool(1, threadFactory) : mode.createExecutorService(threads, threadFactory);
+
+        return new BoundedExecutor(
+                executor, threads + configuration.getQueueCapacity(),
+                configuration.getOverloadPolicy(), configuration.getBlockTimeout()
+        );
+    }
+
+    @Override
+    public void execute(@NonNull final Runnable task) {
+        if (!permits.tryAcquire()) switch (overloadPolicy) {
+            case SHED: {
+                rejections.increment();
+                throw new RejectedExecutionException("Executor is overloaded, " + capacity + " tasks are pending");
+            }
+            case CALLER_RUNS: {
+                callerRuns.increment();
+                task.run();
+                return;
+            }
+            case BLOCK: {
+                final boolean acquired;
+                try {
+                    acquired = permits.tryAcquire(blockTimeout, TimeUnit.MILLISECONDS);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    rejections.increment();
+                    throw new RejectedExecutionException("Interrupted while waiting for admission", e);
+                }
+                if (!acquired) {
+                    rejections.increment();
+                    throw new RejectedExecutionException(
+                            "Executor is overloaded, no task completed in " + blockTimeout + " ms"
+                    );
+                }
+                break;
+            }
+        }
+
+        val admittedTask = new AdmittedTask(task, Trace.wrap(task));
+        try {
+            executor.execute(admittedTask);
+        } catch (final RejectedExecutionException e) {
+            admittedTask.discard();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the amount of tasks which are either running or queued.
+     *
+     * @return amount of pending tasks
+     */
+    public int getPendingTasks() {
+        return capacity - permits.availablePermits();
+    }
+
+    /**
+     * Gets the amount of tasks waiting for a free worker.
+     *
+     * @return depth of the queue or {@code -1} if it is unknown
+     */
+    public int getQueueDepth() {
+        return executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getQueue().size() : -1;
+    }
+
+    /**
+     * Gets the amount of tasks rejected because of overload.
+     *
+     * @return amount of rejected tasks
+     */
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    /**
+     * Gets the amount of tasks run by their callers because of overload.
+     *
+     * @return amount of tasks run by their callers
+     */
+    public long getCallerRuns() {
+        return callerRuns.sum();
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The tasks which never commenced execution are discarded releasing their admission and trace.
+     */
+    @Override
+    @NotNull public List<Runnable> shutdownNow() {
+        val drainedTasks = executor.shutdownNow();
+        val tasks = new ArrayList<Runnable>(drainedTasks.size());
+        for (val drainedTask : drainedTasks) if (drainedTask instanceof AdmittedTask) {
+            val admittedTask = (AdmittedTask) drainedTask;
+            admittedTask.discard();
+            tasks.add(admittedTask.task);
+        } else tasks.add(drainedTask);
+
+        return tasks;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return executor.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(final long timeout, @NonNull final TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * Task holding a permit of admission until it is run or discarded.
+     */
+    @RequiredArgsConstructor(access = AccessLevel.PROTECTED)
+    @FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+    protected final class AdmittedTask implements Runnable {
+
+        /**
+         * Task as it was submitted
+         */
+        @NonNull Runnable task;
+
+        /**
+         * Task carrying the trace of the submitting thread
+         */
+        @NonNull Runnable tracedTask;
+
+        @Override
+        public void run() {
+            try {
+                tracedTask.run();
+            } finally {
+                permits.release();
+            }
+        }
+
+        /**
+         * Releases the permit and the trace held by this task which is not going to be run.
+         */
+        protected void discard() {
+            Trace.discard(tracedTask);
+            permits.release();
+        }
+    }
+
+    /**
+     * Policy of handling tasks submitted to an overloaded executor.
+     */
+    public enum OverloadPolicy {
+
+        /**
+         * The task is rejected with {@link RejectedExecutionException} so that the caller may respond politely
+         */
+        SHED,
+
+        /**
+         * The task is run by the thread submitting it
+         */
+        CALLER_RUNS,
+
+        /**
+         * The submitting thread waits for admission of the task up to a timeout after which the task is rejected
+         */
+        BLOCK
+    }
+
+    /**
+     * Configuration of {@link BoundedExecutor}.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Configuration {
+
+        /**
+         * Maximal amount of concurrently running tasks if the amount of workers is not specified
+         */
+        @Builder.Default int maxThreads = 64;
+
+        /**
+         * Maximal amount of tasks waiting for a free worker
+         */
+        @Builder.Default int queueCapacity = 1_024;
+
+        /**
+         * Policy of handling tasks once the executor is full
+         */
+        @Builder.Default @NonNull OverloadPolicy overloadPolicy = OverloadPolicy.BLOCK;
+
+        /**
+         * Time in milliseconds for which a task waits for admission in {@link OverloadPolicy#BLOCK} policy
+         */
+        @Builder.Default long blockTimeout = 5_000;
+    }
+}
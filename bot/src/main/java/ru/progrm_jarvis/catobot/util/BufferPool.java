@@ -0,0 +1,104 @@
+package ru.progrm_jarvis.catobot.util;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of reusable byte buffers of the same size.
+ */
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class BufferPool {
+
+    /**
+     * Size of each buffer of this pool
+     */
+    @Getter int bufferSize;
+
+    /**
+     * Maximal amount of idle buffers kept by this pool
+     */
+    int maxPooledBuffers;
+
+    /**
+     * Idle buffers available for reuse
+     */
+    @NonNull Queue<byte[]> buffers;
+
+    /**
+     * Amount of idle buffers, this is tracked separately as {@link Queue#size()} may take linear time
+     */
+    @NonNull AtomicInteger pooledBuffers;
+
+    @NonNull LongAdder acquisitions, reuses;
+
+    public BufferPool(final int bufferSize, final int maxPooledBuffers) {
+        if (bufferSize <= 0) throw new IllegalArgumentException("bufferSize should be positive");
+        if (maxPooledBuffers < 0) throw new IllegalArgumentException("maxPooledBuffers should be non-negative");
+
+        this.bufferSize = bufferSize;
+        this.maxPooledBuffers = maxPooledBuffers;
+
+        buffers = new ConcurrentLinkedQueue<>();
+        pooledBuffers = new AtomicInteger();
+        acquisitions = new LongAdder();
+        reuses = new LongAdder();
+    }
+
+    /**
+     * Acquires a buffer from this pool allocating a new one if there are no idle buffers.
+     *
+     * @return acquired buffer of {@link #getBufferSize() buffer size} which should be {@link #release(byte[])
+     * released} once it is no longer used
+     */
+    @NotNull public byte[] acquire() {
+        acquisitions.increment();
+
+        val buffer = buffers.poll();
+        if (buffer == null) return new byte[bufferSize];
+
+        pooledBuffers.decrementAndGet();
+        reuses.increment();
+
+        return buffer;
+    }
+
+    /**
+     * Returns the given buffer to this pool so that it can be reused.
+     *
+     * @param buffer buffer acquired from this pool which is no longer used
+     */
+    public void release(@NonNull final byte[] buffer) {
+        if (buffer.length != bufferSize) throw new IllegalArgumentException("Buffer does not belong to this pool");
+
+        // the buffer is just left for the garbage collector if the pool is full
+        if (pooledBuffers.incrementAndGet() > maxPooledBuffers) pooledBuffers.decrementAndGet();
+        else buffers.add(buffer);
+    }
+
+    /**
+     * Gets the amount of acquired buffers.
+     *
+     * @return amount of acquisitions
+     */
+    public long getAcquisitions() {
+        return acquisitions.sum();
+    }
+
+    /**
+     * Gets the amount of acquisitions served by reusing idle buffers.
+     *
+     * @return amount of reuses
+     */
+    public long getReuses() {
+        return reuses.sum();
+    }
+}
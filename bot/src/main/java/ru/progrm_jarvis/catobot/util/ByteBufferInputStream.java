@@ -0,0 +1,79 @@
+package ru.progrm_jarvis.catobot.util;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Input stream reading the remaining bytes of a buffer without copying them
+ * so that memory-mapped content may be decoded directly.
+ */
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class ByteBufferInputStream extends InputStream {
+
+    /**
+     * Buffer whose bytes are read, its position is independent of the one of the original buffer
+     */
+    @NonNull ByteBuffer buffer;
+
+    /**
+     * Creates an input stream reading the remaining bytes of the given buffer.
+     *
+     * @param buffer buffer whose remaining bytes should be read, its position does not get changed
+     */
+    public ByteBufferInputStream(@NonNull final ByteBuffer buffer) {
+        this.buffer = buffer.duplicate();
+    }
+
+    @Override
+    public int read() {
+        return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(@NonNull final byte[] bytes, final int offset, final int length) {
+        if (length == 0) return 0;
+
+        val remaining = buffer.remaining();
+        if (remaining == 0) return -1;
+
+        val read = Math.min(length, remaining);
+        buffer.get(bytes, offset, read);
+
+        return read;
+    }
+
+    @Override
+    public long skip(final long count) {
+        if (count <= 0) return 0;
+
+        val skipped = (int) Math.min(count, buffer.remaining());
+        buffer.position(buffer.position() + skipped);
+
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public void mark(final int readLimit) {
+        buffer.mark();
+    }
+
+    @Override
+    public void reset() {
+        buffer.reset();
+    }
+}
@@ -0,0 +1,98 @@
+package ru.progrm_jarvis.catobot.util;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Mode in which the tasks of an executor are run.
+ */
+@Slf4j
+public enum ExecutorMode {
+
+    /**
+     * Tasks are run by a pool of platform threads
+     */
+    PLATFORM {
+        @Override
+        public ExecutorService createExecutorService(final int workers, @NonNull final ThreadFactory threadFactory) {
+            if (workers < 0) throw new IllegalArgumentException("Number of workers cannot be negative");
+
+            switch (workers) {
+                case 0: return Executors.newCachedThreadPool(threadFactory);
+                case 1: return Executors.newSingleThreadExecutor(threadFactory);
+                default: return Executors.newFixedThreadPool(workers, threadFactory);
+            }
+        }
+    },
+
+    /**
+     * Each task is run by a new virtual thread so that blocking tasks do not occupy platform threads.
+     * This requires Java 21 or newer, otherwise {@link #PLATFORM} mode is used.
+     * <p>
+     * The thread factory is only used by the fallback as virtual threads are always daemons and are left unnamed.
+     */
+    VIRTUAL {
+        @Override
+        public ExecutorService createExecutorService(final int workers, @NonNull final ThreadFactory threadFactory) {
+            if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR == null) {
+                log.warn("Virtual threads are not available in Java {}, using platform threads",
+                        System.getProperty("java.version"));
+
+                return PLATFORM.createExecutorService(workers, threadFactory);
+            }
+
+            try {
+                return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invokeExact();
+            } catch (final Throwable e) {
+                throw new IllegalStateException("Unable to create executor of virtual threads", e);
+            }
+        }
+    };
+
+    /**
+     * Handle of {@code Executors.newVirtualThreadPerTaskExecutor()} or {@code null} if it is not available
+     */
+    @Nullable private static final MethodHandle NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        MethodHandle newVirtualThreadPerTaskExecutor;
+        try {
+            newVirtualThreadPerTaskExecutor = MethodHandles.publicLookup().findStatic(
+                    Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class)
+            );
+        } catch (final NoSuchMethodException | IllegalAccessException e) {
+            newVirtualThreadPerTaskExecutor = null;
+        }
+        NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = newVirtualThreadPerTaskExecutor;
+    }
+
+    /**
+     * Checks whether virtual threads are available in the current Java runtime.
+     *
+     * @return {@code true} if virtual threads are available and {@code false} otherwise
+     */
+    public static boolean isVirtualThreadsAvailable() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Creates an executor running tasks in this mode.
+     *
+     * @param workers amount of platform workers to use or {@code 0} for unlimited pool,
+     * ignored by {@link #VIRTUAL} mode
+     * @param threadFactory factory of platform threads, ignored by {@link #VIRTUAL} mode
+     * so that its names and daemon status do not apply to virtual threads
+     * @return created executor
+     *
+     * @throws IllegalArgumentException if the amount of workers is negative
+     */
+    public abstract ExecutorService createExecutorService(int workers, @NonNull ThreadFactory threadFactory);
+}
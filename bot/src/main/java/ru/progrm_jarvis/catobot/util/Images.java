@@ -1,11 +1,15 @@
 package ru.progrm_jarvis.catobot.util;
 
+import lombok.NonNull;
 import lombok.experimental.UtilityClass;
 import lombok.val;
 import org.apache.commons.io.IOUtils;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 /**
@@ -32,6 +36,37 @@ public class Images {
         return StubHolder.STUB;
     }
 
+    /**
+     * Encodes the given image as JPEG.
+     *
+     * @param image image to encode, should be opaque
+     * @param quality quality of the JPEG from {@code 0} to {@code 1}
+     * @param expectedSize expected size of the encoded image used for pre-sizing the buffer
+     * @return bytes of the encoded image
+     *
+     * @throws IOException if an exception occurs while encoding the image
+     */
+    public byte[] toJpegBytes(@NonNull final BufferedImage image, final float quality,
+                              final int expectedSize) throws IOException {
+        val writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) throw new IOException("No JPEG image writer is available");
+
+        val output = new ByteArrayOutputStream(expectedSize);
+        val writer = writers.next();
+        try (val imageOutput = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(imageOutput);
+            val parameters = writer.getDefaultWriteParam();
+            parameters.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            parameters.setCompressionQuality(quality);
+
+            writer.write(null, new IIOImage(image, null, null), parameters);
+        } finally {
+            writer.dispose();
+        }
+
+        return output.toByteArray();
+    }
+
     /**
      * Holder of an image stub used for its lazy initialization.
      */
@@ -0,0 +1,155 @@
+package ru.progrm_jarvis.catobot.util;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import lombok.var;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of latencies with logarithmic buckets (similar to HdrHistogram)
+ * so that its relative precision is {@code 1 / }{@link #SUB_BUCKETS} for any value.
+ * Recording never allocates.
+ */
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class LatencyHistogram {
+
+    /**
+     * Amount of bits used for sub-buckets of each power of two
+     */
+    protected static final int SUB_BUCKET_BITS = 3;
+
+    /**
+     * Amount of sub-buckets of each power of two
+     */
+    protected static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Amount of buckets enough for storing any non-negative {@code long}
+     */
+    protected static final int BUCKETS = index(Long.MAX_VALUE) + 1;
+
+    /**
+     * Counts of recorded values by their buckets
+     */
+    @NonNull AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Sum of recorded values in nanoseconds
+     */
+    @NonNull LongAdder sum = new LongAdder();
+
+    /**
+     * Gets the index of the bucket of the given value.
+     *
+     * @param value non-negative value
+     * @return index of the bucket of the value
+     */
+    protected static int index(final long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+
+        val shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Gets the highest value which belongs to the bucket by the given index.
+     *
+     * @param index index of the bucket
+     * @return highest value of the bucket
+     */
+    protected static long highestValue(final int index) {
+        if (index < SUB_BUCKETS) return index;
+
+        val shift = (index >>> SUB_BUCKET_BITS) - 1;
+        val lowestValue = (long) (SUB_BUCKETS | (index & (SUB_BUCKETS - 1))) << shift;
+
+        return lowestValue + (1L << shift) - 1;
+    }
+
+    /**
+     * Records the given value.
+     *
+     * @param nanos value in nanoseconds, negative values are considered to be {@code 0}
+     */
+    public void record(final long nanos) {
+        val value = Math.max(0, nanos);
+        counts.incrementAndGet(index(value));
+        sum.add(value);
+    }
+
+    /**
+     * Records the time elapsed since the given moment.
+     *
+     * @param startNanos moment as returned by {@link System#nanoTime()}
+     */
+    public void recordSince(final long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Gets the amount of recorded values.
+     *
+     * @return amount of recorded values
+     */
+    public long getCount() {
+        var count = 0L;
+        for (var i = 0; i < BUCKETS; i++) count += counts.get(i);
+
+        return count;
+    }
+
+    /**
+     * Gets the sum of recorded values.
+     *
+     * @return sum of recorded values in nanoseconds
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Gets the value at the given percentile.
+     *
+     * @param percentile percentile from {@code 0} to {@code 1}
+     * @return value in nanoseconds at the given percentile or {@code 0} if there are no recorded values
+     */
+    public long getPercentile(final double percentile) {
+        val count = getCount();
+        if (count == 0) return 0;
+
+        val target = Math.max(1, (long) Math.ceil(percentile * count));
+        var cumulativeCount = 0L;
+        for (var i = 0; i < BUCKETS; i++) if ((cumulativeCount += counts.get(i)) >= target) return highestValue(i);
+
+        return highestValue(BUCKETS - 1);
+    }
+
+    /**
+     * Gets the value at the given percentile.
+     *
+     * @param percentile percentile from {@code 0} to {@code 1}
+     * @param unit unit in which the value should be returned
+     * @return value at the given percentile or {@code 0} if there are no recorded values
+     */
+    public long getPercentile(final double percentile, @NonNull final TimeUnit unit) {
+        return unit.convert(getPercentile(percentile), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Halves all counts so that older values lose their significance.
+     * The sum is halved approximately as values may be recorded concurrently.
+     */
+    public void decay() {
+        for (var i = 0; i < BUCKETS; i++) {
+            long count;
+            do count = counts.get(i); while (count != 0 && !counts.compareAndSet(i, count, count >> 1));
+        }
+        sum.add(-(sum.sum() >> 1));
+    }
+}
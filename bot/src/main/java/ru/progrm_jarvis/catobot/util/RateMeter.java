@@ -0,0 +1,77 @@
+package ru.progrm_jarvis.catobot.util;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import lombok.var;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meter of the rate of events over a sliding window of seconds.
+ */
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class RateMeter {
+
+    /**
+     * Amounts of events by the slots of seconds
+     */
+    @NonNull long[] counts;
+
+    /**
+     * Seconds to which the slots correspond
+     */
+    @NonNull long[] seconds;
+
+    /**
+     * Creates a new rate meter.
+     *
+     * @param window amount of the last seconds over which the rate is measured
+     */
+    public RateMeter(final int window) {
+        if (window <= 0) throw new IllegalArgumentException("window should be positive");
+
+        counts = new long[window];
+        seconds = new long[window];
+    }
+
+    /**
+     * Gets the current second of the monotonic clock.
+     *
+     * @return current second
+     */
+    protected static long currentSecond() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+    }
+
+    /**
+     * Records the given amount of events happened now.
+     *
+     * @param events amount of events
+     */
+    public synchronized void mark(final long events) {
+        val second = currentSecond();
+        val slot = (int) Math.floorMod(second, (long) counts.length);
+        if (seconds[slot] != second) {
+            seconds[slot] = second;
+            counts[slot] = 0;
+        }
+        counts[slot] += events;
+    }
+
+    /**
+     * Gets the average rate of events over the window.
+     *
+     * @return amount of events per second
+     */
+    public synchronized double getRate() {
+        val second = currentSecond();
+        var total = 0L;
+        for (var slot = 0; slot < counts.length; slot++) if (second - seconds[slot] < counts.length) {
+            total += counts[slot];
+        }
+
+        return (double) total / counts.length;
+    }
+}
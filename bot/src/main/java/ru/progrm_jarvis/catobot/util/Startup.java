@@ -0,0 +1,217 @@
+package ru.progrm_jarvis.catobot.util;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Startup of components forming a graph of dependencies
+ * in which each component is initialized concurrently as soon as all of its dependencies are initialized.
+ * <p>
+ * The time taken by the initialization of each component (excluding the time spent waiting for its dependencies)
+ * is logged and kept so that the critical path of the startup can be found.
+ * <p>
+ * Initialized components which are {@link AutoCloseable closeable} are kept so that they get closed
+ * if the startup gets {@link #abort() aborted} because of a failure of another one.
+ */
+@Slf4j
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class Startup implements AutoCloseable {
+
+    /**
+     * Time in milliseconds for which the interrupted initializations are awaited once the startup is aborted
+     */
+    protected static final long ABORT_TIMEOUT = 10_000;
+
+    /**
+     * Executor initializing the components
+     */
+    @NonNull ExecutorService executor;
+
+    /**
+     * Moment at which the startup has begun as returned by {@link System#nanoTime()}
+     */
+    long startNanos;
+
+    /**
+     * Times in milliseconds taken by the initializations of the components by their names
+     */
+    @NonNull Map<String, Long> timings;
+
+    /**
+     * Initialized closeable components from the latest to the earliest one
+     */
+    @NonNull Deque<AutoCloseable> initialized;
+
+    /**
+     * Whether or not this startup is aborted, guarded by {@link #initialized}
+     */
+    @NonFinal boolean aborted;
+
+    /**
+     * Creates a new startup.
+     *
+     * @param name name of the threads initializing the components
+     */
+    public Startup(@NonNull final String name) {
+        executor = Executors.newCachedThreadPool(task -> {
+            val thread = new Thread(task, name);
+            thread.setDaemon(true);
+
+            return thread;
+        });
+        startNanos = System.nanoTime();
+        timings = new ConcurrentSkipListMap<>();
+        initialized = new ArrayDeque<>();
+    }
+
+    /**
+     * Starts the initialization of the component once all of its dependencies are initialized.
+     * The initializer may {@link CompletableFuture#join() join} its dependencies as they are already completed.
+     *
+     * @param name name of the component
+     * @param initializer initializer of the component
+     * @param dependencies components which should be initialized before this one
+     * @param <T> type of the component
+     * @return future of the component which fails if the initializer or any of the dependencies fails
+     */
+    public <T> CompletableFuture<T> start(@NonNull final String name, @NonNull final Supplier<T> initializer,
+                                          @NonNull final CompletableFuture<?>... dependencies) {
+        return CompletableFuture.allOf(dependencies).thenApplyAsync(ignored -> {
+            val componentStartNanos = System.nanoTime();
+            val component = initializer.get();
+            if (component instanceof AutoCloseable) register((AutoCloseable) component);
+
+            val time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - componentStartNanos);
+            timings.put(name, time);
+            log.info(
+                    "Initialized {} in {} ms ({} ms since the startup): {}", name, time,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), component
+            );
+
+            return component;
+        }, executor);
+    }
+
+    /**
+     * Registers the component initialized outside of this startup so that it gets closed if the startup is aborted.
+     *
+     * @param component initialized component
+     * @param <T> type of the component
+     * @return the given component
+     *
+     * @throws CancellationException if this startup is already aborted in which case the component gets closed
+     */
+    public <T extends AutoCloseable> T register(@NonNull final T component) {
+        synchronized (initialized) {
+            if (!aborted) {
+                initialized.push(component);
+
+                return component;
+            }
+        }
+
+        closeComponent(component);
+        throw new CancellationException("Startup is aborted");
+    }
+
+    /**
+     * Aborts this startup interrupting the initializations which are still running
+     * and closing the initialized components in the reverse order of their initialization.
+     */
+    public void abort() {
+        synchronized (initialized) {
+            aborted = true;
+        }
+
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(ABORT_TIMEOUT, TimeUnit.MILLISECONDS)) log.warn(
+                    "Initializations of components did not stop in {} ms", ABORT_TIMEOUT
+            );
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // the components initialized later get closed once they complete
+        while (true) {
+            final AutoCloseable component;
+            synchronized (initialized) {
+                component = initialized.poll();
+            }
+            if (component == null) break;
+
+            closeComponent(component);
+        }
+    }
+
+    /**
+     * Closes the component logging the exception thrown by it.
+     *
+     * @param component component to close
+     */
+    protected static void closeComponent(@NonNull final AutoCloseable component) {
+        try {
+            component.close();
+        } catch (final Throwable e) {
+            log.error("An exception occurred while closing " + component, e);
+        }
+    }
+
+    /**
+     * Gets the times taken by the initializations of the components.
+     *
+     * @return times in milliseconds taken by the initializations of the components by their names
+     */
+    public Map<String, Long> getTimings() {
+        return timings;
+    }
+
+    /**
+     * Gets the time passed since the startup has begun.
+     *
+     * @return time in milliseconds passed since the startup has begun
+     */
+    public long getElapsedTime() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Waits for the initialization of the component rethrowing the exception thrown by its initializer.
+     *
+     * @param component future of the component
+     * @param <T> type of the component
+     * @return initialized component
+     *
+     * @throws RuntimeException thrown by the initializer of the component or of one of its dependencies
+     */
+    public static <T> T await(@NonNull final CompletableFuture<T> component) {
+        try {
+            return component.join();
+        } catch (final CompletionException e) {
+            val cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+
+            throw e;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Initializations which are still running are left to complete,
+     * a failed startup should be {@link #abort() aborted} instead.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
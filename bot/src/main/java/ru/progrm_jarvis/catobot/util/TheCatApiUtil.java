@@ -0,0 +1,125 @@
+package ru.progrm_jarvis.catobot.util;
+
+import com.google.gson.Gson;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.experimental.UtilityClass;
+import lombok.val;
+import lombok.var;
+import ru.progrm_jarvis.catobot.image.CompactTheCatApiCatImage;
+import ru.progrm_jarvis.catobot.image.TheCatApiCatImage;
+
+import java.io.*;
+import java.net.URI;
+import java.util.ArrayList;
+
+/**
+ * Utility for <a href="https://thecatapi.com">TheCatApi</a> stuff.
+ *
+ * @see <a href="https://docs.thecatapi.com/">docs of TheCatAPI</a>
+ */
+@UtilityClass
+public class TheCatApiUtil {
+
+    /**
+     * {@link Gson GSON} instance used for mapping TheCatApi JSON objects
+     */
+    private final Gson GSON = new Gson();
+
+    /**
+     * Minimal amount of cats returned
+     */
+    public final int MIN_CATS_PER_REQUEST = 1, MAX_CATS_PER_REQUEST = 100;
+
+    public final String ROOT_API_ENDPOINT = "https://api.thecatapi.com/v1/";
+
+    /**
+     * Paths of endpoints relative to the root one
+     */
+    public final String RANDOM_CAT_IMAGE_REQUEST_PATH = "images/search", UPLOAD_CAT_IMAGE_PATH = "images/upload";
+
+    /**
+     * Endpoint for HTTP-request for getting random cat images
+     */
+    public final URI
+            RANDOM_CAT_IMAGE_REQUEST_ENDPOINT = URI.create(ROOT_API_ENDPOINT + RANDOM_CAT_IMAGE_REQUEST_PATH),
+            UPLOAD_CAT_IMAGE_ENDPOINT = URI.create(ROOT_API_ENDPOINT + UPLOAD_CAT_IMAGE_PATH);
+
+    /**
+     * Parsers the content of the specified data stream as a JSON-array of {@link TheCatApiCatImage}s.
+     *
+     * @param dataStream data stream of JSON-array of cat images
+     * @return parsed cat image objects
+     */
+    @SneakyThrows(IOException.class)
+    public TheCatApiCatImage[] parseCatImages(@NonNull final InputStream dataStream) {
+        try (val reader = new BufferedReader(new InputStreamReader(dataStream))){
+            return GSON.fromJson(reader, TheCatApiCatImage[].class);
+        }
+    }
+
+    /**
+     * Writes the metadata of the cat image in a binary form.
+     *
+     * @param image cat image whose metadata should be written
+     * @param output output to which the metadata should be written
+     *
+     * @throws IOException if an exception occurs while writing the metadata
+     *
+     * @see #readCatImage(DataInput) for reading the written metadata
+     */
+    public void writeCatImage(@NonNull final CompactTheCatApiCatImage image,
+                              @NonNull final DataOutput output) throws IOException {
+        output.writeUTF(image.getId());
+        output.writeUTF(image.getUrl());
+        output.writeInt(image.getWidth());
+        output.writeInt(image.getHeight());
+
+        val breeds = image.getBreeds();
+        output.writeInt(breeds.size());
+        for (val breed : breeds) output.writeUTF(GSON.toJson(breed));
+
+        val categories = image.getCategories();
+        output.writeInt(categories.size());
+        for (val category : categories) {
+            output.writeInt(category.getId());
+            output.writeUTF(category.getName());
+        }
+    }
+
+    /**
+     * Reads the metadata of the cat image written by {@link #writeCatImage(CompactTheCatApiCatImage, DataOutput)}.
+     *
+     * @param input input from which the metadata should be read
+     * @return cat image with read metadata
+     *
+     * @throws IOException if an exception occurs while reading the metadata
+     */
+    public TheCatApiCatImage readCatImage(@NonNull final DataInput input) throws IOException {
+        val id = input.readUTF();
+        val url = input.readUTF();
+        val width = input.readInt();
+        val height = input.readInt();
+
+        val breedCount = input.readInt();
+        val breeds = new ArrayList<TheCatApiCatImage.Breed>(breedCount);
+        for (var i = 0; i < breedCount; i++) breeds.add(
+                GSON.fromJson(input.readUTF(), TheCatApiCatImage.Breed.class)
+        );
+
+        val categoryCount = input.readInt();
+        val categories = new ArrayList<TheCatApiCatImage.Category>(categoryCount);
+        for (var i = 0; i < categoryCount; i++) categories.add(
+                new TheCatApiCatImage.Category(input.readInt(), input.readUTF())
+        );
+
+        return TheCatApiCatImage.builder()
+                .id(id)
+                .url(url)
+                .width(width)
+                .height(height)
+                .breeds(breeds)
+                .categories(categories)
+                .build();
+    }
+}
@@ -0,0 +1,72 @@
+package ru.progrm_jarvis.catobot.util;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * Input stream whose reading rate is limited by a {@link TokenBucket} of bytes.
+ */
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class ThrottledInputStream extends FilterInputStream {
+
+    /**
+     * Bucket of bytes which may be read, possibly shared with other streams
+     */
+    @NonNull TokenBucket bucket;
+
+    public ThrottledInputStream(@NonNull final InputStream in, @NonNull final TokenBucket bucket) {
+        super(in);
+
+        this.bucket = bucket;
+    }
+
+    /**
+     * Waits until the given amount of read bytes is allowed by the bucket.
+     *
+     * @param bytes amount of read bytes
+     *
+     * @throws InterruptedIOException if the thread gets interrupted while waiting
+     */
+    protected void throttle(final int bytes) throws InterruptedIOException {
+        if (bytes <= 0) return;
+
+        try {
+            bucket.acquire(bytes);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new InterruptedIOException("Interrupted while throttling the stream");
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        val read = super.read();
+        if (read >= 0) throttle(1);
+
+        return read;
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+        val read = super.read(bytes, offset, length);
+        throttle(read);
+
+        return read;
+    }
+
+    @Override
+    public long skip(final long length) throws IOException {
+        val skipped = super.skip(length);
+        throttle((int) Math.min(Integer.MAX_VALUE, skipped));
+
+        return skipped;
+    }
+}
@@ -0,0 +1,89 @@
+package ru.progrm_jarvis.catobot.util;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.val;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket limiting the rate of some resource such as bandwidth.
+ * Permits are always granted but their consumers get delayed once the bucket is in debt.
+ */
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class TokenBucket {
+
+    /**
+     * Amount of nanoseconds in a second
+     */
+    protected static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Amount of permits added to the bucket each second
+     */
+    long rate;
+
+    /**
+     * Maximal amount of permits which may be accumulated by the bucket
+     */
+    long capacity;
+
+    /**
+     * Amount of available permits, negative if the bucket is in debt
+     */
+    @NonFinal long available;
+
+    /**
+     * Moment of the last refill as returned by {@link System#nanoTime()}
+     */
+    @NonFinal long lastRefillNanos;
+
+    public TokenBucket(final long rate, final long capacity) {
+        if (rate <= 0) throw new IllegalArgumentException("rate should be positive");
+        if (capacity <= 0) throw new IllegalArgumentException("capacity should be positive");
+
+        this.rate = rate;
+        this.capacity = capacity;
+
+        available = capacity;
+        lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Reserves the given amount of permits.
+     *
+     * @param permits amount of permits to reserve
+     * @return amount of nanoseconds for which the consumer should wait before using the permits
+     */
+    public synchronized long reserve(final long permits) {
+        val now = System.nanoTime();
+        val refilled = (long) ((now - lastRefillNanos) * (double) rate / NANOS_PER_SECOND);
+        if (refilled > 0) {
+            if (available + refilled >= capacity) {
+                available = capacity;
+                lastRefillNanos = now;
+            } else {
+                available += refilled;
+                // only the time corresponding to the refilled permits is consumed so that fractions are not lost
+                lastRefillNanos += (long) (refilled * (double) NANOS_PER_SECOND / rate);
+            }
+        }
+
+        available -= permits;
+
+        return available >= 0 ? 0 : (long) (-available * (double) NANOS_PER_SECOND / rate);
+    }
+
+    /**
+     * Acquires the given amount of permits waiting until they can be used.
+     *
+     * @param permits amount of permits to acquire
+     *
+     * @throws InterruptedException if the thread gets interrupted while waiting
+     */
+    public void acquire(final long permits) throws InterruptedException {
+        val delay = reserve(permits);
+        if (delay > 0) TimeUnit.NANOSECONDS.sleep(delay);
+    }
+}
@@ -23,14 +23,21 @@ import java.time.LocalDateTime;
 @UtilityClass
 public class WitAiUtil {
 
+    public final String ROOT_API_ENDPOINT = "https://api.wit.ai/";
+
+    /**
+     * Paths of endpoints relative to the root one
+     */
+    public final String GET_MESSAGE_MEANING_PATH = "message", GET_SPEECH_MEANING_PATH = "speech";
+
     /**
      * Endpoint for HTTP-request for recognizing natural language messages
      */
-    public final URI GET_MESSAGE_MEANING_ENDPOINT = URI.create("https://api.wit.ai/message"),
+    public final URI GET_MESSAGE_MEANING_ENDPOINT = URI.create(ROOT_API_ENDPOINT + GET_MESSAGE_MEANING_PATH),
     /**
      * Endpoint for HTTP-request for recognizing natural speech
      */
-    GET_SPEECH_MEANING_ENDPOINT = URI.create("https://api.wit.ai/speech");
+    GET_SPEECH_MEANING_ENDPOINT = URI.create(ROOT_API_ENDPOINT + GET_SPEECH_MEANING_PATH);
 
     /**
      * {@link Gson GSON} instance used for mapping wit.ai JSON objects
@@ -0,0 +1,702 @@
+package ru.progrm_jarvis.catobot.vk;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.vk.api.sdk.callback.CallbackApi;
+import com.vk.api.sdk.client.VkApiClient;
+import com.vk.api.sdk.client.actors.GroupActor;
+import com.vk.api.sdk.exceptions.ApiException;
+import com.vk.api.sdk.exceptions.ClientException;
+import com.vk.api.sdk.httpclient.HttpTransportClient;
+import com.vk.api.sdk.objects.groups.LongPollServer;
+import com.vk.api.sdk.objects.messages.AudioMessage;
+import com.vk.api.sdk.objects.photos.responses.MessageUploadResponse;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.logging.log4j.core.util.JsonUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.progrm_jarvis.catobot.image.CatImage;
+import ru.progrm_jarvis.catobot.image.processor.CatImageCombiner;
+import ru.progrm_jarvis.catobot.image.processor.CatImageProcessor;
+import ru.progrm_jarvis.catobot.jfr.JfrEvents;
+import ru.progrm_jarvis.catobot.jfr.LongPollBatchEvent;
+import ru.progrm_jarvis.catobot.jfr.UpdateDispatchEvent;
+import ru.progrm_jarvis.catobot.jfr.VkUploadEvent;
+import ru.progrm_jarvis.catobot.trace.Trace;
+import ru.progrm_jarvis.catobot.trace.Tracer;
+import ru.progrm_jarvis.catobot.util.BoundedExecutor;
+import ru.progrm_jarvis.catobot.util.ExecutorMode;
+import ru.progrm_jarvis.catobot.util.LatencyHistogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Slf4j
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class SimpleVkCatsManager implements VkCatsManager {
+
+    @NonNull Configuration configuration;
+    @NonNull ExecutorService longPollExecutor;
+
+    /**
+     * Executor uploading cat images
+     */
+    @NonNull @Getter BoundedExecutor pictureUploaderExecutor;
+    @NonNull @Getter VkApiClient client;
+    @NonNull HttpClient httpClient; // TODO: 17.05.2019 optimize 
+    /**
+     * Handler of long-poll events which may be swapped while long-polling
+     */
+    @NonNull @Getter @NonFinal volatile CallbackApi longPollEventHandler;
+    @NonNull CatImageProcessor imageProcessor;
+    @NonNull CatImageCombiner imageCombiner;
+    @NonNull @Getter GroupActor groupActor;
+
+    /**
+     * Tracer starting traces of long-poll events
+     */
+    @NonNull Tracer tracer;
+
+    /**
+     * Outbox through which all messages are sent
+     */
+    @NonNull @Getter VkOutbox outbox;
+
+    @NonNull AtomicBoolean longPollingSession;
+
+    /**
+     * Delays between the creation of incoming messages and the start of their handling
+     */
+    @NonNull @Getter LatencyHistogram longPollLags;
+
+    /**
+     * Latencies of handling of long-poll events
+     */
+    @NonNull @Getter LatencyHistogram eventLatencies;
+
+    /**
+     * Latencies of uploads of single cat images to VK
+     */
+    @NonNull @Getter LatencyHistogram uploadLatencies;
+
+    public SimpleVkCatsManager(@NonNull final Configuration configuration,
+                               @NonNull final CallbackApi longPollEventHandler,
+                               @NonNull final CatImageProcessor imageProcessor,
+                               @NonNull final CatImageCombiner imageCombiner,
+                               @NonNull final Tracer tracer) {
+        this.configuration = configuration;
+        this.tracer = tracer;
+        pictureUploaderExecutor = BoundedExecutor.create(
+                configuration.getUploaderExecutorMode(), configuration.getUploaderWorkers(),
+                configuration.getUploader(), Executors.defaultThreadFactory()
+        );
+        longPollExecutor = Executors.newSingleThreadExecutor();
+        this.longPollEventHandler = longPollEventHandler;
+        this.imageProcessor = imageProcessor;
+        this.imageCombiner = imageCombiner;
+
+        httpClient = HttpClients.createDefault(); // FIXME: 17.05.2019
+        {
+            val apiEndpoint = configuration.getApiEndpoint();
+            client = apiEndpoint == null ? new VkApiClient(new HttpTransportClient())
+                    : new VkApiClient(new HttpTransportClient()) {
+                @Override
+                public String getApiEndpoint() {
+                    return apiEndpoint;
+                }
+            };
+        }
+        groupActor = new GroupActor(configuration.getGroupId(), configuration.getGroupToken());
+        outbox = new VkOutbox(configuration.getOutbox(), client, groupActor);
+
+        longPollingSession = new AtomicBoolean();
+        longPollLags = new LatencyHistogram();
+        eventLatencies = new LatencyHistogram();
+        uploadLatencies = new LatencyHistogram();
+    }
+
+    @Override
+    public int getRandomMessageId(final int peerId) {
+        return ThreadLocalRandom.current().nextInt();
+    }
+
+    @Override
+    public void sendMessage(final int peerId, @NonNull final String text) {
+        val parameters = new JsonObject();
+        parameters.addProperty("peer_id", peerId);
+        parameters.addProperty("message", text);
+
+        send(peerId, parameters);
+    }
+
+    @Override
+    public void replyToMessage(final int peerId, final int messageId, @NonNull final String text) {
+        val parameters = new JsonObject();
+        parameters.addProperty("peer_id", peerId);
+        parameters.addProperty("reply_to", messageId);
+        parameters.addProperty("message", text);
+
+        send(peerId, parameters);
+    }
+
+    @Override
+    public void sendOverloadedMessage(final int peerId, @Nullable final Integer repliedMessageId) {
+        val text = configuration.getOverloadedMessage();
+        if (text == null) return;
+
+        if (repliedMessageId == null) sendMessage(peerId, text);
+        else replyToMessage(peerId, repliedMessageId, text);
+    }
+
+    @Override
+    public CompletableFuture<Integer> sendMessage(@NonNull final List<Integer> peerIds, final int randomId,
+                                                 @NonNull final String text) {
+        if (peerIds.isEmpty()) return CompletableFuture.completedFuture(0);
+        if (peerIds.size() > MAX_PEERS_PER_MESSAGE) throw new IllegalArgumentException(
+                "Message cannot be sent to more than " + MAX_PEERS_PER_MESSAGE + " peers"
+        );
+
+        val joinedPeerIds = new StringBuilder();
+        for (val peerId : peerIds) {
+            if (joinedPeerIds.length() != 0) joinedPeerIds.append(',');
+            joinedPeerIds.append(peerId);
+        }
+
+        val parameters = new JsonObject();
+        parameters.addProperty("peer_ids", joinedPeerIds.toString());
+        parameters.addProperty("random_id", randomId);
+        parameters.addProperty("message", text);
+
+        final CompletableFuture<JsonElement> result;
+        try {
+            // the first peer is used as the key of the message in the outbox
+            result = outbox.enqueue(peerIds.get(0), randomId, 1, "", "API.messages.send(" + parameters + ")");
+        } catch (final IOException e) {
+            val failed = new CompletableFuture<Integer>();
+            failed.completeExceptionally(e);
+
+            return failed;
+        }
+
+        return result.thenApply(response -> {
+            // response contains an object for each of the peers which has an error if the message was not sent
+            if (response == null || !response.isJsonArray()) return peerIds.size();
+
+            var delivered = 0;
+            for (val peerResponse : response.getAsJsonArray()) if (!peerResponse.isJsonObject()
+                    || !peerResponse.getAsJsonObject().has("error")) delivered++;
+
+            return delivered;
+        });
+    }
+
+    /**
+     * Sends a message with the given parameters via the outbox.
+     *
+     * @param peerId message receiver
+     * @param parameters parameters of {@code messages.send} except for {@code random_id}
+     *
+     * @throws UncheckedIOException if the message could not be written to the outbox
+     */
+    protected void send(final int peerId, @NonNull final JsonObject parameters) {
+        val randomId = getRandomMessageId(peerId);
+        parameters.addProperty("random_id", randomId);
+
+        val span = Trace.span("send");
+        try {
+            span.closeOnCompletion(outbox.enqueue(peerId, randomId, 1, "", "API.messages.send(" + parameters + ")"));
+        } catch (final IOException e) {
+            span.close();
+            throw new UncheckedIOException("Unable to enqueue message to " + peerId, e);
+        }
+    }
+
+    @Override
+    @SneakyThrows(URISyntaxException.class)
+    public Optional<InputStream> toMp3InputStream(final @NonNull AudioMessage audioMessage) {
+        val url = audioMessage.getLinkMp3();
+
+        val request = new HttpGet(url.toURI());
+        //request.setHeader(audioMessage.getAccessKey());
+        try {
+            return Optional.ofNullable(httpClient.execute(request).getEntity().getContent());
+        } catch (final IOException e) {
+            log.warn("An exception occurred while trying to read audio-message");
+
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Gets new data for long-poll server connection.
+     *
+     * @return long-poll server
+     */
+    protected LongPollServer getLongPollServer() throws ClientException, ApiException {
+        return client.groups().getLongPollServer(groupActor, configuration.getGroupId()).execute();
+    }
+
+    @Override
+    public void setLongPollEventHandler(@NonNull final CallbackApi longPollEventHandler) {
+        this.longPollEventHandler = longPollEventHandler;
+    }
+
+    @Override
+    public void startLongPolling() {
+        if (longPollingSession.compareAndSet(false, true)) {
+            log.info("Starting long-polling");
+            longPollExecutor.execute(() -> {
+                log.info("Started long-polling");
+
+                @NotNull String server, key;
+                int ts;
+                {
+                    // initially get long-polling server
+                    final LongPollServer longPollServer;
+                    try {
+                        longPollServer = getLongPollServer();
+                    } catch (final ApiException | ClientException e) {
+                        throw new RuntimeException(
+                                "An exception occurred while trying to set-up long-poll connection", e
+                        );
+                    }
+                    server = longPollServer.getServer();
+                    key = longPollServer.getKey();
+                    ts = Integer.parseInt(longPollServer.getTs());
+                }
+
+                while (longPollingSession.get()) {
+                    try {
+                        val batchEvent = JfrEvents.isAvailable() ? new LongPollBatchEvent() : null;
+                        if (batchEvent != null) batchEvent.begin();
+                        val response = client.longPoll().getEvents(server, key, ts)
+                                .waitTime(10)
+                                .execute();
+
+                        ts = response.getTs();
+                        if (batchEvent != null) {
+                            batchEvent.end();
+                            if (batchEvent.shouldCommit()) {
+                                batchEvent.setUpdates(response.getUpdates().size());
+                                batchEvent.setTs(ts);
+                                batchEvent.commit();
+                            }
+                        }
+
+                        log.debug("Received long-poll response: " + response.getUpdates());
+
+                        for (val update : response.getUpdates()) try {
+                            handleUpdate(update);
+                        } catch (final Throwable e) {
+                            log.warn("An exception occurred while handling a long-poll event", e);
+                        }
+                    } catch (final ClientException | ApiException e) {
+                        log.debug("An exception occurred while long-polling, retrying", e);
+
+                        // initially get long-polling server
+                        final LongPollServer longPollServer;
+                        try {
+                            longPollServer = getLongPollServer();
+                        } catch (final ApiException | ClientException e2) {
+                            throw new RuntimeException(
+                                    "An exception occurred while trying to set-up long-poll connection", e
+                            );
+                        }
+                        server = longPollServer.getServer();
+                        key = longPollServer.getKey();
+                        ts = Integer.parseInt(longPollServer.getTs());
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Handles the long-poll event by the {@link #setLongPollEventHandler(CallbackApi) handler}.
+     * If the handler is rejected by an overloaded executor, the new message gets
+     * the {@link Configuration#getOverloadedMessage() overloaded message} in reply.
+     *
+     * @param update long-poll event
+     */
+    protected void handleUpdate(@NonNull final JsonObject update) {
+        recordLongPollLag(update);
+        val type = update.get("type");
+        val typeName = type == null ? "update" : type.getAsString();
+        val trace = tracer.start(typeName);
+        val dispatchEvent = JfrEvents.isAvailable() ? new UpdateDispatchEvent() : null;
+        if (dispatchEvent != null) dispatchEvent.begin();
+        val startNanos = System.nanoTime();
+        try {
+            longPollEventHandler.parse(update);
+        } catch (final RejectedExecutionException e) {
+            log.debug("Handling of a long-poll event was rejected", e);
+            val message = getNewMessage(update);
+            if (message != null) {
+                val peerId = message.get("peer_id");
+                val messageId = message.get("id");
+                if (peerId != null && peerId.isJsonPrimitive() && messageId != null && messageId.isJsonPrimitive()) {
+                    sendOverloadedMessage(peerId.getAsInt(), messageId.getAsInt());
+                }
+            }
+        } finally {
+            eventLatencies.recordSince(startNanos);
+            if (dispatchEvent != null) {
+                dispatchEvent.end();
+                if (dispatchEvent.shouldCommit()) {
+                    dispatchEvent.setType(typeName);
+                    dispatchEvent.setTraceId(trace == null ? 0 : trace.getId());
+                    dispatchEvent.commit();
+                }
+            }
+            if (trace != null) trace.finish();
+        }
+    }
+
+    /**
+     * Gets the new message of the long-poll event.
+     *
+     * @param update long-poll event
+     * @return new message of the event or {@code null} if it is not an event of a new message
+     */
+    @Nullable protected static JsonObject getNewMessage(@NonNull final JsonObject update) {
+        val type = update.get("type");
+        if (type == null || !"message_new".equals(type.getAsString())) return null;
+
+        var message = update.get("object");
+        if (message == null || !message.isJsonObject()) return null;
+        // newer versions of the API wrap the message
+        if (message.getAsJsonObject().has("message")) message = message.getAsJsonObject().get("message");
+
+        return message.isJsonObject() ? message.getAsJsonObject() : null;
+    }
+
+    /**
+     * Records the delay between the creation of the message of the long-poll event and now.
+     *
+     * @param update long-poll event, events which are not new messages are ignored
+     */
+    protected void recordLongPollLag(@NonNull final JsonObject update) {
+        val message = getNewMessage(update);
+        if (message == null) return;
+
+        val date = message.get("date");
+        if (date != null && date.isJsonPrimitive()) longPollLags.record(
+                TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(date.getAsLong()))
+        );
+    }
+
+    @Override
+    public void stopLongPolling() {
+        longPollingSession.set(false);
+    }
+
+    @Override
+    public Optional<Throwable> sendCatImages(final int peerId,
+                                             @Nullable final Integer repliedMessageId,
+                                             @Nullable final String message,
+                                             @NonNull final List<CompletableFuture<CatImage>> images) {
+        return sendCatImages(peerId, repliedMessageId, message, images, imageCombiner);
+    }
+
+    @Override
+    public Optional<Throwable> sendCatImages(final int peerId,
+                                             @Nullable final Integer repliedMessageId,
+                                             @Nullable final String message,
+                                             @NonNull final List<CompletableFuture<CatImage>> images,
+                                             @NonNull final CatImageCombiner combiner) {
+        final UploadedCatImages uploadedImages;
+        try {
+            uploadedImages = uploadCatImages(peerId, images, combiner).get();
+        } catch (final InterruptedException e) {
+            log.warn("Attempt to load cat images was interrupted", e);
+            return Optional.of(e);
+        } catch (final ExecutionException e) {
+            val cause = e.getCause();
+            if (cause instanceof RejectedExecutionException) sendOverloadedMessage(peerId, repliedMessageId);
+
+            return Optional.of(cause);
+        }
+
+        return sendUploadedCatImages(uploadedImages, repliedMessageId, message);
+    }
+
+    @Override
+    public CompletableFuture<UploadedCatImages> uploadCatImages(
+            final int peerId, @NonNull final List<CompletableFuture<CatImage>> images) {
+        return uploadCatImages(peerId, images, imageCombiner);
+    }
+
+    @Override
+    public CompletableFuture<UploadedCatImages> uploadCatImages(
+            final int peerId, @NonNull final List<CompletableFuture<CatImage>> images,
+            @NonNull final CatImageCombiner combiner) {
+        final CompletableFuture<URL> photoUploadUrl;
+        try {
+            photoUploadUrl = CompletableFuture.supplyAsync(() -> {
+                try (val span = Trace.span("upload server")) {
+                    return client.photos().getMessagesUploadServer(groupActor)
+                            .peerId(peerId)
+                            .execute()
+                            .getUploadUrl();
+                } catch (final ApiException | ClientException e) {
+                    log.warn("Unable to get photo-upload URL for storing sent cat-images", e);
+                    throw new CompletionException(e);
+                }
+            }, pictureUploaderExecutor);
+        } catch (final RejectedExecutionException e) {
+            // the uploader is overloaded
+            val failedUpload = new CompletableFuture<UploadedCatImages>();
+            failedUpload.completeExceptionally(e);
+
+            return failedUpload;
+        }
+
+        return photoUploadUrl.thenCompose(uploadUrl -> {
+            val combinedImages = combiner.combine(images);
+
+            val uploads = new ArrayList<CompletableFuture<MessageUploadResponse>>(combinedImages.size());
+            for (val image : combinedImages) uploads.add(image.handleAsync(
+                    (catImage, e) -> uploadCatImage(uploadUrl, catImage, e), pictureUploaderExecutor
+            ));
+
+            return CompletableFuture.allOf(uploads.toArray(new CompletableFuture[0])).thenApply(nothing -> {
+                val uploadResponses = new ArrayList<MessageUploadResponse>(uploads.size());
+                for (val upload : uploads) {
+                    val uploadResponse = upload.join();
+                    if (uploadResponse != null) uploadResponses.add(uploadResponse);
+                }
+
+                return new UploadedCatImages(peerId, uploadResponses);
+            });
+        });
+    }
+
+    /**
+     * Uploads the loaded cat image to VK.
+     *
+     * @param photoUploadUrl URL to which the cat image should be uploaded
+     * @param originalCatImage loaded cat image or {@code null} if its loading failed
+     * @param loadingException exception occurred while loading the cat image or {@code null} if it was loaded
+     * @return response of the upload or {@code null} if the cat image could not be uploaded
+     */
+    @Nullable protected MessageUploadResponse uploadCatImage(@NonNull final URL photoUploadUrl,
+                                                             @Nullable final CatImage originalCatImage,
+                                                             @Nullable final Throwable loadingException) {
+        if (loadingException != null) {
+            log.warn("An exception occurred while loading one of cat images", loadingException);
+            return null;
+        }
+        assert originalCatImage != null;
+
+        final CatImage catImage;
+        try (val span = Trace.span("process")) {
+            catImage = imageProcessor.process(originalCatImage).join();
+        } catch (final CompletionException e) {
+            log.warn("Unable to process cat image", e);
+            return null;
+        }
+
+        final File tempFile;
+        try {
+            tempFile = File.createTempFile("tmp_cat_img", '.' + catImage.getType());
+        } catch (final IOException e) {
+            log.warn("Unable to create temp-file for cat-image", e);
+            return null;
+        }
+        try {
+            tempFile.deleteOnExit();
+            try (val channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.WRITE)) {
+                val buffer = catImage.getImageBuffer();
+                while (buffer.hasRemaining()) channel.write(buffer);
+            } catch (final IOException e) {
+                log.warn("Unable to write to temp-file of cat-image", e);
+                return null;
+            }
+
+            // upload the image
+            val event = JfrEvents.isAvailable() ? new VkUploadEvent() : null;
+            if (event != null) event.begin();
+            var success = false;
+            val startNanos = System.nanoTime();
+            try (val span = Trace.span("upload")) {
+                val response = client.upload().photoMessage(photoUploadUrl.toString(), tempFile).execute();
+                success = true;
+
+                return response;
+            } catch (final ApiException | ClientException e) {
+                log.warn("Unable to upload cat image to VK", e);
+                return null;
+            } finally {
+                uploadLatencies.recordSince(startNanos);
+                if (event != null) {
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.setSize(tempFile.length());
+                        event.setSuccess(success);
+                        event.commit();
+                    }
+                }
+            }
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+        }
+    }
+
+    @Override
+    public Optional<Throwable> sendUploadedCatImages(@NonNull final UploadedCatImages uploadedImages,
+                                                     @Nullable final Integer repliedMessageId,
+                                                     @Nullable final String message) {
+        val peerId = uploadedImages.getPeerId();
+        val uploads = uploadedImages.getUploads();
+
+        // the uploads expire soon thus they are saved before the message gets into the outbox's journal
+        final String attachments;
+        if (uploads.isEmpty()) attachments = "";
+        else try (val span = Trace.span("save photos")) {
+            attachments = outbox.execute(createSavePhotosScript(uploads)).getAsString();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Attempt to save cat-images was interrupted", e);
+            return Optional.of(e);
+        } catch (final ApiException | ClientException | RuntimeException e) {
+            log.warn("Unable to save cat-images", e);
+            return Optional.of(e);
+        }
+
+        val randomId = getRandomMessageId(peerId);
+        val call = createSendCall(peerId, randomId, attachments, repliedMessageId, message);
+
+        val span = Trace.span("send");
+        try {
+            span.closeOnCompletion(outbox.enqueue(peerId, randomId, 1, "", call));
+        } catch (final IOException e) {
+            span.close();
+            log.warn("Unable to send cat-images message", e);
+            return Optional.of(e);
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Creates the VKScript saving the uploaded photos and returning their attachments joined with commas.
+     *
+     * @param uploads responses of the uploads of the photos
+     * @return created VKScript
+     */
+    protected static String createSavePhotosScript(@NonNull final List<MessageUploadResponse> uploads) {
+        // attachments are accumulated in variable a
+        val prelude = new StringBuilder("var a=\"\";");
+        for (var i = 0; i < uploads.size(); i++) {
+            val upload = uploads.get(i);
+            // store image in variable c and create attachment from it
+            prelude.append("{var c=API.photos.saveMessagesPhoto({\"photo\":\"")
+                    .append(upload.getPhoto().replace("\"", "\\\""))
+                    .append("\",\"server\":").append(upload.getServer())
+                    .append(",\"hash\":\"").append(upload.getHash())
+                    .append("\"})[0];a=a");
+            if (i != 0) prelude.append('+').append('"').append(",").append('"');
+            prelude.append("+\"photo\"+c.owner_id+\"_\"+c.id;}");
+        }
+
+        return prelude.append("return a;").toString();
+    }
+
+    /**
+     * Creates the VKScript call sending the attachments.
+     *
+     * @param peerId ID of the peer to whom the message should be sent
+     * @param randomId random ID of the message
+     * @param attachments attachments of the message joined with commas
+     * @param repliedMessageId ID of the message to which this one replies or {@code null} if it is not a reply
+     * @param message text of the message or {@code null} if it has none
+     * @return created VKScript call
+     */
+    protected static String createSendCall(final int peerId, final int randomId, @NonNull final String attachments,
+                                           @Nullable final Integer repliedMessageId,
+                                           @Nullable final String message) {
+        val call = new StringBuilder("API.messages.send({\"attachment\":\"");
+        JsonUtils.quoteAsString(attachments, call);
+        call.append("\",\"random_id\":").append(randomId)
+                .append(",\"peer_id\":").append(peerId);
+
+        if (message != null) {
+            call.append(",\"message\":\"");
+            JsonUtils.quoteAsString(message, call); // TODO use of other dependency
+            call.append('"');
+        }
+        if (repliedMessageId != null) call.append(",\"reply_to\":").append(repliedMessageId);
+
+        return call.append("})").toString();
+    }
+
+    @Override
+    public void close() {
+        stopLongPolling();
+        longPollExecutor.shutdownNow(); // first stop all incoming events
+        pictureUploaderExecutor.shutdownNow(); // disable sending of any photos
+        outbox.close(); // undelivered messages are kept in the journal
+        imageProcessor.close();
+        imageCombiner.close();
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Configuration {
+
+        int groupId;
+        @NonNull String groupToken;
+
+        /**
+         * Endpoint of VK API methods or {@code null} for the default one
+         */
+        @Nullable String apiEndpoint;
+
+        /**
+         * Amount of platform threads uploading cat images or {@code 0} for the maximal amount allowed by the bounds
+         */
+        @Builder.Default int uploaderWorkers = 0;
+
+        /**
+         * Mode in which cat images are uploaded
+         */
+        @Builder.Default @NonNull ExecutorMode uploaderExecutorMode = ExecutorMode.PLATFORM;
+
+        /**
+         * Bounds of the executor uploading cat images
+         */
+        @Builder.Default @NonNull BoundedExecutor.Configuration uploader = BoundedExecutor.Configuration.builder()
+                .overloadPolicy(BoundedExecutor.OverloadPolicy.SHED)
+                .build();
+
+        /**
+         * Message sent when cat images cannot be sent because of overload or {@code null} if it should not be sent
+         */
+        @Builder.Default @Nullable String overloadedMessage = "Too many cats, try again later";
+
+        /**
+         * Configuration of the outbox of sent messages
+         */
+        @Builder.Default @NonNull VkOutbox.Configuration outbox = VkOutbox.Configuration.builder().build();
+    }
+}
@@ -0,0 +1,209 @@
+package ru.progrm_jarvis.catobot.vk;
+
+import com.vk.api.sdk.callback.CallbackApi;
+import com.vk.api.sdk.client.VkApiClient;
+import com.vk.api.sdk.client.actors.GroupActor;
+import com.vk.api.sdk.exceptions.ClientException;
+import com.vk.api.sdk.objects.messages.AudioMessage;
+import com.vk.api.sdk.objects.photos.responses.MessageUploadResponse;
+import lombok.NonNull;
+import lombok.Value;
+import org.jetbrains.annotations.Nullable;
+import ru.progrm_jarvis.catobot.image.CatImage;
+import ru.progrm_jarvis.catobot.image.processor.CatImageCombiner;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Manager responsible for all business-logic of cats-sending via VK.
+ */
+public interface VkCatsManager extends AutoCloseable {
+
+    /**
+     * Gets client to use for VK API usage.
+     *
+     * @return VK API client
+     */
+    VkApiClient getClient();
+
+    /**
+     * Gets group-actor used by VK API client.
+     *
+     * @return group-actor used by VK API client
+     */
+    GroupActor getGroupActor();
+
+    /**
+     * Sends a simple text message to the given peer.
+     *
+     * @param peerId message receiver
+     * @param text text to send
+     */
+    void sendMessage(int peerId, @NonNull String text) throws ClientException;
+
+    /**
+     * Sends a simple text message to the given peer.
+     *
+     * @param peerId message receiver
+     * @param messageId  message to which the one sent is a reply
+     * @param text text to send
+     */
+    void replyToMessage(int peerId, int messageId, @NonNull String text) throws ClientException;
+
+    /**
+     * Politely tells the peer that its request was shed because the bot is overloaded.
+     * This should be called when a {@link java.util.concurrent.RejectedExecutionException} is caught.
+     *
+     * @param peerId message receiver
+     * @param repliedMessageId ID of a message which this one replies to
+     */
+    void sendOverloadedMessage(int peerId, @Nullable Integer repliedMessageId);
+
+    /**
+     * Maximal amount of peers to whom a single message may be sent.
+     */
+    int MAX_PEERS_PER_MESSAGE = 100;
+
+    /**
+     * Sends a simple text message to multiple peers at once.
+     *
+     * @param peerIds message receivers, at most {@link #MAX_PEERS_PER_MESSAGE}
+     * @param randomId random ID of the message which should stay the same when sending it again
+     * @param text text to send
+     * @return future completed with the amount of peers to whom the message was delivered
+     */
+    CompletableFuture<Integer> sendMessage(@NonNull List<Integer> peerIds, int randomId, @NonNull String text);
+
+    /**
+     * Gets a random ID for a message to be sent to the peer.
+     *
+     * @param peerId ID of a peer to whom the message by the ID is expected to be sent
+     * @return random ID which might be used for sending a message to the specified peer
+     *
+     * @apiNote this does not guarantee collision-safety although chances of this happening are minimal
+     */
+    int getRandomMessageId(final int peerId);
+
+    /**
+     * Converts the specified audio-message object into an input-stream of an MP3 audio.
+     *
+     * @param audioMessage audio message whose MP3-content should be returned as an input stream
+     * @return input stream of an audio-message MP3-content
+     */
+    Optional<InputStream> toMp3InputStream(@NonNull final AudioMessage audioMessage);
+
+    /**
+     * Gets the handler of long-poll events.
+     *
+     * @return handler of long-poll events
+     */
+    CallbackApi getLongPollEventHandler();
+
+    /**
+     * Replaces the handler of long-poll events, this may be done while long-polling
+     * in which case the events received after this call are handled by the new handler.
+     *
+     * @param longPollEventHandler new handler of long-poll events
+     */
+    void setLongPollEventHandler(@NonNull CallbackApi longPollEventHandler);
+
+    /**
+     * Stars long-polling session if it has not been started yet.
+     */
+    void startLongPolling();
+
+    /**
+     * Uninterruptedly stops long-polling session.
+     */
+    void stopLongPolling();
+
+    /**
+     * Sends cat images to the specified peer.
+     *
+     * @param peerId receiver of the message
+     * @param repliedMessageId ID of a message which this one replies to
+     * @param message message to send
+     * @param images cat images to send
+     * @param combiner combiner used for combining the cat images before their upload
+     * @return optional throwable in case it was thrown
+     */
+    Optional<Throwable> sendCatImages(int peerId, @Nullable Integer repliedMessageId, @Nullable String message,
+                                      @NonNull List<CompletableFuture<CatImage>> images,
+                                      @NonNull CatImageCombiner combiner);
+
+    /**
+     * Sends cat images to the specified peer.
+     *
+     * @param peerId receiver of the message
+     * @param repliedMessageId ID of a message which this one replies to
+     * @param message message to send
+     * @param images cat images to send
+     * @return optional throwable in case it was thrown
+     */
+    Optional<Throwable> sendCatImages(int peerId, @Nullable Integer repliedMessageId, @Nullable String message,
+                                          @NonNull List<CompletableFuture<CatImage>> images);
+
+    /**
+     * Uploads cat images so that they can be sent to the specified peer later.
+     *
+     * @param peerId receiver of the message in which the cat images will be sent
+     * @param images cat images to upload
+     * @param combiner combiner used for combining the cat images before their upload
+     * @return future of the uploaded cat images, cat images which could not be uploaded are skipped
+     */
+    CompletableFuture<UploadedCatImages> uploadCatImages(int peerId, @NonNull List<CompletableFuture<CatImage>> images,
+                                                         @NonNull CatImageCombiner combiner);
+
+    /**
+     * Uploads cat images so that they can be sent to the specified peer later.
+     *
+     * @param peerId receiver of the message in which the cat images will be sent
+     * @param images cat images to upload
+     * @return future of the uploaded cat images, cat images which could not be uploaded are skipped
+     */
+    CompletableFuture<UploadedCatImages> uploadCatImages(int peerId, @NonNull List<CompletableFuture<CatImage>> images);
+
+    /**
+     * Sends the uploaded cat images to the peer for which they were uploaded.
+     *
+     * @param uploadedImages uploaded cat images
+     * @param repliedMessageId ID of a message which this one replies to
+     * @param message message to send
+     * @return optional throwable in case it was thrown
+     */
+    Optional<Throwable> sendUploadedCatImages(@NonNull UploadedCatImages uploadedImages,
+                                              @Nullable Integer repliedMessageId, @Nullable String message);
+
+    /**
+     * Sends cat images to the specified peer.
+     *
+     * @param peerId receiver of the message
+     * @param repliedMessageId ID of a message which this one replies to
+     * @param images cat images to send
+     * @return optional throwable in case it was thrown
+     */
+    default Optional<Throwable> sendCatImages(int peerId, @Nullable Integer repliedMessageId,
+                                             @NonNull List<CompletableFuture<CatImage>> images) {
+        return sendCatImages(peerId, repliedMessageId, null, images);
+    }
+
+    /**
+     * Cat images uploaded for being sent to a peer.
+     */
+    @Value
+    class UploadedCatImages {
+
+        /**
+         * Peer for which the cat images were uploaded
+         */
+        int peerId;
+
+        /**
+         * Responses of successful uploads of the cat images
+         */
+        @NonNull List<MessageUploadResponse> uploads;
+    }
+}
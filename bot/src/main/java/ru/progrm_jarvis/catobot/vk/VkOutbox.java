@@ -0,0 +1,1062 @@
+package ru.progrm_jarvis.catobot.vk;
+
+import com.google.gson.JsonElement;
+import com.vk.api.sdk.client.VkApiClient;
+import com.vk.api.sdk.client.actors.GroupActor;
+import com.vk.api.sdk.exceptions.ApiException;
+import com.vk.api.sdk.exceptions.ClientException;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import ru.progrm_jarvis.catobot.jfr.JfrEvents;
+import ru.progrm_jarvis.catobot.jfr.VkExecuteEvent;
+import ru.progrm_jarvis.catobot.util.LatencyHistogram;
+import ru.progrm_jarvis.catobot.util.RateMeter;
+import ru.progrm_jarvis.catobot.util.TokenBucket;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * Durable outbox of messages sent via VK.
+ * <p>
+ * Each message is a VKScript call (optionally preceded by statements preparing it) which gets appended
+ * to a journal file before being queued so that messages not yet delivered survive restarts.
+ * The queue is drained by workers each of which is responsible for its own peers (so that the order of messages
+ * sent to the same peer is kept) and coalesces the queued messages into batches executed via {@code execute}.
+ * Batches rejected by VK get split so that the message causing the rejection is isolated from the others,
+ * and the peers of the failed messages are delayed until their retry without blocking the other peers.
+ * <p>
+ * Delivery is at-least-once: a message is only acknowledged in the journal once VK confirms it,
+ * and its {@code random_id} is kept between attempts so that VK deduplicates messages sent more than once.
+ */
+@Slf4j
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class VkOutbox implements AutoCloseable {
+
+    /**
+     * Maximal amount of API calls performed by a single {@code execute}
+     */
+    public static final int MAX_API_CALLS = 25;
+
+    /**
+     * Type of a journal record of a queued message
+     */
+    protected static final byte ENQUEUED = 1;
+
+    /**
+     * Type of a journal record of a message which should no longer be sent
+     */
+    protected static final byte ACKNOWLEDGED = 2;
+
+    /**
+     * Size of a journal record's header consisting of its length and its checksum
+     */
+    protected static final int RECORD_HEADER_SIZE = Integer.BYTES * 2;
+
+    @NonNull Configuration configuration;
+
+    @NonNull VkApiClient client;
+
+    @NonNull GroupActor groupActor;
+
+    /**
+     * Journal file of the outbox
+     */
+    @NonNull Path file;
+
+    /**
+     * Lock guarding the journal and the {@link #pending} messages
+     */
+    @NonNull Object journalLock = new Object[0];
+
+    /**
+     * Channel of the journal
+     */
+    @NonFinal FileChannel journal;
+
+    /**
+     * Amount of records in the journal which no longer describe pending messages
+     */
+    @NonFinal int journalGarbage;
+
+    /**
+     * Amount of records appended to the journal since the start, guarded by the {@link #journalLock}
+     */
+    @NonFinal long journalSequence;
+
+    /**
+     * Lock held while the journal is flushed to the disk
+     */
+    @NonNull Object syncLock = new Object[0];
+
+    /**
+     * Amount of records appended to the journal which are known to be flushed to the disk
+     */
+    @NonFinal volatile long syncedSequence;
+
+    /**
+     * Messages which are not yet acknowledged by their keys
+     */
+    @NonNull Map<Long, Message> pending;
+
+    /**
+     * Queues of messages by the workers draining them
+     */
+    @NonNull List<BlockingDeque<Message>> queues;
+
+    /**
+     * Bucket of requests which may be performed or {@code null} if they are not limited
+     */
+    @Nullable TokenBucket requests;
+
+    @NonNull ExecutorService workers;
+
+    @NonNull LongAdder enqueued, delivered, failed, retries, batches;
+
+    /**
+     * Meter of the rate at which messages get delivered
+     */
+    @NonNull RateMeter drainRate;
+
+    /**
+     * Latencies of {@code execute} requests sending batches
+     */
+    @NonNull @Getter LatencyHistogram batchLatencies;
+
+    public VkOutbox(@NonNull final Configuration configuration,
+                    @NonNull final VkApiClient client,
+                    @NonNull final GroupActor groupActor) {
+        val workerCount = configuration.getWorkers();
+        if (workerCount <= 0) throw new IllegalArgumentException("workers should be positive");
+        this.configuration = configuration;
+        this.client = client;
+        this.groupActor = groupActor;
+
+        val maxRequestsPerSecond = configuration.getMaxRequestsPerSecond();
+        requests = maxRequestsPerSecond > 0 ? new TokenBucket(maxRequestsPerSecond, maxRequestsPerSecond) : null;
+
+        enqueued = new LongAdder();
+        delivered = new LongAdder();
+        failed = new LongAdder();
+        retries = new LongAdder();
+        batches = new LongAdder();
+        drainRate = new RateMeter(60);
+        batchLatencies = new LatencyHistogram();
+
+        file = configuration.getFile().toPath();
+        pending = new LinkedHashMap<>();
+        try {
+            replayJournal();
+            journal = openJournal();
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Unable to open outbox journal " + file, e);
+        }
+        if (!pending.isEmpty()) log.info("Restored {} undelivered messages from outbox {}", pending.size(), file);
+
+        queues = new ArrayList<>(workerCount);
+        for (var i = 0; i < workerCount; i++) queues.add(new LinkedBlockingDeque<>());
+        for (val message : pending.values()) getQueue(message.getPeerId()).add(message);
+
+        workers = Executors.newFixedThreadPool(workerCount);
+        for (val queue : queues) workers.execute(() -> drain(queue));
+    }
+
+    /**
+     * Gets the key of a message by which it is deduplicated.
+     *
+     * @param peerId peer to whom the message is sent
+     * @param randomId random ID of the message
+     * @return key of the message
+     */
+    protected static long key(final int peerId, final int randomId) {
+        return ((long) peerId << Integer.SIZE) | (randomId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Gets the queue of messages sent to the given peer.
+     *
+     * @param peerId peer to whom the messages are sent
+     * @return queue of the messages
+     */
+    protected BlockingDeque<Message> getQueue(final int peerId) {
+        return queues.get(Math.floorMod(peerId, queues.size()));
+    }
+
+    /**
+     * Durably enqueues the message.
+     * Enqueuing the message with the same peer and random ID as one not yet delivered has no effect.
+     * The journal is flushed once for all of the concurrently enqueued messages.
+     *
+     * @param peerId peer to whom the message is sent
+     * @param randomId random ID of the message used by VK for deduplicating it
+     * @param apiCalls amount of API calls performed by the message
+     * @param prelude VKScript statements preparing the call, may be empty
+     * @param call VKScript expression performing the call
+     * @return future completed with the result of the call once it is delivered
+     *
+     * @throws IOException if the message could not be written to the journal,
+     * it still gets sent if it was written but could not be flushed to the disk
+     */
+    public CompletableFuture<JsonElement> enqueue(final int peerId, final int randomId, final int apiCalls,
+                                                  @NonNull final String prelude,
+                                                  @NonNull final String call) throws IOException {
+        if (apiCalls <= 0 || apiCalls > MAX_API_CALLS) throw new IllegalArgumentException(
+                "apiCalls should be in range [1; " + MAX_API_CALLS + "]"
+        );
+
+        val message = new Message(peerId, randomId, apiCalls, prelude, call);
+        final long sequence;
+        synchronized (journalLock) {
+            val existing = pending.get(message.getKey());
+            if (existing != null) return existing.getResult();
+
+            sequence = appendRecords(Collections.singletonList(encodeEnqueued(message)));
+            pending.put(message.getKey(), message);
+            // queued while holding the lock so that the messages sent to the same peer keep their order
+            getQueue(peerId).add(message);
+        }
+        enqueued.increment();
+        if (configuration.isSync()) syncJournal(sequence);
+
+        return message.getResult();
+    }
+
+    /**
+     * Executes the VKScript sharing the limit of requests with the outbox.
+     *
+     * @param code VKScript to execute
+     * @return response of the script
+     *
+     * @throws ApiException if VK rejects the script
+     * @throws ClientException if the request fails
+     * @throws InterruptedException if the thread gets interrupted while waiting for the limit of requests
+     */
+    public JsonElement execute(@NonNull final String code)
+            throws ApiException, ClientException, InterruptedException {
+        if (requests != null) requests.acquire(1);
+
+        return executeScript(code);
+    }
+
+    /**
+     * Performs the {@code execute} request.
+     *
+     * @param code VKScript to execute
+     * @return response of the script
+     *
+     * @throws ApiException if VK rejects the script
+     * @throws ClientException if the request fails
+     */
+    protected JsonElement executeScript(@NonNull final String code) throws ApiException, ClientException {
+        return client.execute().code(groupActor, code).execute();
+    }
+
+    /**
+     * Continuously drains the given queue of messages until the worker gets interrupted.
+     *
+     * @param queue queue to drain
+     */
+    protected void drain(@NonNull final BlockingDeque<Message> queue) {
+        // peers whose messages wait for a retry, only accessed by this worker
+        val delayedPeers = new HashMap<Integer, DelayedPeer>();
+        val batch = new ArrayList<Message>();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                batch.clear();
+                collectBatch(queue, batch, delayedPeers);
+                send(batch, delayedPeers);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // messages of the interrupted batch and of the delayed peers are still pending in the journal
+        // thus they will be sent after restart
+    }
+
+    /**
+     * Sends the batch of messages acknowledging the delivered ones and retrying the others.
+     *
+     * @param batch messages to send
+     * @param delayedPeers peers whose messages wait for a retry
+     *
+     * @throws InterruptedException if the thread gets interrupted while waiting for the limit of requests
+     */
+    protected void send(@NonNull final List<Message> batch,
+                        @NonNull final Map<Integer, DelayedPeer> delayedPeers) throws InterruptedException {
+        JsonElement response = null;
+        Exception failure = null;
+        val event = JfrEvents.isAvailable() ? new VkExecuteEvent() : null;
+        if (event != null) event.begin();
+        val startNanos = System.nanoTime();
+        try {
+            response = execute(createScript(batch));
+        } catch (final ApiException | ClientException | RuntimeException e) {
+            failure = e;
+        } finally {
+            batchLatencies.recordSince(startNanos);
+            if (event != null) commitExecuteEvent(event, batch, failure == null);
+        }
+
+        if (failure != null) {
+            log.debug("Unable to send a batch of " + batch.size() + " messages", failure);
+            // failed requests are retried as they are while rejected scripts may be caused by a single message
+            if (failure instanceof ClientException || batch.size() == 1) retry(batch, delayedPeers);
+            else {
+                val middle = batch.size() >>> 1;
+                sendUndelayed(batch.subList(0, middle), delayedPeers);
+                sendUndelayed(batch.subList(middle, batch.size()), delayedPeers);
+            }
+
+            return;
+        }
+        batches.increment();
+
+        val results = response != null && response.isJsonArray() ? response.getAsJsonArray() : null;
+        val acknowledged = new ArrayList<Message>(batch.size());
+        val failedMessages = new ArrayList<Message>();
+        for (var i = 0; i < batch.size(); i++) {
+            val message = batch.get(i);
+            val result = results == null || i >= results.size() ? null : results.get(i);
+            if (isSuccessful(result)) {
+                message.response = result;
+                acknowledged.add(message);
+            } else failedMessages.add(message);
+        }
+
+        acknowledge(acknowledged);
+        delivered.add(acknowledged.size());
+        drainRate.mark(acknowledged.size());
+        for (val message : acknowledged) message.getResult().complete(message.response);
+
+        if (!failedMessages.isEmpty()) retry(failedMessages, delayedPeers);
+    }
+
+    /**
+     * Sends the part of a split batch deferring the messages of the peers which got delayed meanwhile.
+     *
+     * @param messages messages to send
+     * @param delayedPeers peers whose messages wait for a retry
+     *
+     * @throws InterruptedException if the thread gets interrupted while waiting for the limit of requests
+     */
+    protected void sendUndelayed(@NonNull final List<Message> messages,
+                                 @NonNull final Map<Integer, DelayedPeer> delayedPeers) throws InterruptedException {
+        val batch = new ArrayList<Message>(messages.size());
+        for (val message : messages) if (!defer(message, delayedPeers)) batch.add(message);
+
+        if (!batch.isEmpty()) send(batch, delayedPeers);
+    }
+
+    /**
+     * Defers the message if its peer is delayed so that the order of the peer's messages is kept.
+     *
+     * @param message message to defer
+     * @param delayedPeers peers whose messages wait for a retry
+     * @return {@code true} if the message was deferred and {@code false} if it may be sent
+     */
+    protected static boolean defer(@NonNull final Message message,
+                                   @NonNull final Map<Integer, DelayedPeer> delayedPeers) {
+        val delayedPeer = delayedPeers.get(message.getPeerId());
+        if (delayedPeer == null) return false;
+
+        delayedPeer.messages.add(message);
+        return true;
+    }
+
+    /**
+     * Puts the messages of the peers whose retry time has come back to the head of the queue.
+     *
+     * @param queue queue of the messages
+     * @param delayedPeers peers whose messages wait for a retry
+     * @return time in nanoseconds until the retry of the next delayed peer
+     * or {@link Long#MAX_VALUE} if there are no delayed peers
+     */
+    protected static long releaseDelayedPeers(@NonNull final BlockingDeque<Message> queue,
+                                              @NonNull final Map<Integer, DelayedPeer> delayedPeers) {
+        if (delayedPeers.isEmpty()) return Long.MAX_VALUE;
+
+        val now = System.nanoTime();
+        var nextRetry = Long.MAX_VALUE;
+        for (final Iterator<DelayedPeer> iterator = delayedPeers.values().iterator(); iterator.hasNext();) {
+            val delayedPeer = iterator.next();
+            val remaining = delayedPeer.retryTime - now;
+            if (remaining <= 0) {
+                // messages are put back in reverse order so that the original order is kept
+                final Iterator<Message> messages = delayedPeer.messages.descendingIterator();
+                while (messages.hasNext()) queue.addFirst(messages.next());
+                iterator.remove();
+            } else nextRetry = Math.min(nextRetry, remaining);
+        }
+
+        return nextRetry;
+    }
+
+    /**
+     * Commits the event of an {@code execute} request if it is enabled.
+     *
+     * @param event started event of the request
+     * @param batch messages sent by the request
+     * @param success whether the request was executed
+     */
+    protected static void commitExecuteEvent(@NonNull final VkExecuteEvent event,
+                                             @NonNull final List<Message> batch, final boolean success) {
+        event.end();
+        if (event.shouldCommit()) {
+            var apiCalls = 0;
+            for (val message : batch) apiCalls += message.getApiCalls();
+
+            event.setMessages(batch.size());
+            event.setApiCalls(apiCalls);
+            event.setSuccess(success);
+            event.commit();
+        }
+    }
+
+    /**
+     * Takes messages from the queue which can be sent in a single batch waiting for the first of them.
+     * Messages of the delayed peers are deferred until their retry.
+     *
+     * @param queue queue from which to take the messages
+     * @param batch list to which the messages should be added
+     * @param delayedPeers peers whose messages wait for a retry
+     *
+     * @throws InterruptedException if the thread gets interrupted while waiting
+     */
+    protected void collectBatch(@NonNull final BlockingDeque<Message> queue,
+                                @NonNull final List<Message> batch,
+                                @NonNull final Map<Integer, DelayedPeer> delayedPeers) throws InterruptedException {
+        Message first = null;
+        while (first == null) {
+            val nextRetry = releaseDelayedPeers(queue, delayedPeers);
+            first = nextRetry == Long.MAX_VALUE
+                    ? queue.takeFirst() : queue.pollFirst(nextRetry, TimeUnit.NANOSECONDS);
+            if (first != null && defer(first, delayedPeers)) first = null;
+        }
+        batch.add(first);
+        var apiCalls = first.getApiCalls();
+
+        // give a chance to concurrently sent messages to get coalesced into the same batch
+        val deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(configuration.getCoalescingDelay());
+        while (batch.size() < configuration.getMaxBatchSize()) {
+            val next = queue.pollFirst(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (next == null) break;
+            if (defer(next, delayedPeers)) continue;
+            if (apiCalls + next.getApiCalls() > MAX_API_CALLS) {
+                queue.addFirst(next);
+                break;
+            }
+
+            batch.add(next);
+            apiCalls += next.getApiCalls();
+        }
+    }
+
+    /**
+     * Creates a VKScript performing the calls of the given messages and returning their results.
+     *
+     * @param batch messages to send
+     * @return created VKScript
+     */
+    protected static String createScript(@NonNull final List<Message> batch) {
+        val script = new StringBuilder("var r=[];");
+        for (val message : batch) script.append('{')
+                .append(message.getPrelude())
+                .append("r.push(").append(message.getCall()).append(");}");
+        script.append("return r;");
+
+        val code = script.toString();
+        log.debug("Executing VKScript: {}", code);
+
+        return code;
+    }
+
+    /**
+     * Checks whether the result of a call in a batch is successful.
+     *
+     * @param result result of the call or {@code null} if there is none
+     * @return {@code true} if the call was successful and {@code false} otherwise
+     */
+    protected static boolean isSuccessful(@Nullable final JsonElement result) {
+        if (result == null || result.isJsonNull()) return false;
+        if (!result.isJsonPrimitive()) return true;
+
+        val primitive = result.getAsJsonPrimitive();
+
+        // failed calls of execute are returned as false
+        return !primitive.isBoolean() || primitive.getAsBoolean();
+    }
+
+    /**
+     * Retries the given messages or gives up on those which were attempted too many times.
+     * The peers of the retried messages get delayed until the backoff passes.
+     *
+     * @param messages messages to retry in their original order
+     * @param delayedPeers peers whose messages wait for a retry
+     */
+    protected void retry(@NonNull final List<Message> messages,
+                         @NonNull final Map<Integer, DelayedPeer> delayedPeers) {
+        val exhausted = new ArrayList<Message>();
+        val now = System.nanoTime();
+        for (val message : messages) {
+            val attempt = ++message.attempts;
+            if (attempt >= configuration.getMaxAttempts()) exhausted.add(message);
+            else {
+                val retryTime = now + TimeUnit.MILLISECONDS.toNanos(getBackoff(attempt));
+                val delayedPeer = delayedPeers.computeIfAbsent(
+                        message.getPeerId(), peerId -> new DelayedPeer(retryTime)
+                );
+                if (retryTime - delayedPeer.retryTime > 0) delayedPeer.retryTime = retryTime;
+                delayedPeer.messages.add(message);
+                retries.increment();
+            }
+        }
+
+        if (!exhausted.isEmpty()) {
+            log.warn("Giving up on {} messages after {} attempts", exhausted.size(), configuration.getMaxAttempts());
+            acknowledge(exhausted);
+            failed.add(exhausted.size());
+            for (val message : exhausted) message.getResult().completeExceptionally(new IOException(
+                    "Unable to send message to peer " + message.getPeerId() + " after "
+                            + message.attempts + " attempts"
+            ));
+        }
+    }
+
+    /**
+     * Gets the delay before the next attempt to send messages.
+     *
+     * @param attempt number of the failed attempt starting from {@code 1}
+     * @return delay in milliseconds
+     */
+    protected long getBackoff(final int attempt) {
+        val backoff = Math.min(
+                configuration.getMaxBackoff(),
+                configuration.getInitialBackoff() << Math.min(attempt - 1, 20)
+        );
+
+        // random jitter so that the workers do not retry all at once
+        return backoff <= 0 ? 0 : ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1);
+    }
+
+    /**
+     * Acknowledges the given messages so that they are no longer sent.
+     * The acknowledgements are not flushed to the disk on their own
+     * as losing them only causes the messages to be sent again which VK deduplicates.
+     *
+     * @param messages messages to acknowledge
+     */
+    protected void acknowledge(@NonNull final List<Message> messages) {
+        if (messages.isEmpty()) return;
+
+        val records = new ArrayList<byte[]>(messages.size());
+        for (val message : messages) records.add(encodeAcknowledged(message));
+
+        synchronized (journalLock) {
+            for (val message : messages) pending.remove(message.getKey());
+            try {
+                appendRecords(records);
+                // both the enqueued and the acknowledged records are now garbage
+                journalGarbage += records.size() * 2;
+                if (journalGarbage >= configuration.getCompactionThreshold() && journalGarbage > pending.size()) {
+                    compactJournal();
+                }
+            } catch (final IOException e) {
+                // the messages will be sent again after restart which is fine as they are deduplicated by VK
+                log.warn("Unable to acknowledge messages in outbox journal " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Opens the journal for appending records.
+     *
+     * @return opened channel of the journal
+     *
+     * @throws IOException if an exception occurs while opening the journal
+     */
+    protected FileChannel openJournal() throws IOException {
+        val directory = file.toAbsolutePath().getParent();
+        if (directory != null) Files.createDirectories(directory);
+
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Appends the given records to the journal without flushing them to the disk.
+     * This should only be called while holding the {@link #journalLock}.
+     *
+     * @param records payloads of the records to append
+     * @return sequence number of the last appended record which may be passed to {@link #syncJournal(long)}
+     *
+     * @throws IOException if an exception occurs while writing the records
+     */
+    protected long appendRecords(@NonNull final List<byte[]> records) throws IOException {
+        writeRecords(journal, records);
+
+        return journalSequence += records.size();
+    }
+
+    /**
+     * Flushes the journal to the disk unless the record of the given sequence number already is.
+     * The thread performing the flush flushes the records appended by all other threads
+     * so that concurrently appended records share a single flush.
+     * This should not be called while holding the {@link #journalLock}.
+     *
+     * @param sequence sequence number of the record which should be flushed
+     *
+     * @throws IOException if an exception occurs while flushing the journal
+     */
+    protected void syncJournal(final long sequence) throws IOException {
+        if (syncedSequence >= sequence) return;
+
+        synchronized (syncLock) {
+            // the record may have been flushed by another thread while this one was waiting for the lock
+            if (syncedSequence >= sequence) return;
+
+            FileChannel journal;
+            final long writtenSequence;
+            synchronized (journalLock) {
+                journal = this.journal;
+                writtenSequence = journalSequence;
+            }
+            while (true) try {
+                journal.force(false);
+                break;
+            } catch (final ClosedChannelException e) {
+                // compaction replaces the journal with a flushed one containing all of the pending records
+                synchronized (journalLock) {
+                    if (this.journal == journal) throw e;
+                    journal = this.journal;
+                }
+            }
+            syncedSequence = writtenSequence;
+        }
+    }
+
+    /**
+     * Writes the given records to the channel.
+     *
+     * @param channel channel to which the records should be written
+     * @param records payloads of the records to write
+     *
+     * @throws IOException if an exception occurs while writing the records
+     */
+    protected static void writeRecords(@NonNull final FileChannel channel,
+                                       @NonNull final Collection<byte[]> records) throws IOException {
+        var size = 0;
+        for (val record : records) size += RECORD_HEADER_SIZE + record.length;
+
+        val buffer = ByteBuffer.allocate(size);
+        val checksum = new CRC32();
+        for (val record : records) {
+            checksum.reset();
+            checksum.update(record);
+            buffer.putInt(record.length).putInt((int) checksum.getValue()).put(record);
+        }
+        buffer.flip();
+
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    /**
+     * Replays the journal restoring the {@link #pending} messages.
+     * Records following a torn or corrupted one (which may be left by a crash) are discarded.
+     *
+     * @throws IOException if an exception occurs while reading the journal
+     */
+    protected void replayJournal() throws IOException {
+        final ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        } catch (final NoSuchFileException e) {
+            return;
+        }
+
+        var records = 0;
+        val checksum = new CRC32();
+        while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            val start = buffer.position();
+            val length = buffer.getInt();
+            val expectedChecksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                buffer.position(start);
+                break;
+            }
+
+            val record = new byte[length];
+            buffer.get(record);
+            checksum.reset();
+            checksum.update(record);
+            if ((int) checksum.getValue() != expectedChecksum) {
+                buffer.position(start);
+                break;
+            }
+
+            try {
+                decodeRecord(ByteBuffer.wrap(record));
+            } catch (final BufferUnderflowException | IllegalArgumentException e) {
+                buffer.position(start);
+                break;
+            }
+            records++;
+        }
+        journalGarbage = records - pending.size();
+
+        if (buffer.hasRemaining()) {
+            log.warn("Outbox journal {} is corrupted after {} bytes, the rest of it is discarded",
+                    file, buffer.position());
+            try (val channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(buffer.position());
+            }
+        }
+    }
+
+    /**
+     * Decodes the record of the journal applying it to the {@link #pending} messages.
+     *
+     * @param record payload of the record
+     */
+    protected void decodeRecord(@NonNull final ByteBuffer record) {
+        val type = record.get();
+        val peerId = record.getInt();
+        val randomId = record.getInt();
+
+        switch (type) {
+            case ENQUEUED: {
+                val apiCalls = record.getInt();
+                val prelude = readString(record);
+                val call = readString(record);
+                val message = new Message(peerId, randomId, apiCalls, prelude, call);
+                pending.put(message.getKey(), message);
+                break;
+            }
+            case ACKNOWLEDGED: {
+                pending.remove(key(peerId, randomId));
+                break;
+            }
+            default: throw new IllegalArgumentException("Unknown type of record: " + type);
+        }
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string from the buffer.
+     *
+     * @param buffer buffer from which to read the string
+     * @return read string
+     */
+    protected static String readString(@NonNull final ByteBuffer buffer) {
+        val length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) throw new BufferUnderflowException();
+
+        val bytes = new byte[length];
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Rewrites the journal so that it only contains the pending messages.
+     * This should only be called while holding the {@link #journalLock}.
+     *
+     * @throws IOException if an exception occurs while rewriting the journal
+     */
+    protected void compactJournal() throws IOException {
+        val records = new ArrayList<byte[]>(pending.size());
+        for (val message : pending.values()) records.add(encodeEnqueued(message));
+
+        val temporaryFile = Files.createTempFile(
+                file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp"
+        );
+        try {
+            try (val channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                writeRecords(channel, records);
+                channel.force(false);
+            }
+
+            journal.close();
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+            if (!journal.isOpen()) journal = openJournal();
+        }
+        log.debug("Compacted outbox journal {} dropping {} records", file, journalGarbage);
+        journalGarbage = 0;
+    }
+
+    /**
+     * Encodes the journal record of an enqueued message.
+     *
+     * @param message enqueued message
+     * @return payload of the record
+     */
+    @SneakyThrows(IOException.class) // never thrown by in-memory stream
+    protected static byte[] encodeEnqueued(@NonNull final Message message) {
+        val prelude = message.getPrelude().getBytes(StandardCharsets.UTF_8);
+        val call = message.getCall().getBytes(StandardCharsets.UTF_8);
+
+        val bytes = new ByteArrayOutputStream(1 + Integer.BYTES * 5 + prelude.length + call.length);
+        val output = new DataOutputStream(bytes);
+        output.writeByte(ENQUEUED);
+        output.writeInt(message.getPeerId());
+        output.writeInt(message.getRandomId());
+        output.writeInt(message.getApiCalls());
+        output.writeInt(prelude.length);
+        output.write(prelude);
+        output.writeInt(call.length);
+        output.write(call);
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encodes the journal record of an acknowledged message.
+     *
+     * @param message acknowledged message
+     * @return payload of the record
+     */
+    protected static byte[] encodeAcknowledged(@NonNull final Message message) {
+        return ByteBuffer.allocate(1 + Integer.BYTES * 2)
+                .put(ACKNOWLEDGED)
+                .putInt(message.getPeerId())
+                .putInt(message.getRandomId())
+                .array();
+    }
+
+    /**
+     * Gets the amount of messages which are not yet delivered.
+     *
+     * @return size of the backlog
+     */
+    public int getBacklog() {
+        synchronized (journalLock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Gets the amount of messages enqueued since the start.
+     *
+     * @return amount of enqueued messages
+     */
+    public long getEnqueued() {
+        return enqueued.sum();
+    }
+
+    /**
+     * Gets the amount of messages delivered since the start.
+     *
+     * @return amount of delivered messages
+     */
+    public long getDelivered() {
+        return delivered.sum();
+    }
+
+    /**
+     * Gets the amount of messages which were given up on after the maximal amount of attempts.
+     *
+     * @return amount of failed messages
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * Gets the amount of retried attempts to send messages.
+     *
+     * @return amount of retries
+     */
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * Gets the amount of successfully executed batches.
+     *
+     * @return amount of batches
+     */
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * Gets the rate at which messages got delivered during the last minute.
+     *
+     * @return amount of delivered messages per second
+     */
+    public double getDrainRate() {
+        return drainRate.getRate();
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) log.warn("Outbox workers did not stop in time");
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (journalLock) {
+            if (!pending.isEmpty()) log.info("{} undelivered messages are kept in outbox {}", pending.size(), file);
+            try {
+                journal.close();
+            } catch (final IOException e) {
+                log.warn("Unable to close outbox journal " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Message queued in the outbox.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    @FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+    protected static final class Message {
+
+        /**
+         * Peer to whom the message is sent
+         */
+        int peerId;
+
+        /**
+         * Random ID of the message used by VK for deduplicating it
+         */
+        int randomId;
+
+        /**
+         * Amount of API calls performed by the message
+         */
+        int apiCalls;
+
+        /**
+         * VKScript statements preparing the call
+         */
+        @NonNull String prelude;
+
+        /**
+         * VKScript expression performing the call
+         */
+        @NonNull String call;
+
+        @NonNull CompletableFuture<JsonElement> result = new CompletableFuture<>();
+
+        /**
+         * Amount of failed attempts to send the message, only accessed by its worker
+         */
+        @Getter(AccessLevel.NONE) @NonFinal int attempts;
+
+        /**
+         * Result of the call once the message is delivered
+         */
+        @Getter(AccessLevel.NONE) @NonFinal JsonElement response;
+
+        /**
+         * Gets the key of this message by which it is deduplicated.
+         *
+         * @return key of this message
+         */
+        public long getKey() {
+            return key(peerId, randomId);
+        }
+    }
+
+    /**
+     * Messages of a peer waiting for a retry, only accessed by the worker responsible for the peer.
+     */
+    @AllArgsConstructor
+    @FieldDefaults(level = AccessLevel.PROTECTED)
+    protected static final class DelayedPeer {
+
+        /**
+         * Moment as returned by {@link System#nanoTime()} after which the messages are retried
+         */
+        long retryTime;
+
+        /**
+         * Messages to retry followed by the ones sent to the peer while it was delayed
+         */
+        @NonNull final Deque<Message> messages = new ArrayDeque<>();
+    }
+
+    /**
+     * Configuration of {@link VkOutbox}.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Configuration {
+
+        /**
+         * Journal file of the outbox
+         */
+        @Builder.Default @NonNull File file = new File("cache/vk-outbox.log");
+
+        /**
+         * Whether or not the journal should be flushed to the disk before a message is considered enqueued,
+         * concurrently enqueued messages share a single flush
+         */
+        @Builder.Default boolean sync = true;
+
+        /**
+         * Amount of workers sending the messages
+         */
+        @Builder.Default int workers = 2;
+
+        /**
+         * Maximal amount of messages sent in a single batch
+         */
+        @Builder.Default int maxBatchSize = MAX_API_CALLS;
+
+        /**
+         * Time in milliseconds for which a worker waits for more messages to send them in the same batch
+         */
+        @Builder.Default long coalescingDelay = 50;
+
+        /**
+         * Maximal amount of batches sent per second by all workers, non-positive value disables the limit
+         */
+        @Builder.Default long maxRequestsPerSecond = 15;
+
+        /**
+         * Maximal amount of attempts to send a message
+         */
+        @Builder.Default int maxAttempts = 10;
+
+        /**
+         * Delay in milliseconds before the first retry of a failed batch which doubles with each next retry
+         */
+        @Builder.Default long initialBackoff = 1_000;
+
+        /**
+         * Maximal delay in milliseconds before a retry of a failed batch
+         */
+        @Builder.Default long maxBackoff = 60_000;
+
+        /**
+         * Amount of garbage records in the journal after which it gets compacted
+         */
+        @Builder.Default int compactionThreshold = 1_024;
+    }
+}
@@ -0,0 +1,171 @@
+package ru.progrm_jarvis.catobot;
+
+import com.vk.api.sdk.callback.CallbackApi;
+import lombok.NonNull;
+import lombok.val;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.progrm_jarvis.catobot.image.processor.CatImageCombiner;
+import ru.progrm_jarvis.catobot.image.processor.CatImageProcessor;
+import ru.progrm_jarvis.catobot.subscription.UserManager;
+import ru.progrm_jarvis.catobot.trace.Tracer;
+import ru.progrm_jarvis.catobot.vk.SimpleVkCatsManager;
+import ru.progrm_jarvis.catobot.vk.VkOutbox;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BroadcasterTest {
+
+    private static final List<String> USER_KEYS = Arrays.asList("1", "2", "3", "not-a-peer", "4", "5", "6", "7");
+
+    private Path directory;
+
+    private SimpleVkCatsManager vk;
+
+    /**
+     * Receivers of the sent messages by their random IDs
+     */
+    private Map<Integer, List<Integer>> messages;
+
+    @BeforeEach
+    void createVk() throws IOException {
+        directory = Files.createTempDirectory("broadcast");
+        messages = Collections.synchronizedMap(new LinkedHashMap<>());
+        vk = new SimpleVkCatsManager(
+                SimpleVkCatsManager.Configuration.builder()
+                        .groupId(1)
+                        .groupToken("token")
+                        .outbox(VkOutbox.Configuration.builder()
+                                .file(directory.resolve("outbox.log").toFile())
+                                .build())
+                        .build(),
+                new CallbackApi() {}, CatImageProcessor.getStub(), CatImageCombiner.getStub(),
+                new Tracer(Tracer.Configuration.builder().build())
+        ) {
+            @Override
+            public CompletableFuture<Integer> sendMessage(@NonNull final List<Integer> peerIds, final int randomId,
+                                                         @NonNull final String text) {
+                // the same peers are expected to get the same message again only after resuming
+                messages.merge(randomId, new ArrayList<>(peerIds), (sent, resent) -> {
+                    assertEquals(sent, resent);
+                    return sent;
+                });
+
+                return CompletableFuture.completedFuture(peerIds.size());
+            }
+        };
+    }
+
+    @AfterEach
+    void closeVk() throws IOException {
+        vk.close();
+        FileUtils.deleteDirectory(directory.toFile());
+    }
+
+    @Test
+    void testMessageIsSentToAllUsers() {
+        val broadcaster = createBroadcaster(true, new ScanningUserManager(USER_KEYS, -1));
+        try {
+            val broadcast = broadcaster.start("meow");
+            awaitFinish(broadcast);
+
+            assertEquals(Broadcaster.State.COMPLETED, broadcast.getState());
+            assertEquals(USER_KEYS.size(), broadcast.getScanned());
+            assertEquals(7, broadcast.getSent());
+            assertEquals(0, broadcast.getFailed());
+            assertEquals(1, broadcast.getSkipped());
+        } finally {
+            broadcaster.close();
+        }
+
+        // each message has its own random ID so that VK does not drop any of them as duplicates
+        assertEquals(4, messages.size());
+        val receivers = new ArrayList<Integer>();
+        for (val peerIds : messages.values()) receivers.addAll(peerIds);
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7), receivers);
+        assertFalse(Files.exists(directory.resolve("broadcast.json")));
+    }
+
+    @Test
+    void testInterruptedBroadcastIsResumedOnStart() {
+        final Broadcaster.Broadcast interrupted;
+        val failing = createBroadcaster(true, new ScanningUserManager(USER_KEYS, 3));
+        try {
+            interrupted = failing.start("meow");
+            awaitFinish(interrupted);
+        } finally {
+            failing.close();
+        }
+        assertEquals(Broadcaster.State.INTERRUPTED, interrupted.getState());
+        assertEquals(3, interrupted.getSent());
+        val sentBeforeResuming = new HashMap<Integer, List<Integer>>(messages);
+
+        val resuming = createBroadcaster(true, new ScanningUserManager(USER_KEYS, -1));
+        try {
+            // the broadcaster does not resume the broadcast until the bot starts
+            assertNull(resuming.getCurrent());
+
+            val resumed = resuming.resumeOnStart();
+            assertNotNull(resumed);
+            awaitFinish(resumed);
+
+            assertEquals(interrupted.getId(), resumed.getId());
+            assertEquals(Broadcaster.State.COMPLETED, resumed.getState());
+            assertEquals(USER_KEYS.size(), resumed.getScanned());
+            assertEquals(7, resumed.getSent());
+        } finally {
+            resuming.close();
+        }
+
+        for (val message : sentBeforeResuming.entrySet()) assertEquals(message.getValue(), messages.get(
+                message.getKey()
+        ));
+        assertEquals(4, messages.size());
+    }
+
+    @Test
+    void testBroadcastIsNotResumedOnStartIfDisabled() {
+        val failing = createBroadcaster(false, new ScanningUserManager(USER_KEYS, 3));
+        try {
+            awaitFinish(failing.start("meow"));
+        } finally {
+            failing.close();
+        }
+
+        val broadcaster = createBroadcaster(false, new ScanningUserManager(USER_KEYS, -1));
+        try {
+            assertNull(broadcaster.resumeOnStart());
+            assertNull(broadcaster.getCurrent());
+        } finally {
+            broadcaster.close();
+        }
+    }
+
+    private Broadcaster createBroadcaster(final boolean resume, final UserManager userManager) {
+        return new Broadcaster(
+                Broadcaster.Configuration.builder()
+                        .checkpointFile(directory.resolve("broadcast.json").toFile())
+                        .resume(resume)
+                        .chunkSize(3)
+                        .peersPerMessage(2)
+                        .build(),
+                userManager, vk, Executors.newSingleThreadExecutor()
+        );
+    }
+
+    private static void awaitFinish(final Broadcaster.Broadcast broadcast) {
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            while (broadcast.getState() == Broadcaster.State.RUNNING) Thread.sleep(10);
+        });
+    }
+}
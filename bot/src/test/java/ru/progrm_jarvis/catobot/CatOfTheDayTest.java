@@ -0,0 +1,146 @@
+package ru.progrm_jarvis.catobot;
+
+import com.vk.api.sdk.callback.CallbackApi;
+import lombok.val;
+import lombok.var;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.progrm_jarvis.catobot.image.CatImage;
+import ru.progrm_jarvis.catobot.image.processor.CatImageCombiner;
+import ru.progrm_jarvis.catobot.image.processor.CatImageProcessor;
+import ru.progrm_jarvis.catobot.image.repository.CatImageRepository;
+import ru.progrm_jarvis.catobot.trace.Tracer;
+import ru.progrm_jarvis.catobot.vk.SimpleVkCatsManager;
+import ru.progrm_jarvis.catobot.vk.VkOutbox;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatOfTheDayTest {
+
+    private Path directory;
+
+    private ScheduledExecutorService scheduler;
+
+    private SimpleVkCatsManager vk;
+
+    private CatImageSpeculator<CatImage, Object> speculator;
+
+    @BeforeEach
+    void createSpeculator() throws IOException {
+        directory = Files.createTempDirectory("cat-of-the-day");
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        vk = new SimpleVkCatsManager(
+                SimpleVkCatsManager.Configuration.builder()
+                        .groupId(1)
+                        .groupToken("token")
+                        .outbox(VkOutbox.Configuration.builder()
+                                .file(directory.resolve("outbox.log").toFile())
+                                .build())
+                        .build(),
+                new CallbackApi() {}, CatImageProcessor.getStub(), CatImageCombiner.getStub(),
+                new Tracer(Tracer.Configuration.builder().build())
+        );
+        final CatImageRepository<CatImage, Object> repository = configuration -> new CompletableFuture<>();
+        speculator = new CatImageSpeculator<>(
+                CatImageSpeculator.Configuration.builder().build(), repository, vk, scheduler
+        );
+    }
+
+    @AfterEach
+    void closeSpeculator() throws IOException {
+        scheduler.shutdownNow();
+        vk.close();
+        FileUtils.deleteDirectory(directory.toFile());
+    }
+
+    @Test
+    void testUsersAreSpreadAcrossSlots() {
+        val slotCount = 120;
+        val catOfTheDay = createCatOfTheDay(CatOfTheDay.Configuration.builder().slots(slotCount).build());
+        try {
+            val users = new int[slotCount];
+            for (var peerId = 1; peerId <= slotCount * 1_000; peerId++) {
+                val slot = catOfTheDay.getSlot(Integer.toString(peerId));
+                assertTrue(slot >= 0 && slot < slotCount, () -> "Slot " + slot + " is out of range");
+                users[slot]++;
+            }
+            for (var slot = 0; slot < slotCount; slot++) assertTrue(
+                    users[slot] > 850 && users[slot] < 1_150, "Slot " + slot + " has " + users[slot] + " users"
+            );
+
+            // sequential keys do not get into the same or neighbouring slots
+            val slots = new HashSet<Integer>();
+            for (var peerId = 1; peerId <= slotCount; peerId++) slots.add(
+                    catOfTheDay.getSlot(Integer.toString(peerId))
+            );
+            assertTrue(slots.size() > slotCount / 2, () -> "Only " + slots.size() + " slots are used");
+
+            assertEquals(catOfTheDay.getSlot("12345"), catOfTheDay.getSlot("12345"));
+        } finally {
+            catOfTheDay.close();
+        }
+    }
+
+    @Test
+    void testMissedLookupsAreCancelledOnSend() {
+        val catOfTheDay = createCatOfTheDay(CatOfTheDay.Configuration.builder().lookupTimeout(100).build());
+        try {
+            val missed = new CompletableFuture<Void>();
+            val failed = new CompletableFuture<Void>();
+            failed.completeExceptionally(new IOException("Unable to look up user"));
+
+            val slot = new CatOfTheDay.Slot();
+            slot.getLookups().add(CompletableFuture.completedFuture(null));
+            slot.getLookups().add(failed);
+            slot.getLookups().add(missed);
+
+            // the slot is sent once the timeout expires instead of waiting for the lookup forever
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> catOfTheDay.send(slot));
+            assertTrue(missed.isCancelled());
+            assertEquals(2, catOfTheDay.getFailures());
+            assertEquals(0, catOfTheDay.getDeliveries());
+        } finally {
+            catOfTheDay.close();
+        }
+    }
+
+    @Test
+    void testLookupsAreAwaitedWithinTimeout() {
+        val catOfTheDay = createCatOfTheDay(CatOfTheDay.Configuration.builder().lookupTimeout(10_000).build());
+        try {
+            val lookup = new CompletableFuture<Void>();
+            scheduler.schedule(() -> lookup.complete(null), 50, TimeUnit.MILLISECONDS);
+
+            val slot = new CatOfTheDay.Slot();
+            slot.getLookups().add(lookup);
+
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> catOfTheDay.send(slot));
+            assertTrue(lookup.isDone());
+            assertFalse(lookup.isCancelled());
+            assertEquals(0, catOfTheDay.getFailures());
+        } finally {
+            catOfTheDay.close();
+        }
+    }
+
+    private CatOfTheDay createCatOfTheDay(final CatOfTheDay.Configuration configuration) {
+        return new CatOfTheDay(
+                configuration, new ScanningUserManager(Collections.emptyList(), -1), speculator, user -> {
+                    throw new UnsupportedOperationException();
+                }, scheduler, Executors.newSingleThreadExecutor()
+        );
+    }
+}
@@ -0,0 +1,67 @@
+package ru.progrm_jarvis.catobot;
+
+import lombok.NonNull;
+import lombok.val;
+import ru.progrm_jarvis.catobot.subscription.User;
+import ru.progrm_jarvis.catobot.subscription.UserManager;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * User manager scanning the given keys of users in chunks using their indices as cursors.
+ */
+final class ScanningUserManager implements UserManager {
+
+    private final List<String> userKeys;
+
+    /**
+     * Cursor from which the scan fails or {@code -1} if it does not
+     */
+    private final int failingCursor;
+
+    ScanningUserManager(@NonNull final List<String> userKeys, final int failingCursor) {
+        this.userKeys = userKeys;
+        this.failingCursor = failingCursor;
+    }
+
+    @Override
+    public CompletableFuture<UserKeysChunk> scanUserKeys(@NonNull final String cursor, final int count) {
+        val from = Integer.parseInt(cursor);
+        val result = new CompletableFuture<UserKeysChunk>();
+        if (from == failingCursor) result.completeExceptionally(new IOException("Scan failed"));
+        else {
+            val to = Math.min(from + count, userKeys.size());
+            result.complete(new UserKeysChunk(
+                    userKeys.subList(from, to), to == userKeys.size() ? SCAN_START : Integer.toString(to),
+                    to == userKeys.size()
+            ));
+        }
+
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isPresent(final String userKey) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void store(@NonNull final User user) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<User> getUser(final String userKey) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void unstore(@NonNull final String userKey) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {}
+}
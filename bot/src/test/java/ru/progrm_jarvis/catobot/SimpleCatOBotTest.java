@@ -0,0 +1,56 @@
+package ru.progrm_jarvis.catobot;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import ru.progrm_jarvis.catobot.metrics.PrometheusExporter;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimpleCatOBotTest {
+
+    @Test
+    void testUnchangedConfigHasNoChangedSections() {
+        val applied = SimpleCatOBot.CONFIG_GSON.toJsonTree(new SimpleCatOBot.Config()).getAsJsonObject();
+        val reloaded = SimpleCatOBot.CONFIG_GSON.toJsonTree(new SimpleCatOBot.Config()).getAsJsonObject();
+
+        assertTrue(SimpleCatOBot.getChangedSections(applied, reloaded).isEmpty());
+    }
+
+    @Test
+    void testChangedSectionsAreDetected() {
+        val applied = SimpleCatOBot.CONFIG_GSON.toJsonTree(new SimpleCatOBot.Config()).getAsJsonObject();
+        val config = new SimpleCatOBot.Config();
+        config.setJmxMetrics(false);
+        // nested values of a section
+        config.setPrometheusConfig(PrometheusExporter.Configuration.builder().path("/cats").build());
+        val reloaded = SimpleCatOBot.CONFIG_GSON.toJsonTree(config).getAsJsonObject();
+
+        assertEquals(
+                new HashSet<>(Arrays.asList("jmx-metrics", "prometheus")),
+                SimpleCatOBot.getChangedSections(applied, reloaded)
+        );
+    }
+
+    @Test
+    void testAddedAndRemovedSectionsAreDetected() {
+        val config = new SimpleCatOBot.Config();
+        config.setPreloadSnapshotFile(null);
+        val withoutSnapshot = SimpleCatOBot.CONFIG_GSON.toJsonTree(config).getAsJsonObject();
+        config.setPreloadSnapshotFile(new File("cats.snapshot"));
+        val withSnapshot = SimpleCatOBot.CONFIG_GSON.toJsonTree(config).getAsJsonObject();
+
+        assertEquals(
+                Collections.singleton("preload-snapshot"),
+                SimpleCatOBot.getChangedSections(withoutSnapshot, withSnapshot)
+        );
+        assertEquals(
+                Collections.singleton("preload-snapshot"),
+                SimpleCatOBot.getChangedSections(withSnapshot, withoutSnapshot)
+        );
+    }
+}
@@ -0,0 +1,136 @@
+package ru.progrm_jarvis.catobot.image;
+
+import lombok.NonNull;
+import lombok.val;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactTheCatApiCatImageTest {
+
+    private final TheCatApiMetadataRegistry registry = new TheCatApiMetadataRegistry();
+
+    @Test
+    void testFullImageIsRestored() {
+        val original = image("abc", "https://cdn2.thecatapi.com/images/abc.jpg", breed("beng"), category(5));
+        val compact = CompactTheCatApiCatImage.of(original, registry, image -> new byte[0]);
+
+        assertEquals("abc", compact.getId());
+        assertEquals("https://cdn2.thecatapi.com/images/abc.jpg", compact.getUrl());
+        assertEquals("jpg", compact.getType());
+
+        val full = compact.toFullImage();
+        assertEquals(original.getId(), full.getId());
+        assertEquals(original.getUrl(), full.getUrl());
+        assertEquals(original.getWidth(), full.getWidth());
+        assertEquals(original.getHeight(), full.getHeight());
+        assertEquals(original.getBreeds(), full.getBreeds());
+        assertEquals(original.getCategories(), full.getCategories());
+    }
+
+    @Test
+    void testUnknownTypeIsKept() {
+        val compact = CompactTheCatApiCatImage.of(
+                image("abc", "https://cdn2.thecatapi.com/images/abc.WebP"), registry, image -> new byte[0]
+        );
+        assertNull(compact.imageType);
+        assertEquals("WebP", compact.getType());
+    }
+
+    @Test
+    void testMetadataIsShared() {
+        final CompactTheCatApiCatImage.Loader loader = image -> new byte[0];
+        val first = CompactTheCatApiCatImage.of(image(
+                "first", "https://cdn2.thecatapi.com/images/first.png", breed("beng"), category(5)
+        ), registry, loader);
+        val second = CompactTheCatApiCatImage.of(image(
+                "second", "https://cdn2.thecatapi.com/images/second.png", breed("beng"), category(5)
+        ), registry, loader);
+
+        // equal metadata of different cat images is stored once
+        assertSame(first.urlBase, second.urlBase);
+        assertSame(first.imageType, second.imageType);
+        assertSame(first.getBreeds().get(0), second.getBreeds().get(0));
+        assertSame(first.getCategories().get(0), second.getCategories().get(0));
+    }
+
+    @Test
+    void testImageIsLoadedOnce() {
+        val loads = new AtomicInteger();
+        val content = ByteBuffer.wrap(new byte[]{1, 2}).asReadOnlyBuffer();
+        val loader = new CompactTheCatApiCatImage.Loader() {
+            @Override
+            @NotNull public byte[] load(@NonNull final CompactTheCatApiCatImage image) {
+                loads.incrementAndGet();
+
+                return new byte[]{1, 2, 3};
+            }
+
+            @Override
+            @Nullable public ByteBuffer getContent(@NonNull final CompactTheCatApiCatImage image) {
+                return image.getId().equals("mapped") ? content : null;
+            }
+        };
+
+        val mapped = CompactTheCatApiCatImage.of(
+                image("mapped", "https://cdn2.thecatapi.com/images/mapped.jpg"), registry, loader
+        );
+        // content available to the loader is used without loading the bytes
+        assertSame(content, mapped.getImageBuffer());
+        assertFalse(mapped.isImageLoaded());
+        assertEquals(0, loads.get());
+
+        val loaded = CompactTheCatApiCatImage.of(
+                image("loaded", "https://cdn2.thecatapi.com/images/loaded.jpg"), registry, loader
+        );
+        assertNull(loaded.getLoadedContent());
+        assertArrayEquals(new byte[]{1, 2, 3}, loaded.getImage());
+        assertTrue(loaded.isImageLoaded());
+        assertSame(loaded.getImage(), loaded.getImage());
+        assertEquals(3, loaded.getImageBuffer().remaining());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testBreedOrdinalsAreDense() {
+        assertEquals(0, registry.registerBreed(breed("beng")));
+        assertEquals(1, registry.registerBreed(breed("abys")));
+        assertEquals(0, registry.registerBreed(breed("beng")));
+        assertEquals("abys", registry.getBreed(1).getId());
+        assertThrows(IndexOutOfBoundsException.class, () -> registry.getBreed(2));
+    }
+
+    @Test
+    void testUnknownCategoryIsRejected() {
+        assertEquals(5, registry.registerCategory(category(5)));
+        assertEquals(5, registry.getCategory(5).getId());
+        assertThrows(IllegalArgumentException.class, () -> registry.getCategory(7));
+    }
+
+    private static TheCatApiCatImage image(final String id, final String url,
+                                           final TheCatApiCatImage.Breed breed,
+                                           final TheCatApiCatImage.Category category) {
+        return TheCatApiCatImage.builder().id(id).url(url).width(640).height(480)
+                .breeds(Collections.singletonList(breed))
+                .categories(Collections.singletonList(category))
+                .build();
+    }
+
+    private static TheCatApiCatImage image(final String id, final String url) {
+        return TheCatApiCatImage.builder().id(id).url(url).width(640).height(480).build();
+    }
+
+    private static TheCatApiCatImage.Breed breed(final String id) {
+        return TheCatApiCatImage.Breed.builder().id(id).name("Breed " + id).build();
+    }
+
+    private static TheCatApiCatImage.Category category(final int id) {
+        return TheCatApiCatImage.Category.builder().id(id).name("Category " + id).build();
+    }
+}
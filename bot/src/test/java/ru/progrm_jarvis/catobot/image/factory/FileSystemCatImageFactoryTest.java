@@ -0,0 +1,67 @@
+package ru.progrm_jarvis.catobot.image.factory;
+
+import lombok.val;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileSystemCatImageFactoryTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("cats");
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        FileUtils.deleteDirectory(directory.toFile());
+    }
+
+    @Test
+    void testImagesAreIndexed() throws IOException {
+        Files.write(directory.resolve("cat.png"), new byte[]{1, 2, 3});
+        Files.write(directory.resolve("notes.txt"), new byte[]{4, 5, 6});
+
+        val factory = new FileSystemCatImageFactory(FileSystemCatImageFactory.Configuration.builder()
+                .directory(directory.toFile())
+                .watch(false)
+                .build());
+        try {
+            val image = factory.createCatImage(null).join();
+            assertEquals("cat.png", image.getId());
+            assertEquals("png", image.getType());
+            assertEquals(3, image.getImageBuffer().remaining());
+            assertArrayEquals(new byte[]{1, 2, 3}, image.getImage());
+        } finally {
+            factory.close();
+        }
+    }
+
+    @Test
+    void testNewImagesAreIndexedOnceWritten() throws IOException, InterruptedException {
+        val factory = new FileSystemCatImageFactory(FileSystemCatImageFactory.Configuration.builder()
+                .directory(directory.toFile())
+                .settleTime(50)
+                .build());
+        try {
+            assertTrue(factory.createCatImage(null).isCompletedExceptionally());
+
+            Files.write(directory.resolve("cat.png"), new byte[]{1, 2, 3});
+            // file system watchers may be polling thus this may take a while
+            for (int i = 0; i < 300 && factory.pickRandomFile() == null; i++) Thread.sleep(100);
+
+            assertArrayEquals(new byte[]{1, 2, 3}, factory.createCatImage(null).join().getImage());
+        } finally {
+            factory.close();
+        }
+    }
+}
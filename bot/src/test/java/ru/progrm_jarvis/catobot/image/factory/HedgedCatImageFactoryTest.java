@@ -0,0 +1,169 @@
+package ru.progrm_jarvis.catobot.image.factory;
+
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.progrm_jarvis.catobot.image.CatImage;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgedCatImageFactoryTest {
+
+    private ScheduledExecutorService scheduler;
+
+    @BeforeEach
+    void createScheduler() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    void shutdownScheduler() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void testLatencyBoostIsBounded() {
+        val fast = HedgedCatImageFactory.Source.<Void>of("fast", configuration -> new CompletableFuture<>());
+        val slow = HedgedCatImageFactory.Source.<Void>of("slow", configuration -> new CompletableFuture<>());
+        for (int i = 0; i < 100; i++) {
+            fast.latencies.record(TimeUnit.MILLISECONDS.toNanos(1));
+            slow.latencies.record(TimeUnit.MILLISECONDS.toNanos(500));
+        }
+
+        val factory = new HedgedCatImageFactory<>(
+                HedgedCatImageFactory.Configuration.builder().maxLatencyBoost(2).build(),
+                Arrays.asList(fast, slow), scheduler
+        );
+        val slowestMedian = factory.getSlowestMedianLatency();
+
+        val fastWeight = factory.getWeight(fast, slowestMedian);
+        val slowWeight = factory.getWeight(slow, slowestMedian);
+        assertEquals(2, fastWeight / slowWeight, 1e-9);
+    }
+
+    @Test
+    void testConfiguredWeightsAreRespected() {
+        val first = HedgedCatImageFactory.Source.<Void>of("first", configuration -> new CompletableFuture<>());
+        val second = HedgedCatImageFactory.Source.<Void>of("second", configuration -> new CompletableFuture<>());
+
+        val factory = new HedgedCatImageFactory<>(
+                HedgedCatImageFactory.Configuration.builder()
+                        .weights(Collections.singletonMap("second", 3d))
+                        .build(),
+                Arrays.asList(first, second), scheduler
+        );
+
+        // sources without statistics are weighted by their configuration only
+        assertEquals(1, factory.getWeight(first, factory.getSlowestMedianLatency()), 1e-9);
+        assertEquals(3, factory.getWeight(second, factory.getSlowestMedianLatency()), 1e-9);
+    }
+
+    @Test
+    void testFailuresReduceWeight() {
+        val failing = HedgedCatImageFactory.Source.<Void>of("failing", configuration -> new CompletableFuture<>());
+        for (int i = 0; i < 9; i++) failing.failures.increment();
+
+        val factory = new HedgedCatImageFactory<>(
+                HedgedCatImageFactory.Configuration.builder().build(),
+                Collections.singletonList(failing), scheduler
+        );
+
+        assertEquals(0.1, factory.getWeight(failing, 0), 1e-9);
+    }
+
+    @Test
+    void testFailedRequestIsHedged() {
+        val failed = new CompletableFuture<CatImage>();
+        failed.completeExceptionally(new IllegalStateException("failure"));
+        val image = new TestCatImage();
+
+        val factory = new HedgedCatImageFactory<Void>(
+                HedgedCatImageFactory.Configuration.builder().build(),
+                Arrays.asList(
+                        HedgedCatImageFactory.Source.of("failing", configuration -> failed),
+                        HedgedCatImageFactory.Source.of("working", configuration -> {
+                            return CompletableFuture.completedFuture(image);
+                        })
+                ), scheduler
+        );
+
+        // whichever source is picked first, the working one answers
+        for (int i = 0; i < 10; i++) assertSame(image, factory.createCatImage(null).join());
+    }
+
+    @Test
+    void testAllSourcesFailing() {
+        val failed = new CompletableFuture<CatImage>();
+        failed.completeExceptionally(new IllegalStateException("failure"));
+
+        val factory = new HedgedCatImageFactory<Void>(
+                HedgedCatImageFactory.Configuration.builder().build(),
+                Arrays.asList(
+                        HedgedCatImageFactory.Source.of("first", configuration -> failed),
+                        HedgedCatImageFactory.Source.of("second", configuration -> failed)
+                ), scheduler
+        );
+
+        assertThrows(CompletionException.class, () -> factory.createCatImage(null).join());
+    }
+
+    @Test
+    void testSurplusImageIsHandled() {
+        // sources get requested in order thus the first future is the primary request and the second one is hedged
+        val requests = new LinkedBlockingQueue<CompletableFuture<CatImage>>();
+        val factory = new HedgedCatImageFactory<Void>(
+                HedgedCatImageFactory.Configuration.builder().defaultHedgeDelay(10).build(),
+                Arrays.asList(
+                        HedgedCatImageFactory.Source.of("first", configuration -> request(requests)),
+                        HedgedCatImageFactory.Source.of("second", configuration -> request(requests))
+                ), scheduler
+        );
+        val surplus = new CompletableFuture<CatImage>();
+        factory.setSurplusImageHandler(surplus::complete);
+
+        val result = factory.createCatImage(null);
+        val primary = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> requests.take());
+        val hedged = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> requests.take());
+
+        val hedgedImage = new TestCatImage();
+        hedged.complete(hedgedImage);
+        assertSame(hedgedImage, result.join());
+        assertFalse(surplus.isDone());
+
+        val primaryImage = new TestCatImage();
+        primary.complete(primaryImage);
+        assertSame(primaryImage, surplus.getNow(null));
+    }
+
+    private static CompletableFuture<CatImage> request(final Queue<CompletableFuture<CatImage>> requests) {
+        val request = new CompletableFuture<CatImage>();
+        requests.add(request);
+
+        return request;
+    }
+
+    private static final class TestCatImage implements CatImage {
+
+        @Override
+        public byte[] getImage() {
+            return new byte[0];
+        }
+
+        @Override
+        public String getType() {
+            return "png";
+        }
+    }
+}
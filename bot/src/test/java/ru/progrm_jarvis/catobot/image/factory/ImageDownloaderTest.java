@@ -0,0 +1,95 @@
+package ru.progrm_jarvis.catobot.image.factory;
+
+import lombok.val;
+import lombok.var;
+import org.apache.http.client.methods.HttpGet;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageDownloaderTest {
+
+    private final HttpGet request = new HttpGet("http://localhost/cat.jpg");
+
+    private final ImageDownloader downloader = new ImageDownloader(
+            ImageDownloader.Configuration.builder().maxImageSize(16).bufferSize(4).maxPooledBuffers(8).build()
+    );
+
+    @Test
+    void testUnknownLengthIsReadExactly() throws IOException {
+        assertArrayEquals(bytes(10), downloader.readUnknownLength(request, new ByteArrayInputStream(bytes(10))));
+        // the image ending exactly at the end of a chunk does not get an extra byte
+        assertArrayEquals(bytes(8), downloader.readUnknownLength(request, new ByteArrayInputStream(bytes(8))));
+        assertArrayEquals(new byte[0], downloader.readUnknownLength(request, new ByteArrayInputStream(new byte[0])));
+    }
+
+    @Test
+    void testChunksAreReusedAfterFailedDownload() throws IOException {
+        val bufferPool = downloader.getBufferPool();
+        assertThrows(IOException.class, () -> downloader.readUnknownLength(request, failingAfter(10)));
+        assertEquals(3, bufferPool.getAcquisitions());
+        assertEquals(0, bufferPool.getReuses());
+
+        // all of the chunks of the failed download were returned to the pool
+        assertArrayEquals(bytes(10), downloader.readUnknownLength(request, new ByteArrayInputStream(bytes(10))));
+        assertEquals(6, bufferPool.getAcquisitions());
+        assertEquals(3, bufferPool.getReuses());
+    }
+
+    @Test
+    void testOversizedImageIsRejected() throws IOException {
+        val bufferPool = downloader.getBufferPool();
+        assertThrows(IOException.class, () -> downloader.readUnknownLength(
+                request, new ByteArrayInputStream(bytes(17))
+        ));
+        assertEquals(1, downloader.getRejections());
+        assertEquals(5, bufferPool.getAcquisitions());
+
+        // the chunks of the rejected image are reused
+        assertArrayEquals(bytes(16), downloader.readUnknownLength(request, new ByteArrayInputStream(bytes(16))));
+        assertEquals(10, bufferPool.getAcquisitions());
+        assertEquals(5, bufferPool.getReuses());
+    }
+
+    @Test
+    void testKnownLengthEndingEarlyIsRejected() throws IOException {
+        assertArrayEquals(bytes(5), ImageDownloader.readKnownLength(new ByteArrayInputStream(bytes(5)), 5));
+        assertThrows(EOFException.class, () -> ImageDownloader.readKnownLength(
+                new ByteArrayInputStream(bytes(5)), 6
+        ));
+    }
+
+    private static byte[] bytes(final int length) {
+        val bytes = new byte[length];
+        for (var i = 0; i < length; i++) bytes[i] = (byte) i;
+
+        return bytes;
+    }
+
+    private static InputStream failingAfter(final int length) {
+        val content = new ByteArrayInputStream(bytes(length));
+
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                val read = content.read();
+                if (read < 0) throw new IOException("Connection reset");
+
+                return read;
+            }
+
+            @Override
+            public int read(final byte[] buffer, final int offset, final int count) throws IOException {
+                val read = content.read(buffer, offset, count);
+                if (read < 0) throw new IOException("Connection reset");
+
+                return read;
+            }
+        };
+    }
+}
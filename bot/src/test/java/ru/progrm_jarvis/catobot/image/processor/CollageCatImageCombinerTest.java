@@ -0,0 +1,126 @@
+package ru.progrm_jarvis.catobot.image.processor;
+
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.progrm_jarvis.catobot.image.CatImage;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CollageCatImageCombinerTest {
+
+    private CollageCatImageCombiner combiner;
+
+    @BeforeEach
+    void createCombiner() {
+        combiner = new CollageCatImageCombiner(
+                CollageCatImageCombiner.Configuration.builder().enabled(true).width(100).padding(0).build(),
+                Executors.newSingleThreadExecutor()
+        );
+    }
+
+    @AfterEach
+    void closeCombiner() {
+        combiner.close();
+    }
+
+    @Test
+    void testTooFewImagesAreNotCombined() throws IOException {
+        final List<CompletableFuture<CatImage>> images = Collections.singletonList(image(Color.RED));
+        assertSame(images, combiner.combine(images));
+    }
+
+    @Test
+    void testAllImagesAreCombined() throws IOException {
+        val collage = combine(Arrays.asList(image(Color.RED), image(Color.GREEN), image(Color.BLUE)));
+
+        // the images make a 2x2 grid of 50x50 cells
+        assertEquals(100, collage.getWidth());
+        assertEquals(100, collage.getHeight());
+        assertColor(Color.RED, collage, 25, 25);
+        assertColor(Color.GREEN, collage, 75, 25);
+        assertColor(Color.BLUE, collage, 25, 75);
+        assertColor(Color.WHITE, collage, 75, 75);
+    }
+
+    @Test
+    void testPartialCollageIsRenderedIfSomeImagesFail() throws IOException {
+        val collage = combine(Arrays.asList(
+                failed(), image(Color.RED), CompletableFuture.completedFuture(
+                        new ProcessedCatImage("broken", new byte[]{1, 2, 3}, "png")
+                ), image(Color.BLUE)
+        ));
+
+        // only the images which were loaded make the collage in their original order
+        assertEquals(100, collage.getWidth());
+        assertEquals(50, collage.getHeight());
+        assertColor(Color.RED, collage, 25, 25);
+        assertColor(Color.BLUE, collage, 75, 25);
+    }
+
+    @Test
+    void testCollageFailsIfNoImagesLoad() {
+        val collages = combiner.combine(Arrays.asList(failed(), failed()));
+        assertEquals(1, collages.size());
+
+        val thrown = assertThrows(CompletionException.class, () -> collages.get(0).join());
+        assertTrue(thrown.getCause() instanceof IllegalStateException, thrown::toString);
+    }
+
+    private BufferedImage combine(final List<CompletableFuture<CatImage>> images) throws IOException {
+        val collages = combiner.combine(images);
+        assertEquals(1, collages.size());
+
+        val collage = collages.get(0).join();
+        assertNull(collage.getId());
+        assertEquals("jpg", collage.getType());
+
+        return ImageIO.read(new ByteArrayInputStream(collage.getImage()));
+    }
+
+    private static CompletableFuture<CatImage> image(final Color color) throws IOException {
+        val image = new BufferedImage(60, 40, BufferedImage.TYPE_INT_RGB);
+        val graphics = image.createGraphics();
+        try {
+            graphics.setColor(color);
+            graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        } finally {
+            graphics.dispose();
+        }
+
+        val output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+
+        return CompletableFuture.completedFuture(new ProcessedCatImage(null, output.toByteArray(), "png"));
+    }
+
+    private static CompletableFuture<CatImage> failed() {
+        val image = new CompletableFuture<CatImage>();
+        image.completeExceptionally(new IOException("Unable to download cat image"));
+
+        return image;
+    }
+
+    private static void assertColor(final Color expected, final BufferedImage image, final int x, final int y) {
+        // the collage is encoded as JPEG thus the colors are only approximate
+        val actual = new Color(image.getRGB(x, y));
+        assertTrue(Math.abs(expected.getRed() - actual.getRed()) < 32
+                && Math.abs(expected.getGreen() - actual.getGreen()) < 32
+                && Math.abs(expected.getBlue() - actual.getBlue()) < 32,
+                () -> "Expected " + expected + " at (" + x + ", " + y + ") but got " + actual);
+    }
+}
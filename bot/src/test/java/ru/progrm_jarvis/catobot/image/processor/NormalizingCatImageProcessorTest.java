@@ -0,0 +1,94 @@
+package ru.progrm_jarvis.catobot.image.processor;
+
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.progrm_jarvis.catobot.image.CatImage;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NormalizingCatImageProcessorTest {
+
+    private NormalizingCatImageProcessor processor;
+
+    @BeforeEach
+    void createProcessor() {
+        processor = new NormalizingCatImageProcessor(
+                NormalizingCatImageProcessor.Configuration.builder().maxDimension(100).build(),
+                Executors.newSingleThreadExecutor()
+        );
+    }
+
+    @AfterEach
+    void closeProcessor() {
+        processor.close();
+    }
+
+    @Test
+    void testDownscaleFitsMaxDimension() {
+        assertDimensions(100, 33, processor.downscale(new BufferedImage(300, 100, BufferedImage.TYPE_INT_ARGB)));
+        assertDimensions(33, 100, processor.downscale(new BufferedImage(100, 300, BufferedImage.TYPE_INT_RGB)));
+        // big reductions are performed in steps but still end up exactly at the bound
+        assertDimensions(100, 75, processor.downscale(new BufferedImage(4000, 3000, BufferedImage.TYPE_INT_RGB)));
+        assertDimensions(100, 100, processor.downscale(new BufferedImage(101, 101, BufferedImage.TYPE_INT_RGB)));
+    }
+
+    @Test
+    void testDownscaleKeepsAtLeastOnePixel() {
+        assertDimensions(1, 100, processor.downscale(new BufferedImage(1, 1000, BufferedImage.TYPE_INT_RGB)));
+        assertDimensions(100, 1, processor.downscale(new BufferedImage(1000, 2, BufferedImage.TYPE_INT_RGB)));
+    }
+
+    @Test
+    void testDownscaleKeepsFittingDimensions() {
+        val image = processor.downscale(new BufferedImage(100, 40, BufferedImage.TYPE_INT_ARGB));
+        assertDimensions(100, 40, image);
+        // the image is still flattened as JPEG has no alpha
+        assertEquals(BufferedImage.TYPE_INT_RGB, image.getType());
+    }
+
+    @Test
+    void testProcessedImageFitsMaxDimension() throws IOException {
+        val original = new ProcessedCatImage("big", png(400, 200), "png");
+        val processed = processor.process(original).join();
+
+        assertEquals("big", processed.getId());
+        assertEquals("jpg", processed.getType());
+        assertDimensions(100, 50, ImageIO.read(new ByteArrayInputStream(processed.getImage())));
+        // processed cat images are cached by their IDs
+        assertSame(processed, processor.process(original).join());
+    }
+
+    @Test
+    void testAnimationIsKeptAsIs() throws IOException {
+        final CatImage original = new ProcessedCatImage("animated", png(400, 200), "gif");
+        assertSame(original, processor.process(original).join());
+    }
+
+    @Test
+    void testUndecodableImageIsKeptAsIs() {
+        final CatImage original = new ProcessedCatImage("broken", new byte[]{1, 2, 3}, "png");
+        assertSame(original, processor.process(original).join());
+    }
+
+    private static byte[] png(final int width, final int height) throws IOException {
+        val output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", output);
+
+        return output.toByteArray();
+    }
+
+    private static void assertDimensions(final int width, final int height, final BufferedImage image) {
+        assertNotNull(image);
+        assertEquals(width, image.getWidth(), "width");
+        assertEquals(height, image.getHeight(), "height");
+    }
+}
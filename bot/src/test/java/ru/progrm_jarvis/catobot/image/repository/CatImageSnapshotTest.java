@@ -0,0 +1,146 @@
+package ru.progrm_jarvis.catobot.image.repository;
+
+import lombok.val;
+import org.apache.commons.io.FileUtils;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.progrm_jarvis.catobot.image.CompactTheCatApiCatImage;
+import ru.progrm_jarvis.catobot.image.TheCatApiCatImage;
+import ru.progrm_jarvis.catobot.image.TheCatApiMetadataRegistry;
+import ru.progrm_jarvis.catobot.image.factory.ImageDownloader;
+import ru.progrm_jarvis.catobot.image.factory.TheCatApiCatImageFactory;
+import ru.progrm_jarvis.catobot.image.store.CatImageByteStore;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatImageSnapshotTest {
+
+    private Path directory;
+
+    private ExecutorService executor;
+
+    private TheCatApiCatImageFactory codec;
+
+    @BeforeEach
+    void createCodec() throws IOException {
+        directory = Files.createTempDirectory("snapshot");
+        executor = Executors.newSingleThreadExecutor();
+        codec = new TheCatApiCatImageFactory(
+                TheCatApiCatImageFactory.Configuration.builder().build(), HttpClients.createDefault(), executor,
+                new CatImageByteStore(1 << 20), new ImageDownloader(ImageDownloader.Configuration.builder().build()),
+                URI.create("http://localhost/")
+        );
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        executor.shutdownNow();
+        FileUtils.deleteDirectory(directory.toFile());
+    }
+
+    @Test
+    void testCatImagesAreRestored() {
+        val snapshot = new CatImageSnapshot<>(directory.resolve("cats.snapshot"), codec);
+        val loaded = image("loaded", new byte[]{1, 2, 3});
+        loaded.getImage();
+        val notLoaded = image("not-loaded", new byte[]{4, 5, 6});
+        val filtered = image("filtered", new byte[]{7, 8});
+        filtered.getImage();
+
+        snapshot.save(Arrays.asList(loaded, notLoaded), Collections.singletonList(filtered));
+        val entries = snapshot.loadEntries();
+        assertEquals(3, entries.size());
+
+        val restoredLoaded = entries.get(0).getImage();
+        assertFalse(entries.get(0).isFiltered());
+        assertEquals("loaded", restoredLoaded.getId());
+        assertEquals(loaded.getUrl(), restoredLoaded.getUrl());
+        assertEquals(loaded.getWidth(), restoredLoaded.getWidth());
+        assertEquals("Siamese", restoredLoaded.getBreeds().get(0).getName());
+        assertEquals(1, restoredLoaded.getCategories().get(0).getId());
+        assertArrayEquals(new byte[]{1, 2, 3}, restoredLoaded.getImage());
+
+        // bytes which were not loaded are not stored
+        assertFalse(entries.get(1).isFiltered());
+        assertEquals("not-loaded", entries.get(1).getImage().getId());
+        assertNull(entries.get(1).getImage().getLoadedContent());
+
+        assertTrue(entries.get(2).isFiltered());
+        assertEquals("filtered", entries.get(2).getImage().getId());
+
+        // the snapshot is consumed once loaded
+        assertTrue(snapshot.loadEntries().isEmpty());
+    }
+
+    @Test
+    void testMappedContentIsSavedAgain() {
+        val snapshot = new CatImageSnapshot<>(directory.resolve("cats.snapshot"), codec);
+        val image = image("cat", new byte[]{1, 2, 3});
+        image.getImage();
+        snapshot.save(Collections.singletonList(image));
+
+        val restored = snapshot.load().get(0);
+        // the restored cat image is backed by the mapped snapshot rather than loaded onto the heap
+        assertFalse(restored.isImageLoaded());
+        assertEquals(3, restored.getImageBuffer().remaining());
+
+        snapshot.save(Collections.singletonList(restored));
+        assertArrayEquals(new byte[]{1, 2, 3}, snapshot.load().get(0).getImage());
+    }
+
+    @Test
+    void testUnflaggedVersionIsLoaded() throws IOException {
+        val file = directory.resolve("cats.snapshot");
+        val metadata = codec.encodeMetadata(image("cat", new byte[0]));
+        assertNotNull(metadata);
+        try (val output = new DataOutputStream(Files.newOutputStream(file))) {
+            output.writeInt(CatImageSnapshot.MAGIC);
+            output.writeInt(CatImageSnapshot.UNFLAGGED_VERSION);
+            output.writeInt(1);
+            output.writeInt(metadata.length);
+            output.write(metadata);
+            output.writeInt(2);
+            output.write(new byte[]{1, 2});
+        }
+
+        val entries = new CatImageSnapshot<>(file, codec).loadEntries();
+        assertEquals(1, entries.size());
+        assertFalse(entries.get(0).isFiltered());
+        assertEquals("cat", entries.get(0).getImage().getId());
+        assertArrayEquals(new byte[]{1, 2}, entries.get(0).getImage().getImage());
+    }
+
+    @Test
+    void testCorruptedSnapshotIsIgnored() throws IOException {
+        val file = directory.resolve("cats.snapshot");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+
+        assertTrue(new CatImageSnapshot<>(file, codec).loadEntries().isEmpty());
+    }
+
+    static CompactTheCatApiCatImage image(final String id, final byte[] bytes) {
+        return CompactTheCatApiCatImage.of(
+                TheCatApiCatImage.builder()
+                        .id(id)
+                        .url("https://cdn2.thecatapi.com/images/" + id + ".jpg")
+                        .width(640)
+                        .height(480)
+                        .breed(TheCatApiCatImage.Breed.builder().id("siam").name("Siamese").build())
+                        .category(new TheCatApiCatImage.Category(1, "hats"))
+                        .build(),
+                new TheCatApiMetadataRegistry(), image -> bytes.clone()
+        );
+    }
+}
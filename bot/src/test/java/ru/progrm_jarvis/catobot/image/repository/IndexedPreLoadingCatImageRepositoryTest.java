@@ -0,0 +1,115 @@
+package ru.progrm_jarvis.catobot.image.repository;
+
+import lombok.val;
+import org.apache.commons.io.FileUtils;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.progrm_jarvis.catobot.image.CompactTheCatApiCatImage;
+import ru.progrm_jarvis.catobot.image.factory.CatImageFactory;
+import ru.progrm_jarvis.catobot.image.factory.ImageDownloader;
+import ru.progrm_jarvis.catobot.image.factory.TheCatApiCatImageFactory;
+import ru.progrm_jarvis.catobot.image.store.CatImageByteStore;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexedPreLoadingCatImageRepositoryTest {
+
+    private static final TheCatApiCatImageFactory.Configuration SIAMESE_CATS
+            = TheCatApiCatImageFactory.Configuration.builder().breedId("siam").build();
+
+    private Path directory;
+
+    private ExecutorService executor;
+
+    private CatImageSnapshot<CompactTheCatApiCatImage> snapshot;
+
+    @BeforeEach
+    void createSnapshot() throws IOException {
+        directory = Files.createTempDirectory("snapshot");
+        executor = Executors.newSingleThreadExecutor();
+        snapshot = new CatImageSnapshot<>(directory.resolve("cats.snapshot"), new TheCatApiCatImageFactory(
+                TheCatApiCatImageFactory.Configuration.builder().build(), HttpClients.createDefault(), executor,
+                new CatImageByteStore(1 << 20), new ImageDownloader(ImageDownloader.Configuration.builder().build()),
+                URI.create("http://localhost/")
+        ));
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        executor.shutdownNow();
+        FileUtils.deleteDirectory(directory.toFile());
+    }
+
+    @Test
+    void testFilteredCatImagesAreRestored() {
+        val unfiltered = CatImageSnapshotTest.image("unfiltered", new byte[]{1});
+        val filtered = CatImageSnapshotTest.image("filtered", new byte[]{2});
+        snapshot.save(Collections.singletonList(unfiltered), Collections.singletonList(filtered));
+
+        val repository = createRepository();
+        try {
+            assertEquals(2, repository.getCacheSize());
+            // cat images pre-loaded for filters are not picked as unfiltered ones
+            assertEquals("unfiltered", repository.pickRandomCatImage(null).join().getId());
+            assertFalse(repository.pickRandomCatImage(null).isDone());
+
+            assertEquals("filtered", repository.pickRandomCatImage(SIAMESE_CATS).join().getId());
+            assertEquals(0, repository.getCacheSize());
+        } finally {
+            repository.close();
+        }
+    }
+
+    @Test
+    void testFilteredCatImagesAreSaved() {
+        val repository = createRepository();
+        // request the filter so that its bucket exists
+        repository.pickRandomCatImage(SIAMESE_CATS);
+        repository.returnCatImage(CatImageSnapshotTest.image("unfiltered", new byte[]{1}));
+        repository.index(CatImageSnapshotTest.image("filtered", new byte[]{2}), repository.getBucket(SIAMESE_CATS));
+        repository.close();
+
+        val entries = snapshot.loadEntries();
+        assertEquals(2, entries.size());
+        assertEquals("unfiltered", entries.get(0).getImage().getId());
+        assertFalse(entries.get(0).isFiltered());
+        assertEquals("filtered", entries.get(1).getImage().getId());
+        assertTrue(entries.get(1).isFiltered());
+    }
+
+    @Test
+    void testReturnedCatImagesRespectCacheSize() {
+        val repository = createRepository();
+        try {
+            repository.returnCatImage(CatImageSnapshotTest.image("first", new byte[]{1}));
+            repository.returnCatImage(CatImageSnapshotTest.image("second", new byte[]{2}));
+
+            assertEquals(1, repository.getCacheSize());
+            assertEquals("first", repository.pickRandomCatImage(null).join().getId());
+        } finally {
+            repository.close();
+        }
+    }
+
+    private IndexedPreLoadingCatImageRepository<CompactTheCatApiCatImage, TheCatApiCatImageFactory.Configuration,
+            TheCatApiCatImageIndexer.Key> createRepository() {
+        // the factory never completes so that only the restored cat images are available
+        final CatImageFactory<CompactTheCatApiCatImage, TheCatApiCatImageFactory.Configuration> factory
+                = configuration -> new CompletableFuture<>();
+
+        return new IndexedPreLoadingCatImageRepository<>(
+                factory, TheCatApiCatImageIndexer.INSTANCE, null, 1, 1, 1, 60_000, snapshot
+        );
+    }
+}
@@ -0,0 +1,65 @@
+package ru.progrm_jarvis.catobot.image.repository;
+
+import lombok.val;
+import lombok.var;
+import org.junit.jupiter.api.Test;
+import ru.progrm_jarvis.catobot.image.CatImage;
+import ru.progrm_jarvis.catobot.image.factory.CatImageFactory;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PreLoadingCatImageRepositoryTest {
+
+    @Test
+    void testReturnedCatImagesRespectCacheSize() throws InterruptedException {
+        // the factory never completes so that the cache consists of the pending cat images
+        final CatImageFactory<CatImage, Void> factory = configuration -> new CompletableFuture<>();
+        val repository = new PreLoadingCatImageRepository<>(factory, null, 2, 60_000);
+        try {
+            for (var attempt = 0; repository.getCacheSize() < 2; attempt++) {
+                assertTrue(attempt < 100, "cache is not filled");
+                Thread.sleep(10);
+            }
+
+            repository.returnCatImage(new TestCatImage());
+            assertEquals(2, repository.getCacheSize());
+            assertFalse(repository.pickRandomCatImage(null).isDone());
+        } finally {
+            repository.close();
+        }
+    }
+
+    @Test
+    void testReturnedCatImagesArePickedFirst() throws InterruptedException {
+        final CatImageFactory<CatImage, Void> factory = configuration -> new CompletableFuture<>();
+        val repository = new PreLoadingCatImageRepository<>(factory, null, 2, 60_000);
+        try {
+            for (var attempt = 0; repository.getCacheSize() < 2; attempt++) {
+                assertTrue(attempt < 100, "cache is not filled");
+                Thread.sleep(10);
+            }
+            repository.pickRandomCatImage(null);
+
+            val image = new TestCatImage();
+            repository.returnCatImage(image);
+            assertSame(image, repository.pickRandomCatImage(null).join());
+        } finally {
+            repository.close();
+        }
+    }
+
+    private static final class TestCatImage implements CatImage {
+
+        @Override
+        public byte[] getImage() {
+            return new byte[0];
+        }
+
+        @Override
+        public String getType() {
+            return "png";
+        }
+    }
+}
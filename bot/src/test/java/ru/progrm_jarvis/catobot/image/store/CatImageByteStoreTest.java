@@ -0,0 +1,74 @@
+package ru.progrm_jarvis.catobot.image.store;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatImageByteStoreTest {
+
+    @Test
+    void testStoredBytesAreNotLoadedAgain() {
+        val store = new CatImageByteStore(1024);
+        val loads = new AtomicInteger();
+        val holder = new Object();
+
+        val bytes = store.get("a", holder, () -> {
+            loads.incrementAndGet();
+            return new byte[]{1, 2, 3};
+        });
+        assertSame(bytes, store.get("a", holder, () -> {
+            loads.incrementAndGet();
+            return new byte[]{1, 2, 3};
+        }));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, store.getHits());
+        assertEquals(1, store.getMisses());
+    }
+
+    @Test
+    void testSameContentIsDeduplicated() {
+        val store = new CatImageByteStore(1024);
+
+        val first = store.get("a", new Object(), () -> new byte[]{1, 2, 3});
+        val second = store.get("b", new Object(), () -> new byte[]{1, 2, 3});
+
+        assertSame(first, second);
+        assertEquals(1, store.getDeduplications());
+        assertEquals(3, store.getSize());
+    }
+
+    @Test
+    void testHolderIsRegisteredOnce() {
+        val store = new CatImageByteStore(1024);
+        val holder = new Object();
+
+        for (int i = 0; i < 100; i++) store.get("a", holder, () -> new byte[]{1, 2, 3});
+        store.get("a", new Object(), () -> new byte[]{1, 2, 3});
+
+        synchronized (store) {
+            assertEquals(2, store.entriesById.get("a").holders.size());
+        }
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntriesAreEvicted() {
+        val store = new CatImageByteStore(4);
+        val holder = new Object();
+
+        store.get("a", holder, () -> new byte[]{1, 2});
+        store.get("b", holder, () -> new byte[]{3, 4});
+        store.get("a", holder, () -> new byte[]{1, 2});
+        store.get("c", holder, () -> new byte[]{5, 6});
+
+        assertEquals(4, store.getSize());
+        synchronized (store) {
+            assertTrue(store.entriesById.containsKey("a"));
+            assertFalse(store.entriesById.containsKey("b"));
+            assertTrue(store.entriesById.containsKey("c"));
+        }
+    }
+}
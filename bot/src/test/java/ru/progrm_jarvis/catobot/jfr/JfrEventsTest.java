@@ -0,0 +1,61 @@
+package ru.progrm_jarvis.catobot.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import ru.progrm_jarvis.catobot.image.CatImage;
+import ru.progrm_jarvis.catobot.image.factory.CatImageFactory;
+import ru.progrm_jarvis.catobot.image.repository.PreLoadingCatImageRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrEventsTest {
+
+    @Test
+    void testJfrIsAvailable() {
+        // the tests run on a runtime with JFR
+        assertTrue(JfrEvents.isAvailable());
+    }
+
+    @Test
+    void testEventsAreDisabledByDefault() {
+        assertFalse(new ImagePickEvent().isEnabled());
+    }
+
+    @Test
+    void testEventsAreCommittedWithBundledSettings() throws IOException, ParseException {
+        val file = Files.createTempFile("catobot", ".jfr");
+        try {
+            try (val recording = new Recording(JfrEvents.loadSettings().getSettings())) {
+                recording.start();
+
+                final CatImageFactory<CatImage, Object> factory = configuration -> new CompletableFuture<>();
+                val repository = new PreLoadingCatImageRepository<>(factory, null, 1, 60_000);
+                try {
+                    repository.pickRandomCatImage(null);
+                } finally {
+                    repository.close();
+                }
+
+                recording.stop();
+                recording.dump(file);
+            }
+
+            val picks = RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals(ImagePickEvent.NAME))
+                    .toArray(RecordedEvent[]::new);
+            assertNotEquals(0, picks.length);
+            assertEquals("PreLoadingCatImageRepository", picks[0].getString("repository"));
+            assertFalse(picks[0].getBoolean("filtered"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package ru.progrm_jarvis.catobot.loadtest;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import lombok.var;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory fake of Redis speaking the subset of RESP used by the bot's user manager:
+ * {@code PING}, {@code EXISTS}, {@code GET}, {@code SET}, {@code DEL} and {@code SCAN}.
+ * <p>
+ * Only the latency of the profile is applied as the user manager does not tolerate failures of Redis.
+ */
+@Slf4j
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class FakeRedis implements AutoCloseable {
+
+    @NonNull ServerSocket serverSocket;
+
+    @NonNull ExecutorService executor;
+
+    @NonNull FakeService.Profile profile;
+
+    @NonNull ConcurrentMap<String, String> values;
+
+    @NonNull LongAdder requests;
+
+    public FakeRedis(@NonNull final FakeService.Profile profile) throws IOException {
+        this.profile = profile;
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        executor = Executors.newCachedThreadPool(task -> {
+            val thread = new Thread(task, "fake-redis");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+        values = new ConcurrentHashMap<>();
+        requests = new LongAdder();
+    }
+
+    /**
+     * Starts accepting connections.
+     */
+    public void start() {
+        executor.execute(() -> {
+            while (!serverSocket.isClosed()) {
+                final Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (final IOException e) {
+                    if (!serverSocket.isClosed()) log.warn("Unable to accept connection", e);
+                    return;
+                }
+                executor.execute(() -> serve(socket));
+            }
+        });
+    }
+
+    /**
+     * Gets the port of this fake.
+     *
+     * @return port on which the connections are accepted
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Gets the amount of received commands.
+     *
+     * @return amount of received commands
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * Serves the connection until it gets closed.
+     *
+     * @param socket socket of the connection
+     */
+    protected void serve(@NonNull final Socket socket) {
+        try (val input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             val output = new BufferedOutputStream(socket.getOutputStream())) {
+            while (true) {
+                val command = readCommand(input);
+                if (command == null) return;
+                requests.increment();
+
+                val latency = profile.getLatency()
+                        + (profile.getJitter() > 0 ? ThreadLocalRandom.current().nextLong(profile.getJitter()) : 0);
+                if (latency > 0) TimeUnit.MILLISECONDS.sleep(latency);
+
+                val quit = execute(command, output);
+                output.flush();
+                if (quit) return;
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final IOException e) {
+            if (!serverSocket.isClosed()) log.debug("Connection to fake Redis failed", e);
+        } finally {
+            try {
+                socket.close();
+            } catch (final IOException ignored) {}
+        }
+    }
+
+    /**
+     * Executes the command writing its reply.
+     *
+     * @param command name of the command followed by its arguments
+     * @param output output to which the reply should be written
+     * @return {@code true} if the connection should be closed and {@code false} otherwise
+     * @throws IOException if an exception occurs while writing the reply
+     */
+    protected boolean execute(@NonNull final List<String> command,
+                              @NonNull final OutputStream output) throws IOException {
+        switch (command.get(0).toUpperCase(Locale.ROOT)) {
+            case "PING": {
+                writeLine(output, "+PONG");
+                break;
+            }
+            case "EXISTS": {
+                var count = 0;
+                for (val key : command.subList(1, command.size())) if (values.containsKey(key)) count++;
+                writeLine(output, ":" + count);
+                break;
+            }
+            case "GET": {
+                writeBulk(output, values.get(command.get(1)));
+                break;
+            }
+            case "SET": {
+                values.put(command.get(1), command.get(2));
+                writeLine(output, "+OK");
+                break;
+            }
+            case "DEL": {
+                var count = 0;
+                for (val key : command.subList(1, command.size())) if (values.remove(key) != null) count++;
+                writeLine(output, ":" + count);
+                break;
+            }
+            case "SCAN": {
+                // the whole keyspace is returned at once which is allowed by the semantics of SCAN
+                Pattern pattern = null;
+                for (var i = 2; i + 1 < command.size(); i += 2) if (command.get(i).equalsIgnoreCase("MATCH")) {
+                    pattern = globToPattern(command.get(i + 1));
+                }
+
+                val keys = new ArrayList<String>();
+                for (val key : values.keySet()) if (pattern == null || pattern.matcher(key).matches()) keys.add(key);
+
+                writeLine(output, "*2");
+                writeBulk(output, "0");
+                writeLine(output, "*" + keys.size());
+                for (val key : keys) writeBulk(output, key);
+                break;
+            }
+            case "QUIT": {
+                writeLine(output, "+OK");
+                return true;
+            }
+            case "SELECT":
+            case "AUTH":
+            case "CLIENT": {
+                writeLine(output, "+OK");
+                break;
+            }
+            default: writeLine(output, "-ERR unknown command '" + command.get(0) + '\'');
+        }
+
+        return false;
+    }
+
+    /**
+     * Reads the command sent as a RESP-array of bulk strings.
+     *
+     * @param input input from which the command should be read
+     * @return name of the command followed by its arguments or {@code null} if the connection was closed
+     * @throws IOException if an exception occurs while reading the command
+     */
+    protected static List<String> readCommand(@NonNull final DataInputStream input) throws IOException {
+        val header = readLine(input);
+        if (header == null) return null;
+        if (header.charAt(0) != '*') throw new IOException("Unsupported RESP header: " + header);
+
+        val size = Integer.parseInt(header.substring(1));
+        val command = new ArrayList<String>(size);
+        for (var i = 0; i < size; i++) {
+            val lengthLine = readLine(input);
+            if (lengthLine == null || lengthLine.charAt(0) != '$') throw new IOException("Bulk string expected");
+
+            val bytes = new byte[Integer.parseInt(lengthLine.substring(1))];
+            input.readFully(bytes);
+            readLine(input);
+            command.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+
+        return command;
+    }
+
+    /**
+     * Reads a line terminated by CRLF.
+     *
+     * @param input input from which the line should be read
+     * @return read line without its terminator or {@code null} if the end of the input was reached
+     * @throws IOException if an exception occurs while reading the line
+     */
+    protected static String readLine(@NonNull final InputStream input) throws IOException {
+        val line = new StringBuilder();
+        int character;
+        while ((character = input.read()) != '\n') {
+            if (character == -1) return line.length() == 0 ? null : line.toString();
+            if (character != '\r') line.append((char) character);
+        }
+
+        return line.toString();
+    }
+
+    protected static void writeLine(@NonNull final OutputStream output, @NonNull final String line) throws IOException {
+        output.write((line + "\r\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    protected static void writeBulk(@NonNull final OutputStream output, final String value) throws IOException {
+        if (value == null) writeLine(output, "$-1");
+        else {
+            val bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeLine(output, "$" + bytes.length);
+            output.write(bytes);
+            writeLine(output, "");
+        }
+    }
+
+    /**
+     * Converts the glob-style pattern of Redis to a regular expression.
+     *
+     * @param glob glob-style pattern supporting {@code *} and {@code ?}
+     * @return regular expression matching the same keys
+     */
+    protected static Pattern globToPattern(@NonNull final String glob) {
+        val regex = new StringBuilder();
+        val literal = new StringBuilder();
+        for (val character : glob.toCharArray()) if (character == '*' || character == '?') {
+            if (literal.length() != 0) {
+                regex.append(Pattern.quote(literal.toString()));
+                literal.setLength(0);
+            }
+            regex.append(character == '*' ? ".*" : ".");
+        } else literal.append(character);
+        if (literal.length() != 0) regex.append(Pattern.quote(literal.toString()));
+
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+}
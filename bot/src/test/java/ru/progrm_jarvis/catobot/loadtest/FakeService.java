@@ -0,0 +1,243 @@
+package ru.progrm_jarvis.catobot.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local stand-in of a remote HTTP-service responding with configurable latency and errors.
+ */
+@Slf4j
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public abstract class FakeService implements AutoCloseable {
+
+    @NonNull HttpServer server;
+
+    /**
+     * Executor handling requests, unbounded so that held long-poll requests do not block other ones
+     */
+    @NonNull ExecutorService executor;
+
+    @NonNull LongAdder requests, failures;
+
+    protected FakeService(@NonNull final String name) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        executor = Executors.newCachedThreadPool(task -> {
+            val thread = new Thread(task, "fake-" + name);
+            thread.setDaemon(true);
+
+            return thread;
+        });
+        server.setExecutor(executor);
+
+        requests = new LongAdder();
+        failures = new LongAdder();
+    }
+
+    /**
+     * Registers the handler of requests to the given path which are served according to the profile.
+     *
+     * @param path path of the handled requests
+     * @param profile profile of latencies and errors of the responses
+     * @param handler handler of the requests which are not failed by the profile
+     */
+    protected void handle(@NonNull final String path, @NonNull final Profile profile, @NonNull final Handler handler) {
+        server.createContext(path, exchange -> {
+            requests.increment();
+            try {
+                val random = ThreadLocalRandom.current();
+                val latency = profile.getLatency()
+                        + (profile.getJitter() > 0 ? random.nextLong(profile.getJitter()) : 0);
+                if (latency > 0) TimeUnit.MILLISECONDS.sleep(latency);
+
+                if (random.nextDouble() < profile.getErrorRate()) {
+                    failures.increment();
+                    IOUtils.toByteArray(exchange.getRequestBody());
+                    respond(exchange, profile.getErrorStatus(), "text/plain", "Simulated failure");
+                } else handler.handle(exchange);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (final Throwable e) {
+                log.warn("Unable to handle request to {}", exchange.getRequestURI(), e);
+                respond(exchange, 500, "text/plain", e.toString());
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    /**
+     * Starts serving requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Gets the root address of this service.
+     *
+     * @return root address of this service without a trailing slash
+     */
+    public String getAddress() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Gets the amount of received requests.
+     *
+     * @return amount of received requests
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * Gets the amount of requests failed by the profile.
+     *
+     * @return amount of simulated failures
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * Responds to the request.
+     *
+     * @param exchange exchange of the request
+     * @param status HTTP-status of the response
+     * @param contentType content type of the response
+     * @param body body of the response
+     * @throws IOException if an exception occurs while responding
+     */
+    protected static void respond(@NonNull final HttpExchange exchange, final int status,
+                                  @NonNull final String contentType, @NonNull final byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length != 0) try (val output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    /**
+     * Responds to the request with a text.
+     *
+     * @param exchange exchange of the request
+     * @param status HTTP-status of the response
+     * @param contentType content type of the response
+     * @param body body of the response
+     * @throws IOException if an exception occurs while responding
+     */
+    protected static void respond(@NonNull final HttpExchange exchange, final int status,
+                                  @NonNull final String contentType, @NonNull final String body) throws IOException {
+        respond(exchange, status, contentType + "; charset=utf-8", body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the parameters of the request from both its query and its URL-encoded form body.
+     *
+     * @param exchange exchange of the request
+     * @return parameters of the request by their names
+     * @throws IOException if an exception occurs while reading the body
+     */
+    protected static Map<String, String> readParameters(@NonNull final HttpExchange exchange) throws IOException {
+        val parameters = new HashMap<String, String>();
+        parseParameters(exchange.getRequestURI().getRawQuery(), parameters);
+
+        val contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        val body = IOUtils.toByteArray(exchange.getRequestBody());
+        if (contentType != null && contentType.startsWith("application/x-www-form-urlencoded")) parseParameters(
+                new String(body, StandardCharsets.UTF_8), parameters
+        );
+
+        return parameters;
+    }
+
+    /**
+     * Parses URL-encoded parameters.
+     *
+     * @param encoded URL-encoded parameters or {@code null} if there are none
+     * @param parameters map to which the parameters should be put
+     * @throws UnsupportedEncodingException never as UTF-8 is always supported
+     */
+    protected static void parseParameters(final String encoded,
+                                          @NonNull final Map<String, String> parameters)
+            throws UnsupportedEncodingException {
+        if (encoded == null || encoded.isEmpty()) return;
+
+        for (val parameter : encoded.split("&")) {
+            val separator = parameter.indexOf('=');
+            if (separator < 0) parameters.put(URLDecoder.decode(parameter, "UTF-8"), "");
+            else parameters.put(
+                    URLDecoder.decode(parameter.substring(0, separator), "UTF-8"),
+                    URLDecoder.decode(parameter.substring(separator + 1), "UTF-8")
+            );
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Handler of requests to a fake service.
+     */
+    @FunctionalInterface
+    protected interface Handler {
+
+        /**
+         * Handles the request.
+         *
+         * @param exchange exchange of the request
+         * @throws IOException if an exception occurs while responding
+         */
+        void handle(@NonNull HttpExchange exchange) throws IOException;
+    }
+
+    /**
+     * Profile of latencies and errors of responses of a fake service.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Profile {
+
+        /**
+         * Minimal latency of responses in milliseconds
+         */
+        @Builder.Default long latency = 0;
+
+        /**
+         * Maximal random latency in milliseconds added to the minimal one
+         */
+        @Builder.Default long jitter = 0;
+
+        /**
+         * Probability of a request failing
+         */
+        @Builder.Default double errorRate = 0;
+
+        /**
+         * HTTP-status of failed requests
+         */
+        @Builder.Default int errorStatus = 500;
+    }
+}
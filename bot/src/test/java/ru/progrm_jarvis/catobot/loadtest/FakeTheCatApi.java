@@ -0,0 +1,125 @@
+package ru.progrm_jarvis.catobot.loadtest;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import ru.progrm_jarvis.catobot.util.TheCatApiUtil;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Fake of the parts of TheCatApi used by the bot: {@code images/search} and the images found by it.
+ * <p>
+ * Every found cat image is a new one so that the bot never runs out of unseen cat images.
+ */
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class FakeTheCatApi extends FakeService {
+
+    /**
+     * Width of the served images
+     */
+    protected static final int WIDTH = 640,
+    /**
+     * Height of the served images
+     */
+    HEIGHT = 480;
+
+    /**
+     * Bytes of the PNG-image served for every cat image
+     */
+    @NonNull byte[] image;
+
+    @NonNull AtomicLong imageIds;
+
+    public FakeTheCatApi(@NonNull final Profile searchProfile, @NonNull final Profile imageProfile)
+            throws IOException {
+        super("the-cat-api");
+        image = createImage();
+        imageIds = new AtomicLong();
+
+        handle("/v1/" + TheCatApiUtil.RANDOM_CAT_IMAGE_REQUEST_PATH, searchProfile, this::handleSearch);
+        handle("/images/", imageProfile, this::handleImage);
+    }
+
+    /**
+     * Gets the root endpoint of the API.
+     *
+     * @return root endpoint of the API
+     */
+    public String getApiEndpoint() {
+        return getAddress() + "/v1/";
+    }
+
+    /**
+     * Handles a search of random cat images.
+     *
+     * @param exchange exchange of the search
+     * @throws IOException if an exception occurs while responding
+     */
+    protected void handleSearch(@NonNull final HttpExchange exchange) throws IOException {
+        val limit = readParameters(exchange).get("limit");
+        val count = limit == null ? TheCatApiUtil.MIN_CATS_PER_REQUEST : max(
+                TheCatApiUtil.MIN_CATS_PER_REQUEST, min(TheCatApiUtil.MAX_CATS_PER_REQUEST, Integer.parseInt(limit))
+        );
+
+        val images = new JsonArray();
+        for (int i = 0; i < count; i++) {
+            val id = Long.toString(imageIds.incrementAndGet(), 36);
+
+            val catImage = new JsonObject();
+            catImage.addProperty("id", id);
+            catImage.addProperty("url", getAddress() + "/images/" + id + ".png");
+            catImage.addProperty("width", WIDTH);
+            catImage.addProperty("height", HEIGHT);
+            catImage.add("breeds", new JsonArray());
+            catImage.add("categories", new JsonArray());
+            images.add(catImage);
+        }
+
+        respond(exchange, 200, "application/json", images.toString());
+    }
+
+    /**
+     * Handles a download of a cat image.
+     *
+     * @param exchange exchange of the download
+     * @throws IOException if an exception occurs while responding
+     */
+    protected void handleImage(@NonNull final HttpExchange exchange) throws IOException {
+        respond(exchange, 200, "image/png", image);
+    }
+
+    /**
+     * Creates the image served for every cat image.
+     *
+     * @return bytes of the PNG-image
+     * @throws IOException if an exception occurs while encoding the image
+     */
+    protected static byte[] createImage() throws IOException {
+        val image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        val graphics = image.createGraphics();
+        try {
+            graphics.setPaint(new GradientPaint(0, 0, Color.ORANGE, WIDTH, HEIGHT, Color.DARK_GRAY));
+            graphics.fillRect(0, 0, WIDTH, HEIGHT);
+        } finally {
+            graphics.dispose();
+        }
+
+        val output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+
+        return output.toByteArray();
+    }
+}
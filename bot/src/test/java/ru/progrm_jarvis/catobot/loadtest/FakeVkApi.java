@@ -0,0 +1,246 @@
+package ru.progrm_jarvis.catobot.loadtest;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import lombok.var;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.util.StringJoiner;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * Fake of the parts of VK API used by the bot: {@code groups.getLongPollServer}, long-poll,
+ * {@code photos.getMessagesUploadServer}, the upload server, {@code execute} and {@code messages.send}.
+ * <p>
+ * Updates to be received by the bot are {@link #push(JsonObject) pushed} to the long-poll queue
+ * and the IDs of messages replied to by the bot are reported to the reply listener.
+ */
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class FakeVkApi extends FakeService {
+
+    /**
+     * Pattern of IDs of messages replied to in calls of {@code messages.send} inside of VKScript
+     */
+    protected static final Pattern REPLY_TO_PATTERN = Pattern.compile("\"reply_to\"\\s*:\\s*(\\d+)");
+
+    /**
+     * Pattern of calls whose results are returned by VKScript of the outbox
+     */
+    protected static final Pattern RESULT_PATTERN = Pattern.compile("r\\.push\\(");
+
+    /**
+     * Pattern of calls of {@code photos.saveMessagesPhoto} inside of VKScript
+     */
+    protected static final Pattern SAVE_PHOTO_PATTERN = Pattern.compile("API\\.photos\\.saveMessagesPhoto\\(");
+
+    /**
+     * Maximal time in milliseconds for which a long-poll request is held
+     */
+    protected static final long MAX_LONG_POLL_WAIT = 1_000;
+
+    /**
+     * Maximal amount of updates returned by a single long-poll request
+     */
+    protected static final int MAX_UPDATES_PER_RESPONSE = 100;
+
+    @NonNull BlockingQueue<JsonObject> updates;
+
+    @NonNull AtomicInteger ts, messageIds;
+
+    /**
+     * Listener of IDs of messages replied to by the bot
+     */
+    @NonNull IntConsumer replyListener;
+
+    public FakeVkApi(@NonNull final Profile methodProfile, @NonNull final Profile longPollProfile,
+                     @NonNull final Profile uploadProfile, @NonNull final IntConsumer replyListener)
+            throws IOException {
+        super("vk");
+        this.replyListener = replyListener;
+        updates = new LinkedBlockingQueue<>();
+        ts = new AtomicInteger(1);
+        messageIds = new AtomicInteger();
+
+        handle("/method/", methodProfile, this::handleMethod);
+        handle("/long-poll", longPollProfile, this::handleLongPoll);
+        handle("/upload", uploadProfile, this::handleUpload);
+    }
+
+    /**
+     * Gets the endpoint of API methods.
+     *
+     * @return endpoint of API methods
+     */
+    public String getApiEndpoint() {
+        return getAddress() + "/method/";
+    }
+
+    /**
+     * Adds the update to those received by the next long-poll request.
+     *
+     * @param update update to be received by the bot
+     */
+    public void push(@NonNull final JsonObject update) {
+        updates.add(update);
+    }
+
+    /**
+     * Handles a call of an API method.
+     *
+     * @param exchange exchange of the call
+     * @throws IOException if an exception occurs while responding
+     */
+    protected void handleMethod(@NonNull final HttpExchange exchange) throws IOException {
+        val path = exchange.getRequestURI().getPath();
+        val method = path.substring(path.lastIndexOf('/') + 1);
+        val parameters = readParameters(exchange);
+
+        final JsonObject response;
+        switch (method) {
+            case "groups.getLongPollServer": {
+                val server = new JsonObject();
+                server.addProperty("key", "fake-key");
+                server.addProperty("server", getAddress() + "/long-poll");
+                server.addProperty("ts", Integer.toString(ts.get()));
+                response = wrap(server);
+                break;
+            }
+            case "photos.getMessagesUploadServer": {
+                val server = new JsonObject();
+                server.addProperty("upload_url", getAddress() + "/upload");
+                server.addProperty("album_id", -3);
+                server.addProperty("user_id", 0);
+                response = wrap(server);
+                break;
+            }
+            case "execute": {
+                val code = parameters.getOrDefault("code", "");
+                response = new JsonObject();
+
+                // scripts saving photos return their attachments
+                val photos = SAVE_PHOTO_PATTERN.matcher(code);
+                if (photos.find()) {
+                    val attachments = new StringJoiner(",");
+                    do attachments.add("photo-1_" + messageIds.incrementAndGet()); while (photos.find());
+                    response.addProperty("response", attachments.toString());
+                    break;
+                }
+
+                val results = new JsonArray();
+                val calls = RESULT_PATTERN.matcher(code);
+                while (calls.find()) results.add(messageIds.incrementAndGet());
+                response.add("response", results);
+
+                val replies = REPLY_TO_PATTERN.matcher(code);
+                while (replies.find()) replyListener.accept(Integer.parseInt(replies.group(1)));
+                break;
+            }
+            case "messages.send": {
+                response = new JsonObject();
+                response.addProperty("response", messageIds.incrementAndGet());
+
+                val repliedMessageId = parameters.get("reply_to");
+                if (repliedMessageId != null) replyListener.accept(Integer.parseInt(repliedMessageId));
+                break;
+            }
+            default: response = error(3, "Unknown method passed");
+        }
+
+        respond(exchange, 200, "application/json", response.toString());
+    }
+
+    /**
+     * Handles a long-poll request holding it until there are updates.
+     *
+     * @param exchange exchange of the request
+     * @throws IOException if an exception occurs while responding
+     */
+    protected void handleLongPoll(@NonNull final HttpExchange exchange) throws IOException {
+        val parameters = readParameters(exchange);
+        val wait = TimeUnit.SECONDS.toMillis(Long.parseLong(parameters.getOrDefault("wait", "25")));
+
+        val batch = new JsonArray();
+        try {
+            val first = updates.poll(Math.min(wait, MAX_LONG_POLL_WAIT), TimeUnit.MILLISECONDS);
+            if (first != null) {
+                batch.add(first);
+                for (var update = updates.poll(); update != null; update = updates.poll()) {
+                    batch.add(update);
+                    if (batch.size() == MAX_UPDATES_PER_RESPONSE) break;
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        val response = new JsonObject();
+        response.addProperty("ts", batch.size() == 0 ? ts.get() : ts.incrementAndGet());
+        response.add("updates", batch);
+        respond(exchange, 200, "application/json", response.toString());
+    }
+
+    /**
+     * Handles an upload of a photo.
+     *
+     * @param exchange exchange of the upload
+     * @throws IOException if an exception occurs while responding
+     */
+    protected void handleUpload(@NonNull final HttpExchange exchange) throws IOException {
+        val size = IOUtils.toByteArray(exchange.getRequestBody()).length;
+
+        val photo = new JsonArray();
+        val photoObject = new JsonObject();
+        photoObject.addProperty("photo", Integer.toHexString(messageIds.incrementAndGet()) + ":w");
+        photoObject.addProperty("size", size);
+        photo.add(photoObject);
+
+        val response = new JsonObject();
+        response.addProperty("server", 838_000);
+        response.addProperty("photo", photo.toString());
+        response.addProperty("hash", Integer.toHexString(size));
+        respond(exchange, 200, "application/json", response.toString());
+    }
+
+    /**
+     * Wraps the successful response of an API method.
+     *
+     * @param response response of the method
+     * @return wrapped response
+     */
+    protected static JsonObject wrap(@NonNull final JsonObject response) {
+        val wrapped = new JsonObject();
+        wrapped.add("response", response);
+
+        return wrapped;
+    }
+
+    /**
+     * Creates the error response of an API method.
+     *
+     * @param code code of the error
+     * @param message message of the error
+     * @return error response
+     */
+    protected static JsonObject error(final int code, @NonNull final String message) {
+        val error = new JsonObject();
+        error.addProperty("error_code", code);
+        error.addProperty("error_msg", message);
+
+        val response = new JsonObject();
+        response.add("error", error);
+
+        return response;
+    }
+
+}
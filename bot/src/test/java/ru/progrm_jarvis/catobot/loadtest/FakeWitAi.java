@@ -0,0 +1,94 @@
+package ru.progrm_jarvis.catobot.loadtest;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import ru.progrm_jarvis.catobot.util.WitAiUtil;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fake of the parts of WitAI API used by the bot: {@code message} and {@code speech}.
+ * <p>
+ * Every message is recognized as one asking for cats.
+ */
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class FakeWitAi extends FakeService {
+
+    /**
+     * Intent of every recognized message
+     */
+    public static final String INTENT = "send_cats";
+
+    @NonNull AtomicLong messageIds;
+
+    public FakeWitAi(@NonNull final Profile messageProfile, @NonNull final Profile speechProfile) throws IOException {
+        super("wit-ai");
+        messageIds = new AtomicLong();
+
+        handle('/' + WitAiUtil.GET_MESSAGE_MEANING_PATH, messageProfile, this::handleMessage);
+        handle('/' + WitAiUtil.GET_SPEECH_MEANING_PATH, speechProfile, this::handleSpeech);
+    }
+
+    /**
+     * Gets the root endpoint of the API.
+     *
+     * @return root endpoint of the API
+     */
+    public String getApiEndpoint() {
+        return getAddress() + '/';
+    }
+
+    /**
+     * Handles a recognition of a text message.
+     *
+     * @param exchange exchange of the recognition
+     * @throws IOException if an exception occurs while responding
+     */
+    protected void handleMessage(@NonNull final HttpExchange exchange) throws IOException {
+        val text = readParameters(exchange).getOrDefault("q", "");
+
+        respond(exchange, 200, "application/json", createResult(text).toString());
+    }
+
+    /**
+     * Handles a recognition of speech.
+     *
+     * @param exchange exchange of the recognition
+     * @throws IOException if an exception occurs while responding
+     */
+    protected void handleSpeech(@NonNull final HttpExchange exchange) throws IOException {
+        readParameters(exchange); // the audio is consumed but not recognized
+
+        respond(exchange, 200, "application/json", createResult("").toString());
+    }
+
+    /**
+     * Creates the result of a recognition.
+     *
+     * @param text recognized text
+     * @return result of the recognition
+     */
+    protected JsonObject createResult(@NonNull final String text) {
+        val intent = new JsonObject();
+        intent.addProperty("confidence", 1);
+        intent.addProperty("value", INTENT);
+        val intents = new JsonArray();
+        intents.add(intent);
+
+        val entities = new JsonObject();
+        entities.add("intent", intents);
+
+        val result = new JsonObject();
+        result.addProperty("msg_id", Long.toHexString(messageIds.incrementAndGet()));
+        result.addProperty("_text", text);
+        result.add("entities", entities);
+
+        return result;
+    }
+}
@@ -0,0 +1,365 @@
+package ru.progrm_jarvis.catobot.loadtest;
+
+import com.google.gson.*;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import org.jetbrains.annotations.Nullable;
+import ru.progrm_jarvis.catobot.SimpleCatOBot;
+import ru.progrm_jarvis.catobot.util.LatencyHistogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Offline end-to-end load-test of {@link SimpleCatOBot}.
+ * <p>
+ * The bot is run against local fakes of VK, TheCatApi, WitAI and Redis
+ * whose latencies and errors are configured by {@link FakeService.Profile profiles}.
+ * Messages (either synthetic or replayed from a file of recorded updates) are sent to the bot via the fake long-poll
+ * and the time until the bot replies to each of them is measured.
+ * <p>
+ * Usage: {@code LoadTest [config.json]}, the config is described by {@link Configuration}.
+ */
+public final class LoadTest {
+
+    private static final Gson GSON = new GsonBuilder()
+            .setPrettyPrinting()
+            .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_DASHES)
+            .create();
+
+    private LoadTest() {
+        throw new UnsupportedOperationException("This is a load-test class and cannot be instantiated");
+    }
+
+    public static void main(@NonNull final String... args) throws Exception {
+        final Configuration configuration;
+        if (args.length == 0) configuration = new Configuration();
+        else try (val reader = Files.newBufferedReader(new File(args[0]).toPath(), StandardCharsets.UTF_8)) {
+            configuration = GSON.fromJson(reader, Configuration.class);
+        }
+        System.out.println("Running load-test with configuration:");
+        System.out.println(GSON.toJson(configuration));
+
+        val updates = configuration.getUpdatesFile() == null
+                ? null : readUpdates(configuration.getUpdatesFile().toPath());
+
+        // moments at which the messages were sent by their IDs
+        val pending = new ConcurrentHashMap<Integer, Long>();
+        val latencies = new LatencyHistogram();
+        val replies = new CountDownLatch(configuration.getMessages());
+
+        try (val vk = new FakeVkApi(
+                configuration.getVkMethods(), configuration.getVkLongPoll(), configuration.getVkUpload(),
+                messageId -> {
+                    val sent = pending.remove(messageId);
+                    if (sent != null && messageId > configuration.getWarmUpMessages()) {
+                        latencies.recordSince(sent);
+                        replies.countDown();
+                    }
+                }
+        );
+             val theCatApi = new FakeTheCatApi(
+                     configuration.getTheCatApiSearch(), configuration.getTheCatApiImages()
+             );
+             val witAi = new FakeWitAi(configuration.getWitAiMessage(), configuration.getWitAiSpeech());
+             val redis = new FakeRedis(configuration.getRedis())) {
+            vk.start();
+            theCatApi.start();
+            witAi.start();
+            redis.start();
+
+            val directory = Files.createTempDirectory("cat-o-bot-load-test");
+            val configFile = writeBotConfig(directory, configuration, vk, theCatApi, witAi, redis);
+
+            val bot = new SimpleCatOBot(configFile.toFile());
+            try {
+                bot.run();
+
+                val messageIds = new AtomicInteger();
+                System.out.printf("Warming up with %d messages%n", configuration.getWarmUpMessages());
+                send(vk, configuration, updates, configuration.getWarmUpMessages(), messageIds, pending);
+                val warmUpDeadline = System.currentTimeMillis() + configuration.getTimeout();
+                while (!pending.isEmpty() && System.currentTimeMillis() < warmUpDeadline) Thread.sleep(10);
+                pending.clear();
+
+                System.out.printf("Sending %d messages%n", configuration.getMessages());
+                val start = System.nanoTime();
+                send(vk, configuration, updates, configuration.getMessages(), messageIds, pending);
+                val completed = replies.await(configuration.getTimeout(), TimeUnit.MILLISECONDS);
+                val time = System.nanoTime() - start;
+
+                val replied = latencies.getCount();
+                System.out.printf(
+                        "%nReplied to %d of %d messages in %.3f s%s%n", replied, configuration.getMessages(),
+                        time / 1e9, completed ? "" : " (timed out)"
+                );
+                System.out.printf("Throughput: %.1f replies per second%n", replied / (time / 1e9));
+                System.out.printf(
+                        "Reply latency: p50 %d ms, p99 %d ms, p99.9 %d ms%n",
+                        latencies.getPercentile(0.5, TimeUnit.MILLISECONDS),
+                        latencies.getPercentile(0.99, TimeUnit.MILLISECONDS),
+                        latencies.getPercentile(0.999, TimeUnit.MILLISECONDS)
+                );
+                System.out.printf("%n%-14s %10s %10s%n", "service", "requests", "failures");
+                printService("vk", vk);
+                printService("the-cat-api", theCatApi);
+                printService("wit-ai", witAi);
+                System.out.printf("%-14s %10d %10d%n", "redis", redis.getRequests(), 0);
+            } finally {
+                bot.close();
+            }
+        }
+
+        System.exit(0);
+    }
+
+    /**
+     * Reads the recorded updates.
+     *
+     * @param file file containing a JSON-object of an update per line
+     * @return read updates
+     * @throws IOException if an exception occurs while reading the updates
+     */
+    private static List<JsonObject> readUpdates(@NonNull final Path file) throws IOException {
+        val parser = new JsonParser();
+        val updates = new ArrayList<JsonObject>();
+        for (val line : Files.readAllLines(file, StandardCharsets.UTF_8)) if (!line.trim().isEmpty()) {
+            updates.add(parser.parse(line).getAsJsonObject());
+        }
+        if (updates.isEmpty()) throw new IllegalArgumentException("There are no updates in " + file);
+
+        return updates;
+    }
+
+    /**
+     * Sends messages to the bot at the configured rate.
+     *
+     * @param vk fake VK via which the messages are sent
+     * @param configuration configuration of the load-test
+     * @param updates recorded updates to replay or {@code null} if synthetic ones should be sent
+     * @param count amount of messages to send
+     * @param messageIds generator of IDs of the messages
+     * @param pending map to which the moments of sending are put by the IDs of the messages
+     * @throws InterruptedException if the thread gets interrupted while waiting to send the next message
+     */
+    private static void send(@NonNull final FakeVkApi vk, @NonNull final Configuration configuration,
+                             @Nullable final List<JsonObject> updates, final int count,
+                             @NonNull final AtomicInteger messageIds, @NonNull final Map<Integer, Long> pending)
+            throws InterruptedException {
+        val interval = configuration.getRate() > 0 ? TimeUnit.SECONDS.toNanos(1) / configuration.getRate() : 0;
+        val start = System.nanoTime();
+        for (var i = 0; i < count; i++) {
+            if (interval > 0) {
+                val delay = start + i * interval - System.nanoTime();
+                if (delay > 0) TimeUnit.NANOSECONDS.sleep(delay);
+            }
+
+            val messageId = messageIds.incrementAndGet();
+            val update = updates == null
+                    ? createUpdate(configuration) : updates.get((messageId - 1) % updates.size()).deepCopy();
+            val message = update.getAsJsonObject("object");
+            message.addProperty("id", messageId);
+            message.addProperty("date", System.currentTimeMillis() / 1_000);
+
+            pending.put(messageId, System.nanoTime());
+            vk.push(update);
+        }
+    }
+
+    /**
+     * Creates a synthetic update of a new message from a random peer.
+     *
+     * @param configuration configuration of the load-test
+     * @return created update whose message has no ID and date
+     */
+    private static JsonObject createUpdate(@NonNull final Configuration configuration) {
+        val peerId = 1 + ThreadLocalRandom.current().nextInt(configuration.getPeers());
+
+        val message = new JsonObject();
+        message.addProperty("peer_id", peerId);
+        message.addProperty("from_id", peerId);
+        message.addProperty("text", configuration.getText());
+
+        val update = new JsonObject();
+        update.addProperty("type", "message_new");
+        update.add("object", message);
+        update.addProperty("group_id", 1);
+
+        return update;
+    }
+
+    /**
+     * Writes the config of the bot using the fakes and the load-test's handler of VK events.
+     *
+     * @param directory directory to which the config and the files used by the bot should be written
+     * @param configuration configuration of the load-test
+     * @param vk fake of VK
+     * @param theCatApi fake of TheCatApi
+     * @param witAi fake of WitAI
+     * @param redis fake of Redis
+     * @return written config of the bot
+     * @throws IOException if an exception occurs while writing the config
+     */
+    private static Path writeBotConfig(@NonNull final Path directory, @NonNull final Configuration configuration,
+                                       @NonNull final FakeVkApi vk, @NonNull final FakeTheCatApi theCatApi,
+                                       @NonNull final FakeWitAi witAi, @NonNull final FakeRedis redis)
+            throws IOException {
+        val vkHandler = directory.resolve("vk-handler.groovy");
+        Files.write(vkHandler, (
+                "{ bot -> new " + LoadTestVkHandler.class.getName() + "(bot) } as java.util.function.Function\n"
+        ).getBytes(StandardCharsets.UTF_8));
+
+        val outbox = new JsonObject();
+        outbox.add("file", toJson(directory.resolve("vk-outbox.log")));
+        outbox.addProperty("max-requests-per-second", 0);
+        val vkApi = new JsonObject();
+        vkApi.addProperty("group-id", 1);
+        vkApi.addProperty("group-token", "load-test");
+        vkApi.addProperty("api-endpoint", vk.getApiEndpoint());
+        vkApi.add("outbox", outbox);
+
+        val host = new JsonObject();
+        host.addProperty("host", "localhost");
+        host.addProperty("port", redis.getPort());
+        val hosts = new JsonArray();
+        hosts.add(host);
+        val redisUserManager = new JsonObject();
+        redisUserManager.add("hosts", hosts);
+
+        val broadcast = new JsonObject();
+        broadcast.add("checkpoint-file", toJson(directory.resolve("broadcast.json")));
+
+        val config = new JsonObject();
+        config.add("vk-api", vkApi);
+        config.addProperty("the-cat-api-endpoint", theCatApi.getApiEndpoint());
+        config.addProperty("wit-ai-endpoint", witAi.getApiEndpoint());
+        config.add("redis-user-manager", redisUserManager);
+        config.add("broadcast", broadcast);
+        config.add("preload-snapshot", JsonNull.INSTANCE);
+        config.addProperty("jmx-metrics", false);
+        config.add("vk-handler", toJson(vkHandler));
+        config.add("event-handler", toJson(directory.resolve("event-handler.groovy")));
+        merge(config, configuration.getBot());
+
+        val configFile = directory.resolve("config.json");
+        Files.write(configFile, GSON.toJson(config).getBytes(StandardCharsets.UTF_8));
+
+        return configFile;
+    }
+
+    /**
+     * Converts the path to a JSON-element of a file the way the bot's config stores files.
+     *
+     * @param path path of the file
+     * @return JSON-element of the file
+     */
+    private static JsonElement toJson(@NonNull final Path path) {
+        return GSON.toJsonTree(path.toFile());
+    }
+
+    /**
+     * Merges the overrides into the JSON-object recursively.
+     *
+     * @param target JSON-object to which the overrides should be merged
+     * @param overrides overrides replacing the values of the JSON-object other than nested JSON-objects
+     */
+    private static void merge(@NonNull final JsonObject target, @NonNull final JsonObject overrides) {
+        for (val entry : overrides.entrySet()) {
+            val value = entry.getValue();
+            val current = target.get(entry.getKey());
+            if (value.isJsonObject() && current != null && current.isJsonObject()) merge(
+                    current.getAsJsonObject(), value.getAsJsonObject()
+            );
+            else target.add(entry.getKey(), value);
+        }
+    }
+
+    private static void printService(@NonNull final String name, @NonNull final FakeService service) {
+        System.out.printf("%-14s %10d %10d%n", name, service.getRequests(), service.getFailures());
+    }
+
+    /**
+     * Configuration of the load-test.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Configuration {
+
+        /**
+         * Amount of measured messages
+         */
+        @Builder.Default int messages = 10_000;
+
+        /**
+         * Amount of messages sent before the measured ones
+         */
+        @Builder.Default int warmUpMessages = 1_000;
+
+        /**
+         * Messages sent per second or {@code 0} if they should be sent as fast as possible
+         */
+        @Builder.Default int rate = 200;
+
+        /**
+         * Amount of distinct peers sending synthetic messages
+         */
+        @Builder.Default int peers = 1_000;
+
+        /**
+         * Text of synthetic messages
+         */
+        @Builder.Default @NonNull String text = "Send me a cat";
+
+        /**
+         * File of recorded updates of type {@code message_new} (one JSON-object per line) replayed cyclically
+         * or {@code null} if synthetic messages should be sent
+         */
+        @Builder.Default @Nullable File updatesFile = null;
+
+        /**
+         * Maximal time in milliseconds to wait for the replies to the measured messages
+         */
+        @Builder.Default long timeout = 120_000;
+
+        @Builder.Default @NonNull FakeService.Profile vkMethods = FakeService.Profile.builder()
+                .latency(20).jitter(30).build();
+
+        @Builder.Default @NonNull FakeService.Profile vkLongPoll = FakeService.Profile.builder().build();
+
+        @Builder.Default @NonNull FakeService.Profile vkUpload = FakeService.Profile.builder()
+                .latency(50).jitter(100).build();
+
+        @Builder.Default @NonNull FakeService.Profile theCatApiSearch = FakeService.Profile.builder()
+                .latency(100).jitter(200).build();
+
+        @Builder.Default @NonNull FakeService.Profile theCatApiImages = FakeService.Profile.builder()
+                .latency(50).jitter(150).build();
+
+        @Builder.Default @NonNull FakeService.Profile witAiMessage = FakeService.Profile.builder()
+                .latency(150).jitter(250).build();
+
+        @Builder.Default @NonNull FakeService.Profile witAiSpeech = FakeService.Profile.builder()
+                .latency(500).jitter(500).build();
+
+        @Builder.Default @NonNull FakeService.Profile redis = FakeService.Profile.builder().build();
+
+        /**
+         * Overrides of the bot's config generated for the fakes
+         */
+        @Builder.Default @NonNull JsonObject bot = new JsonObject();
+    }
+}
@@ -0,0 +1,77 @@
+package ru.progrm_jarvis.catobot.loadtest;
+
+import com.vk.api.sdk.callback.CallbackApi;
+import com.vk.api.sdk.objects.messages.Message;
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import ru.progrm_jarvis.catobot.CatImageSpeculator;
+import ru.progrm_jarvis.catobot.CatOBot;
+import ru.progrm_jarvis.catobot.ai.Recognizer;
+import ru.progrm_jarvis.catobot.image.factory.TheCatApiCatImageFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Handler of VK events used by the load-test in place of the {@code vk-handler} script.
+ * <p>
+ * Every new message is answered with cat images the same way a real handler does it:
+ * the cat images unseen by the user are speculatively picked and uploaded while the message is being recognized
+ * and are sent as a reply to it once it is recognized.
+ */
+@Slf4j
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public class LoadTestVkHandler extends CallbackApi {
+
+    /**
+     * Amount of cat images sent in reply to a message
+     */
+    public static final int CATS_PER_REPLY = 1;
+
+    @NonNull CatOBot bot;
+
+    @NonNull Recognizer<Object> recognizer;
+
+    @NonNull CatImageSpeculator<?, TheCatApiCatImageFactory.Configuration> speculator;
+
+    /**
+     * Executor on which the replies are sent as sending blocks until VK responds
+     */
+    @NonNull ExecutorService replyExecutor;
+
+    @SuppressWarnings("unchecked")
+    public LoadTestVkHandler(@NonNull final CatOBot bot) {
+        this.bot = bot;
+        recognizer = (Recognizer<Object>) bot.getRecognizer();
+        speculator = bot.getSpeculator();
+        replyExecutor = Executors.newCachedThreadPool(task -> {
+            val thread = new Thread(task, "load-test-reply");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+    }
+
+    @Override
+    public void messageNew(final Integer groupId, @NonNull final Message message) {
+        final int peerId = message.getPeerId(), messageId = message.getId();
+
+        // the speculator picks the cat images unseen by the user and marks the sent ones as seen
+        val speculation = speculator.speculate(peerId, CATS_PER_REPLY, null, null);
+        recognizer.recognizeMessage(message.getText(), null).thenAcceptAsync(result -> {
+            if (!result.isPresent()) {
+                speculation.cancel();
+                return;
+            }
+
+            val error = speculation.send(messageId, null);
+            if (error.isPresent()) log.debug("Unable to reply to message " + messageId, error.get());
+        }, replyExecutor).exceptionally(e -> {
+            log.warn("Unable to handle message " + messageId, e);
+            return null;
+        });
+    }
+}
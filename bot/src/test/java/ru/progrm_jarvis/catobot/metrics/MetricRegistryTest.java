@@ -0,0 +1,76 @@
+package ru.progrm_jarvis.catobot.metrics;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import ru.progrm_jarvis.catobot.util.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricRegistryTest {
+
+    @Test
+    void testMetricsAreGroupedByName() {
+        val registry = new MetricRegistry();
+        val first = new LongAdder();
+        first.add(3);
+        registry.counter("requests_total", "Requests", first::sum, "source", "first");
+        registry.counter("requests_total", "Requests", () -> 5, "source", "second");
+        registry.gauge("backlog", "Backlog", () -> 1.5);
+
+        val families = registry.getFamilies().toArray(new MetricRegistry.Family[0]);
+        assertEquals(2, families.length);
+        // families are ordered by their names
+        assertEquals("backlog", families[0].getName());
+        assertEquals(MetricRegistry.Type.GAUGE, families[0].getType());
+        assertTrue(families[0].getMetrics().get(0).getLabels().isEmpty());
+
+        val requests = families[1];
+        assertEquals("requests_total", requests.getName());
+        assertEquals(MetricRegistry.Type.COUNTER, requests.getType());
+        assertEquals(2, requests.getMetrics().size());
+        assertEquals("first", requests.getMetrics().get(0).getLabels().get("source"));
+
+        // the registry references the value rather than copying it
+        first.increment();
+        val value = requests.getMetrics().get(0).getValue();
+        assertNotNull(value);
+        assertEquals(4, value.getAsDouble());
+    }
+
+    @Test
+    void testSummaryReferencesHistogram() {
+        val registry = new MetricRegistry();
+        val histogram = new LatencyHistogram();
+        registry.summary("latency_seconds", "Latency", histogram);
+
+        val metric = registry.getFamilies().iterator().next().getMetrics().get(0);
+        assertSame(histogram, metric.getHistogram());
+        assertNull(metric.getValue());
+    }
+
+    @Test
+    void testInvalidNamesAreRejected() {
+        val registry = new MetricRegistry();
+
+        assertThrows(IllegalArgumentException.class, () -> registry.gauge("1st", "Invalid", () -> 0));
+        assertThrows(IllegalArgumentException.class, () -> registry.gauge("some-gauge", "Invalid", () -> 0));
+        assertThrows(IllegalArgumentException.class, () -> registry.gauge("gauge", "Invalid", () -> 0, "a-b", "c"));
+        assertTrue(registry.getFamilies().isEmpty());
+    }
+
+    @Test
+    void testLabelWithoutValueIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new MetricRegistry().gauge("gauge", "Gauge", () -> 0, "a"));
+    }
+
+    @Test
+    void testTypeConflictIsRejected() {
+        val registry = new MetricRegistry();
+        registry.counter("events", "Events", () -> 0);
+
+        assertThrows(IllegalArgumentException.class, () -> registry.gauge("events", "Events", () -> 0));
+        assertEquals(1, registry.getFamilies().iterator().next().getMetrics().size());
+    }
+}
@@ -0,0 +1,119 @@
+package ru.progrm_jarvis.catobot.metrics;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import ru.progrm_jarvis.catobot.util.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrometheusExporterTest {
+
+    @Test
+    void testCountersAndGaugesAreWritten() throws IOException {
+        val registry = new MetricRegistry();
+        registry.counter("requests_total", "Sent requests", () -> 42, "source", "vk", "kind", "send");
+        registry.gauge("backlog", "Pending messages", () -> 1.5);
+
+        assertEquals(
+                "# HELP backlog Pending messages\n"
+                        + "# TYPE backlog gauge\n"
+                        + "backlog 1.5\n"
+                        + "# HELP requests_total Sent requests\n"
+                        + "# TYPE requests_total counter\n"
+                        + "requests_total{source=\"vk\",kind=\"send\"} 42\n",
+                write(registry)
+        );
+    }
+
+    @Test
+    void testSummaryIsWritten() throws IOException {
+        val registry = new MetricRegistry();
+        val histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.SECONDS.toNanos(1));
+        histogram.record(TimeUnit.SECONDS.toNanos(3));
+        registry.summary("latency_seconds", "Latency", histogram, "subsystem", "vk");
+
+        val lines = write(registry).split("\n");
+        assertEquals(8, lines.length);
+        assertEquals("# TYPE latency_seconds summary", lines[1]);
+        assertTrue(lines[2].startsWith("latency_seconds{subsystem=\"vk\",quantile=\"0.5\"} "), lines[2]);
+        assertTrue(lines[5].startsWith("latency_seconds{subsystem=\"vk\",quantile=\"0.999\"} "), lines[5]);
+        assertEquals("latency_seconds_sum{subsystem=\"vk\"} 4.0", lines[6]);
+        assertEquals("latency_seconds_count{subsystem=\"vk\"} 2", lines[7]);
+
+        // the median is exported in seconds within the precision of the histogram
+        val median = Double.parseDouble(lines[2].substring(lines[2].lastIndexOf(' ') + 1));
+        assertEquals(1, median, 0.125);
+    }
+
+    @Test
+    void testSpecialCharactersAreEscaped() throws IOException {
+        val registry = new MetricRegistry();
+        registry.gauge("gauge", "Multi-line\nhelp with \\", () -> 0, "label", "\"quoted\"\n");
+
+        assertEquals(
+                "# HELP gauge Multi-line\\nhelp with \\\\\n"
+                        + "# TYPE gauge gauge\n"
+                        + "gauge{label=\"\\\"quoted\\\"\\n\"} 0\n",
+                write(registry)
+        );
+    }
+
+    @Test
+    void testValuesAreFormatted() {
+        assertEquals("3", PrometheusExporter.formatValue(3));
+        assertEquals("-2", PrometheusExporter.formatValue(-2));
+        assertEquals("0.25", PrometheusExporter.formatValue(0.25));
+        assertEquals("NaN", PrometheusExporter.formatValue(Double.NaN));
+        assertEquals("+Inf", PrometheusExporter.formatValue(Double.POSITIVE_INFINITY));
+        assertEquals("-Inf", PrometheusExporter.formatValue(Double.NEGATIVE_INFINITY));
+        assertEquals("1.0E20", PrometheusExporter.formatValue(1e20));
+    }
+
+    @Test
+    void testEndpointIsMoved() throws IOException {
+        final int port;
+        try (val socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        val configuration = PrometheusExporter.Configuration.builder().enabled(true).port(port).build();
+        val registry = new MetricRegistry();
+        registry.gauge("backlog", "Pending messages", () -> 1);
+
+        val exporter = new PrometheusExporter(configuration, registry);
+        try {
+            assertTrue(exporter.isListeningOn(configuration));
+            assertFalse(exporter.isListeningOn(PrometheusExporter.Configuration.builder().port(port + 1).build()));
+            assertEquals(200, scrape(port, "/metrics"));
+
+            exporter.setPath("/cats");
+            assertEquals(200, scrape(port, "/cats"));
+            assertEquals(404, scrape(port, "/metrics"));
+        } finally {
+            exporter.close();
+        }
+    }
+
+    private static int scrape(final int port, final String path) throws IOException {
+        val connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static String write(final MetricRegistry registry) throws IOException {
+        val writer = new StringWriter();
+        PrometheusExporter.write(registry, writer);
+
+        return writer.toString();
+    }
+}
@@ -0,0 +1,90 @@
+package ru.progrm_jarvis.catobot.script;
+
+import lombok.val;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.script.ScriptException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScriptLoaderTest {
+
+    private Path directory;
+
+    private ScriptLoader loader;
+
+    @BeforeEach
+    void createLoader() throws IOException {
+        directory = Files.createTempDirectory("scripts");
+        loader = new ScriptLoader(
+                ScriptLoader.Configuration.builder().cacheDirectory(directory.resolve("cache").toFile()).build()
+        );
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        FileUtils.deleteDirectory(directory.toFile());
+    }
+
+    @Test
+    void testUnchangedScriptIsReused() throws IOException, ScriptException {
+        val file = write("handler.groovy", "return 'first'");
+        assertEquals("first", loader.<String>load(file.toFile()));
+        val compiledScript = ScriptLoader.COMPILED_SCRIPTS.get(file.toFile().getCanonicalPath());
+        assertNotNull(compiledScript);
+
+        assertEquals("first", loader.<String>load(file.toFile()));
+        assertSame(compiledScript, ScriptLoader.COMPILED_SCRIPTS.get(file.toFile().getCanonicalPath()));
+    }
+
+    @Test
+    void testStaleScriptIsDropped() throws IOException, ScriptException {
+        val file = write("handler.groovy", "return 'first'");
+        assertEquals("first", loader.<String>load(file.toFile()));
+        val size = ScriptLoader.COMPILED_SCRIPTS.size();
+
+        write("handler.groovy", "return 'second'");
+        assertEquals("second", loader.<String>load(file.toFile()));
+        // only the latest compiled script of the file is kept
+        assertEquals(size, ScriptLoader.COMPILED_SCRIPTS.size());
+    }
+
+    @Test
+    void testHashDependsOnBotBuild() {
+        val source = "return 'first'".getBytes(StandardCharsets.UTF_8);
+        val upgradedLoader = new ScriptLoader(
+                ScriptLoader.Configuration.builder().cacheDirectory(directory.resolve("cache").toFile()).build()
+        ) {
+            @Override
+            protected String getBotBuild() {
+                return "upgraded";
+            }
+        };
+
+        assertEquals(loader.hash(ScriptLoader.GROOVY_EXTENSION, source), loader.hash(
+                ScriptLoader.GROOVY_EXTENSION, source
+        ));
+        // scripts cached by the previous build of the bot are compiled again after the upgrade
+        assertNotEquals(loader.hash(ScriptLoader.GROOVY_EXTENSION, source), upgradedLoader.hash(
+                ScriptLoader.GROOVY_EXTENSION, source
+        ));
+    }
+
+    @Test
+    void testUnknownExtensionIsRejected() throws IOException {
+        val file = write("handler.unknown", "");
+
+        assertThrows(ScriptException.class, () -> loader.load(file.toFile()));
+    }
+
+    private Path write(final String name, final String source) throws IOException {
+        return Files.write(directory.resolve(name), source.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,75 @@
+package ru.progrm_jarvis.catobot.subscription;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.progrm_jarvis.catobot.subscription.SeenCatImagesFilterTest.image;
+
+class SeenCatImagesCacheTest {
+
+    private static final SeenCatImagesFilter.Configuration CONFIGURATION = SeenCatImagesFilter.Configuration.builder()
+            .capacity(4)
+            .cachedUsers(2)
+            .build();
+
+    @Test
+    void testConcurrentMarksAreKept() {
+        val manager = new TestUserManager();
+        val cache = new SeenCatImagesCache(manager, CONFIGURATION);
+
+        // two replies to the same user share the filter
+        val first = cache.get(manager.getUser("test").join());
+        val second = cache.get(manager.getUser("test").join());
+        assertSame(first, second);
+
+        first.markSeen(image("a"));
+        second.markSeen(image("b"));
+        first.save().join();
+        second.save().join();
+
+        val restored = new SeenCatImagesFilter(manager.getUser("test").join(), CONFIGURATION);
+        assertFalse(restored.test(image("a")));
+        assertFalse(restored.test(image("b")));
+    }
+
+    @Test
+    void testCachedFilterIsNotLookedUp() {
+        val manager = new TestUserManager();
+        val cache = new SeenCatImagesCache(manager, CONFIGURATION);
+
+        val filter = cache.get("test").join();
+        assertEquals(1, manager.lookups.get());
+        assertSame(filter, cache.get("test").join());
+        assertEquals(1, manager.lookups.get());
+    }
+
+    @Test
+    void testCacheIsBounded() {
+        val manager = new TestUserManager();
+        val cache = new SeenCatImagesCache(manager, CONFIGURATION);
+
+        val first = cache.get("first").join();
+        cache.get("second").join();
+        // the least recently used filter is evicted
+        cache.get("first").join();
+        cache.get("third").join();
+        assertEquals(2, cache.size());
+        assertSame(first, cache.get("first").join());
+        assertEquals(3, manager.lookups.get());
+
+        cache.get("second").join();
+        assertEquals(4, manager.lookups.get());
+    }
+
+    @Test
+    void testConfigurationChangeDropsFilters() {
+        val manager = new TestUserManager();
+        val cache = new SeenCatImagesCache(manager, CONFIGURATION);
+        val filter = cache.get("test").join();
+
+        cache.setConfiguration(SeenCatImagesFilter.Configuration.builder().capacity(8).build());
+        assertEquals(0, cache.size());
+        assertNotSame(filter, cache.get("test").join());
+    }
+}
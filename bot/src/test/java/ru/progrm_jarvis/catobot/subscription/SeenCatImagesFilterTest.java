@@ -0,0 +1,157 @@
+package ru.progrm_jarvis.catobot.subscription;
+
+import com.google.gson.JsonObject;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import ru.progrm_jarvis.catobot.image.CatImage;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeenCatImagesFilterTest {
+
+    private static final SeenCatImagesFilter.Configuration CONFIGURATION = SeenCatImagesFilter.Configuration.builder()
+            .capacity(4)
+            .build();
+
+    @Test
+    void testSeenCatImagesAreFiltered() {
+        val user = user(new JsonObject());
+        val filter = new SeenCatImagesFilter(user, CONFIGURATION);
+        assertTrue(filter.test(image("a")));
+
+        filter.markSeen(image("a"));
+        assertFalse(filter.test(image("a")));
+        assertTrue(filter.test(image("b")));
+        // cat images without IDs cannot be remembered
+        assertTrue(filter.test(image(null)));
+    }
+
+    @Test
+    void testSavedStateIsRestored() {
+        val manager = new TestUserManager();
+        val filter = new SeenCatImagesFilter(new SimpleUser(manager, "test", new JsonObject()), CONFIGURATION);
+        filter.markSeen(image("a"));
+        filter.save().join();
+        assertEquals(1, manager.stores.get());
+
+        val restored = new SeenCatImagesFilter(manager.getUser("test").join(), CONFIGURATION);
+        assertFalse(restored.test(image("a")));
+        assertTrue(restored.test(image("b")));
+    }
+
+    @Test
+    void testSaveKeepsOtherMetadata() {
+        val manager = new TestUserManager();
+        val filter = new SeenCatImagesFilter(manager.getUser("test").join(), CONFIGURATION);
+        // the user gets changed by others after the filter was created
+        val user = manager.getUser("test").join();
+        user.getMetadata().addProperty("subscribed", true);
+        user.save();
+
+        filter.markSeen(image("a"));
+        filter.save().join();
+
+        val saved = manager.getUser("test").join();
+        assertTrue(saved.getMetadata().get("subscribed").getAsBoolean());
+        assertFalse(new SeenCatImagesFilter(saved, CONFIGURATION).test(image("a")));
+    }
+
+    @Test
+    void testSavesAreCoalesced() {
+        val updates = new ArrayDeque<Runnable>();
+        val manager = new TestUserManager(updates::add);
+        val filter = new SeenCatImagesFilter(manager.getUser("test").join(), CONFIGURATION);
+
+        filter.markSeen(image("a"));
+        val save = filter.save();
+        filter.markSeen(image("b"));
+        assertSame(save, filter.save());
+        assertEquals(1, updates.size());
+
+        updates.poll().run();
+        assertTrue(save.isDone());
+        assertEquals(1, manager.stores.get());
+        // the pending save writes all the marks made before it is performed
+        val restored = new SeenCatImagesFilter(manager.getUser("test").join(), CONFIGURATION);
+        assertFalse(restored.test(image("a")));
+        assertFalse(restored.test(image("b")));
+
+        // marks made after the pending save is performed are saved by the next one
+        filter.markSeen(image("c"));
+        assertNotSame(save, filter.save());
+        assertEquals(1, updates.size());
+    }
+
+    @Test
+    void testFailedSaveIsNotPending() {
+        val manager = new TestUserManager(task -> {
+            throw new RejectedExecutionException("Overloaded");
+        });
+        val filter = new SeenCatImagesFilter(manager.getUser("test").join(), CONFIGURATION);
+
+        val save = filter.save();
+        assertTrue(save.isCompletedExceptionally());
+        assertNotSame(save, filter.save());
+    }
+
+    @Test
+    void testOldestGenerationIsDropped() {
+        val filter = new SeenCatImagesFilter(user(new JsonObject()), CONFIGURATION);
+        filter.markSeen(image("first"));
+        // fill the current generation and the next one so that the first image gets dropped
+        for (int i = 0; i < CONFIGURATION.getCapacity() * 2; i++) filter.markSeen(image("image-" + i));
+
+        assertTrue(filter.test(image("first")));
+        assertFalse(filter.test(image("image-" + (CONFIGURATION.getCapacity() * 2 - 1))));
+    }
+
+    @Test
+    void testMalformedMetadataIsIgnored() {
+        val data = new JsonObject();
+        data.addProperty("current", "not base64!");
+        val metadata = new JsonObject();
+        metadata.add(SeenCatImagesFilter.METADATA_KEY, data);
+
+        val filter = new SeenCatImagesFilter(user(metadata), CONFIGURATION);
+        assertTrue(filter.test(image("a")));
+
+        filter.markSeen(image("a"));
+        assertFalse(filter.test(image("a")));
+    }
+
+    @Test
+    void testMissingMetadataFieldsAreIgnored() {
+        val metadata = new JsonObject();
+        metadata.add(SeenCatImagesFilter.METADATA_KEY, new JsonObject());
+        assertTrue(new SeenCatImagesFilter(user(metadata), CONFIGURATION).test(image("a")));
+
+        metadata.addProperty(SeenCatImagesFilter.METADATA_KEY, "not an object");
+        assertTrue(new SeenCatImagesFilter(user(metadata), CONFIGURATION).test(image("a")));
+    }
+
+    private static User user(final JsonObject metadata) {
+        return new SimpleUser(new TestUserManager(), "test", metadata);
+    }
+
+    static CatImage image(final String id) {
+        return new CatImage() {
+            @Override
+            public String getId() {
+                return id;
+            }
+
+            @Override
+            public byte[] getImage() {
+                return new byte[0];
+            }
+
+            @Override
+            public String getType() {
+                return "png";
+            }
+        };
+    }
+}
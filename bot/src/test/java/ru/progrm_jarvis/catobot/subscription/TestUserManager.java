@@ -0,0 +1,81 @@
+package ru.progrm_jarvis.catobot.subscription;
+
+import com.google.gson.JsonObject;
+import lombok.NonNull;
+import lombok.val;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * User manager keeping copies of the users' metadata in memory as if they were stored remotely.
+ */
+final class TestUserManager implements UserManager {
+
+    final Map<String, JsonObject> users = new ConcurrentHashMap<>();
+
+    final AtomicInteger lookups = new AtomicInteger(), stores = new AtomicInteger();
+
+    /**
+     * Executor on which the updates are performed
+     */
+    private final Executor executor;
+
+    TestUserManager() {
+        this(Runnable::run);
+    }
+
+    TestUserManager(@NonNull final Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isPresent(final String userKey) {
+        return CompletableFuture.completedFuture(users.containsKey(userKey));
+    }
+
+    @Override
+    public void store(@NonNull final User user) {
+        stores.incrementAndGet();
+        users.put(user.getKey(), user.getMetadata().deepCopy());
+    }
+
+    @Override
+    public CompletableFuture<User> getUser(final String userKey) {
+        lookups.incrementAndGet();
+
+        return CompletableFuture.completedFuture(load(userKey));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateUser(@NonNull final String userKey, @NonNull final Consumer<User> update) {
+        return CompletableFuture.runAsync(() -> {
+            val user = load(userKey);
+            update.accept(user);
+            store(user);
+        }, executor);
+    }
+
+    @Override
+    public void unstore(@NonNull final String userKey) {
+        users.remove(userKey);
+    }
+
+    @Override
+    public CompletableFuture<UserKeysChunk> scanUserKeys(@NonNull final String cursor, final int count) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {}
+
+    private User load(final String userKey) {
+        val stored = users.get(userKey);
+
+        return new SimpleUser(this, userKey, stored == null ? new JsonObject() : stored.deepCopy());
+    }
+}
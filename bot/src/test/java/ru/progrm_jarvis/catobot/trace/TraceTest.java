@@ -0,0 +1,66 @@
+package ru.progrm_jarvis.catobot.trace;
+
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraceTest {
+
+    private final Tracer tracer = new Tracer(Tracer.Configuration.builder().build());
+
+    @AfterEach
+    void detachTrace() {
+        Trace.CURRENT.remove();
+    }
+
+    @Test
+    void testTraceIsCarriedByWrappedTask() throws InterruptedException {
+        val trace = tracer.start("update");
+        assertNotNull(trace);
+        val carried = new AtomicReference<Trace>();
+        val task = Trace.wrap(() -> carried.set(Trace.current()));
+        trace.finish();
+        // the trace is held by the task
+        assertEquals(-1, trace.getDuration(TimeUnit.NANOSECONDS));
+
+        val thread = new Thread(task);
+        thread.start();
+        thread.join();
+        assertSame(trace, carried.get());
+        assertTrue(trace.getDuration(TimeUnit.NANOSECONDS) >= 0);
+    }
+
+    @Test
+    void testDiscardedTaskFinishesTrace() {
+        val trace = tracer.start("update");
+        assertNotNull(trace);
+        val task = Trace.wrap(() -> fail("Discarded task should not be run"));
+        trace.finish();
+
+        Trace.discard(task);
+        assertTrue(trace.getDuration(TimeUnit.NANOSECONDS) >= 0);
+        assertTrue(trace.toString().contains("queue"));
+    }
+
+    @Test
+    void testTaskIsReleasedOnce() {
+        val trace = tracer.start("update");
+        assertNotNull(trace);
+        val task = Trace.wrap(() -> {});
+        val other = Trace.wrap(() -> {});
+
+        task.run();
+        Trace.discard(task);
+        trace.finish();
+        // the other task still holds the trace
+        assertEquals(-1, trace.getDuration(TimeUnit.NANOSECONDS));
+
+        other.run();
+        assertTrue(trace.getDuration(TimeUnit.NANOSECONDS) >= 0);
+    }
+}
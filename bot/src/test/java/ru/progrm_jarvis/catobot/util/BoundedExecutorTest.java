@@ -0,0 +1,190 @@
+package ru.progrm_jarvis.catobot.util;
+
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.progrm_jarvis.catobot.trace.Tracer;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedExecutorTest {
+
+    private ExecutorService workers;
+
+    private CountDownLatch release;
+
+    @BeforeEach
+    void createWorkers() {
+        workers = Executors.newSingleThreadExecutor();
+        release = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    void shutdownWorkers() {
+        release.countDown();
+        workers.shutdownNow();
+    }
+
+    @Test
+    void testInvalidCapacityIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new BoundedExecutor(
+                workers, 0, BoundedExecutor.OverloadPolicy.SHED, 0
+        ));
+    }
+
+    @Test
+    void testShedPolicyRejects() {
+        val executor = new BoundedExecutor(workers, 2, BoundedExecutor.OverloadPolicy.SHED, 0);
+        executor.execute(this::awaitRelease);
+        executor.execute(this::awaitRelease);
+        assertEquals(2, executor.getPendingTasks());
+
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(this::awaitRelease));
+        assertEquals(1, executor.getRejections());
+        assertEquals(2, executor.getPendingTasks());
+    }
+
+    @Test
+    void testCallerRunsPolicyRunsOnCaller() {
+        val executor = new BoundedExecutor(workers, 1, BoundedExecutor.OverloadPolicy.CALLER_RUNS, 0);
+        executor.execute(this::awaitRelease);
+
+        val runner = new AtomicReference<Thread>();
+        executor.execute(() -> runner.set(Thread.currentThread()));
+        assertSame(Thread.currentThread(), runner.get());
+        assertEquals(1, executor.getCallerRuns());
+        assertEquals(0, executor.getRejections());
+    }
+
+    @Test
+    void testBlockPolicyWaitsForAdmission() {
+        val executor = new BoundedExecutor(workers, 1, BoundedExecutor.OverloadPolicy.BLOCK, 10_000);
+        executor.execute(this::awaitRelease);
+
+        val completed = new CountDownLatch(1);
+        new Thread(() -> {
+            sleep(100);
+            release.countDown();
+        }).start();
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            executor.execute(completed::countDown);
+            completed.await();
+        });
+        assertEquals(0, executor.getRejections());
+    }
+
+    @Test
+    void testBlockPolicyTimesOut() {
+        val executor = new BoundedExecutor(workers, 1, BoundedExecutor.OverloadPolicy.BLOCK, 50);
+        executor.execute(this::awaitRelease);
+
+        val start = System.nanoTime();
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(this::awaitRelease));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(1, executor.getRejections());
+    }
+
+    @Test
+    void testPermitIsReleased() throws InterruptedException {
+        val executor = new BoundedExecutor(workers, 1, BoundedExecutor.OverloadPolicy.SHED, 0);
+        release.countDown();
+        val completed = new CountDownLatch(1);
+        executor.execute(completed::countDown);
+        completed.await();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            while (executor.getPendingTasks() != 0) Thread.sleep(10);
+        });
+
+        // the permit is also released if the underlying executor rejects the task
+        workers.shutdown();
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {}));
+        assertEquals(0, executor.getPendingTasks());
+        assertEquals(0, executor.getRejections());
+    }
+
+    @Test
+    void testQueueDepthIsReported() {
+        val executor = BoundedExecutor.create(
+                ExecutorMode.PLATFORM, 1, BoundedExecutor.Configuration.builder().queueCapacity(2).build(),
+                Executors.defaultThreadFactory()
+        );
+        try {
+            val started = new CountDownLatch(1);
+            executor.execute(() -> {
+                started.countDown();
+                awaitRelease();
+            });
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> started.await());
+            executor.execute(this::awaitRelease);
+
+            assertEquals(1, executor.getQueueDepth());
+            assertEquals(2, executor.getPendingTasks());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testRejectedTaskReleasesTrace() {
+        val trace = new Tracer(Tracer.Configuration.builder().build()).start("update");
+        assertNotNull(trace);
+        try {
+            val executor = new BoundedExecutor(workers, 1, BoundedExecutor.OverloadPolicy.SHED, 0);
+            workers.shutdown();
+            assertThrows(RejectedExecutionException.class, () -> executor.execute(this::awaitRelease));
+        } finally {
+            trace.finish();
+        }
+        assertTrue(trace.getDuration(TimeUnit.NANOSECONDS) >= 0);
+    }
+
+    @Test
+    void testShutdownNowDiscardsQueuedTasks() {
+        val executor = new BoundedExecutor(workers, 2, BoundedExecutor.OverloadPolicy.SHED, 0);
+        executor.execute(this::awaitRelease);
+        final Runnable queuedTask = this::awaitRelease;
+        val trace = new Tracer(Tracer.Configuration.builder().build()).start("update");
+        assertNotNull(trace);
+        try {
+            executor.execute(queuedTask);
+        } finally {
+            trace.finish();
+        }
+
+        assertEquals(Collections.singletonList(queuedTask), executor.shutdownNow());
+        assertTrue(trace.getDuration(TimeUnit.NANOSECONDS) >= 0);
+        // the interrupted running task releases its admission and the queued one is discarded
+        assertTrue(assertTimeoutPreemptively(
+                Duration.ofSeconds(5), () -> executor.awaitTermination(5, TimeUnit.SECONDS)
+        ));
+        assertEquals(0, executor.getPendingTasks());
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
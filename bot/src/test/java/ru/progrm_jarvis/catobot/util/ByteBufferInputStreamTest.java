@@ -0,0 +1,42 @@
+package ru.progrm_jarvis.catobot.util;
+
+import lombok.val;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteBufferInputStreamTest {
+
+    @Test
+    void testRemainingBytesAreRead() throws IOException {
+        val buffer = ByteBuffer.wrap(new byte[]{1, 2, 3, 4, (byte) 0xFF});
+        buffer.position(1);
+
+        val input = new ByteBufferInputStream(buffer);
+        assertEquals(4, input.available());
+        assertEquals(2, input.read());
+        assertArrayEquals(new byte[]{3, 4, (byte) 0xFF}, IOUtils.toByteArray(input));
+        assertEquals(-1, input.read());
+        assertEquals(-1, input.read(new byte[1], 0, 1));
+
+        // the original buffer stays untouched
+        assertEquals(1, buffer.position());
+    }
+
+    @Test
+    void testMarkAndSkip() throws IOException {
+        val input = new ByteBufferInputStream(ByteBuffer.wrap(new byte[]{1, 2, 3, 4}));
+
+        input.mark(4);
+        assertEquals(2, input.skip(2));
+        assertEquals(3, input.read());
+        input.reset();
+        assertEquals(1, input.read());
+        assertEquals(3, input.skip(10));
+        assertEquals(0, input.skip(1));
+    }
+}
@@ -0,0 +1,107 @@
+package ru.progrm_jarvis.catobot.util;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StartupTest {
+
+    @Test
+    void testComponentsAreInitializedAfterDependencies() {
+        try (val startup = new Startup("startup-test")) {
+            val first = startup.start("first", () -> "first");
+            val second = startup.start("second", () -> first.join() + " second", first);
+
+            assertEquals("first second", Startup.await(second));
+            assertEquals(new HashSet<>(Arrays.asList("first", "second")), startup.getTimings().keySet());
+        }
+    }
+
+    @Test
+    void testFailureIsPropagatedToDependents() {
+        val dependentInitialized = new AtomicBoolean();
+        try (val startup = new Startup("startup-test")) {
+            val failure = new IllegalStateException("Unable to initialize");
+            val failing = startup.<String>start("failing", () -> {
+                throw failure;
+            });
+            val dependent = startup.start("dependent", () -> {
+                dependentInitialized.set(true);
+                return failing.join();
+            }, failing);
+
+            assertSame(failure, assertThrows(IllegalStateException.class, () -> Startup.await(failing)));
+            // the exception of the initializer is rethrown as is rather than wrapped
+            assertSame(failure, assertThrows(IllegalStateException.class, () -> Startup.await(dependent)));
+        }
+        assertFalse(dependentInitialized.get());
+    }
+
+    @Test
+    void testErrorIsPropagated() {
+        try (val startup = new Startup("startup-test")) {
+            val failing = startup.<String>start("failing", () -> {
+                throw new AssertionError("Broken");
+            });
+
+            assertThrows(AssertionError.class, () -> Startup.await(failing));
+        }
+    }
+
+    @Test
+    void testAbortClosesInitializedComponentsInReverseOrder() {
+        val closed = Collections.synchronizedList(new ArrayList<String>());
+        val startup = new Startup("startup-test");
+        val first = startup.start("first", () -> component("first", closed));
+        val second = startup.start("second", () -> component("second", closed), first);
+        Startup.await(second);
+        startup.register(component("external", closed));
+        startup.start("non-closeable", () -> "non-closeable");
+
+        startup.abort();
+        assertEquals(Arrays.asList("external", "second", "first"), closed);
+    }
+
+    @Test
+    void testAbortInterruptsRunningInitializations() throws InterruptedException {
+        val closed = Collections.synchronizedList(new ArrayList<String>());
+        val started = new CountDownLatch(1);
+        val interrupted = new AtomicBoolean();
+        val startup = new Startup("startup-test");
+        val slow = startup.start("slow", () -> {
+            started.countDown();
+            try {
+                Thread.sleep(60_000);
+            } catch (final InterruptedException e) {
+                interrupted.set(true);
+            }
+            // the component initialized regardless of the interruption is not leaked
+            return component("slow", closed);
+        });
+        started.await();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), startup::abort);
+        assertTrue(interrupted.get());
+        assertThrows(CancellationException.class, () -> Startup.await(slow));
+        assertEquals(Collections.singletonList("slow"), closed);
+
+        // components registered after the abort are closed at once
+        assertThrows(CancellationException.class, () -> startup.register(component("late", closed)));
+        assertEquals(Arrays.asList("slow", "late"), closed);
+    }
+
+    private static AutoCloseable component(final String name, final List<String> closed) {
+        return () -> closed.add(name);
+    }
+}
@@ -0,0 +1,67 @@
+package ru.progrm_jarvis.catobot.util;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    @Test
+    void testInvalidParametersAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 0));
+    }
+
+    @Test
+    void testBurstIsNotDelayed() {
+        val bucket = new TokenBucket(1, 100);
+
+        assertEquals(0, bucket.reserve(60));
+        assertEquals(0, bucket.reserve(40));
+    }
+
+    @Test
+    void testDebtIsDelayedProportionally() {
+        val bucket = new TokenBucket(1_000, 100);
+        assertEquals(0, bucket.reserve(100));
+
+        // 100 permits at 1000 permits per second are available after 100 milliseconds at most
+        val delay = bucket.reserve(100);
+        assertTrue(delay > TimeUnit.MILLISECONDS.toNanos(50), "delay is " + delay);
+        assertTrue(delay <= TimeUnit.MILLISECONDS.toNanos(100), "delay is " + delay);
+
+        // the debt accumulates so that subsequent consumers wait longer
+        assertTrue(bucket.reserve(100) > delay);
+    }
+
+    @Test
+    void testBucketIsRefilled() throws InterruptedException {
+        val bucket = new TokenBucket(1_000_000, 10);
+        assertEquals(0, bucket.reserve(10));
+
+        Thread.sleep(10);
+        assertEquals(0, bucket.reserve(10));
+    }
+
+    @Test
+    void testRefillIsLimitedByCapacity() throws InterruptedException {
+        val bucket = new TokenBucket(1_000, 10);
+
+        Thread.sleep(50);
+        // permits above the capacity are not accumulated while the bucket is idle
+        assertTrue(bucket.reserve(20) > 0);
+    }
+
+    @Test
+    void testAcquireWaits() throws InterruptedException {
+        val bucket = new TokenBucket(1_000, 10);
+        bucket.acquire(10);
+
+        val start = System.nanoTime();
+        bucket.acquire(20);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(10));
+    }
+}
@@ -0,0 +1,145 @@
+package ru.progrm_jarvis.catobot.vk;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.vk.api.sdk.callback.CallbackApi;
+import lombok.val;
+import org.apache.commons.io.FileUtils;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.progrm_jarvis.catobot.image.processor.CatImageCombiner;
+import ru.progrm_jarvis.catobot.image.processor.CatImageProcessor;
+import ru.progrm_jarvis.catobot.trace.Tracer;
+import ru.progrm_jarvis.catobot.util.BoundedExecutor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimpleVkCatsManagerTest {
+
+    private final Tracer tracer = new Tracer(Tracer.Configuration.builder().build());
+
+    private Path directory;
+
+    private ExecutorService workers;
+
+    private CountDownLatch release;
+
+    /**
+     * Recognizer-like executor which is saturated by a single blocked task
+     */
+    private BoundedExecutor executor;
+
+    @BeforeEach
+    void createExecutor() throws IOException {
+        directory = Files.createTempDirectory("vk");
+        workers = Executors.newSingleThreadExecutor();
+        release = new CountDownLatch(1);
+        executor = new BoundedExecutor(workers, 1, BoundedExecutor.OverloadPolicy.SHED, 0);
+        executor.execute(this::awaitRelease);
+    }
+
+    @AfterEach
+    void shutdownExecutor() throws IOException {
+        release.countDown();
+        workers.shutdownNow();
+        FileUtils.deleteDirectory(directory.toFile());
+    }
+
+    @Test
+    void testRejectedMessageGetsOverloadedReply() {
+        val replies = Collections.synchronizedList(new ArrayList<List<Integer>>());
+        val manager = createManager(replies);
+        try {
+            manager.handleUpdate(update("{\"type\":\"message_new\",\"object\":{\"peer_id\":5,\"id\":7,\"date\":0}}"));
+            manager.handleUpdate(update(
+                    "{\"type\":\"message_new\",\"object\":{\"message\":{\"peer_id\":6,\"id\":8,\"date\":0}}}"
+            ));
+        } finally {
+            manager.close();
+        }
+
+        assertEquals(Arrays.asList(Arrays.asList(5, 7), Arrays.asList(6, 8)), replies);
+        assertEquals(2, executor.getRejections());
+    }
+
+    @Test
+    void testRejectedOtherEventGetsNoReply() {
+        val replies = Collections.synchronizedList(new ArrayList<List<Integer>>());
+        val manager = createManager(replies);
+        try {
+            manager.handleUpdate(update("{\"type\":\"group_join\",\"object\":{\"user_id\":5}}"));
+        } finally {
+            manager.close();
+        }
+
+        assertTrue(replies.isEmpty(), replies::toString);
+        assertEquals(1, executor.getRejections());
+    }
+
+    @Test
+    void testOtherFailuresArePropagated() {
+        val manager = new SimpleVkCatsManager(configuration(), new CallbackApi() {
+            @Override
+            public boolean parse(final JsonObject update) {
+                throw new IllegalStateException();
+            }
+        }, CatImageProcessor.getStub(), CatImageCombiner.getStub(), tracer);
+        try {
+            assertThrows(IllegalStateException.class, () -> manager.handleUpdate(
+                    update("{\"type\":\"message_new\",\"object\":{\"peer_id\":5,\"id\":7,\"date\":0}}")
+            ));
+        } finally {
+            manager.close();
+        }
+    }
+
+    private SimpleVkCatsManager createManager(final List<List<Integer>> replies) {
+        return new SimpleVkCatsManager(configuration(), new CallbackApi() {
+            @Override
+            public boolean parse(final JsonObject update) {
+                // handlers of new messages hand them over to the recognizer's executor
+                executor.execute(() -> {});
+
+                return true;
+            }
+        }, CatImageProcessor.getStub(), CatImageCombiner.getStub(), tracer) {
+            @Override
+            public void sendOverloadedMessage(final int peerId, @Nullable final Integer repliedMessageId) {
+                replies.add(Arrays.asList(peerId, repliedMessageId));
+            }
+        };
+    }
+
+    private SimpleVkCatsManager.Configuration configuration() {
+        return SimpleVkCatsManager.Configuration.builder()
+                .groupId(1)
+                .groupToken("token")
+                .outbox(VkOutbox.Configuration.builder().file(directory.resolve("outbox.log").toFile()).build())
+                .build();
+    }
+
+    private static JsonObject update(final String json) {
+        return new JsonParser().parse(json).getAsJsonObject();
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
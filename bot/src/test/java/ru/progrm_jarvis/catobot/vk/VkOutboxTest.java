@@ -0,0 +1,261 @@
+package ru.progrm_jarvis.catobot.vk;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.vk.api.sdk.client.VkApiClient;
+import com.vk.api.sdk.client.actors.GroupActor;
+import com.vk.api.sdk.exceptions.ApiException;
+import com.vk.api.sdk.exceptions.ClientException;
+import com.vk.api.sdk.httpclient.HttpTransportClient;
+import lombok.NonNull;
+import lombok.val;
+import lombok.var;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VkOutboxTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("outbox");
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        FileUtils.deleteDirectory(directory.toFile());
+    }
+
+    @Test
+    void testJournalIsReplayed() throws IOException {
+        val failing = createOutbox(configuration().build(), VkOutboxTest::fail);
+        try {
+            failing.enqueue(1, 1, 1, "", send("first"));
+            failing.enqueue(2, 2, 1, "", send("second"));
+            assertEquals(2, failing.getBacklog());
+        } finally {
+            failing.close();
+        }
+
+        val scripts = Collections.synchronizedList(new ArrayList<String>());
+        val delivering = createOutbox(configuration().build(), code -> {
+            scripts.add(code);
+            return respond(code);
+        });
+        try {
+            assertEquals(2, delivering.getBacklog());
+            await(delivering::getDelivered, 2);
+            assertEquals(0, delivering.getBacklog());
+        } finally {
+            delivering.close();
+        }
+        val sent = String.join("", scripts);
+        assertTrue(sent.contains("first") && sent.contains("second"), sent);
+
+        val restarted = createOutbox(configuration().build(), VkOutboxTest::fail);
+        try {
+            assertEquals(0, restarted.getBacklog());
+        } finally {
+            restarted.close();
+        }
+    }
+
+    @Test
+    void testDuplicateMessageIsEnqueuedOnce() throws IOException {
+        val outbox = createOutbox(configuration().build(), VkOutboxTest::fail);
+        try {
+            val first = outbox.enqueue(1, 1, 1, "", send("first"));
+            assertSame(first, outbox.enqueue(1, 1, 1, "", send("first")));
+            assertEquals(1, outbox.getBacklog());
+            assertEquals(1, outbox.getEnqueued());
+        } finally {
+            outbox.close();
+        }
+    }
+
+    @Test
+    void testCorruptedJournalTailIsDiscarded() throws IOException {
+        val file = directory.resolve("outbox.log");
+        val outbox = createOutbox(configuration().build(), VkOutboxTest::fail);
+        try {
+            outbox.enqueue(1, 1, 1, "", send("first"));
+        } finally {
+            outbox.close();
+        }
+        val size = Files.size(file);
+        // a torn record left by a crash
+        Files.write(file, new byte[]{0, 0, 0, 100, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        val restarted = createOutbox(configuration().build(), VkOutboxTest::fail);
+        try {
+            assertEquals(1, restarted.getBacklog());
+            assertEquals(size, Files.size(file));
+        } finally {
+            restarted.close();
+        }
+    }
+
+    @Test
+    void testMessagesAreBatched() throws IOException {
+        val scripts = Collections.synchronizedList(new ArrayList<String>());
+        val outbox = createOutbox(configuration().coalescingDelay(500).build(), code -> {
+            scripts.add(code);
+            return respond(code);
+        });
+        try {
+            val first = outbox.enqueue(1, 1, 1, "", send("first"));
+            val second = outbox.enqueue(2, 2, 1, "", send("second"));
+            val third = outbox.enqueue(3, 3, 1, "", send("third"));
+
+            assertNotEquals(first.join(), second.join());
+            assertNotEquals(second.join(), third.join());
+            assertEquals(1, scripts.size());
+            assertEquals(1, outbox.getBatches());
+            assertEquals(3, outbox.getDelivered());
+        } finally {
+            outbox.close();
+        }
+    }
+
+    @Test
+    void testRejectedMessageIsIsolated() throws IOException {
+        val outbox = createOutbox(configuration().coalescingDelay(500).maxAttempts(2).build(), code -> {
+            if (code.contains("poison")) throw new IllegalStateException("Script rejected");
+            return respond(code);
+        });
+        try {
+            val first = outbox.enqueue(1, 1, 1, "", send("first"));
+            val poison = outbox.enqueue(2, 2, 1, "", send("poison"));
+            val third = outbox.enqueue(3, 3, 1, "", send("third"));
+
+            assertNotNull(first.join());
+            assertNotNull(third.join());
+            assertThrows(CompletionException.class, poison::join);
+            assertEquals(1, outbox.getFailed());
+            assertEquals(0, outbox.getBacklog());
+        } finally {
+            outbox.close();
+        }
+    }
+
+    @Test
+    void testRetryDoesNotBlockOtherPeers() throws IOException, InterruptedException {
+        val attempted = new CountDownLatch(1);
+        val outbox = createOutbox(configuration().initialBackoff(60_000).build(), code -> {
+            if (code.contains("unavailable")) {
+                attempted.countDown();
+                throw new ClientException("Peer is unavailable");
+            }
+            return respond(code);
+        });
+        try {
+            outbox.enqueue(1, 1, 1, "", send("unavailable"));
+            attempted.await();
+
+            val other = outbox.enqueue(2, 2, 1, "", send("other"));
+            assertNotNull(assertTimeoutPreemptively(Duration.ofSeconds(10), other::join));
+            assertEquals(1, outbox.getBacklog());
+        } finally {
+            outbox.close();
+        }
+    }
+
+    @Test
+    void testOrderOfPeerMessagesIsKept() throws IOException, InterruptedException {
+        val failed = new AtomicBoolean();
+        val attempted = new CountDownLatch(1);
+        val scripts = Collections.synchronizedList(new ArrayList<String>());
+        val outbox = createOutbox(configuration().initialBackoff(200).build(), code -> {
+            if (failed.compareAndSet(false, true)) {
+                attempted.countDown();
+                throw new ClientException("Temporary failure");
+            }
+            scripts.add(code);
+            return respond(code);
+        });
+        try {
+            val first = outbox.enqueue(1, 1, 1, "", send("first"));
+            attempted.await();
+            val second = outbox.enqueue(1, 2, 1, "", send("second"));
+
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                first.join();
+                second.join();
+            });
+            val sent = String.join("", scripts);
+            assertTrue(sent.indexOf("first") < sent.indexOf("second"), sent);
+            assertEquals(1, outbox.getRetries());
+        } finally {
+            outbox.close();
+        }
+    }
+
+    private VkOutbox.Configuration.ConfigurationBuilder configuration() {
+        return VkOutbox.Configuration.builder()
+                .file(directory.resolve("outbox.log").toFile())
+                .workers(1)
+                .coalescingDelay(10)
+                .maxRequestsPerSecond(0)
+                .initialBackoff(10);
+    }
+
+    private static VkOutbox createOutbox(final VkOutbox.Configuration configuration, final Script script) {
+        return new VkOutbox(configuration, new VkApiClient(new HttpTransportClient()), new GroupActor(1, "token")) {
+            @Override
+            protected JsonElement executeScript(@NonNull final String code) throws ApiException, ClientException {
+                return script.execute(code);
+            }
+        };
+    }
+
+    private static String send(final String text) {
+        return "API.messages.send({\"message\":\"" + text + "\"})";
+    }
+
+    private static JsonElement fail(final String code) throws ClientException {
+        throw new ClientException("VK is unavailable");
+    }
+
+    /**
+     * Responds to the script of a batch with a message ID for each of its calls.
+     */
+    private static JsonElement respond(final String code) {
+        val results = new JsonArray();
+        for (var index = code.indexOf("r.push("); index >= 0; index = code.indexOf("r.push(", index + 1)) {
+            results.add(index);
+        }
+
+        return results;
+    }
+
+    private static void await(final LongSupplier value, final long expected) {
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            while (value.getAsLong() < expected) Thread.sleep(10);
+        });
+        assertEquals(expected, value.getAsLong());
+    }
+
+    @FunctionalInterface
+    private interface Script {
+
+        JsonElement execute(String code) throws ApiException, ClientException;
+    }
+}